@@ -0,0 +1,55 @@
+package com.johoco.springbatchpgaiapp.batch;
+
+import com.johoco.springbatchpgaiapp.service.AdaptiveConcurrencyLimit;
+import com.johoco.springbatchpgaiapp.service.DirectoryCrawler;
+import com.johoco.springbatchpgaiapp.service.FileClaims;
+import com.johoco.springbatchpgaiapp.service.InputSources;
+import com.johoco.springbatchpgaiapp.service.MemoryBudget;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+
+/**
+ * Returns what a document job took when it was launched, whatever its outcome: its file claim,
+ * its memory reservation, its concurrency slot and its input source's quota slot. It also tells
+ * the directory crawler the job ended, so the file's fingerprint is saved with its index.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DocumentJobListener implements JobExecutionListener {
+    public static final String FILE_NAME_PARAMETER = "fileName";
+    public static final String SOURCE_PARAMETER = "source";
+    public static final String INPUT_DIRECTORY_PARAMETER = "inputDirectory";
+
+    private final MemoryBudget memoryBudget;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final InputSources inputSources;
+    private final FileClaims fileClaims;
+    private final DirectoryCrawler directoryCrawler;
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        JobParameters parameters = jobExecution.getJobParameters();
+        String fileName = parameters.getString(FILE_NAME_PARAMETER);
+        String source = parameters.getString(SOURCE_PARAMETER);
+        if (source == null) {
+            source = InputSources.DEFAULT_SOURCE;
+        }
+        String key = InputSources.key(source, fileName);
+        fileClaims.release(key);
+        memoryBudget.release(key);
+        concurrencyLimit.release();
+        inputSources.completed(source, jobExecution.getStatus().toString());
+        String inputDirectory = parameters.getString(INPUT_DIRECTORY_PARAMETER);
+        if (inputDirectory != null && fileName != null) {
+            directoryCrawler.finished(new File(inputDirectory, fileName));
+        }
+        log.debug("Job for {} from source {} ended with status {}", fileName, source, jobExecution.getStatus());
+    }
+}
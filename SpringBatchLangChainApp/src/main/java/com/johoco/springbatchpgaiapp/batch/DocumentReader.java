@@ -1,9 +1,7 @@
 package com.johoco.springbatchpgaiapp.batch;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.batch.core.JobParameters;
-import org.springframework.batch.core.StepExecution;
-import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.ItemStreamException;
 import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,25 +13,26 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+/**
+ * Reads the single file a document job was launched for. Step scoped, so concurrent jobs each
+ * get their own reader bound to their own job parameters.
+ */
 @Slf4j
 @Component
+@StepScope
 public class DocumentReader implements ItemStreamReader<File> {
-    @Value("${document.input.directory}")
-    private String inputDirectory;
-    
+    private final String fileName;
+    private final String sourceDirectory;
     private File fileToProcess;
     private boolean fileProcessed;
-    private String fileName;
 
-    public DocumentReader() {
-        log.info("DocumentReader constructed");
-    }
-    
-    @BeforeStep
-    public void beforeStep(StepExecution stepExecution) {
-        JobParameters jobParameters = stepExecution.getJobParameters();
-        this.fileName = jobParameters.getString("fileName");
-        log.info("DocumentReader initialized with fileName parameter: {}", fileName);
+    public DocumentReader(@Value("#{jobParameters['" + DocumentJobListener.FILE_NAME_PARAMETER + "']}") String fileName,
+                          @Value("#{jobParameters['" + DocumentJobListener.INPUT_DIRECTORY_PARAMETER + "']}") String jobInputDirectory,
+                          @Value("${document.input.directory}") String inputDirectory) {
+        this.fileName = fileName;
+        // Jobs launched from an input source name its directory; otherwise the default input directory is used
+        this.sourceDirectory = jobInputDirectory != null ? jobInputDirectory : inputDirectory;
+        log.info("DocumentReader initialized with fileName parameter: {} in {}", fileName, sourceDirectory);
     }
 
     @Override
@@ -45,9 +44,9 @@ public class DocumentReader implements ItemStreamReader<File> {
                 throw new ItemStreamException("fileName parameter is required");
             }
             
-            Path inputPath = Paths.get(inputDirectory);
+            Path inputPath = Paths.get(sourceDirectory);
             if (!Files.exists(inputPath)) {
-                log.info("Creating input directory: {}", inputDirectory);
+                log.info("Creating input directory: {}", inputPath);
                 Files.createDirectories(inputPath);
             }
             
@@ -5,14 +5,11 @@ import com.johoco.springbatchpgaiapp.model.DocumentMetadata;
 import com.johoco.springbatchpgaiapp.model.DocumentStatus;
 import com.johoco.springbatchpgaiapp.repository.DocumentRepository;
 import com.johoco.springbatchpgaiapp.util.FileOperations;
-import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.ExitStatus;
-import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.annotation.AfterStep;
-import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.Chunk;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.beans.factory.annotation.Value;
@@ -25,15 +22,19 @@ import java.io.File;
 import java.time.Instant;
 import java.util.Optional;
 
+/**
+ * Saves a job's document and moves its file to the output or failed directory. Step scoped, so
+ * concurrent jobs each get their own writer bound to their own job parameters.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
+@StepScope
 public class DocumentWriter implements ItemWriter<Document> {
     private final DocumentRepository documentRepository;
     private final FileOperations fileOperations;
-    
-    @Value("${document.input.directory}")
-    private String inputDirectory;
+    private final String currentFileName;
+    private final String currentInputDirectory;
+    private final String currentSource;
     
     @Value("${document.output.directory}")
     private String outputDirectory;
@@ -41,17 +42,16 @@ public class DocumentWriter implements ItemWriter<Document> {
     @Value("${document.output.failed-directory}")
     private String failedDirectory;
     
-    private String currentFileName;
-    
-    @PostConstruct
-    public void init() {
-        log.info("DocumentWriter initialized with documentRepository: {}", documentRepository != null ? "injected" : "null");
-    }
-    
-    @BeforeStep
-    public void beforeStep(StepExecution stepExecution) {
-        JobParameters jobParameters = stepExecution.getJobParameters();
-        this.currentFileName = jobParameters.getString("fileName");
+    public DocumentWriter(DocumentRepository documentRepository, FileOperations fileOperations,
+                          @Value("#{jobParameters['" + DocumentJobListener.FILE_NAME_PARAMETER + "']}") String currentFileName,
+                          @Value("#{jobParameters['" + DocumentJobListener.INPUT_DIRECTORY_PARAMETER + "']}") String jobInputDirectory,
+                          @Value("#{jobParameters['" + DocumentJobListener.SOURCE_PARAMETER + "']}") String source,
+                          @Value("${document.input.directory}") String inputDirectory) {
+        this.documentRepository = documentRepository;
+        this.fileOperations = fileOperations;
+        this.currentFileName = currentFileName;
+        this.currentInputDirectory = jobInputDirectory != null ? jobInputDirectory : inputDirectory;
+        this.currentSource = source;
         log.info("DocumentWriter initialized with fileName parameter: {}", currentFileName);
     }
 
@@ -86,6 +86,7 @@ public class DocumentWriter implements ItemWriter<Document> {
                     Document existing = existingDoc.get();
                     log.debug("Found existing document: {} with id: {}", existing.getFilename(), existing.getId());
                     existing.setContent(document.getContent());
+                    existing.setEmbedding(document.getEmbedding());
                     existing.setFileSize(document.getFileSize());
                     existing.setLastModified(document.getLastModified());
                     existing.setStatus(document.getStatus());
@@ -148,7 +149,7 @@ public class DocumentWriter implements ItemWriter<Document> {
         }
         
         try {
-            File inputFile = new File(inputDirectory, currentFileName);
+            File inputFile = new File(currentInputDirectory, currentFileName);
             if (!inputFile.exists()) {
                 log.warn("Could not find file to move: {}", inputFile.getAbsolutePath());
                 return stepExecution.getExitStatus();
@@ -161,7 +162,9 @@ public class DocumentWriter implements ItemWriter<Document> {
                     stepExecution.getExitStatus().getExitCode(), 
                     targetDirectory);
             
-            File movedFile = fileOperations.moveFile(inputFile, targetDirectory, !isSuccessful);
+            // Under its source and relative path, so same-named files from elsewhere do not collide
+            String relativePath = currentSource != null ? currentSource + File.separator + currentFileName : currentFileName;
+            File movedFile = fileOperations.moveFile(inputFile, targetDirectory, relativePath, !isSuccessful);
             log.info("Successfully moved file to: {}", movedFile.getAbsolutePath());
             
         } catch (Exception e) {
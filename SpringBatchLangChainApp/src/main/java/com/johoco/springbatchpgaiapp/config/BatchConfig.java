@@ -1,5 +1,6 @@
 package com.johoco.springbatchpgaiapp.config;
 
+import com.johoco.springbatchpgaiapp.batch.DocumentJobListener;
 import com.johoco.springbatchpgaiapp.batch.DocumentReader;
 import com.johoco.springbatchpgaiapp.batch.DocumentWriter;
 import com.johoco.springbatchpgaiapp.model.Document;
@@ -34,6 +35,8 @@ public class BatchConfig {
     private final DocumentReader documentReader;
     private final DocumentProcessor documentProcessor;
     private final DocumentWriter documentWriter;
+    private final ThreadingConfig threadingConfig;
+    private final DocumentJobListener documentJobListener;
 
     @Bean
     @Primary
@@ -57,7 +60,11 @@ public class BatchConfig {
     public JobLauncher jobLauncher() throws Exception {
         TaskExecutorJobLauncher jobLauncher = new TaskExecutorJobLauncher();
         jobLauncher.setJobRepository(jobRepository());
-        jobLauncher.setTaskExecutor(new SimpleAsyncTaskExecutor());
+        // One thread per job; on virtual threads a job blocked on the database or a file move costs no platform thread
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("document-job-");
+        taskExecutor.setVirtualThreads(threadingConfig.isVirtualThreads());
+        log.info("Launching jobs on {} threads", threadingConfig.isVirtualThreads() ? "virtual" : "platform");
+        jobLauncher.setTaskExecutor(taskExecutor);
         jobLauncher.afterPropertiesSet();
         return jobLauncher;
     }
@@ -67,6 +74,7 @@ public class BatchConfig {
         log.info("Creating processDocumentJob with jobRepository and transactionManager");
         return new JobBuilder("processDocumentJob", jobRepository)
                 .start(processDocumentStep(jobRepository, transactionManager))
+                .listener(documentJobListener)
                 .build();
     }
 
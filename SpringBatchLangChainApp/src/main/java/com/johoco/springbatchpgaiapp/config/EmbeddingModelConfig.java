@@ -0,0 +1,129 @@
+package com.johoco.springbatchpgaiapp.config;
+
+import ai.onnxruntime.OrtSession;
+import com.johoco.springbatchpgaiapp.embedding.EmbeddingModelVariant;
+import com.johoco.springbatchpgaiapp.embedding.OnnxEmbeddingEngine;
+import com.johoco.springbatchpgaiapp.embedding.QuantizationEvaluator;
+import com.johoco.springbatchpgaiapp.embedding.QuantizationReport;
+import dev.langchain4j.model.embedding.AllMiniLmL6V2EmbeddingModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Provides the all-MiniLM-L6-v2 embedding model shared by ingestion and search,
+ * running on a pool of ONNX Runtime sessions with explicit threading.
+ */
+@Slf4j
+@Configuration
+public class EmbeddingModelConfig {
+    // Bundled in the langchain4j embeddings jars
+    static final String VOCABULARY_RESOURCE = "/bert-vocabulary-en.txt";
+
+    @Value("${document.embedding.variant:FP32}")
+    private EmbeddingModelVariant variant = EmbeddingModelVariant.FP32;
+
+    @Value("${document.embedding.sessions:0}")
+    private int sessions;
+
+    @Value("${document.embedding.intra-op-threads:1}")
+    private int intraOpThreads = 1;
+
+    @Value("${document.embedding.inter-op-threads:1}")
+    private int interOpThreads = 1;
+
+    @Value("${document.embedding.optimization-level:ALL_OPT}")
+    private OrtSession.SessionOptions.OptLevel optimizationLevel = OrtSession.SessionOptions.OptLevel.ALL_OPT;
+
+    @Value("${document.embedding.allow-spinning:false}")
+    private boolean allowSpinning;
+
+    @Value("${document.embedding.batch-size:8}")
+    private int batchSize = 8;
+
+    @Value("${document.embedding.evaluation.on-startup:true}")
+    private boolean evaluateOnStartup = true;
+
+    @Value("${document.embedding.evaluation.corpus:classpath:embedding-evaluation-corpus.txt}")
+    private Resource evaluationCorpus;
+
+    @Value("${document.embedding.evaluation.neighbours:5}")
+    private int evaluationNeighbours = 5;
+
+    @Value("${document.embedding.evaluation.min-mean-cosine:0.98}")
+    private double minMeanCosine = 0.98;
+
+    @Bean
+    public EmbeddingModel embeddingModel() throws IOException {
+        // By default one session per intra-op thread group, so all sessions together use every core once
+        int sessionCount = sessions > 0
+                ? sessions
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / intraOpThreads);
+        log.info("Creating {} all-MiniLM-L6-v2 embedding engine with {} sessions", variant, sessionCount);
+        return createEngine(variant, sessionCount);
+    }
+
+    /**
+     * When the quantized model is selected, reports its drift from the full precision model on the
+     * evaluation corpus at startup, so the accuracy given up for the speedup is visible in the logs.
+     */
+    @Bean
+    public ApplicationRunner quantizationEvaluation(EmbeddingModel embeddingModel) {
+        return args -> {
+            if (variant == EmbeddingModelVariant.FP32 || !evaluateOnStartup) {
+                return;
+            }
+            List<String> corpus = readCorpus(evaluationCorpus);
+            try (OnnxEmbeddingEngine reference = createEngine(EmbeddingModelVariant.FP32, 1)) {
+                QuantizationReport report = QuantizationEvaluator.evaluate(reference, embeddingModel, corpus, evaluationNeighbours);
+                if (report.getMeanCosine() < minMeanCosine) {
+                    log.warn("{} embeddings drift from FP32 beyond the accepted mean cosine {}: {}", variant, minMeanCosine, report);
+                } else {
+                    log.info("{} embedding drift from FP32: {}", variant, report);
+                }
+            }
+        };
+    }
+
+    private OnnxEmbeddingEngine createEngine(EmbeddingModelVariant modelVariant, int sessionCount) throws IOException {
+        return new OnnxEmbeddingEngine(loadResource(modelVariant.getModelResource()), vocabulary(), sessionCount,
+                intraOpThreads, interOpThreads, optimizationLevel, allowSpinning, batchSize);
+    }
+
+    static byte[] loadResource(String name) throws IOException {
+        try (InputStream in = AllMiniLmL6V2EmbeddingModel.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Model resource not found on classpath: " + name);
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    static URL vocabulary() throws IOException {
+        URL vocabulary = AllMiniLmL6V2EmbeddingModel.class.getResource(VOCABULARY_RESOURCE);
+        if (vocabulary == null) {
+            throw new IOException("Vocabulary resource not found on classpath: " + VOCABULARY_RESOURCE);
+        }
+        return vocabulary;
+    }
+
+    /** Reads one sample text per non-blank line. */
+    private static List<String> readCorpus(Resource corpus) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(corpus.getInputStream(), StandardCharsets.UTF_8))) {
+            return reader.lines().map(String::trim).filter(line -> !line.isEmpty()).collect(Collectors.toList());
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.context.annotation.Configuration;
 @Slf4j
 @Configuration
 public class EmbeddingStoreConfig {
+    public static final String EMBEDDING_TABLE = "embedding_store";
 
     @Value("${spring.datasource.url}")
     private String jdbcUrl;
@@ -45,7 +46,7 @@ public class EmbeddingStoreConfig {
                 .database(database)
                 .user(username)
                 .password(password)
-                .table("embedding_store") // Use a different table name
+                .table(EMBEDDING_TABLE) // Use a different table name
                 .dimension(384)
                 .useIndex(true)
                 .indexListSize(100)
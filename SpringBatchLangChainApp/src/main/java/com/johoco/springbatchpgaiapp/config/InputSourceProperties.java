@@ -0,0 +1,33 @@
+package com.johoco.springbatchpgaiapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The input directories watched for documents. Without {@code document.input.sources},
+ * {@code document.input.directory} is the only source.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "document.input")
+public class InputSourceProperties {
+    private String directory;
+    private List<Source> sources = new ArrayList<>();
+
+    /**
+     * One input root, typically owned by one upstream team.
+     */
+    @Data
+    public static class Source {
+        private String name;
+        private String directory;
+        /** Share of launched bytes under the FAIR scheduling policy. */
+        private double weight = 1.0;
+        /** Jobs from this source allowed to run at once; 0 means no quota. */
+        private int maxConcurrent;
+    }
+}
@@ -0,0 +1,61 @@
+package com.johoco.springbatchpgaiapp.config;
+
+import com.johoco.springbatchpgaiapp.util.CpuBoundExecutor;
+import com.johoco.springbatchpgaiapp.util.VirtualThreadPinningMonitor;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnJava;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Chooses the threads ingestion runs on.
+ * <p>
+ * With {@code document.threads.virtual.enabled} on Java 21 or higher, batch jobs, and with them
+ * the database writes and file moves of each document, run on virtual threads, so thousands of
+ * documents can be in flight without a platform thread each. Text extraction and fingerprinting
+ * then run on a fixed pool of platform threads, and inference stays on the embedding engine's
+ * own sessions. Otherwise everything runs on platform threads as before.
+ */
+@Slf4j
+@Configuration
+public class ThreadingConfig {
+
+    @Value("${document.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @Value("${document.threads.cpu-pool-size:0}")
+    private int cpuPoolSize;
+
+    @Value("${document.threads.pinning-threshold-ms:20}")
+    private long pinningThresholdMs = 20;
+
+    /**
+     * @return whether jobs run on virtual threads: requested and supported by the running JVM
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreadsEnabled && Runtime.version().feature() >= 21;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CpuBoundExecutor cpuBoundExecutor() {
+        if (virtualThreadsEnabled && !isVirtualThreads()) {
+            log.warn("Virtual threads requested but Java {} does not support them, using platform threads",
+                     Runtime.version().feature());
+        }
+        int poolSize = cpuPoolSize > 0 ? cpuPoolSize : Runtime.getRuntime().availableProcessors();
+        return new CpuBoundExecutor(poolSize, isVirtualThreads());
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnJava(JavaVersion.TWENTY_ONE)
+    @ConditionalOnProperty(name = "document.threads.virtual.enabled", havingValue = "true")
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(MeterRegistry meterRegistry) {
+        return new VirtualThreadPinningMonitor(meterRegistry, Duration.ofMillis(pinningThresholdMs));
+    }
+}
@@ -0,0 +1,22 @@
+package com.johoco.springbatchpgaiapp.embedding;
+
+/**
+ * Builds of the all-MiniLM-L6-v2 model bundled with langchain4j. Both produce 384-dimension
+ * embeddings from the same vocabulary, so either can serve the same embedding store.
+ */
+public enum EmbeddingModelVariant {
+    /** Full precision weights. */
+    FP32("/all-minilm-l6-v2.onnx"),
+    /** Weights quantized to 8-bit integers: about a quarter of the size and faster on CPU, at a small accuracy cost. */
+    INT8("/all-minilm-l6-v2-q.onnx");
+
+    private final String modelResource;
+
+    EmbeddingModelVariant(String modelResource) {
+        this.modelResource = modelResource;
+    }
+
+    public String getModelResource() {
+        return modelResource;
+    }
+}
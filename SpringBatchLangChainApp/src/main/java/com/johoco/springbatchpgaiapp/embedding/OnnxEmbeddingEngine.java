@@ -0,0 +1,266 @@
+package com.johoco.springbatchpgaiapp.embedding;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.BertTokenizer;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URL;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process BERT sentence embedding model running on a pool of ONNX Runtime sessions.
+ * <p>
+ * langchain4j's in-process models share one session created with default options, which uses
+ * every core for each inference; concurrent callers then oversubscribe the CPU. Here each session
+ * gets an explicit number of intra-op threads and graph optimization level, and {@link #embedAll}
+ * splits its segments into batches that are scheduled onto whichever sessions are idle. Callers
+ * from different jobs share the same sessions, so the total inference threads stay at
+ * {@code sessions x intraOpThreads} however many callers there are.
+ * <p>
+ * Tokenization, windowing of long texts and mean pooling follow langchain4j's
+ * {@code OnnxBertBiEncoder}, so embeddings are interchangeable with those of its models.
+ */
+@Slf4j
+public class OnnxEmbeddingEngine implements EmbeddingModel, AutoCloseable {
+    private static final String CLS = "[CLS]";
+    private static final String SEP = "[SEP]";
+    // Model input is limited to 512 tokens including [CLS] and [SEP]
+    private static final int MAX_SEQUENCE_LENGTH = 510;
+
+    private final OrtEnvironment environment;
+    private final BertTokenizer tokenizer;
+    private final List<OrtSession> sessions = new ArrayList<>();
+    private final List<OrtSession.SessionOptions> sessionOptions = new ArrayList<>();
+    private final BlockingQueue<OrtSession> idleSessions;
+    private final ExecutorService scheduler;
+    private final int batchSize;
+
+    /**
+     * @param model the ONNX model bytes
+     * @param vocabulary the WordPiece vocabulary the model was trained with
+     * @param sessionCount number of sessions, i.e. inferences that can run at the same time
+     * @param intraOpThreads threads each session uses within one operator
+     * @param interOpThreads threads each session uses to run independent operators in parallel
+     * @param optimizationLevel graph optimizations applied when the sessions are created
+     * @param allowSpinning whether idle intra-op threads busy-wait for work; lowers latency
+     *                      but burns CPU that other sessions could use
+     * @param batchSize segments scheduled onto a session at a time
+     */
+    public OnnxEmbeddingEngine(byte[] model, URL vocabulary, int sessionCount, int intraOpThreads, int interOpThreads,
+                               OrtSession.SessionOptions.OptLevel optimizationLevel, boolean allowSpinning, int batchSize) {
+        if (sessionCount < 1 || intraOpThreads < 1 || interOpThreads < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Session count, thread counts and batch size must be positive");
+        }
+        this.environment = OrtEnvironment.getEnvironment();
+        this.tokenizer = new BertTokenizer(vocabulary);
+        this.batchSize = batchSize;
+        this.idleSessions = new ArrayBlockingQueue<>(sessionCount);
+
+        try {
+            for (int i = 0; i < sessionCount; i++) {
+                OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+                sessionOptions.add(options);
+                options.setIntraOpNumThreads(intraOpThreads);
+                options.setInterOpNumThreads(interOpThreads);
+                options.setOptimizationLevel(optimizationLevel);
+                options.setExecutionMode(interOpThreads > 1
+                        ? OrtSession.SessionOptions.ExecutionMode.PARALLEL
+                        : OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL);
+                options.addConfigEntry("session.intra_op.allow_spinning", allowSpinning ? "1" : "0");
+                OrtSession session = environment.createSession(model, options);
+                sessions.add(session);
+                idleSessions.add(session);
+            }
+        } catch (OrtException e) {
+            close();
+            throw new IllegalStateException("Could not create ONNX session: " + e.getMessage(), e);
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.scheduler = Executors.newFixedThreadPool(sessionCount, runnable -> {
+            Thread thread = new Thread(runnable, "onnx-embedding-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("ONNX embedding engine started with {} sessions of {} intra-op / {} inter-op threads, optimization {}",
+                sessionCount, intraOpThreads, interOpThreads, optimizationLevel);
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Embeds the segments, running batches of them on all idle sessions in parallel.
+     * Embeddings are returned in the order of the segments.
+     */
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+        if (segments.isEmpty()) {
+            return Response.from(Collections.emptyList());
+        }
+
+        Embedding[] embeddings = new Embedding[segments.size()];
+        List<Future<?>> batches = new ArrayList<>();
+        for (int from = 0; from < segments.size(); from += batchSize) {
+            int start = from;
+            int end = Math.min(segments.size(), from + batchSize);
+            batches.add(scheduler.submit(() -> {
+                OrtSession session = idleSessions.take();
+                try {
+                    for (int i = start; i < end; i++) {
+                        embeddings[i] = Embedding.from(embed(session, segments.get(i).text()));
+                    }
+                } finally {
+                    idleSessions.add(session);
+                }
+                return null;
+            }));
+        }
+
+        try {
+            for (Future<?> batch : batches) {
+                batch.get();
+            }
+        } catch (InterruptedException e) {
+            batches.forEach(batch -> batch.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while embedding", e);
+        } catch (ExecutionException e) {
+            batches.forEach(batch -> batch.cancel(true));
+            throw new IllegalStateException("Error embedding segments: " + e.getCause().getMessage(), e.getCause());
+        }
+        return Response.from(Arrays.asList(embeddings));
+    }
+
+    /**
+     * Embeds one text. Texts longer than the model's sequence length are embedded in windows
+     * whose embeddings are averaged, weighted by their token counts.
+     */
+    private float[] embed(OrtSession session, String text) throws OrtException {
+        List<String> tokens = tokenizer.tokenize(text);
+        List<float[]> windowEmbeddings = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        int from = 0;
+        do {
+            List<String> window = tokens.subList(from, Math.min(tokens.size(), from + MAX_SEQUENCE_LENGTH));
+            windowEmbeddings.add(encode(session, toTokenIds(window)));
+            weights.add(window.size());
+            from += MAX_SEQUENCE_LENGTH;
+        } while (from < tokens.size());
+        return normalize(weightedAverage(windowEmbeddings, weights));
+    }
+
+    private long[] toTokenIds(List<String> tokens) {
+        long[] ids = new long[tokens.size() + 2];
+        int i = 0;
+        ids[i++] = tokenizer.tokenId(CLS);
+        for (String token : tokens) {
+            ids[i++] = tokenizer.tokenId(token);
+        }
+        ids[i] = tokenizer.tokenId(SEP);
+        return ids;
+    }
+
+    private float[] encode(OrtSession session, long[] tokenIds) throws OrtException {
+        long[] attentionMask = new long[tokenIds.length];
+        Arrays.fill(attentionMask, 1);
+        long[] tokenTypeIds = new long[tokenIds.length];
+        long[] shape = {1, tokenIds.length};
+
+        try (OnnxTensor ids = OnnxTensor.createTensor(environment, LongBuffer.wrap(tokenIds), shape);
+             OnnxTensor types = OnnxTensor.createTensor(environment, LongBuffer.wrap(tokenTypeIds), shape);
+             OnnxTensor mask = OnnxTensor.createTensor(environment, LongBuffer.wrap(attentionMask), shape)) {
+            Map<String, OnnxTensor> inputs = new HashMap<>();
+            inputs.put("input_ids", ids);
+            inputs.put("token_type_ids", types);
+            inputs.put("attention_mask", mask);
+            try (OrtSession.Result result = session.run(inputs)) {
+                float[][] tokenVectors = ((float[][][]) result.get(0).getValue())[0];
+                return meanPool(tokenVectors);
+            }
+        }
+    }
+
+    private static float[] meanPool(float[][] vectors) {
+        float[] mean = new float[vectors[0].length];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < mean.length; i++) {
+                mean[i] += vector[i];
+            }
+        }
+        for (int i = 0; i < mean.length; i++) {
+            mean[i] /= vectors.length;
+        }
+        return mean;
+    }
+
+    private static float[] weightedAverage(List<float[]> embeddings, List<Integer> weights) {
+        if (embeddings.size() == 1) {
+            return embeddings.get(0);
+        }
+        float[] average = new float[embeddings.get(0).length];
+        int totalWeight = 0;
+        for (int e = 0; e < embeddings.size(); e++) {
+            float[] embedding = embeddings.get(e);
+            int weight = weights.get(e);
+            totalWeight += weight;
+            for (int i = 0; i < average.length; i++) {
+                average[i] += embedding[i] * weight;
+            }
+        }
+        for (int i = 0; i < average.length; i++) {
+            average[i] /= totalWeight;
+        }
+        return average;
+    }
+
+    private static float[] normalize(float[] vector) {
+        float sumOfSquares = 0;
+        for (float value : vector) {
+            sumOfSquares += value * value;
+        }
+        float norm = (float) Math.sqrt(sumOfSquares);
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] / norm;
+        }
+        return normalized;
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        for (OrtSession session : sessions) {
+            try {
+                session.close();
+            } catch (OrtException e) {
+                log.warn("Error closing ONNX session: {}", e.getMessage());
+            }
+        }
+        sessionOptions.forEach(OrtSession.SessionOptions::close);
+        sessions.clear();
+    }
+}
@@ -0,0 +1,96 @@
+package com.johoco.springbatchpgaiapp.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the drift of a quantized embedding model against its full precision reference:
+ * how similar the two embeddings of each sample text are, whether nearest-neighbour rankings
+ * among the samples survive, and how long each model takes to embed the corpus.
+ */
+public final class QuantizationEvaluator {
+
+    private QuantizationEvaluator() {
+    }
+
+    /**
+     * @param reference the full precision model
+     * @param candidate the quantized model
+     * @param corpus sample texts, ideally representative of the ingested documents
+     * @param neighbours number of nearest neighbours compared per text
+     * @return the drift report
+     */
+    public static QuantizationReport evaluate(EmbeddingModel reference, EmbeddingModel candidate, List<String> corpus,
+                                              int neighbours) {
+        if (corpus.size() < 2) {
+            throw new IllegalArgumentException("Evaluation needs at least two sample texts");
+        }
+        List<TextSegment> segments = corpus.stream().map(TextSegment::from).collect(Collectors.toList());
+        int k = Math.min(neighbours, corpus.size() - 1);
+
+        // Warm up both models so session initialization is not timed
+        reference.embed(segments.get(0));
+        candidate.embed(segments.get(0));
+
+        long start = System.nanoTime();
+        List<Embedding> referenceEmbeddings = reference.embedAll(segments).content();
+        long referenceNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        List<Embedding> candidateEmbeddings = candidate.embedAll(segments).content();
+        long candidateNanos = System.nanoTime() - start;
+
+        double[] cosines = new double[segments.size()];
+        double overlap = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            cosines[i] = cosine(referenceEmbeddings.get(i).vector(), candidateEmbeddings.get(i).vector());
+            Set<Integer> expected = nearest(referenceEmbeddings, i, k);
+            Set<Integer> actual = nearest(candidateEmbeddings, i, k);
+            actual.retainAll(expected);
+            overlap += (double) actual.size() / k;
+        }
+
+        double[] sorted = cosines.clone();
+        Arrays.sort(sorted);
+        return QuantizationReport.builder()
+                .samples(segments.size())
+                .meanCosine(Arrays.stream(cosines).average().orElse(0))
+                .minCosine(sorted[0])
+                .p5Cosine(sorted[(int) Math.floor(0.05 * (sorted.length - 1))])
+                .neighbours(k)
+                .neighbourOverlap(overlap / segments.size())
+                .referenceMillis(referenceNanos / 1_000_000)
+                .candidateMillis(candidateNanos / 1_000_000)
+                .build();
+    }
+
+    private static Set<Integer> nearest(List<Embedding> embeddings, int query, int k) {
+        float[] vector = embeddings.get(query).vector();
+        Integer[] others = new Integer[embeddings.size()];
+        double[] scores = new double[embeddings.size()];
+        for (int i = 0; i < embeddings.size(); i++) {
+            others[i] = i;
+            scores[i] = i == query ? Double.NEGATIVE_INFINITY : cosine(vector, embeddings.get(i).vector());
+        }
+        Arrays.sort(others, (a, b) -> Double.compare(scores[b], scores[a]));
+        return new HashSet<>(Arrays.asList(others).subList(0, k));
+    }
+
+    static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+}
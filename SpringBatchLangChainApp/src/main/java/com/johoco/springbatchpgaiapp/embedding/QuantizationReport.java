@@ -0,0 +1,36 @@
+package com.johoco.springbatchpgaiapp.embedding;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * How closely a candidate embedding model reproduces a reference model on a sample corpus.
+ */
+@Data
+@Builder
+public class QuantizationReport {
+    private int samples;
+    /** Cosine similarity between the reference and candidate embedding of the same text. */
+    private double meanCosine;
+    private double minCosine;
+    /** 5th percentile of the per-text cosine similarity. */
+    private double p5Cosine;
+    /** Number of nearest neighbours compared per text. */
+    private int neighbours;
+    /** Average fraction of each text's reference nearest neighbours that the candidate also ranks nearest. */
+    private double neighbourOverlap;
+    private long referenceMillis;
+    private long candidateMillis;
+
+    public double getSpeedup() {
+        return candidateMillis == 0 ? 0 : (double) referenceMillis / candidateMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d samples: cosine mean %.5f, min %.5f, p5 %.5f; top-%d neighbour overlap %.3f; "
+                        + "reference %d ms, candidate %d ms (%.2fx)",
+                samples, meanCosine, minCosine, p5Cosine, neighbours, neighbourOverlap,
+                referenceMillis, candidateMillis, getSpeedup());
+    }
+}
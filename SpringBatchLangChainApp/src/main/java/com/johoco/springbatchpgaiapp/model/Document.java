@@ -18,7 +18,8 @@ public class Document {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, unique = true)
+    // Source and path relative to the source's directory, e.g. "default:reports/q1.txt"
+    @Column(nullable = false, unique = true, length = 1024)
     private String filename;
 
     @Column(columnDefinition = "TEXT")
@@ -25,4 +25,9 @@ public class DocumentMetadata {
     // Additional metadata fields can be added here
     private String processorVersion;
     private String processorName;
+    private String sourceDirectory;
+
+    // Set on DUPLICATE documents: the canonical document and the estimated similarity to it
+    private String duplicateOf;
+    private Double duplicateSimilarity;
 }
@@ -6,6 +6,8 @@ package com.johoco.springbatchpgaiapp.model;
 public enum DocumentStatus {
     NEW("NEW"),
     PROCESSED("PROCESSED"),
+    /** Near-duplicate of another document, stored as a reference to it without content or embeddings. */
+    DUPLICATE("DUPLICATE"),
     FAILED("FAILED");
     
     private final String value;
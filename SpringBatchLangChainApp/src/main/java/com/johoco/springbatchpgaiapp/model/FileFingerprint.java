@@ -0,0 +1,16 @@
+package com.johoco.springbatchpgaiapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * What a file looked like when its job was launched, to tell later scans whether it changed.
+ */
+@Data
+@AllArgsConstructor
+public class FileFingerprint {
+    private long size;
+    private long lastModified;
+    /** CRC32C of the file's size and of its first and last bytes. */
+    private long hash;
+}
@@ -0,0 +1,15 @@
+package com.johoco.springbatchpgaiapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * An already indexed document that a new document was found to nearly duplicate.
+ */
+@Data
+@AllArgsConstructor
+public class NearDuplicate {
+    private String canonicalFilename;
+    /** Estimated Jaccard similarity of the two documents' word shingles. */
+    private double similarity;
+}
@@ -0,0 +1,15 @@
+package com.johoco.springbatchpgaiapp.model;
+
+/**
+ * Order in which pending files are launched.
+ */
+public enum SchedulingPolicy {
+    /** In the order the directory lists them. */
+    FIFO,
+    /** Smallest files first, so quick documents are not stuck behind large ones. */
+    SMALLEST_FIRST,
+    /** Least recently modified files first. */
+    OLDEST_FIRST,
+    /** Folders take turns in proportion to their weights, measured in bytes launched. */
+    FAIR
+}
@@ -0,0 +1,63 @@
+package com.johoco.springbatchpgaiapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position in a vector search result set: the distance and embedding id of the
+ * last match returned. The next page resumes strictly after this position, so deep
+ * pages cost the same as the first one.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchCursor {
+    private static final char SEPARATOR = '|';
+
+    private double lastDistance;
+    private String lastEmbeddingId;
+
+    /**
+     * Encodes this cursor as an opaque URL-safe token.
+     *
+     * @return the token
+     */
+    public String encode() {
+        String raw = Double.toString(lastDistance) + SEPARATOR + lastEmbeddingId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     *
+     * @param token the opaque token
+     * @return the cursor
+     * @throws IllegalArgumentException if the token is not a valid cursor
+     */
+    public static SearchCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("Cursor token cannot be null or empty");
+        }
+
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor token", e);
+        }
+
+        int separator = raw.indexOf(SEPARATOR);
+        if (separator <= 0 || separator == raw.length() - 1) {
+            throw new IllegalArgumentException("Malformed cursor token");
+        }
+        try {
+            return new SearchCursor(Double.parseDouble(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor token", e);
+        }
+    }
+}
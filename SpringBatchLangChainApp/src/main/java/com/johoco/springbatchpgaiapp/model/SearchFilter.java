@@ -0,0 +1,52 @@
+package com.johoco.springbatchpgaiapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Metadata constraints for a semantic search. Every non-null field narrows the
+ * set of documents considered; the constraints are applied inside the vector
+ * query, before the top-k cut, rather than to its results.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchFilter {
+
+    /** Exact match on {@link DocumentMetadata#getProcessorVersion()}. */
+    private String processorVersion;
+
+    /** Exact match on {@link DocumentMetadata#getProcessorName()}. */
+    private String processorName;
+
+    /** Exact match on {@link DocumentMetadata#getSourceDirectory()}. */
+    private String sourceDirectory;
+
+    /** Inclusive lower bound on {@link DocumentMetadata#getProcessingTime()}. */
+    private Instant processedFrom;
+
+    /** Exclusive upper bound on {@link DocumentMetadata#getProcessingTime()}. */
+    private Instant processedTo;
+
+    /** Inclusive lower bound on the document's last modified time. */
+    private Instant modifiedFrom;
+
+    /** Exclusive upper bound on the document's last modified time. */
+    private Instant modifiedTo;
+
+    /**
+     * Checks whether this filter has no constraints.
+     *
+     * @return true if every field is null
+     */
+    public boolean isEmpty() {
+        return processorVersion == null && processorName == null && sourceDirectory == null
+                && processedFrom == null && processedTo == null
+                && modifiedFrom == null && modifiedTo == null;
+    }
+}
@@ -0,0 +1,21 @@
+package com.johoco.springbatchpgaiapp.model;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of vector search matches plus the cursor for the page after it.
+ */
+@Data
+@AllArgsConstructor
+public class SearchPage {
+
+    private List<EmbeddingMatch<TextSegment>> matches;
+
+    /** Position of the last match, or null when there are no further pages. */
+    private SearchCursor nextCursor;
+}
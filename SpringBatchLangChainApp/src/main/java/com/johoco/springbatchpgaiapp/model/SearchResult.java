@@ -0,0 +1,29 @@
+package com.johoco.springbatchpgaiapp.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single semantic search match as returned by the search endpoint.
+ * This class is used for JSON serialization; in snippet view {@code text} is
+ * omitted and the chunk is identified by its document and offsets instead.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchResult {
+
+    private String embeddingId;
+    private Double score;
+    private String text;
+    private String filename;
+    private Integer chunkIndex;
+    private Integer startOffset;
+    private Integer endOffset;
+    private String snippet;
+}
@@ -0,0 +1,23 @@
+package com.johoco.springbatchpgaiapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A contiguous piece of extracted document text and where it starts in the document.
+ * Content extraction emits a sequence of these instead of one string so large files
+ * can be processed without holding the whole text at once.
+ */
+@Data
+@AllArgsConstructor
+public class TextBlock {
+
+    /** The text of this block. */
+    private String text;
+
+    /** Character offset of the first character of this block within the whole document text. */
+    private long startOffset;
+
+    /** 1-based page number for paged formats, or 0 when the format has no pages. */
+    private int page;
+}
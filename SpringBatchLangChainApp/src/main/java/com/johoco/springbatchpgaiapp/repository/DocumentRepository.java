@@ -9,7 +9,7 @@ import java.util.Optional;
 import java.util.List;
 
 @Repository
-public interface DocumentRepository extends JpaRepository<Document, Long> {
+public interface DocumentRepository extends JpaRepository<Document, Long>, DocumentRepositoryCustom {
     Optional<Document> findByFilename(String filename);
     
     @Query(value = "SELECT * FROM documents d WHERE d.filename = :filename", nativeQuery = true)
@@ -0,0 +1,22 @@
+package com.johoco.springbatchpgaiapp.repository;
+
+import com.johoco.springbatchpgaiapp.model.SearchFilter;
+
+import java.util.List;
+
+/**
+ * Vector queries on documents that need SQL built at runtime.
+ */
+public interface DocumentRepositoryCustom {
+
+    /**
+     * Finds the documents whose centroid embedding is closest to the given vector (cosine distance),
+     * considering only documents matching the filter.
+     *
+     * @param embedding the query vector as a pgvector literal, e.g. {@code [0.1,0.2]}
+     * @param filter metadata constraints, may be null
+     * @param limit maximum number of documents to return
+     * @return filenames of the closest documents, nearest first
+     */
+    List<String> findNearestFilenamesByCentroid(String embedding, SearchFilter filter, int limit);
+}
@@ -0,0 +1,34 @@
+package com.johoco.springbatchpgaiapp.repository;
+
+import com.johoco.springbatchpgaiapp.model.SearchFilter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link DocumentRepositoryCustom}, picked up by Spring Data
+ * as a fragment of {@link DocumentRepository}.
+ */
+public class DocumentRepositoryImpl implements DocumentRepositoryCustom {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public DocumentRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<String> findNearestFilenamesByCentroid(String embedding, SearchFilter filter, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("embedding", embedding)
+                .addValue("limit", limit);
+
+        String predicates = SearchFilterSql.toPredicates(filter, "d", params);
+        String sql = "SELECT d.filename FROM documents d WHERE d.embedding IS NOT NULL " +
+                (predicates.isEmpty() ? "" : "AND " + predicates + " ") +
+                "ORDER BY d.embedding <=> CAST(:embedding AS vector) LIMIT :limit";
+
+        return jdbcTemplate.queryForList(sql, params, String.class);
+    }
+}
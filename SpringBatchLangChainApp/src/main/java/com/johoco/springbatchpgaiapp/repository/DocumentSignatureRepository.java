@@ -0,0 +1,112 @@
+package com.johoco.springbatchpgaiapp.repository;
+
+import com.johoco.springbatchpgaiapp.model.DocumentStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Direct JDBC access to the MinHash signatures of processed documents and their
+ * locality-sensitive hashing (LSH) band index, kept next to the {@code documents} table.
+ */
+@Slf4j
+@Repository
+public class DocumentSignatureRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public DocumentSignatureRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Finds the processed documents sharing at least one band hash with a signature.
+     * Signatures of documents that were never written, or were not stored as processed,
+     * are ignored.
+     *
+     * @param bandHashes the band hashes of the signature, indexed by band
+     * @param excludeFilename filename whose own previous signature is not a candidate
+     * @return candidate signatures keyed by filename
+     */
+    public Map<String, int[]> findCandidates(long[] bandHashes, String excludeFilename) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("filename", excludeFilename)
+                .addValue("status", DocumentStatus.PROCESSED.getValue());
+        StringJoiner buckets = new StringJoiner(", ");
+        for (int band = 0; band < bandHashes.length; band++) {
+            buckets.add("(:band" + band + ", :bucket" + band + ")");
+            params.addValue("band" + band, band).addValue("bucket" + band, bandHashes[band]);
+        }
+
+        String sql = "SELECT s.filename, s.minhash FROM document_signatures s " +
+                "JOIN documents d ON d.filename = s.filename AND d.status = :status " +
+                "WHERE s.filename <> :filename AND s.filename IN (" +
+                "SELECT b.filename FROM document_lsh_bands b WHERE (b.band, b.bucket) IN (" + buckets + "))";
+
+        return jdbcTemplate.query(sql, params, rs -> {
+            Map<String, int[]> candidates = new LinkedHashMap<>();
+            while (rs.next()) {
+                candidates.put(rs.getString("filename"), readSignature(rs));
+            }
+            return candidates;
+        });
+    }
+
+    /**
+     * Stores the signature and band hashes of a document, replacing any previous ones.
+     *
+     * @param filename the document filename
+     * @param signature the MinHash signature
+     * @param bandHashes the band hashes of the signature, indexed by band
+     */
+    @Transactional
+    public void save(String filename, int[] signature, long[] bandHashes) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("filename", filename)
+                .addValue("minhash", toArrayLiteral(signature));
+        jdbcTemplate.update("DELETE FROM document_lsh_bands WHERE filename = :filename", params);
+        jdbcTemplate.update("INSERT INTO document_signatures (filename, minhash) VALUES (:filename, CAST(:minhash AS integer[])) " +
+                "ON CONFLICT (filename) DO UPDATE SET minhash = EXCLUDED.minhash", params);
+
+        MapSqlParameterSource[] bands = new MapSqlParameterSource[bandHashes.length];
+        for (int band = 0; band < bandHashes.length; band++) {
+            bands[band] = new MapSqlParameterSource()
+                    .addValue("band", band)
+                    .addValue("bucket", bandHashes[band])
+                    .addValue("filename", filename);
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO document_lsh_bands (band, bucket, filename) VALUES (:band, :bucket, :filename) " +
+                "ON CONFLICT DO NOTHING", bands);
+        log.debug("Indexed signature of document {} in {} bands", filename, bandHashes.length);
+    }
+
+    private static int[] readSignature(ResultSet rs) throws SQLException {
+        Array array = rs.getArray("minhash");
+        try {
+            Object[] values = (Object[]) array.getArray();
+            int[] signature = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                signature[i] = ((Number) values[i]).intValue();
+            }
+            return signature;
+        } finally {
+            array.free();
+        }
+    }
+
+    private static String toArrayLiteral(int[] values) {
+        StringJoiner literal = new StringJoiner(",", "{", "}");
+        for (int value : values) {
+            literal.add(Integer.toString(value));
+        }
+        return literal.toString();
+    }
+}
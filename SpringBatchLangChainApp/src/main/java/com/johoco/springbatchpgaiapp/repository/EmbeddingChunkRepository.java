@@ -0,0 +1,189 @@
+package com.johoco.springbatchpgaiapp.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johoco.springbatchpgaiapp.config.EmbeddingStoreConfig;
+import com.johoco.springbatchpgaiapp.model.SearchCursor;
+import com.johoco.springbatchpgaiapp.model.SearchFilter;
+import com.johoco.springbatchpgaiapp.model.SearchPage;
+import com.johoco.springbatchpgaiapp.util.Vectors;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Direct JDBC access to the chunk rows written by the PgVectorEmbeddingStore.
+ * The store itself can only search the whole table, so queries scoped to a
+ * subset of documents go through here.
+ */
+@Slf4j
+@Repository
+public class EmbeddingChunkRepository {
+    /** Segment metadata key holding the filename of the document a chunk belongs to. */
+    public static final String FILENAME_KEY = "filename";
+    /** Segment metadata key holding the chunk's position within its document, set by the splitter. */
+    public static final String INDEX_KEY = "index";
+    /** Segment metadata keys holding the chunk's character range within the document content. */
+    public static final String START_OFFSET_KEY = "start_offset";
+    public static final String END_OFFSET_KEY = "end_offset";
+
+    private static final String DISTANCE = "(e.embedding <=> CAST(:embedding AS vector))";
+
+    private static final TypeReference<Map<String, String>> METADATA_TYPE = new TypeReference<>() {};
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public EmbeddingChunkRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Finds the chunks most similar to the query embedding, restricted to the given documents.
+     *
+     * @param queryEmbedding the query embedding
+     * @param filenames the documents whose chunks are searched
+     * @param cursor position to resume after, or null for the first page
+     * @param maxResults maximum number of chunks to return
+     * @param minScore minimum similarity score (0-1)
+     * @return matching chunks ordered by descending score
+     */
+    public SearchPage findRelevantInDocuments(Embedding queryEmbedding, Collection<String> filenames, SearchCursor cursor,
+                                              int maxResults, double minScore) {
+        if (filenames == null || filenames.isEmpty()) {
+            return new SearchPage(Collections.emptyList(), null);
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("filenames", filenames);
+
+        return findPage(queryEmbedding, "", "e.metadata->>'" + FILENAME_KEY + "' IN (:filenames)",
+                params, cursor, maxResults, minScore);
+    }
+
+    /**
+     * Finds the chunks most similar to the query embedding among documents matching the filter.
+     * The filter is applied in the same query as the nearest-neighbour ordering, so the
+     * top-k cut only ever sees qualifying chunks.
+     *
+     * @param queryEmbedding the query embedding
+     * @param filter metadata constraints on the owning documents, may be null
+     * @param cursor position to resume after, or null for the first page
+     * @param maxResults maximum number of chunks to return
+     * @param minScore minimum similarity score (0-1)
+     * @return matching chunks ordered by descending score
+     */
+    public SearchPage findRelevant(Embedding queryEmbedding, SearchFilter filter, SearchCursor cursor,
+                                   int maxResults, double minScore) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String predicates = SearchFilterSql.toPredicates(filter, "d", params);
+        String join = predicates.isEmpty()
+                ? ""
+                : "JOIN documents d ON d.filename = e.metadata->>'" + FILENAME_KEY + "' ";
+
+        return findPage(queryEmbedding, join, predicates, params, cursor, maxResults, minScore);
+    }
+
+    /**
+     * Runs a keyset-paginated nearest-neighbour query. Rows are ordered by (distance, embedding_id)
+     * and a cursor resumes strictly after its position, so no rows are skipped or repeated.
+     */
+    private SearchPage findPage(Embedding queryEmbedding, String join, String predicates, MapSqlParameterSource params,
+                                SearchCursor cursor, int maxResults, double minScore) {
+        params.addValue("embedding", Vectors.toPgVectorLiteral(queryEmbedding.vector()))
+                .addValue("minScore", minScore)
+                .addValue("limit", maxResults);
+
+        StringBuilder sql = new StringBuilder()
+                .append("SELECT e.embedding_id, e.text, e.metadata, ").append(DISTANCE).append(" AS distance ")
+                .append("FROM ").append(EmbeddingStoreConfig.EMBEDDING_TABLE).append(" e ")
+                .append(join)
+                .append("WHERE (2 - ").append(DISTANCE).append(") / 2 >= :minScore ");
+        if (!predicates.isEmpty()) {
+            sql.append("AND ").append(predicates).append(' ');
+        }
+        if (cursor != null) {
+            sql.append("AND (").append(DISTANCE).append(", e.embedding_id) > (:afterDistance, CAST(:afterId AS uuid)) ");
+            params.addValue("afterDistance", cursor.getLastDistance())
+                    .addValue("afterId", cursor.getLastEmbeddingId());
+        }
+        sql.append("ORDER BY ").append(DISTANCE).append(", e.embedding_id LIMIT :limit");
+
+        return jdbcTemplate.query(sql.toString(), params, rs -> {
+            List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+            double lastDistance = 0;
+            String lastId = null;
+            while (rs.next()) {
+                lastDistance = rs.getDouble("distance");
+                lastId = rs.getString("embedding_id");
+                matches.add(mapMatch(rs, lastDistance));
+            }
+            SearchCursor nextCursor = matches.size() == maxResults ? new SearchCursor(lastDistance, lastId) : null;
+            return new SearchPage(matches, nextCursor);
+        });
+    }
+
+    /**
+     * Loads the full text of a single chunk.
+     *
+     * @param embeddingId the chunk's embedding id
+     * @return the chunk text, or empty if no such chunk exists
+     */
+    public Optional<String> findTextById(String embeddingId) {
+        List<String> texts = jdbcTemplate.queryForList(
+                "SELECT e.text FROM " + EmbeddingStoreConfig.EMBEDDING_TABLE + " e WHERE e.embedding_id = CAST(:id AS uuid)",
+                new MapSqlParameterSource("id", embeddingId), String.class);
+        return texts.stream().findFirst();
+    }
+
+    /**
+     * Deletes every chunk of a document, before it is embedded again, when it is stored as a
+     * near-duplicate, or when its embedding failed part way. Uses the expression index on the
+     * chunks' filename.
+     *
+     * @param filename the document filename
+     * @return the number of chunks deleted
+     */
+    public int deleteByFilename(String filename) {
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM " + EmbeddingStoreConfig.EMBEDDING_TABLE + " e WHERE e.metadata->>'" + FILENAME_KEY + "' = :filename",
+                new MapSqlParameterSource("filename", filename));
+        log.debug("Deleted {} chunks of document {}", deleted, filename);
+        return deleted;
+    }
+
+    private EmbeddingMatch<TextSegment> mapMatch(ResultSet rs, double distance) throws SQLException {
+        return new EmbeddingMatch<>(
+                (2 - distance) / 2,
+                rs.getString("embedding_id"),
+                null,
+                TextSegment.from(rs.getString("text"), parseMetadata(rs.getString("metadata"))));
+    }
+
+    private Metadata parseMetadata(String json) {
+        if (json == null || json.isEmpty()) {
+            return new Metadata();
+        }
+        try {
+            return Metadata.from(objectMapper.readValue(json, METADATA_TYPE));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not parse chunk metadata {}: {}", json, e.getMessage());
+            return new Metadata();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.johoco.springbatchpgaiapp.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Direct JDBC access to the {@code file_claims} leases through which watcher instances sharing
+ * an input directory agree on which of them processes each file. Lease times are taken from the
+ * database clock, so the instances' clocks need not agree.
+ */
+@Slf4j
+@Repository
+public class FileClaimRepository {
+    // Lease end for a length in milliseconds, by the database clock
+    private static final String LEASE_END = "now() + CAST(:leaseMs AS double precision) * interval '1 millisecond'";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public FileClaimRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Claims a file nobody holds a lease on.
+     *
+     * @param key the file's key, the same on every instance
+     * @param owner the claiming instance
+     * @param leaseMs how long the claim lasts unless renewed
+     * @return whether the claim was taken
+     */
+    public boolean insert(String key, String owner, long leaseMs) {
+        List<String> claimed = jdbcTemplate.queryForList(
+                "INSERT INTO file_claims (claim_key, owner, claimed_at, expires_at) " +
+                "VALUES (:key, :owner, now(), " + LEASE_END + ") " +
+                "ON CONFLICT (claim_key) DO NOTHING RETURNING claim_key",
+                params(key, owner, leaseMs), String.class);
+        return !claimed.isEmpty();
+    }
+
+    /**
+     * Takes over the lease of a file whose owner let it expire, typically because it crashed.
+     * A lease another instance is taking over at the same moment is skipped rather than waited for.
+     *
+     * @param key the file's key
+     * @param owner the claiming instance
+     * @param leaseMs how long the claim lasts unless renewed
+     * @return the previous owner, or null if the lease was not taken over
+     */
+    public String takeOverExpired(String key, String owner, long leaseMs) {
+        List<String> previousOwners = jdbcTemplate.queryForList(
+                "WITH expired AS (" +
+                "SELECT claim_key, owner FROM file_claims WHERE claim_key = :key AND expires_at < now() " +
+                "FOR UPDATE SKIP LOCKED) " +
+                "UPDATE file_claims c SET owner = :owner, claimed_at = now(), " +
+                "expires_at = " + LEASE_END + " " +
+                "FROM expired WHERE c.claim_key = expired.claim_key RETURNING expired.owner",
+                params(key, owner, leaseMs), String.class);
+        return previousOwners.isEmpty() ? null : previousOwners.get(0);
+    }
+
+    /**
+     * Time left on a file's lease.
+     *
+     * @param key the file's key
+     * @return the milliseconds until the lease expires, or null if there is no lease
+     */
+    public Long remainingLeaseMs(String key) {
+        List<Long> remaining = jdbcTemplate.queryForList(
+                "SELECT CAST(EXTRACT(EPOCH FROM (expires_at - now())) * 1000 AS BIGINT) FROM file_claims WHERE claim_key = :key",
+                new MapSqlParameterSource("key", key), Long.class);
+        return remaining.isEmpty() ? null : remaining.get(0);
+    }
+
+    /**
+     * Extends an instance's leases on the files it is still processing.
+     *
+     * @param keys the keys of the files
+     * @param owner the instance
+     * @param leaseMs the new lease length, from now
+     * @return the number of leases renewed; fewer than the keys if some were taken over
+     */
+    public int renew(Collection<String> keys, String owner, long leaseMs) {
+        return jdbcTemplate.update(
+                "UPDATE file_claims SET expires_at = " + LEASE_END + " WHERE owner = :owner AND claim_key IN (:keys)",
+                params(null, owner, leaseMs).addValue("keys", keys));
+    }
+
+    /**
+     * Shortens an instance's lease on a file it is done with, so the file cannot be claimed
+     * again by an instance that listed it before it was moved, yet the lease soon lapses.
+     *
+     * @param key the file's key
+     * @param owner the instance
+     * @param retentionMs how long the finished claim is kept
+     */
+    public void release(String key, String owner, long retentionMs) {
+        jdbcTemplate.update(
+                "UPDATE file_claims SET expires_at = " + LEASE_END + " " +
+                "WHERE claim_key = :key AND owner = :owner",
+                params(key, owner, retentionMs));
+    }
+
+    /**
+     * Deletes leases that have expired; an expired lease claims nothing anyway.
+     *
+     * @return the number of leases deleted
+     */
+    public int deleteExpired() {
+        int deleted = jdbcTemplate.update("DELETE FROM file_claims WHERE expires_at < now()", new MapSqlParameterSource());
+        log.debug("Deleted {} expired file claims", deleted);
+        return deleted;
+    }
+
+    private static MapSqlParameterSource params(String key, String owner, long leaseMs) {
+        return new MapSqlParameterSource()
+                .addValue("key", key)
+                .addValue("owner", owner)
+                .addValue("leaseMs", leaseMs);
+    }
+}
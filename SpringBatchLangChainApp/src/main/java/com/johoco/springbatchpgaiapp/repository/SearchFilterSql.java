@@ -0,0 +1,92 @@
+package com.johoco.springbatchpgaiapp.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johoco.springbatchpgaiapp.model.SearchFilter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a {@link SearchFilter} into SQL predicates over the documents table.
+ * Equality constraints become a single JSONB containment test so they can use the
+ * GIN index on {@code metadata}; ranges use the processing time expression index
+ * and the {@code last_modified} index. All values are bound as parameters.
+ */
+final class SearchFilterSql {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private SearchFilterSql() {
+    }
+
+    /**
+     * Builds the predicates for a filter.
+     *
+     * @param filter the filter to compile, may be null
+     * @param alias the alias of the documents table in the enclosing query
+     * @param params the parameter source the filter values are bound into
+     * @return the predicates joined with AND, or an empty string when the filter has no constraints
+     */
+    static String toPredicates(SearchFilter filter, String alias, MapSqlParameterSource params) {
+        if (filter == null || filter.isEmpty()) {
+            return "";
+        }
+
+        List<String> predicates = new ArrayList<>();
+
+        Map<String, String> contains = new LinkedHashMap<>();
+        putIfNotNull(contains, "processorVersion", filter.getProcessorVersion());
+        putIfNotNull(contains, "processorName", filter.getProcessorName());
+        putIfNotNull(contains, "sourceDirectory", filter.getSourceDirectory());
+        if (!contains.isEmpty()) {
+            predicates.add(alias + ".metadata @> CAST(:filterMetadata AS jsonb)");
+            params.addValue("filterMetadata", toJson(contains));
+        }
+
+        // processingTime is serialized by Jackson as decimal epoch seconds
+        String processingTime = "((" + alias + ".metadata->>'processingTime')::numeric)";
+        if (filter.getProcessedFrom() != null) {
+            predicates.add(processingTime + " >= :processedFrom");
+            params.addValue("processedFrom", toEpochSeconds(filter.getProcessedFrom()));
+        }
+        if (filter.getProcessedTo() != null) {
+            predicates.add(processingTime + " < :processedTo");
+            params.addValue("processedTo", toEpochSeconds(filter.getProcessedTo()));
+        }
+
+        if (filter.getModifiedFrom() != null) {
+            predicates.add(alias + ".last_modified >= :modifiedFrom");
+            params.addValue("modifiedFrom", Timestamp.from(filter.getModifiedFrom()));
+        }
+        if (filter.getModifiedTo() != null) {
+            predicates.add(alias + ".last_modified < :modifiedTo");
+            params.addValue("modifiedTo", Timestamp.from(filter.getModifiedTo()));
+        }
+
+        return String.join(" AND ", predicates);
+    }
+
+    static BigDecimal toEpochSeconds(Instant instant) {
+        return BigDecimal.valueOf(instant.getEpochSecond()).add(BigDecimal.valueOf(instant.getNano(), 9));
+    }
+
+    private static void putIfNotNull(Map<String, String> map, String key, String value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+
+    private static String toJson(Map<String, String> values) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(values);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Error serializing search filter", e);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits how many document jobs run at once, adjusting the limit at runtime (AIMD).
+ * <p>
+ * Every adjustment interval, the limit is compared against three signals from the interval that
+ * just ended: the mean latency of the embedding stage, the mean latency of embedding store writes
+ * (each one is its own commit), and the number of threads waiting for a database connection. If
+ * either latency is more than {@code latency-tolerance} times its baseline, or too many threads
+ * wait for a connection, the limit is cut by the {@code backoff} factor. Otherwise, if jobs were
+ * turned away because the limit was reached, it grows by one. The baseline is the lowest interval
+ * mean seen, raised slightly every interval so it follows a corpus that is genuinely slower.
+ * <p>
+ * The limit and the jobs in flight are published as {@value #LIMIT_METRIC} and
+ * {@value #IN_FLIGHT_METRIC}.
+ */
+@Slf4j
+@Component
+public class AdaptiveConcurrencyLimit {
+    public static final String LIMIT_METRIC = "document.concurrency.limit";
+    public static final String IN_FLIGHT_METRIC = "document.concurrency.in-flight";
+    // Published by Spring Boot for the Hikari pool
+    static final String PENDING_CONNECTIONS_METRIC = "hikaricp.connections.pending";
+    // Lets the baselines recover after a slow start or a change in corpus
+    private static final double BASELINE_DRIFT = 1.01;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${document.concurrency.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${document.concurrency.initial-limit:4}")
+    private int initialLimit = 4;
+
+    @Value("${document.concurrency.min-limit:1}")
+    private int minLimit = 1;
+
+    @Value("${document.concurrency.max-limit:64}")
+    private int maxLimit = 64;
+
+    @Value("${document.concurrency.latency-tolerance:2.0}")
+    private double latencyTolerance = 2.0;
+
+    @Value("${document.concurrency.backoff:0.7}")
+    private double backoff = 0.7;
+
+    @Value("${document.concurrency.max-pending-connections:2}")
+    private double maxPendingConnections = 2;
+
+    private final AtomicInteger limit = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean limited;
+    private final LatencySignal embedLatency = new LatencySignal(EmbeddingPipeline.STAGE_EMBED);
+    private final LatencySignal writeLatency = new LatencySignal(EmbeddingPipeline.STAGE_STORE);
+
+    public AdaptiveConcurrencyLimit(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        limit.set(Math.max(minLimit, Math.min(maxLimit, initialLimit)));
+        Gauge.builder(LIMIT_METRIC, limit, AtomicInteger::get)
+                .description("Document jobs allowed to run at once")
+                .register(meterRegistry);
+        Gauge.builder(IN_FLIGHT_METRIC, inFlight, AtomicInteger::get)
+                .description("Document jobs running")
+                .register(meterRegistry);
+        if (enabled) {
+            log.info("Adaptive concurrency limit starting at {} jobs (between {} and {})", limit.get(), minLimit, maxLimit);
+        }
+    }
+
+    /**
+     * Takes a slot for a job if fewer than the limit are running.
+     *
+     * @return whether the job may be launched
+     */
+    public boolean tryAcquire() {
+        if (!enabled) {
+            return true;
+        }
+        while (true) {
+            int running = inFlight.get();
+            if (running >= limit.get()) {
+                limited = true;
+                return false;
+            }
+            if (inFlight.compareAndSet(running, running + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the slot of a job that ended or could not be launched.
+     */
+    public void release() {
+        if (enabled) {
+            inFlight.updateAndGet(running -> Math.max(0, running - 1));
+        }
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Adjusts the limit from the signals of the interval since the previous adjustment.
+     */
+    @Scheduled(fixedDelayString = "${document.concurrency.adjust-interval-ms:5000}")
+    public void adjust() {
+        if (!enabled) {
+            return;
+        }
+        double embedMillis = embedLatency.sample();
+        double writeMillis = writeLatency.sample();
+        double pending = pendingConnections();
+        boolean wasLimited = limited;
+        limited = false;
+
+        // Both baselines are updated every interval, so evaluate both signals first
+        boolean embedOverloaded = embedLatency.isOverloaded(embedMillis);
+        boolean writeOverloaded = writeLatency.isOverloaded(writeMillis);
+        String overload = null;
+        if (embedOverloaded) {
+            overload = String.format("embedding latency %.0f ms over baseline %.0f ms", embedMillis, embedLatency.baseline);
+        } else if (writeOverloaded) {
+            overload = String.format("write latency %.0f ms over baseline %.0f ms", writeMillis, writeLatency.baseline);
+        } else if (pending > maxPendingConnections) {
+            overload = String.format("%.0f threads waiting for a database connection", pending);
+        }
+
+        int previous = limit.get();
+        if (overload != null) {
+            limit.set(Math.max(minLimit, (int) (previous * backoff)));
+        } else if (wasLimited) {
+            limit.set(Math.min(maxLimit, previous + 1));
+        }
+        if (limit.get() != previous) {
+            log.info("Concurrency limit {} -> {}{}", previous, limit.get(), overload != null ? ": " + overload : "");
+        }
+    }
+
+    private double pendingConnections() {
+        Gauge pending = meterRegistry.find(PENDING_CONNECTIONS_METRIC).gauge();
+        return pending != null ? pending.value() : 0;
+    }
+
+    /**
+     * Mean latency of one pipeline stage per interval, and its baseline.
+     */
+    private class LatencySignal {
+        private final String stage;
+        private long lastCount;
+        private double lastTotalMillis;
+        private double baseline = Double.NaN;
+
+        LatencySignal(String stage) {
+            this.stage = stage;
+        }
+
+        /**
+         * @return the mean latency since the previous sample, or NaN if the stage did no work
+         */
+        double sample() {
+            Timer timer = meterRegistry.find(EmbeddingPipeline.LATENCY_METRIC).tag("stage", stage).timer();
+            if (timer == null) {
+                return Double.NaN;
+            }
+            long count = timer.count();
+            double totalMillis = timer.totalTime(TimeUnit.MILLISECONDS);
+            double mean = count > lastCount ? (totalMillis - lastTotalMillis) / (count - lastCount) : Double.NaN;
+            lastCount = count;
+            lastTotalMillis = totalMillis;
+            return mean;
+        }
+
+        boolean isOverloaded(double mean) {
+            if (Double.isNaN(mean)) {
+                return false;
+            }
+            boolean overloaded = !Double.isNaN(baseline) && mean > baseline * latencyTolerance;
+            baseline = Double.isNaN(baseline) ? mean : Math.min(baseline * BASELINE_DRIFT, mean);
+            return overloaded;
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import com.johoco.springbatchpgaiapp.model.FileFingerprint;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Finds the files of an input tree that are new or changed since their job was launched.
+ * <p>
+ * Each directory is listed by its own task on a fork-join pool, which forks a task per
+ * subdirectory, so the many small reads of a deep tree on a network share overlap instead of
+ * queuing behind each other. Symbolic links are not followed, and the output and failed
+ * directories are skipped when they lie inside an input tree.
+ * <p>
+ * A file is recorded in the fingerprint index by {@link #acknowledge(File)} when its job is
+ * launched; until then it is reported by every scan, so files deferred by the memory budget or
+ * a quota are retried. A recorded file is reported again only if its size or modification time
+ * differs and its sampled content hash does too, so a file merely touched is not reprocessed.
+ * Entries of files no longer in the tree are dropped.
+ * <p>
+ * The index is written to {@code document.crawler.index-file} by {@link #flush()}, but only
+ * with the files whose job has {@linkplain #finished(File) finished}. A finished job moves its
+ * file out of the tree, so the saved entries are of files that could not be moved and must not
+ * be processed again. The entry of a file whose job was still running is not saved, so after a
+ * crash or restart that file is picked up again.
+ */
+@Slf4j
+@Component
+public class DirectoryCrawler {
+    public static final String SCAN_METRIC = "document.crawler.scan";
+    public static final String INDEXED_METRIC = "document.crawler.indexed";
+
+    // Bytes hashed at each end of a file; enough to tell edits from touches without reading it all
+    private static final int SAMPLE_BYTES = 64 * 1024;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${document.crawler.recursive:true}")
+    private boolean recursive = true;
+
+    @Value("${document.crawler.parallelism:8}")
+    private int parallelism = 8;
+
+    @Value("${document.crawler.index-file:document-crawler-index.tsv}")
+    private String indexFile = "document-crawler-index.tsv";
+
+    @Value("${document.output.directory:}")
+    private String outputDirectory = "";
+
+    @Value("${document.output.failed-directory:}")
+    private String failedDirectory = "";
+
+    private final Map<String, FileFingerprint> index = new ConcurrentHashMap<>();
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final Set<Path> excluded = new HashSet<>();
+    private volatile boolean dirty;
+    private ForkJoinPool pool;
+    private Timer scanTimer;
+
+    public DirectoryCrawler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        pool = new ForkJoinPool(Math.max(1, parallelism));
+        for (String directory : List.of(outputDirectory, failedDirectory)) {
+            if (!directory.isBlank()) {
+                excluded.add(Paths.get(directory).toAbsolutePath().normalize());
+            }
+        }
+        load();
+        scanTimer = Timer.builder(SCAN_METRIC)
+                .description("Time to crawl an input tree for new and changed files")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        Gauge.builder(INDEXED_METRIC, index, Map::size)
+                .description("Files recorded in the crawler's fingerprint index")
+                .register(meterRegistry);
+        log.info("Directory crawler: recursive {}, parallelism {}, {} files indexed in {}",
+                 recursive, parallelism, index.size(), indexFile);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Crawls a tree for the files not recorded in the index or changed since they were.
+     *
+     * @param root the input directory
+     * @return the new and changed regular files, by path
+     */
+    public List<File> scan(File root) {
+        long start = System.nanoTime();
+        Path rootPath = root.toPath().toAbsolutePath().normalize();
+        Queue<File> found = new ConcurrentLinkedQueue<>();
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        pool.invoke(new DirectoryTask(rootPath, found, seen));
+
+        // Forget files that left the tree, so one put back later is processed again
+        String prefix = rootPath.toString() + File.separator;
+        if (index.keySet().removeIf(path -> path.startsWith(prefix) && !seen.contains(path))) {
+            inFlight.retainAll(index.keySet());
+            dirty = true;
+        }
+
+        List<File> files = new ArrayList<>(found);
+        files.sort(Comparator.comparing(File::getPath));
+        scanTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.debug("Crawled {} files under {}: {} new or changed", seen.size(), rootPath, files.size());
+        return files;
+    }
+
+    /**
+     * Records a file as handled, so later scans skip it until it changes. The entry is only
+     * saved once the file's job has {@linkplain #finished(File) finished}.
+     *
+     * @param file the file whose job was launched
+     */
+    public void acknowledge(File file) {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            inFlight.add(path.toString());
+            index.put(path.toString(), new FileFingerprint(attributes.size(),
+                    attributes.lastModifiedTime().toMillis(), hash(path, attributes.size())));
+        } catch (IOException e) {
+            // Already gone, e.g. moved by its job; the next scan will not see it either
+            log.debug("Could not fingerprint {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Marks the job of an acknowledged file as ended, so its entry is saved with the index if the
+     * file is still in the tree.
+     *
+     * @param file the file whose job ended
+     */
+    public void finished(File file) {
+        if (inFlight.remove(file.toPath().toAbsolutePath().normalize().toString())) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Drops the entry of an acknowledged file whose job could not be launched, so the next scan
+     * reports it again.
+     *
+     * @param file the file whose launch failed
+     */
+    public void forget(File file) {
+        String path = file.toPath().toAbsolutePath().normalize().toString();
+        inFlight.remove(path);
+        if (index.remove(path) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Writes the index of files whose job finished if it changed since it was last written. The
+     * new index replaces the old one in a single rename, so a crash never leaves a partial index.
+     */
+    public synchronized void flush() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        Path target = Paths.get(indexFile).toAbsolutePath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, FileFingerprint> entry : index.entrySet()) {
+                    if (inFlight.contains(entry.getKey())) {
+                        continue;
+                    }
+                    FileFingerprint fingerprint = entry.getValue();
+                    writer.write(fingerprint.getSize() + "\t" + fingerprint.getLastModified() + "\t"
+                            + fingerprint.getHash() + "\t" + entry.getKey());
+                    writer.newLine();
+                }
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            dirty = true;
+            log.error("Error writing crawler index {}: {}", target, e.getMessage(), e);
+        }
+    }
+
+    private void load() {
+        Path path = Paths.get(indexFile).toAbsolutePath();
+        if (!Files.isRegularFile(path)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", 4);
+                if (fields.length < 4) {
+                    continue;
+                }
+                index.put(fields[3], new FileFingerprint(Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                        Long.parseLong(fields[2])));
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Without the index every file is new again; documents already stored are deduplicated
+            index.clear();
+            log.warn("Ignoring unreadable crawler index {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Whether a listed file differs from its index entry. A file whose size or time changed
+     * but whose sampled content did not only has its time updated.
+     */
+    private boolean changed(Path path, BasicFileAttributes attributes) {
+        FileFingerprint fingerprint = index.get(path.toString());
+        if (fingerprint == null) {
+            return true;
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        if (fingerprint.getSize() == attributes.size() && fingerprint.getLastModified() == lastModified) {
+            return false;
+        }
+        try {
+            if (fingerprint.getSize() == attributes.size() && fingerprint.getHash() == hash(path, attributes.size())) {
+                index.put(path.toString(), new FileFingerprint(attributes.size(), lastModified, fingerprint.getHash()));
+                dirty = true;
+                return false;
+            }
+        } catch (IOException e) {
+            log.debug("Could not hash {}: {}", path, e.getMessage());
+        }
+        return true;
+    }
+
+    private static long hash(Path path, long size) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(Long.toString(size).getBytes(StandardCharsets.US_ASCII));
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            byte[] buffer = new byte[(int) Math.min(SAMPLE_BYTES, size)];
+            file.readFully(buffer);
+            crc.update(buffer);
+            if (size > SAMPLE_BYTES) {
+                long tail = Math.max(SAMPLE_BYTES, size - SAMPLE_BYTES);
+                buffer = new byte[(int) (size - tail)];
+                file.seek(tail);
+                file.readFully(buffer);
+                crc.update(buffer);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Lists one directory, checking its files and forking a task per subdirectory.
+     */
+    private class DirectoryTask extends RecursiveAction {
+        private final Path directory;
+        private final Queue<File> found;
+        private final Set<String> seen;
+
+        DirectoryTask(Path directory, Queue<File> found, Set<String> seen) {
+            this.directory = directory;
+            this.found = found;
+            this.seen = seen;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            try {
+                // Depth 1: entries, directories included, are visited with their attributes from the listing
+                Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) {
+                        if (attributes.isDirectory()) {
+                            if (recursive && !excluded.contains(path)) {
+                                subdirectories.add(new DirectoryTask(path, found, seen));
+                            }
+                        } else if (attributes.isRegularFile()) {
+                            seen.add(path.toString());
+                            if (changed(path, attributes)) {
+                                found.add(path.toFile());
+                            }
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path path, IOException e) {
+                        log.warn("Skipping unreadable path {}: {}", path, e.getMessage());
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                log.warn("Error listing directory {}: {}", directory, e.getMessage());
+            }
+            invokeAll(subdirectories);
+        }
+    }
+}
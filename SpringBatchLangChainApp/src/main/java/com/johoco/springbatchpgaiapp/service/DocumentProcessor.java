@@ -1,32 +1,55 @@
 package com.johoco.springbatchpgaiapp.service;
 
+import com.johoco.springbatchpgaiapp.batch.DocumentJobListener;
 import com.johoco.springbatchpgaiapp.model.Document;
 import com.johoco.springbatchpgaiapp.model.DocumentMetadata;
 import com.johoco.springbatchpgaiapp.model.DocumentStatus;
+import com.johoco.springbatchpgaiapp.model.NearDuplicate;
+import com.johoco.springbatchpgaiapp.model.TextBlock;
+import com.johoco.springbatchpgaiapp.repository.EmbeddingChunkRepository;
+import com.johoco.springbatchpgaiapp.util.CpuBoundExecutor;
 import com.johoco.springbatchpgaiapp.util.FileOperations;
-import dev.langchain4j.model.output.Response;
-import dev.langchain4j.model.embedding.AllMiniLmL6V2EmbeddingModel;
-import dev.langchain4j.data.embedding.Embedding;
-
+import com.johoco.springbatchpgaiapp.util.MinHash;
+import com.johoco.springbatchpgaiapp.util.TextBlocks;
+import com.johoco.springbatchpgaiapp.util.TextNormalizer;
+import com.johoco.springbatchpgaiapp.util.Vectors;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.store.embedding.EmbeddingStore;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.time.Instant;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+/**
+ * Turns a job's file into a document: its text, chunk embeddings and centroid, or a reference
+ * to the document it nearly duplicates. Step scoped, so each job's processor knows the source
+ * and path its document is identified by.
+ */
 @Slf4j
 @Service
+@StepScope
 public class DocumentProcessor implements ItemProcessor<File, Document> {
-    private final EmbeddingModel embeddingModel;
-    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final EmbeddingPipeline embeddingPipeline;
+    private final EmbeddingChunkRepository embeddingChunkRepository;
     // private final FileManagementService fileManagementService;
     private final FileOperations fileOperations;
+    private final NearDuplicateDetector nearDuplicateDetector;
+    private final TextNormalizer textNormalizer;
+    private final CpuBoundExecutor cpuBoundExecutor;
     
     @Value("${spring.application.name:SpringBatchPgaiApp}")
     private String applicationName;
@@ -34,11 +57,30 @@ public class DocumentProcessor implements ItemProcessor<File, Document> {
     @Value("${spring.application.version:1.0.0}")
     private String applicationVersion;
 
-    public DocumentProcessor(EmbeddingStore<TextSegment> embeddingStore, FileOperations fileOperations) {   
-        // this.embeddingModel = embeddingModel;
-        this.embeddingModel = new AllMiniLmL6V2EmbeddingModel();
-        this.embeddingStore = embeddingStore;
+    @Value("${document.chunking.max-segment-size:1000}")
+    private int maxSegmentSize = 1000;
+
+    @Value("${document.chunking.segment-overlap:100}")
+    private int segmentOverlap = 100;
+
+    @Value("${document.content.max-stored-length:1048576}")
+    private int maxStoredContentLength = 1048576;
+
+    @Value("#{jobParameters['" + DocumentJobListener.FILE_NAME_PARAMETER + "']}")
+    private String jobFileName;
+
+    @Value("#{jobParameters['" + DocumentJobListener.SOURCE_PARAMETER + "']}")
+    private String jobSource;
+
+    public DocumentProcessor(EmbeddingPipeline embeddingPipeline, EmbeddingChunkRepository embeddingChunkRepository,
+                             FileOperations fileOperations, NearDuplicateDetector nearDuplicateDetector,
+                             TextNormalizer textNormalizer, CpuBoundExecutor cpuBoundExecutor) {
+        this.embeddingPipeline = embeddingPipeline;
+        this.embeddingChunkRepository = embeddingChunkRepository;
         this.fileOperations = fileOperations;
+        this.nearDuplicateDetector = nearDuplicateDetector;
+        this.textNormalizer = textNormalizer;
+        this.cpuBoundExecutor = cpuBoundExecutor;
     }
 
     @Override
@@ -48,69 +90,247 @@ public class DocumentProcessor implements ItemProcessor<File, Document> {
             return null;
         }
 
-        log.debug("Processing file: {}", file.getName());
-        
+        String documentId = documentId(file);
+        log.debug("Processing file: {} as {}", file.getName(), documentId);
+
+        // Extraction and fingerprinting are CPU-bound; with virtual threads they run on the CPU pool
+        BitSet boilerplateLines = cpuBoundExecutor.call(() -> findBoilerplateLines(file));
+        ScannedText text = cpuBoundExecutor.call(() -> scanText(file, boilerplateLines));
+        if (text.blank) {
+            log.warn("File {} is empty", file.getName());
+            return null;
+        }
+
+        // A near-duplicate of an already processed document is stored as a reference to it
+        // and never reaches the embedding model
+        int[] signature = text.signature;
+        Optional<NearDuplicate> nearDuplicate = nearDuplicateDetector.findCanonical(documentId, signature);
+        // Chunks from an earlier version of the document would otherwise stay searchable next to
+        // the new ones; a near-duplicate is searched through its canonical document's chunks
+        int staleChunks = embeddingChunkRepository.deleteByFilename(documentId);
+        if (staleChunks > 0) {
+            log.info("Deleted {} chunks of the previous version of document {}", staleChunks, documentId);
+        }
+        if (nearDuplicate.isPresent()) {
+            return duplicateReference(file, documentId, nearDuplicate.get());
+        }
+
+        Vectors.CentroidAccumulator centroid = new Vectors.CentroidAccumulator();
         try {
-            String content = fileOperations.readFileContent(file);
-            if (content == null || content.trim().isEmpty()) {
-                log.warn("File {} is empty", file.getName());
-                return null;
+            embedBlocks(documentId, file, boilerplateLines, text.content, centroid);
+        } catch (Exception e) {
+            // The chunks stored before the failure would be searchable without a document; the
+            // failure fails the step so the file is moved to the failed directory
+            log.error("Error generating embedding for file {}: {}", file.getName(), e.getMessage(), e);
+            try {
+                embeddingChunkRepository.deleteByFilename(documentId);
+            } catch (Exception cleanup) {
+                e.addSuppressed(cleanup);
             }
+            throw e;
+        }
 
-            Document document = new Document();
-            document.setFilename(file.getName());
-            document.setContent(content);
-            document.setFileSize(fileOperations.getFileSize(file));
-            document.setLastModified(Instant.ofEpochMilli(fileOperations.getLastModified(file)));
-            document.setStatus(DocumentStatus.NEW);
+        if (centroid.count() == 0) {
+            log.warn("File {} is empty", file.getName());
+            return null;
+        }
+        nearDuplicateDetector.index(documentId, signature);
 
-            try {
-                log.debug("Generating embedding for document: {}", file.getName());
-                TextSegment segment = TextSegment.from(content);
-                Response<Embedding> embeddingResponse = embeddingModel.embed(segment);
-                Embedding embedding = embeddingResponse.content();
-                
-                // Convert to float array for storage in the document entity
-                float[] vectorArray = new float[embedding.vector().length];
-                for (int i = 0; i < embedding.vector().length; i++) {
-                    vectorArray[i] = embedding.vector()[i];
+        Document document = newDocument(file, documentId);
+        if (text.content == null) {
+            log.info("Content of document {} is longer than {} characters and is not stored, only its chunks",
+                     documentId, maxStoredContentLength);
+        }
+        document.setContent(text.content);
+
+        // The document keeps the centroid of its chunk embeddings, used for coarse retrieval
+        float[] vectorArray = centroid.centroid();
+        document.setEmbedding(vectorArray);
+        document.setStatus(DocumentStatus.PROCESSED);
+        log.info("Successfully stored {} chunk embeddings with {} dimensions for document: {}",
+                 centroid.count(), vectorArray.length, documentId);
+
+        // Create and set metadata
+        document.setMetadata(newMetadata(file).build());
+        
+        log.info("Successfully processed document: {} with status: {}", document.getFilename(), document.getStatus());
+        return document;
+    }
+
+    /**
+     * The identity of the job's document, by which it is stored, indexed for near-duplicates and
+     * tagged on its chunks: its input source and its path relative to the source's directory, the
+     * same key the watcher admits and claims the file by. Two files of the same name in different
+     * folders or sources are different documents. Outside a job it is the file name.
+     */
+    String documentId(File file) {
+        if (jobFileName == null) {
+            return file.getName();
+        }
+        return InputSources.key(jobSource != null ? jobSource : InputSources.DEFAULT_SOURCE, jobFileName);
+    }
+
+    /**
+     * First pass over the file: finds the running headers and footers to drop from its text.
+     */
+    private BitSet findBoilerplateLines(File file) {
+        if (!textNormalizer.isEnabled()) {
+            return new BitSet();
+        }
+        try (Stream<TextBlock> blocks = fileOperations.streamFileContent(file)) {
+            return textNormalizer.findBoilerplateLines(blocks);
+        } catch (IOException | UncheckedIOException e) {
+            throw extractionFailed(file, e);
+        }
+    }
+
+    /**
+     * Second pass over the file: reads its normalized text block by block, computing its
+     * signature as it goes. The text itself is kept only up to {@code maxStoredContentLength}
+     * characters, so a large document is never held in memory whole.
+     */
+    private ScannedText scanText(File file, BitSet boilerplateLines) {
+        ScannedText text = new ScannedText();
+        MinHash.Accumulator signature = nearDuplicateDetector.newSignature();
+        StringBuilder content = new StringBuilder();
+        try (Stream<TextBlock> blocks = normalizedBlocks(file, boilerplateLines)) {
+            Iterator<TextBlock> iterator = blocks.iterator();
+            while (iterator.hasNext()) {
+                String block = iterator.next().getText();
+                text.blank = text.blank && block.isBlank();
+                if (signature != null) {
+                    signature.add(block);
+                }
+                if (content != null && content.length() + block.length() > maxStoredContentLength) {
+                    content = null;
                 }
-                document.setEmbedding(vectorArray);
-                document.setStatus(DocumentStatus.PROCESSED);
-                // document.setEmbedding(embedding);
-
-                // Also store in the embedding store with metadata
-                try {
-                    // Create a simple TextSegment with the content
-                    // The PgVectorEmbeddingStore will handle the storage in its own table
-                    embeddingStore.add(embedding, TextSegment.from(content));
-                    log.info("Successfully stored embedding in PgVector store for document: {}", file.getName());
-                } catch (Exception e) {
-                    log.error("Error storing embedding in PgVector store: {}", e.getMessage(), e);
-                    // Continue processing - we still have the embedding in the document entity
+                if (content != null) {
+                    content.append(block);
                 }
-                
-                log.info("Successfully generated embedding with {} dimensions for document: {}", 
-                         vectorArray.length, file.getName());
-            } catch (Exception e) {
-                log.error("Error generating embedding for file {}: {}", file.getName(), e.getMessage(), e);
-                return null;
             }
-            
-            // Create and set metadata
-            DocumentMetadata metadata = DocumentMetadata.builder()
-                    .originalFilename(file.getName())
-                    .processingTime(Instant.now())
-                    .processorName(applicationName)
-                    .processorVersion(applicationVersion)
-                    .build();
-            document.setMetadata(metadata);
-            
-            log.info("Successfully processed document: {} with status: {}", document.getFilename(), document.getStatus());
-            return document;
-        } catch (IOException e) {
-            log.error("Error processing file {}: {}", file.getName(), e.getMessage(), e);
-            throw new RuntimeException("Error processing file: " + file.getName(), e);
+        } catch (IOException | UncheckedIOException e) {
+            throw extractionFailed(file, e);
+        }
+        text.signature = signature != null ? signature.signature() : null;
+        text.content = content != null ? content.toString() : null;
+        return text;
+    }
+
+    /**
+     * Streams the file's normalized text: whitespace runs, hyphenation breaks and the given
+     * running headers and footers are removed before the text is fingerprinted, embedded and stored.
+     */
+    private Stream<TextBlock> normalizedBlocks(File file, BitSet boilerplateLines) throws IOException {
+        Stream<TextBlock> blocks = fileOperations.streamFileContent(file);
+        return TextBlocks.fromReader(textNormalizer.normalizingReader(blocks, boilerplateLines), TextBlocks.DEFAULT_BLOCK_SIZE);
+    }
+
+    private static RuntimeException extractionFailed(File file, Exception e) {
+        log.error("Error processing file {}: {}", file.getName(), e.getMessage(), e);
+        return new RuntimeException("Error processing file: " + file.getName(), e);
+    }
+
+    /**
+     * Chunks the content one block at a time and hands each block's chunks to the embedding
+     * pipeline, so the chunks and embeddings held in memory do not grow with the size of the
+     * document. The next block is split while earlier ones are embedded and stored.
+     *
+     * @param filename the document's identity, stored as its filename
+     * @param file the document's file, read and normalized again when its content was not kept
+     * @param boilerplateLines the running headers and footers dropped from its text
+     * @param content the normalized content, or null if it was too long to keep
+     * @param centroid accumulates the chunk embeddings
+     */
+    private void embedBlocks(String filename, File file, BitSet boilerplateLines, String content,
+                             Vectors.CentroidAccumulator centroid) throws IOException {
+        try (Stream<TextBlock> blocks = content != null
+                ? TextBlocks.fromReader(new StringReader(content), TextBlocks.DEFAULT_BLOCK_SIZE)
+                : normalizedBlocks(file, boilerplateLines)) {
+            // Chunk indexes are assigned here, in document order, since batches complete out of order
+            int[] nextIndex = {0};
+            Iterator<List<TextSegment>> batches = blocks
+                    .filter(block -> !block.getText().trim().isEmpty())
+                    .map(block -> {
+                        List<TextSegment> segments = splitIntoChunks(filename, block, nextIndex[0]);
+                        nextIndex[0] += segments.size();
+                        return segments;
+                    })
+                    .iterator();
+            embeddingPipeline.process(filename, batches, centroid);
+        }
+    }
+
+    /**
+     * Builds the cheap record stored for a near-duplicate: no content, embedding or chunks,
+     * only a link to the canonical document whose content and chunks stand in for it.
+     */
+    private Document duplicateReference(File file, String documentId, NearDuplicate nearDuplicate) {
+        Document document = newDocument(file, documentId);
+        document.setStatus(DocumentStatus.DUPLICATE);
+        document.setMetadata(newMetadata(file)
+                .duplicateOf(nearDuplicate.getCanonicalFilename())
+                .duplicateSimilarity(nearDuplicate.getSimilarity())
+                .build());
+        log.info("Document {} is a near-duplicate of {} (similarity {}), skipping embedding",
+                 documentId, nearDuplicate.getCanonicalFilename(), nearDuplicate.getSimilarity());
+        return document;
+    }
+
+    private Document newDocument(File file, String documentId) {
+        Document document = new Document();
+        document.setFilename(documentId);
+        document.setFileSize(fileOperations.getFileSize(file));
+        document.setLastModified(Instant.ofEpochMilli(fileOperations.getLastModified(file)));
+        return document;
+    }
+
+    private DocumentMetadata.DocumentMetadataBuilder newMetadata(File file) {
+        return DocumentMetadata.builder()
+                .originalFilename(file.getName())
+                .processingTime(Instant.now())
+                .processorName(applicationName)
+                .processorVersion(applicationVersion)
+                .sourceDirectory(file.getAbsoluteFile().getParent());
+    }
+
+    /**
+     * Splits one block of document content into chunks, tagging each with the document filename,
+     * its position among all chunks of the document and, where the chunk text appears verbatim
+     * in the block, its character offsets within the whole document.
+     *
+     * @param filename the document's identity, stored as its filename
+     * @param block the block of content to split
+     * @param firstIndex index of the first chunk of this block within the document
+     * @return the chunks to embed
+     */
+    private List<TextSegment> splitIntoChunks(String filename, TextBlock block, int firstIndex) {
+        DocumentSplitter splitter = DocumentSplitters.recursive(maxSegmentSize, segmentOverlap);
+        String text = block.getText();
+        List<TextSegment> segments = splitter.split(dev.langchain4j.data.document.Document.from(
+                text, Metadata.from(EmbeddingChunkRepository.FILENAME_KEY, filename)));
+
+        int index = firstIndex;
+        int searchFrom = 0;
+        for (TextSegment segment : segments) {
+            segment.metadata().add(EmbeddingChunkRepository.INDEX_KEY, index++);
+            int start = text.indexOf(segment.text(), searchFrom);
+            if (start >= 0) {
+                long documentStart = block.getStartOffset() + start;
+                segment.metadata()
+                        .add(EmbeddingChunkRepository.START_OFFSET_KEY, documentStart)
+                        .add(EmbeddingChunkRepository.END_OFFSET_KEY, documentStart + segment.text().length());
+                // Chunks overlap, so the next one may start before this one ends
+                searchFrom = start + 1;
+            }
         }
+        log.debug("Split block at offset {} of document {} into {} chunks", block.getStartOffset(), filename, segments.size());
+        return segments;
+    }
+
+    /** What the second pass learned of a document's normalized text. */
+    private static final class ScannedText {
+        private boolean blank = true;
+        private int[] signature;
+        private String content;
     }
 }
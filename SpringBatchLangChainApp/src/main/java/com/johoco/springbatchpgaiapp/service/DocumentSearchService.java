@@ -1,8 +1,16 @@
 package com.johoco.springbatchpgaiapp.service;
 
+import com.johoco.springbatchpgaiapp.model.Document;
+import com.johoco.springbatchpgaiapp.model.DocumentMetadata;
+import com.johoco.springbatchpgaiapp.model.DocumentStatus;
+import com.johoco.springbatchpgaiapp.model.SearchCursor;
+import com.johoco.springbatchpgaiapp.model.SearchFilter;
+import com.johoco.springbatchpgaiapp.model.SearchPage;
+import com.johoco.springbatchpgaiapp.repository.DocumentRepository;
+import com.johoco.springbatchpgaiapp.repository.EmbeddingChunkRepository;
+import com.johoco.springbatchpgaiapp.util.Vectors;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.model.embedding.AllMiniLmL6V2EmbeddingModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
 import dev.langchain4j.store.embedding.EmbeddingStore;
@@ -11,6 +19,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Slf4j
 @Service
@@ -18,10 +28,17 @@ public class DocumentSearchService {
 
     private final EmbeddingStore<TextSegment> embeddingStore;
     private final EmbeddingModel embeddingModel;
+    private final SearchMetrics searchMetrics;
+    private final DocumentRepository documentRepository;
+    private final EmbeddingChunkRepository embeddingChunkRepository;
 
-    public DocumentSearchService(EmbeddingStore<TextSegment> embeddingStore) {
+    public DocumentSearchService(EmbeddingStore<TextSegment> embeddingStore, EmbeddingModel embeddingModel, SearchMetrics searchMetrics,
+                                 DocumentRepository documentRepository, EmbeddingChunkRepository embeddingChunkRepository) {
         this.embeddingStore = embeddingStore;
-        this.embeddingModel = new AllMiniLmL6V2EmbeddingModel();
+        this.embeddingModel = embeddingModel;
+        this.searchMetrics = searchMetrics;
+        this.documentRepository = documentRepository;
+        this.embeddingChunkRepository = embeddingChunkRepository;
         log.info("DocumentSearchService initialized with embeddingStore and embeddingModel");
     }
 
@@ -39,18 +56,27 @@ public class DocumentSearchService {
      * @return List of matching documents with their similarity scores
      */
     public List<EmbeddingMatch<TextSegment>> searchSimilarDocuments(String query, int maxResults, float minScore) {
+        return searchSimilarDocuments(query, maxResults, minScore, null);
+    }
+
+    /**
+     * Search for documents similar to the query among documents matching a metadata filter
+     * 
+     * @param query The search query
+     * @param maxResults Maximum number of results to return
+     * @param minScore Minimum similarity score (0-1)
+     * @param filter Metadata constraints applied inside the vector query, may be null
+     * @return List of matching documents with their similarity scores
+     */
+    public List<EmbeddingMatch<TextSegment>> searchSimilarDocuments(String query, int maxResults, float minScore, SearchFilter filter) {
         log.info("Searching for documents similar to query: {}", query);
         
         try {
             // Generate embedding for the query
-            Embedding queryEmbedding = embeddingModel.embed(query).content();
+            Embedding queryEmbedding = embedQuery(query);
             
             // Search for similar documents
-            List<EmbeddingMatch<TextSegment>> matches = embeddingStore.findRelevant(
-                    queryEmbedding, 
-                    maxResults,
-                    minScore
-            );
+            List<EmbeddingMatch<TextSegment>> matches = findMatches(queryEmbedding, maxResults, minScore, filter);
             
             log.info("Found {} matching documents for query", matches.size());
             return matches;
@@ -59,4 +85,154 @@ public class DocumentSearchService {
             throw new RuntimeException("Error performing semantic search", e);
         }
     }
+
+    /**
+     * Generates the embedding for a search query, recording the embed stage latency.
+     *
+     * @param query The search query
+     * @return the query embedding
+     */
+    public Embedding embedQuery(String query) {
+        return searchMetrics.embedTimer().record(() -> embeddingModel.embed(query).content());
+    }
+
+    /**
+     * Runs the nearest-neighbour lookup in the embedding store, recording the DB stage latency.
+     *
+     * @param queryEmbedding The query embedding
+     * @param maxResults Maximum number of results to return
+     * @param minScore Minimum similarity score (0-1)
+     * @return List of matching documents with their similarity scores
+     */
+    public List<EmbeddingMatch<TextSegment>> findMatches(Embedding queryEmbedding, int maxResults, float minScore) {
+        return findMatches(queryEmbedding, maxResults, minScore, null);
+    }
+
+    /**
+     * Runs the nearest-neighbour lookup restricted to documents matching the filter,
+     * recording the DB stage latency. Without constraints the embedding store is queried directly.
+     *
+     * @param queryEmbedding The query embedding
+     * @param maxResults Maximum number of results to return
+     * @param minScore Minimum similarity score (0-1)
+     * @param filter Metadata constraints applied inside the vector query, may be null
+     * @return List of matching documents with their similarity scores
+     */
+    public List<EmbeddingMatch<TextSegment>> findMatches(Embedding queryEmbedding, int maxResults, float minScore, SearchFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            return searchMetrics.dbTimer().record(() -> embeddingStore.findRelevant(queryEmbedding, maxResults, minScore));
+        }
+        return findPage(queryEmbedding, maxResults, minScore, filter, null).getMatches();
+    }
+
+    /**
+     * Runs one page of the nearest-neighbour lookup restricted to documents matching the filter,
+     * recording the DB stage latency.
+     *
+     * @param queryEmbedding The query embedding
+     * @param maxResults Page size
+     * @param minScore Minimum similarity score (0-1)
+     * @param filter Metadata constraints applied inside the vector query, may be null
+     * @param cursor Position to resume after, or null for the first page
+     * @return the page of matches and the cursor for the next page
+     */
+    public SearchPage findPage(Embedding queryEmbedding, int maxResults, float minScore, SearchFilter filter, SearchCursor cursor) {
+        return searchMetrics.dbTimer().record(() ->
+                embeddingChunkRepository.findRelevant(queryEmbedding, filter, cursor, maxResults, minScore));
+    }
+
+    /**
+     * Two-stage coarse-to-fine search: first finds the documents whose centroid embedding is
+     * closest to the query, then searches only the chunks of those documents.
+     *
+     * @param query The search query
+     * @param candidateDocuments Number of documents kept by the centroid stage
+     * @param maxResults Maximum number of chunks to return
+     * @param minScore Minimum similarity score (0-1)
+     * @param filter Metadata constraints applied to the centroid stage, may be null
+     * @return List of matching chunks with their similarity scores
+     */
+    public List<EmbeddingMatch<TextSegment>> searchTwoStage(String query, int candidateDocuments, int maxResults, float minScore,
+                                                            SearchFilter filter) {
+        log.info("Two-stage search over {} candidate documents for query: {}", candidateDocuments, query);
+
+        try {
+            Embedding queryEmbedding = embedQuery(query);
+            List<EmbeddingMatch<TextSegment>> matches = findMatchesTwoStage(queryEmbedding, candidateDocuments, maxResults, minScore, filter);
+            log.info("Found {} matching chunks for query", matches.size());
+            return matches;
+        } catch (Exception e) {
+            log.error("Error searching for documents: {}", e.getMessage(), e);
+            throw new RuntimeException("Error performing semantic search", e);
+        }
+    }
+
+    /**
+     * Runs both stages of the coarse-to-fine lookup, recording them together as the DB stage latency.
+     *
+     * @param queryEmbedding The query embedding
+     * @param candidateDocuments Number of documents kept by the centroid stage
+     * @param maxResults Maximum number of chunks to return
+     * @param minScore Minimum similarity score (0-1)
+     * @param filter Metadata constraints applied to the centroid stage, may be null
+     * @return List of matching chunks with their similarity scores
+     */
+    public List<EmbeddingMatch<TextSegment>> findMatchesTwoStage(Embedding queryEmbedding, int candidateDocuments,
+                                                                 int maxResults, float minScore, SearchFilter filter) {
+        return findPageTwoStage(queryEmbedding, candidateDocuments, maxResults, minScore, filter, null).getMatches();
+    }
+
+    /**
+     * Runs one page of the coarse-to-fine lookup. The centroid stage is deterministic for a
+     * given query and filter, so every page searches the same candidate documents.
+     *
+     * @param queryEmbedding The query embedding
+     * @param candidateDocuments Number of documents kept by the centroid stage
+     * @param maxResults Page size
+     * @param minScore Minimum similarity score (0-1)
+     * @param filter Metadata constraints applied to the centroid stage, may be null
+     * @param cursor Position to resume after, or null for the first page
+     * @return the page of matches and the cursor for the next page
+     */
+    public SearchPage findPageTwoStage(Embedding queryEmbedding, int candidateDocuments, int maxResults, float minScore,
+                                       SearchFilter filter, SearchCursor cursor) {
+        return searchMetrics.dbTimer().record(() -> {
+            List<String> filenames = documentRepository.findNearestFilenamesByCentroid(
+                    Vectors.toPgVectorLiteral(queryEmbedding.vector()), filter, candidateDocuments);
+            log.debug("Centroid stage selected {} documents", filenames.size());
+            return embeddingChunkRepository.findRelevantInDocuments(queryEmbedding, filenames, cursor, maxResults, minScore);
+        });
+    }
+
+    /**
+     * Loads the full text of a single chunk.
+     *
+     * @param embeddingId the chunk's embedding id
+     * @return the chunk text, or empty if no such chunk exists
+     */
+    public Optional<String> findChunkText(String embeddingId) {
+        try {
+            UUID.fromString(embeddingId);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        return embeddingChunkRepository.findTextById(embeddingId);
+    }
+
+    /**
+     * Loads the full content of a document. A near-duplicate stored as a reference resolves
+     * to the content of its canonical document.
+     *
+     * @param filename the document filename
+     * @return the document content, or empty if no such document exists
+     */
+    public Optional<String> findDocumentContent(String filename) {
+        return documentRepository.findByFilename(filename).flatMap(document -> {
+            DocumentMetadata metadata = document.getMetadata();
+            if (document.getStatus() == DocumentStatus.DUPLICATE && metadata != null && metadata.getDuplicateOf() != null) {
+                return documentRepository.findByFilename(metadata.getDuplicateOf()).map(Document::getContent);
+            }
+            return Optional.ofNullable(document.getContent());
+        });
+    }
 }
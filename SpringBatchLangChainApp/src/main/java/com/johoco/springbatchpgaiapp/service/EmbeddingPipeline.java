@@ -0,0 +1,246 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import com.johoco.springbatchpgaiapp.repository.EmbeddingChunkRepository;
+import com.johoco.springbatchpgaiapp.util.Vectors;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Embeds batches of chunks and writes them to the embedding store.
+ * <p>
+ * In pipelined mode the caller splits the next block while earlier batches are embedded and
+ * written: embedding and storing are separate stages, each with its own threads and a bounded
+ * queue. A full queue blocks whoever feeds it, so the slowest stage sets the pace and no stage
+ * buffers more than its queue. Each document keeps a bounded number of batches in flight and
+ * folds their embeddings into its centroid in order, so the centroid does not depend on timing.
+ * <p>
+ * Per stage, the queue depth and active threads are published as {@value #QUEUE_DEPTH_METRIC}
+ * and {@value #ACTIVE_METRIC} gauges, and the time spent per batch as {@value #LATENCY_METRIC}.
+ * In sequential mode each batch is embedded and stored on the calling thread.
+ */
+@Slf4j
+@Component
+public class EmbeddingPipeline {
+    public static final String QUEUE_DEPTH_METRIC = "document.pipeline.queue.depth";
+    public static final String ACTIVE_METRIC = "document.pipeline.active";
+    public static final String LATENCY_METRIC = "document.pipeline.latency";
+    public static final String STAGE_EMBED = "embed";
+    public static final String STAGE_STORE = "store";
+
+    /** Feeding a full stage waits for room in its queue instead of failing. */
+    private static final RejectedExecutionHandler BLOCK_WHEN_FULL = (task, executor) -> {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Pipeline stage is shut down");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted waiting for room in pipeline queue", e);
+        }
+    };
+
+    private final EmbeddingModel embeddingModel;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${document.pipeline.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${document.pipeline.embed.threads:2}")
+    private int embedThreads = 2;
+
+    @Value("${document.pipeline.embed.queue-capacity:8}")
+    private int embedQueueCapacity = 8;
+
+    @Value("${document.pipeline.store.threads:2}")
+    private int storeThreads = 2;
+
+    @Value("${document.pipeline.store.queue-capacity:8}")
+    private int storeQueueCapacity = 8;
+
+    @Value("${document.pipeline.max-in-flight-per-document:4}")
+    private int maxInFlightPerDocument = 4;
+
+    private ThreadPoolExecutor embedStage;
+    private ThreadPoolExecutor storeStage;
+    private Timer embedTimer;
+    private Timer storeTimer;
+
+    public EmbeddingPipeline(EmbeddingModel embeddingModel, EmbeddingStore<TextSegment> embeddingStore, MeterRegistry meterRegistry) {
+        this.embeddingModel = embeddingModel;
+        this.embeddingStore = embeddingStore;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        embedTimer = stageTimer(STAGE_EMBED);
+        storeTimer = stageTimer(STAGE_STORE);
+        if (!enabled) {
+            log.info("Embedding pipeline disabled, chunks are embedded and stored sequentially");
+            return;
+        }
+        embedStage = stage(STAGE_EMBED, embedThreads, embedQueueCapacity);
+        storeStage = stage(STAGE_STORE, storeThreads, storeQueueCapacity);
+        log.info("Embedding pipeline started: {} embed threads (queue {}), {} store threads (queue {}), {} batches in flight per document",
+                embedThreads, embedQueueCapacity, storeThreads, storeQueueCapacity, maxInFlightPerDocument);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (embedStage != null) {
+            embedStage.shutdownNow();
+            storeStage.shutdownNow();
+        }
+    }
+
+    /**
+     * Embeds and stores every batch of chunks of one document, returning once all are stored.
+     * Batches are pulled from the iterator only as fast as the stages accept them. If a batch
+     * fails, the batches behind it are skipped and the first failure is rethrown once none of
+     * them can still write to the store.
+     *
+     * @param filename the document filename, for logging
+     * @param batches the document's chunks, one batch per block of content
+     * @param centroid accumulates the chunk embeddings in batch order
+     */
+    public void process(String filename, Iterator<List<TextSegment>> batches, Vectors.CentroidAccumulator centroid) {
+        if (!enabled) {
+            while (batches.hasNext()) {
+                List<TextSegment> segments = batches.next();
+                if (!segments.isEmpty()) {
+                    store(filename, embed(segments), segments).forEach(centroid::add);
+                }
+            }
+            return;
+        }
+
+        Deque<CompletableFuture<List<Embedding>>> inFlight = new ArrayDeque<>();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        try {
+            while (batches.hasNext()) {
+                List<TextSegment> segments = batches.next();
+                if (segments.isEmpty()) {
+                    continue;
+                }
+                inFlight.add(CompletableFuture.supplyAsync(() -> unlessFailed(failure, () -> embed(segments)), embedStage)
+                        .thenApplyAsync(embeddings -> unlessFailed(failure, () -> store(filename, embeddings, segments)), storeStage));
+                while (inFlight.size() >= maxInFlightPerDocument) {
+                    inFlight.poll().join().forEach(centroid::add);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                inFlight.poll().join().forEach(centroid::add);
+            }
+        } catch (RuntimeException e) {
+            // A failed stage has already recorded its failure, so batches still queued skip their
+            // work; those already running are waited for, so no chunk of this document is stored
+            // after the caller has seen the failure. The batch joined here may be one that was
+            // skipped, so the recorded failure is the one rethrown.
+            failure.compareAndSet(null, e);
+            awaitAll(inFlight);
+            RuntimeException first = failure.get();
+            if (first != e) {
+                throw first;
+            }
+            if (e instanceof CompletionException && e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs one stage of a batch, unless a stage of another batch of the document failed. A
+     * failure is recorded on the stage's own thread, before the next queued batch is taken.
+     */
+    private static <T> T unlessFailed(AtomicReference<RuntimeException> failure, Supplier<T> stage) {
+        if (failure.get() != null) {
+            throw new CancellationException("Another batch of the document failed");
+        }
+        try {
+            return stage.get();
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+            throw e;
+        }
+    }
+
+    private static void awaitAll(Deque<CompletableFuture<List<Embedding>>> inFlight) {
+        for (CompletableFuture<List<Embedding>> batch : inFlight) {
+            try {
+                batch.join();
+            } catch (CompletionException | CancellationException e) {
+                // Only the first failure is reported
+            }
+        }
+        inFlight.clear();
+    }
+
+    private List<Embedding> embed(List<TextSegment> segments) {
+        return embedTimer.record(() -> embeddingModel.embedAll(segments).content());
+    }
+
+    private List<Embedding> store(String filename, List<Embedding> embeddings, List<TextSegment> segments) {
+        // Each segment carries the document filename so chunk search can be scoped to documents
+        // The PgVectorEmbeddingStore will handle the storage in its own table
+        storeTimer.record(() -> embeddingStore.addAll(embeddings, segments));
+        log.debug("Stored {} chunk embeddings from chunk {} of document: {}",
+                  segments.size(), segments.get(0).metadata().get(EmbeddingChunkRepository.INDEX_KEY), filename);
+        return embeddings;
+    }
+
+    private ThreadPoolExecutor stage(String name, int threads, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "pipeline-" + name + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, BLOCK_WHEN_FULL);
+        Gauge.builder(QUEUE_DEPTH_METRIC, executor, e -> e.getQueue().size())
+                .description("Batches waiting for a pipeline stage")
+                .tag("stage", name)
+                .register(meterRegistry);
+        Gauge.builder(ACTIVE_METRIC, executor, ThreadPoolExecutor::getActiveCount)
+                .description("Pipeline stage threads busy with a batch")
+                .tag("stage", name)
+                .register(meterRegistry);
+        return executor;
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder(LATENCY_METRIC)
+                .description("Time a pipeline stage spends on one batch of chunks")
+                .tag("stage", stage)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,194 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import com.johoco.springbatchpgaiapp.repository.FileClaimRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Makes sure a file in an input directory shared by several instances of the application is
+ * processed by only one of them.
+ * <p>
+ * Before launching a job, an instance claims the file with a lease row in the
+ * {@code file_claims} table. The row is inserted if there is none. If there is one whose lease
+ * expired, it is taken over, locked with {@code FOR UPDATE SKIP LOCKED}, so of two instances
+ * racing for it one wins and the other moves on without waiting. Leases are renewed every
+ * {@code renew-interval-ms} while their jobs run. If an instance crashes, its leases expire
+ * after {@code lease-ms} and its files are picked up by the others. When a job ends, its lease
+ * is kept for {@code completed-retention-ms}, so an instance that listed the file just before
+ * it was moved cannot claim it again.
+ * <p>
+ * A file another instance holds is not asked about again until that lease is due to expire, so
+ * a large backlog owned by other instances costs one query per file per lease rather than per
+ * poll. With {@code document.claims.enabled=false}, the default for a single instance, every
+ * claim succeeds without touching the database.
+ */
+@Slf4j
+@Component
+public class FileClaims {
+    public static final String CLAIMS_METRIC = "document.claims";
+    public static final String HELD_METRIC = "document.claims.held";
+
+    private final FileClaimRepository fileClaimRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${document.claims.enabled:false}")
+    private boolean enabled;
+
+    @Value("${document.claims.node-id:}")
+    private String nodeId = "";
+
+    @Value("${document.claims.lease-ms:600000}")
+    private long leaseMs = 600_000;
+
+    @Value("${document.claims.completed-retention-ms:60000}")
+    private long completedRetentionMs = 60_000;
+
+    private Clock clock = Clock.systemUTC();
+
+    private final Set<String> held = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> heldElsewhereUntil = new ConcurrentHashMap<>();
+    private Counter claimedCounter;
+    private Counter takenOverCounter;
+    private Counter refusedCounter;
+
+    public FileClaims(FileClaimRepository fileClaimRepository, MeterRegistry meterRegistry) {
+        this.fileClaimRepository = fileClaimRepository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = hostName() + "-" + ProcessHandle.current().pid();
+        }
+        claimedCounter = outcomeCounter("claimed");
+        takenOverCounter = outcomeCounter("taken-over");
+        refusedCounter = outcomeCounter("refused");
+        Gauge.builder(HELD_METRIC, held, Set::size)
+                .description("File claims held by this instance")
+                .register(meterRegistry);
+        if (enabled) {
+            log.info("Claiming files as {} with leases of {} ms", nodeId, leaseMs);
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Claims a file for this instance.
+     *
+     * @param key the file's key, the same on every instance
+     * @return whether this instance may process the file
+     */
+    public boolean tryClaim(String key) {
+        if (!enabled) {
+            return true;
+        }
+        Long until = heldElsewhereUntil.get(key);
+        if (until != null && until > clock.millis()) {
+            return false;
+        }
+        try {
+            if (fileClaimRepository.insert(key, nodeId, leaseMs)) {
+                return claimed(key, claimedCounter);
+            }
+            String previousOwner = fileClaimRepository.takeOverExpired(key, nodeId, leaseMs);
+            if (previousOwner != null) {
+                log.info("Took over expired claim on {} from {}", key, previousOwner);
+                return claimed(key, takenOverCounter);
+            }
+            Long remainingMs = fileClaimRepository.remainingLeaseMs(key);
+            if (remainingMs != null && remainingMs > 0) {
+                heldElsewhereUntil.put(key, clock.millis() + remainingMs);
+            }
+            refusedCounter.increment();
+            log.debug("File {} is claimed by another instance", key);
+            return false;
+        } catch (DataAccessException e) {
+            // Without the database nobody can be sure the file is free; retry on the next poll
+            log.warn("Could not claim file {}: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Gives up the claim on a file whose job ended, or could not be launched.
+     *
+     * @param key the file's key
+     */
+    public void release(String key) {
+        if (!enabled || !held.remove(key)) {
+            return;
+        }
+        try {
+            fileClaimRepository.release(key, nodeId, completedRetentionMs);
+        } catch (DataAccessException e) {
+            // The lease then runs out by itself
+            log.warn("Could not release claim on file {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Renews the leases of files still being processed and deletes expired leases.
+     */
+    @Scheduled(fixedDelayString = "${document.claims.renew-interval-ms:60000}")
+    public void renew() {
+        if (!enabled) {
+            return;
+        }
+        long now = clock.millis();
+        heldElsewhereUntil.values().removeIf(until -> until <= now);
+        try {
+            List<String> keys = new ArrayList<>(held);
+            if (!keys.isEmpty()) {
+                int renewed = fileClaimRepository.renew(keys, nodeId, leaseMs);
+                if (renewed < keys.size()) {
+                    log.warn("Renewed {} of {} file claims; the others expired and were taken over", renewed, keys.size());
+                }
+            }
+            fileClaimRepository.deleteExpired();
+        } catch (DataAccessException e) {
+            log.error("Could not renew file claims: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean claimed(String key, Counter counter) {
+        held.add(key);
+        heldElsewhereUntil.remove(key);
+        counter.increment();
+        return true;
+    }
+
+    private Counter outcomeCounter(String outcome) {
+        return Counter.builder(CLAIMS_METRIC)
+                .description("Attempts to claim files, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
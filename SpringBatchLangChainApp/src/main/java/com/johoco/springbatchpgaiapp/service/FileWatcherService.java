@@ -6,14 +6,18 @@ import org.springframework.batch.core.Job;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.JobParametersBuilder;
 import org.springframework.batch.core.launch.JobLauncher;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import com.johoco.springbatchpgaiapp.batch.DocumentJobListener;
+import com.johoco.springbatchpgaiapp.config.InputSourceProperties;
 import com.johoco.springbatchpgaiapp.util.FileOperations;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Slf4j
 @Service
@@ -22,44 +26,113 @@ public class FileWatcherService {
     private final JobLauncher jobLauncher;
     private final Job processDocumentJob;
     private final FileOperations fileOperations;
-    
-    @Value("${document.input.directory}")
-    private String inputDirectory;
+    private final MemoryBudget memoryBudget;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final PendingFileScheduler pendingFileScheduler;
+    private final InputSources inputSources;
+    private final DirectoryCrawler directoryCrawler;
+    private final FileClaims fileClaims;
     
     @Scheduled(fixedDelayString = "${document.input.polling-interval}")
     public void watchDirectory() {
-        try {
-            File directory = fileOperations.ensureDirectoryExists(inputDirectory);
-
-            File[] files = directory.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    if (file.isFile()) {
-                        processFile(file);
-                    }
+        Map<File, InputSourceProperties.Source> pending = new LinkedHashMap<>();
+        for (InputSourceProperties.Source source : inputSources.getSources()) {
+            int backlog = 0;
+            try {
+                File directory = fileOperations.ensureDirectoryExists(source.getDirectory());
+                for (File file : directoryCrawler.scan(directory)) {
+                    pending.put(file, source);
+                    backlog++;
                 }
+            } catch (IOException e) {
+                log.error("Error ensuring directory exists: {}", e.getMessage(), e);
             }
-        } catch (IOException e) {
-            log.error("Error ensuring directory exists: {}", e.getMessage(), e);
+            inputSources.setBacklog(source.getName(), backlog);
         }
+
+        // Launch in priority order, so the highest priority files get the free slots and memory first
+        for (File file : pendingFileScheduler.order(new ArrayList<>(pending.keySet()))) {
+            Admission admission = processFile(file, pending.get(file));
+            if (admission == Admission.LAUNCHED) {
+                pendingFileScheduler.launched(file);
+            } else if (admission == Admission.NO_MEMORY && pendingFileScheduler.isOverdue(file)) {
+                // Smaller files behind it would take the memory freed by finishing jobs, so a
+                // large file could wait forever; they wait until it fits instead
+                log.info("Holding back launches until overdue file {} fits in the memory budget", file.getName());
+                break;
+            }
+        }
+        directoryCrawler.flush();
     }
     
     /**
-     * Process a single file by launching a Spring Batch job.
+     * Process a single file by launching a Spring Batch job, once its source's quota and the
+     * concurrency limit have a free slot and its estimated memory fits in the memory budget.
+     * The file is claimed last, so an instance sharing the input directory with others only
+     * claims files it can start right away. A file that cannot be launched yet, or is claimed
+     * by another instance, is retried on the next poll.
+     * 
+     * The job is given the file's path relative to its source's directory, which is its name
+     * unless it lies in a subdirectory.
      * 
      * @param file The file to process
+     * @param source The input source the file was found in
+     * @return whether a job was launched for the file, or why not
      */
-    private void processFile(File file) {
+    private Admission processFile(File file, InputSourceProperties.Source source) {
+        String sourceName = source.getName();
+        String fileName = new File(source.getDirectory()).getAbsoluteFile().toPath()
+                .relativize(file.getAbsoluteFile().toPath()).toString();
+        if (!inputSources.tryAcquire(sourceName)) {
+            return Admission.DEFERRED;
+        }
+        if (!concurrencyLimit.tryAcquire()) {
+            inputSources.release(sourceName);
+            return Admission.DEFERRED;
+        }
+        String key = InputSources.key(sourceName, fileName);
+        if (!memoryBudget.tryAcquire(key, fileOperations.getFileSize(file))) {
+            concurrencyLimit.release();
+            inputSources.release(sourceName);
+            return Admission.NO_MEMORY;
+        }
+        if (!fileClaims.tryClaim(key)) {
+            memoryBudget.release(key);
+            concurrencyLimit.release();
+            inputSources.release(sourceName);
+            return Admission.DEFERRED;
+        }
         try {
-            log.info("Processing file: {}", file.getName());
+            log.info("Processing file: {} from source {}", fileName, sourceName);
             JobParameters params = new JobParametersBuilder()
-                .addString("fileName", file.getName())
+                .addString(DocumentJobListener.FILE_NAME_PARAMETER, fileName)
+                .addString(DocumentJobListener.SOURCE_PARAMETER, sourceName)
+                .addString(DocumentJobListener.INPUT_DIRECTORY_PARAMETER, source.getDirectory())
                 .addLong("timestamp", System.currentTimeMillis())
                 .toJobParameters();
+            // Before the launch, so a job ending at once finds its file acknowledged
+            directoryCrawler.acknowledge(file);
             jobLauncher.run(processDocumentJob, params);
-            log.info("Successfully submitted job for file: {}", file.getName());
+            inputSources.launched(sourceName);
+            log.info("Successfully submitted job for file: {}", fileName);
+            return Admission.LAUNCHED;
         } catch (Exception e) {
-            log.error("Error processing file {}: {}", file.getName(), e.getMessage());
+            // The job never ran, so its listener will not release the claim, reservation and slots
+            directoryCrawler.forget(file);
+            fileClaims.release(key);
+            memoryBudget.release(key);
+            concurrencyLimit.release();
+            inputSources.release(sourceName);
+            log.error("Error processing file {}: {}", fileName, e.getMessage());
+            return Admission.DEFERRED;
         }
     }
+
+    private enum Admission {
+        LAUNCHED,
+        /** Not launched on this poll, for any reason but the memory budget. */
+        DEFERRED,
+        /** Not launched because its memory reservation does not fit in the budget. */
+        NO_MEMORY
+    }
 }
@@ -0,0 +1,174 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import com.johoco.springbatchpgaiapp.config.InputSourceProperties;
+import com.johoco.springbatchpgaiapp.model.SchedulingPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The input sources documents are ingested from, each with its own concurrency quota and,
+ * under the FAIR scheduling policy, its own share of launches.
+ * <p>
+ * Per source, the files waiting at the last poll and the jobs running are published as
+ * {@value #BACKLOG_METRIC} and {@value #IN_FLIGHT_METRIC}, and launched and finished jobs are
+ * counted as {@value #LAUNCHED_METRIC} and {@value #COMPLETED_METRIC}, the latter tagged by
+ * job status. The rate of completions is the source's throughput.
+ */
+@Slf4j
+@Component
+public class InputSources {
+    public static final String DEFAULT_SOURCE = "default";
+    public static final String BACKLOG_METRIC = "document.source.backlog";
+    public static final String IN_FLIGHT_METRIC = "document.source.in-flight";
+    public static final String LAUNCHED_METRIC = "document.source.launched";
+    public static final String COMPLETED_METRIC = "document.source.completed";
+
+    private final InputSourceProperties properties;
+    private final PendingFileScheduler pendingFileScheduler;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, SourceState> states = new LinkedHashMap<>();
+
+    public InputSources(InputSourceProperties properties, PendingFileScheduler pendingFileScheduler, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.pendingFileScheduler = pendingFileScheduler;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        List<InputSourceProperties.Source> sources = new ArrayList<>(properties.getSources());
+        if (sources.isEmpty()) {
+            InputSourceProperties.Source source = new InputSourceProperties.Source();
+            source.setName(DEFAULT_SOURCE);
+            source.setDirectory(properties.getDirectory());
+            sources.add(source);
+        }
+
+        for (InputSourceProperties.Source source : sources) {
+            if (source.getName() == null || source.getDirectory() == null) {
+                throw new IllegalStateException("Every input source needs a name and a directory");
+            }
+            if (states.containsKey(source.getName())) {
+                throw new IllegalStateException("Duplicate input source name: " + source.getName());
+            }
+            pendingFileScheduler.setFolderWeight(new File(source.getDirectory()).getAbsolutePath(), source.getWeight());
+            states.put(source.getName(), new SourceState(source));
+            log.info("Input source {}: {} (weight {}, max concurrent {})", source.getName(), source.getDirectory(),
+                     source.getWeight(), source.getMaxConcurrent() > 0 ? source.getMaxConcurrent() : "unlimited");
+        }
+        boolean weighted = sources.stream().anyMatch(source -> source.getWeight() != 1.0);
+        if (weighted && pendingFileScheduler.getPolicy() != SchedulingPolicy.FAIR) {
+            log.warn("Input source weights only apply with document.scheduling.policy FAIR and are ignored under {}",
+                     pendingFileScheduler.getPolicy());
+        }
+    }
+
+    public List<InputSourceProperties.Source> getSources() {
+        List<InputSourceProperties.Source> sources = new ArrayList<>();
+        states.values().forEach(state -> sources.add(state.source));
+        return Collections.unmodifiableList(sources);
+    }
+
+    /**
+     * Records the number of files waiting in a source at the latest poll.
+     */
+    public void setBacklog(String source, int pending) {
+        state(source).backlog.set(pending);
+    }
+
+    /**
+     * Takes a slot for a job from the source's quota.
+     *
+     * @return whether the source may launch another job
+     */
+    public boolean tryAcquire(String source) {
+        SourceState state = state(source);
+        int maxConcurrent = state.source.getMaxConcurrent();
+        while (true) {
+            int running = state.inFlight.get();
+            if (maxConcurrent > 0 && running >= maxConcurrent) {
+                return false;
+            }
+            if (state.inFlight.compareAndSet(running, running + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Counts a job launched from the source.
+     */
+    public void launched(String source) {
+        state(source).launched.increment();
+    }
+
+    /**
+     * Returns a slot taken for a job that could not be launched.
+     */
+    public void release(String source) {
+        state(source).inFlight.updateAndGet(running -> Math.max(0, running - 1));
+    }
+
+    /**
+     * Returns the slot of a job that ended and counts it under its final status.
+     */
+    public void completed(String source, String status) {
+        release(source);
+        Counter.builder(COMPLETED_METRIC)
+                .description("Document jobs finished per input source")
+                .tag("source", source)
+                .tag("status", status)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Key identifying a file across sources, for reservations keyed by document.
+     */
+    public static String key(String source, String fileName) {
+        return source + ":" + fileName;
+    }
+
+    private SourceState state(String source) {
+        SourceState state = states.get(source);
+        if (state == null) {
+            throw new IllegalArgumentException("Unknown input source: " + source);
+        }
+        return state;
+    }
+
+    private class SourceState {
+        private final InputSourceProperties.Source source;
+        private final AtomicInteger backlog = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Counter launched;
+
+        SourceState(InputSourceProperties.Source source) {
+            this.source = source;
+            Gauge.builder(BACKLOG_METRIC, backlog, AtomicInteger::get)
+                    .description("Files waiting in an input source at the latest poll")
+                    .tag("source", source.getName())
+                    .register(meterRegistry);
+            Gauge.builder(IN_FLIGHT_METRIC, inFlight, AtomicInteger::get)
+                    .description("Document jobs running per input source")
+                    .tag("source", source.getName())
+                    .register(meterRegistry);
+            this.launched = Counter.builder(LAUNCHED_METRIC)
+                    .description("Document jobs launched per input source")
+                    .tag("source", source.getName())
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control on the heap used by documents in flight.
+ * <p>
+ * Each document reserves an estimate of the memory its processing needs, its file size times
+ * {@code document.memory.expansion-factor}, from a budget that is a fraction of the maximum heap.
+ * A document is only launched once its reservation fits, and the reservation is held until its
+ * job ends. Many small documents can run side by side, while a large one waits until enough
+ * of the budget is free. A document larger than the whole budget reserves all of it and runs alone.
+ * <p>
+ * Reservations are keyed by filename, so a document already in flight is not admitted twice.
+ * The budget and reserved bytes are published as gauges. The time from a document's first
+ * refused admission to its admission is published as {@value #WAIT_METRIC}.
+ */
+@Slf4j
+@Component
+public class MemoryBudget {
+    public static final String BUDGET_METRIC = "document.memory.budget";
+    public static final String RESERVED_METRIC = "document.memory.reserved";
+    public static final String WAIT_METRIC = "document.memory.wait";
+    public static final String DENIED_METRIC = "document.memory.denied";
+    // Semaphore permits are ints, so bytes are counted in KiB
+    private static final int UNIT = 1024;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${document.memory.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${document.memory.heap-fraction:0.5}")
+    private double heapFraction = 0.5;
+
+    @Value("${document.memory.expansion-factor:4.0}")
+    private double expansionFactor = 4.0;
+
+    @Value("${document.memory.min-reservation-bytes:1048576}")
+    private long minReservationBytes = 1024 * 1024;
+
+    @Value("${document.memory.acquire-timeout-ms:0}")
+    private long acquireTimeoutMs;
+
+    private Semaphore permits;
+    private int totalPermits;
+    private final Map<String, Integer> reservations = new ConcurrentHashMap<>();
+    private final Map<String, Long> firstRefused = new ConcurrentHashMap<>();
+    private Timer waitTimer;
+    private Counter deniedCounter;
+
+    public MemoryBudget(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        long budgetBytes = (long) (Runtime.getRuntime().maxMemory() * heapFraction);
+        totalPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, budgetBytes / UNIT));
+        permits = new Semaphore(totalPermits, true);
+
+        Gauge.builder(BUDGET_METRIC, this, budget -> (double) budget.totalPermits * UNIT)
+                .description("Heap budget for documents in flight")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder(RESERVED_METRIC, this, MemoryBudget::getReservedBytes)
+                .description("Estimated heap reserved by documents in flight")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        waitTimer = Timer.builder(WAIT_METRIC)
+                .description("Time documents waited for room in the memory budget")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        deniedCounter = Counter.builder(DENIED_METRIC)
+                .description("Admissions refused because the memory budget was full")
+                .register(meterRegistry);
+        if (enabled) {
+            log.info("Memory budget for documents in flight: {} MB ({} of max heap)",
+                     getBudgetBytes() / (1024 * 1024), heapFraction);
+        }
+    }
+
+    /**
+     * Reserves the estimated memory for processing a document, waiting up to
+     * {@code document.memory.acquire-timeout-ms} for room.
+     *
+     * @param key the document's filename
+     * @param fileSize the document's size in bytes
+     * @return whether the document was admitted; false if it is already in flight or does not fit
+     */
+    public boolean tryAcquire(String key, long fileSize) {
+        if (!enabled) {
+            return true;
+        }
+        int requested = permitsFor(fileSize);
+        if (reservations.putIfAbsent(key, requested) != null) {
+            log.debug("Document {} is already in flight", key);
+            return false;
+        }
+
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(requested, acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            reservations.remove(key);
+            firstRefused.putIfAbsent(key, System.nanoTime());
+            deniedCounter.increment();
+            log.debug("Memory budget full, deferring document {} ({} KB of {} KB available)",
+                      key, requested, permits.availablePermits());
+            return false;
+        }
+        Long refusedAt = firstRefused.remove(key);
+        waitTimer.record(Duration.ofNanos(refusedAt == null ? 0 : System.nanoTime() - refusedAt));
+        log.debug("Reserved {} KB of memory budget for document {}", requested, key);
+        return true;
+    }
+
+    /**
+     * Returns a document's reservation to the budget. Releasing a document that holds no
+     * reservation does nothing.
+     *
+     * @param key the document's filename
+     */
+    public void release(String key) {
+        if (key == null) {
+            return;
+        }
+        Integer held = reservations.remove(key);
+        if (held != null) {
+            permits.release(held);
+            log.debug("Released {} KB of memory budget from document {}", held, key);
+        }
+    }
+
+    public long getBudgetBytes() {
+        return (long) totalPermits * UNIT;
+    }
+
+    public long getReservedBytes() {
+        return (long) (totalPermits - permits.availablePermits()) * UNIT;
+    }
+
+    private int permitsFor(long fileSize) {
+        long bytes = Math.max(minReservationBytes, (long) (fileSize * expansionFactor));
+        return (int) Math.min(totalPermits, Math.max(1, (bytes + UNIT - 1) / UNIT));
+    }
+}
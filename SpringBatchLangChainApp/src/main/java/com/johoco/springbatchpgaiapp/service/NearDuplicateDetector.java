@@ -0,0 +1,124 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import com.johoco.springbatchpgaiapp.model.NearDuplicate;
+import com.johoco.springbatchpgaiapp.repository.DocumentSignatureRepository;
+import com.johoco.springbatchpgaiapp.util.MinHash;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Finds documents whose text nearly duplicates an already processed document, so they can be
+ * stored as a reference to it instead of being chunked and embedded again.
+ * Documents are compared by MinHash signatures of their word shingles; candidates are looked
+ * up through the LSH band index and kept only when the estimated similarity reaches the threshold.
+ * Lookup and indexing failures are logged and treated as "no duplicate", never failing a document.
+ */
+@Slf4j
+@Service
+public class NearDuplicateDetector {
+    // Changing the seed, hash count or shingle size invalidates every stored signature
+    private static final long SEED = 0x5eed_d0c5L;
+
+    private final DocumentSignatureRepository signatureRepository;
+
+    @Value("${document.dedup.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${document.dedup.num-hashes:128}")
+    private int numHashes = 128;
+
+    @Value("${document.dedup.bands:16}")
+    private int bands = 16;
+
+    @Value("${document.dedup.shingle-size:5}")
+    private int shingleSize = 5;
+
+    @Value("${document.dedup.similarity-threshold:0.9}")
+    private double similarityThreshold = 0.9;
+
+    private MinHash minHash;
+
+    public NearDuplicateDetector(DocumentSignatureRepository signatureRepository) {
+        this.signatureRepository = signatureRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (numHashes % bands != 0) {
+            throw new IllegalStateException("document.dedup.num-hashes (" + numHashes
+                    + ") must be a multiple of document.dedup.bands (" + bands + ")");
+        }
+        minHash = new MinHash(numHashes, shingleSize, SEED);
+        log.info("Near-duplicate detection {} ({} hashes in {} bands, {}-word shingles, threshold {})",
+                enabled ? "enabled" : "disabled", numHashes, bands, shingleSize, similarityThreshold);
+    }
+
+    /**
+     * Starts the signature of a document's content, which is added to it block by block as the
+     * content is read.
+     *
+     * @return the running signature, or null if detection is disabled
+     */
+    public MinHash.Accumulator newSignature() {
+        return enabled ? minHash.accumulator() : null;
+    }
+
+    /**
+     * Finds the processed document most similar to the given signature, if any reaches the threshold.
+     *
+     * @param filename the filename of the document being processed
+     * @param signature its signature, may be null
+     * @return the canonical document it nearly duplicates, or empty
+     */
+    public Optional<NearDuplicate> findCanonical(String filename, int[] signature) {
+        if (signature == null) {
+            return Optional.empty();
+        }
+
+        Map<String, int[]> candidates;
+        try {
+            candidates = signatureRepository.findCandidates(MinHash.bandHashes(signature, bands), filename);
+        } catch (DataAccessException e) {
+            log.warn("Near-duplicate lookup failed for {}, processing it as a new document: {}", filename, e.getMessage());
+            return Optional.empty();
+        }
+
+        NearDuplicate best = null;
+        for (Map.Entry<String, int[]> candidate : candidates.entrySet()) {
+            if (candidate.getValue().length != signature.length) {
+                continue;
+            }
+            double similarity = MinHash.similarity(signature, candidate.getValue());
+            if (similarity >= similarityThreshold && (best == null || similarity > best.getSimilarity()
+                    || similarity == best.getSimilarity() && candidate.getKey().compareTo(best.getCanonicalFilename()) < 0)) {
+                best = new NearDuplicate(candidate.getKey(), similarity);
+            }
+        }
+        log.debug("Checked {} near-duplicate candidates for {}", candidates.size(), filename);
+        return Optional.ofNullable(best);
+    }
+
+    /**
+     * Records the signature of a document that was processed in full, making it a possible
+     * canonical document for later ones.
+     *
+     * @param filename the document filename
+     * @param signature its signature, may be null
+     */
+    public void index(String filename, int[] signature) {
+        if (signature == null) {
+            return;
+        }
+        try {
+            signatureRepository.save(filename, signature, MinHash.bandHashes(signature, bands));
+        } catch (DataAccessException e) {
+            log.warn("Could not index signature of {}: {}", filename, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import com.johoco.springbatchpgaiapp.model.SchedulingPolicy;
+import com.johoco.springbatchpgaiapp.util.FileOperations;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides the order in which the pending files of a poll are launched.
+ * <p>
+ * With {@link SchedulingPolicy#SMALLEST_FIRST}, files are ranked by the logarithm of their size.
+ * Every {@code aging-period-ms} a file has been waiting counts as halving its size, so a large
+ * file moves ahead of a steady stream of small ones. Once a file has waited a whole period it is
+ * {@linkplain #isOverdue(File) overdue}, under any policy, and the watcher launches nothing
+ * behind it while it does not fit in the memory budget.
+ * <p>
+ * With {@link SchedulingPolicy#FAIR}, files queue in arrival order per folder: the closest
+ * enclosing folder given a weight, such as an input source's directory, or else the file's
+ * parent directory. Folders share launches by start-time fair queuing: each folder is charged
+ * the bytes it launches divided by its weight. The next launch goes to the folder whose head
+ * file has the smallest finish tag, the folder's charge plus the file's size divided by the
+ * folder's weight. A folder that becomes active starts level with the least charged active
+ * folder, so it gets no credit for the time it was idle.
+ */
+@Slf4j
+@Component
+public class PendingFileScheduler {
+    // Charge for a file of any size, so many empty files still cost their folder something
+    private static final long MIN_COST_BYTES = 4096;
+
+    private final FileOperations fileOperations;
+
+    @Value("${document.scheduling.policy:SMALLEST_FIRST}")
+    private SchedulingPolicy policy = SchedulingPolicy.SMALLEST_FIRST;
+
+    @Value("${document.scheduling.aging-period-ms:60000}")
+    private long agingPeriodMs = 60_000;
+
+    private Clock clock = Clock.systemUTC();
+
+    private final Map<String, Long> firstSeen = new ConcurrentHashMap<>();
+    private final Map<String, Double> folderCharge = new ConcurrentHashMap<>();
+    private final Map<String, Double> folderWeights = new ConcurrentHashMap<>();
+
+    public PendingFileScheduler(FileOperations fileOperations) {
+        this.fileOperations = fileOperations;
+    }
+
+    public SchedulingPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Sets a folder's share under {@link SchedulingPolicy#FAIR}; folders default to a weight of 1.
+     *
+     * @param folder the folder's absolute path
+     * @param weight the folder's relative share of launched bytes
+     */
+    public void setFolderWeight(String folder, double weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Folder weight must be positive: " + folder);
+        }
+        folderWeights.put(folder, weight);
+    }
+
+    /**
+     * Orders the pending files of a poll, highest priority first. Files no longer pending are
+     * forgotten.
+     *
+     * @param files the files waiting to be launched, in listing order
+     * @return the same files in launch order
+     */
+    public List<File> order(List<File> files) {
+        long now = clock.millis();
+        Map<String, File> pending = new LinkedHashMap<>();
+        for (File file : files) {
+            pending.put(file.getAbsolutePath(), file);
+            firstSeen.putIfAbsent(file.getAbsolutePath(), now);
+        }
+        firstSeen.keySet().retainAll(pending.keySet());
+
+        List<File> ordered = new ArrayList<>(pending.values());
+        log.debug("Ordering {} pending files by {}", ordered.size(), policy);
+        switch (policy) {
+            case SMALLEST_FIRST:
+                Map<File, Double> rank = new HashMap<>();
+                ordered.forEach(file -> rank.put(file, sizeRank(file, now)));
+                ordered.sort(Comparator.comparingDouble(rank::get));
+                return ordered;
+            case OLDEST_FIRST:
+                Map<File, Long> modified = new HashMap<>();
+                ordered.forEach(file -> modified.put(file, fileOperations.getLastModified(file)));
+                ordered.sort(Comparator.comparingLong(modified::get));
+                return ordered;
+            case FAIR:
+                return fairOrder(ordered);
+            default:
+                return ordered;
+        }
+    }
+
+    /**
+     * Whether a pending file has waited at least one aging period since it was first ordered.
+     *
+     * @param file a file of the latest {@link #order(List)}
+     * @return whether the file is overdue
+     */
+    public boolean isOverdue(File file) {
+        Long seen = firstSeen.get(file.getAbsolutePath());
+        return agingPeriodMs > 0 && seen != null && clock.millis() - seen >= agingPeriodMs;
+    }
+
+    /**
+     * Charges a launched file to its folder.
+     *
+     * @param file the file whose job was launched
+     */
+    public void launched(File file) {
+        firstSeen.remove(file.getAbsolutePath());
+        if (policy == SchedulingPolicy.FAIR) {
+            String queue = queue(file);
+            folderCharge.merge(queue, cost(file) / weight(queue), Double::sum);
+        }
+    }
+
+    /**
+     * Log2 of the size, less one for every aging period waited.
+     */
+    private double sizeRank(File file, long now) {
+        double waitedPeriods = agingPeriodMs > 0 ? (double) (now - firstSeen.get(file.getAbsolutePath())) / agingPeriodMs : 0;
+        return Math.log(Math.max(1, fileOperations.getFileSize(file))) / Math.log(2) - waitedPeriods;
+    }
+
+    private List<File> fairOrder(List<File> files) {
+        Map<String, Deque<File>> queues = new LinkedHashMap<>();
+        files.stream()
+                .sorted(Comparator.comparingLong((File file) -> firstSeen.get(file.getAbsolutePath())))
+                .forEach(file -> queues.computeIfAbsent(queue(file), key -> new ArrayDeque<>()).add(file));
+
+        // Idle folders lose their history: they restart level with the least charged active folder
+        double virtualTime = queues.keySet().stream()
+                .filter(folderCharge::containsKey)
+                .mapToDouble(folderCharge::get)
+                .min().orElse(0);
+        folderCharge.keySet().retainAll(queues.keySet());
+        Map<String, Double> charge = new HashMap<>();
+        for (String folder : queues.keySet()) {
+            charge.put(folder, Math.max(virtualTime, folderCharge.getOrDefault(folder, virtualTime)));
+            folderCharge.put(folder, charge.get(folder));
+        }
+
+        // Simulate the launches of this poll: the folder whose next file finishes first goes next
+        List<File> ordered = new ArrayList<>(files.size());
+        while (ordered.size() < files.size()) {
+            String next = null;
+            double nextFinish = Double.MAX_VALUE;
+            for (Map.Entry<String, Deque<File>> queue : queues.entrySet()) {
+                if (queue.getValue().isEmpty()) {
+                    continue;
+                }
+                double finish = charge.get(queue.getKey()) + cost(queue.getValue().peek()) / weight(queue.getKey());
+                if (finish < nextFinish) {
+                    next = queue.getKey();
+                    nextFinish = finish;
+                }
+            }
+            ordered.add(queues.get(next).poll());
+            charge.put(next, nextFinish);
+        }
+        return ordered;
+    }
+
+    private double cost(File file) {
+        return Math.max(MIN_COST_BYTES, fileOperations.getFileSize(file));
+    }
+
+    private double weight(String folder) {
+        return folderWeights.getOrDefault(folder, 1.0);
+    }
+
+    /**
+     * The closest enclosing folder with a weight, or else the file's parent directory.
+     */
+    private String queue(File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        for (File folder = parent; folder != null; folder = folder.getParentFile()) {
+            if (folderWeights.containsKey(folder.getPath())) {
+                return folder.getPath();
+            }
+        }
+        return parent.getPath();
+    }
+}
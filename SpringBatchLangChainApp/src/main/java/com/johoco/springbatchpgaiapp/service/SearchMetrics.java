@@ -0,0 +1,52 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Latency timers for the stages of a semantic search request.
+ * Each stage publishes p50/p95/p99 percentiles and a histogram under the
+ * {@code document.search.latency} metric, tagged by stage.
+ */
+@Slf4j
+@Component
+public class SearchMetrics {
+    public static final String METRIC_NAME = "document.search.latency";
+    public static final String STAGE_EMBED = "embed";
+    public static final String STAGE_DB = "db";
+    public static final String STAGE_SERIALIZE = "serialize";
+
+    private final Timer embedTimer;
+    private final Timer dbTimer;
+    private final Timer serializeTimer;
+
+    public SearchMetrics(MeterRegistry meterRegistry) {
+        this.embedTimer = stageTimer(meterRegistry, STAGE_EMBED);
+        this.dbTimer = stageTimer(meterRegistry, STAGE_DB);
+        this.serializeTimer = stageTimer(meterRegistry, STAGE_SERIALIZE);
+        log.info("SearchMetrics registered with {}", meterRegistry.getClass().getSimpleName());
+    }
+
+    public Timer embedTimer() {
+        return embedTimer;
+    }
+
+    public Timer dbTimer() {
+        return dbTimer;
+    }
+
+    public Timer serializeTimer() {
+        return serializeTimer;
+    }
+
+    private static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder(METRIC_NAME)
+                .description("Semantic search latency per stage")
+                .tag("stage", stage)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
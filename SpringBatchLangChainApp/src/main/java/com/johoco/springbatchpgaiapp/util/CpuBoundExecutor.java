@@ -0,0 +1,73 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs CPU-bound work such as text extraction and fingerprinting.
+ * <p>
+ * When jobs run on virtual threads, that work is handed to a fixed pool of platform threads
+ * and the virtual thread parks until it is done. Virtual threads share a few carrier threads,
+ * so CPU-heavy work on them would hold the carriers the I/O-bound jobs need, and nothing would
+ * cap how many documents are parsed at once. On platform threads the work runs on the caller.
+ */
+@Slf4j
+public class CpuBoundExecutor implements AutoCloseable {
+    private final ExecutorService pool;
+
+    /**
+     * @param poolSize number of platform threads running CPU-bound work
+     * @param offload whether to run work on the pool rather than on the calling thread
+     */
+    public CpuBoundExecutor(int poolSize, boolean offload) {
+        if (!offload) {
+            this.pool = null;
+            return;
+        }
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "cpu-bound-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("CPU-bound work runs on a pool of {} platform threads", poolSize);
+    }
+
+    /**
+     * Runs the task and returns its result, rethrowing whatever it threw.
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        if (pool == null) {
+            return task.call();
+        }
+        Future<T> result = pool.submit(task);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw (Error) e.getCause();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
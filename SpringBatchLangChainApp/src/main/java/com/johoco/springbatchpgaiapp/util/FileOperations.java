@@ -1,14 +1,20 @@
 package com.johoco.springbatchpgaiapp.util;
 
+import com.johoco.springbatchpgaiapp.model.TextBlock;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.stream.Stream;
 
 import org.apache.commons.io.FilenameUtils;
 
@@ -19,6 +25,12 @@ import org.apache.commons.io.FilenameUtils;
 @Service
 public class FileOperations {
 
+    @Value("${document.text.charset:UTF-8}")
+    private String charset = "UTF-8";
+
+    @Value("${document.text.malformed-input:REPLACE}")
+    private String malformedInput = "REPLACE";
+
     /**
      * Reads content from a file.
      *
@@ -34,7 +46,7 @@ public class FileOperations {
         
         try {
             log.debug("Reading content from file: {}", file.getName());
-            String content = Files.readString(file.toPath());
+            String content = readFully(file);
             log.debug("Successfully read {} characters from file: {}", content.length(), file.getName());
             return content;
         } catch (IOException e) {
@@ -43,6 +55,48 @@ public class FileOperations {
         }
     }
     
+    /**
+     * Streams the content of a file as blocks of text with their character offsets,
+     * so large files can be processed without reading them into a single string.
+     * The returned stream holds the file open and must be closed by the caller.
+     *
+     * @param file the file to read
+     * @return the blocks of the file content, in order
+     * @throws IOException if the file cannot be opened
+     */
+    public Stream<TextBlock> streamFileContent(File file) throws IOException {
+        if (file == null) {
+            log.error("Cannot read content from null file");
+            throw new IllegalArgumentException("File cannot be null");
+        }
+
+        log.debug("Streaming content from file: {}", file.getName());
+        return TextBlocks.fromReader(openReader(file), TextBlocks.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Opens a memory-mapped reader over a text file using the configured charset and malformed-input policy.
+     *
+     * @param file the file to read
+     * @return a reader that must be closed by the caller
+     * @throws IOException if the file cannot be opened
+     */
+    public Reader openReader(File file) throws IOException {
+        return new MappedFileReader(file.toPath(), Charset.forName(charset), MappedFileReader.errorAction(malformedInput));
+    }
+
+    private String readFully(File file) throws IOException {
+        StringBuilder content = new StringBuilder((int) Math.min(file.length(), Integer.MAX_VALUE - 8));
+        char[] buffer = new char[TextBlocks.DEFAULT_BLOCK_SIZE];
+        try (Reader reader = openReader(file)) {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                content.append(buffer, 0, read);
+            }
+        }
+        return content.toString();
+    }
+    
     /**
      * Gets the file size in bytes.
      *
@@ -102,17 +156,7 @@ public class FileOperations {
      * @throws IOException if there is an error moving the file
      */
     public File moveToProcessed(File file, String outputDirectory) throws IOException {
-        // Ensure the output directory exists
-        ensureDirectoryExists(outputDirectory);
-        
-        // Always create a unique file with timestamp
-        File destFile = createUniqueFile(file, outputDirectory);
-        
-        // Move the file
-        log.info("Moving file {} to {}", file.getAbsolutePath(), destFile.getAbsolutePath());
-        Files.move(file.toPath(), destFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        
-        return destFile;
+        return moveFile(file, outputDirectory, file.getName(), false);
     }
     
     /**
@@ -124,17 +168,7 @@ public class FileOperations {
      * @throws IOException if there is an error moving the file
      */
     public File moveToFailed(File file, String failedDirectory) throws IOException {
-        // Ensure the failed directory exists
-        ensureDirectoryExists(failedDirectory);
-        
-        // Always create a unique file with timestamp
-        File destFile = createUniqueFile(file, failedDirectory);
-        
-        // Move the file
-        log.info("Moving failed file {} to {}", file.getAbsolutePath(), destFile.getAbsolutePath());
-        Files.move(file.toPath(), destFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        
-        return destFile;
+        return moveFile(file, failedDirectory, file.getName(), true);
     }
     
     /**
@@ -147,34 +181,50 @@ public class FileOperations {
      * @throws IOException if there is an error moving the file
      */
     public File moveFile(File file, String targetDirectory, boolean isFailedFile) throws IOException {
-        // Ensure the target directory exists
-        ensureDirectoryExists(targetDirectory);
-        
-        // Always create a unique file with timestamp
-        File destFile = createUniqueFile(file, targetDirectory);
-        
-        // Move the file
-        log.info("Moving {} file {} to {}", 
-                isFailedFile ? "failed" : "processed", 
-                file.getAbsolutePath(), 
-                destFile.getAbsolutePath());
-        Files.move(file.toPath(), destFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        
-        return destFile;
+        return moveFile(file, targetDirectory, file.getName(), isFailedFile);
     }
-    
+
     /**
-     * Creates a unique file name by appending a timestamp if the file already exists.
+     * Moves a file to the same relative path under a target directory, with a timestamp added to
+     * its name. Files of the same name from different directories or input sources are given
+     * different relative paths, so they do not land on each other. An existing file is never
+     * replaced: if the timestamped name is taken, a counter is added to it.
      * 
-     * @param file the original file
-     * @param targetDirectory the directory where the file will be placed
-     * @return a File object with a unique name
+     * @param file the file to move
+     * @param targetDirectory the directory to move the file to
+     * @param relativePath the path to keep under the target directory, such as the file's source
+     *                     and its path relative to the source's directory
+     * @param isFailedFile whether this is a failed file (for logging purposes)
+     * @return the moved file
+     * @throws IOException if there is an error moving the file
      */
-    private File createUniqueFile(File file, String targetDirectory) {
-        String baseName = FilenameUtils.getBaseName(file.getName());
-        String extension = FilenameUtils.getExtension(file.getName());
+    public File moveFile(File file, String targetDirectory, String relativePath, boolean isFailedFile) throws IOException {
+        Path target = ensureDirectoryExists(targetDirectory).toPath().toAbsolutePath().normalize();
+        Path destination = target.resolve(relativePath).normalize();
+        if (!destination.startsWith(target) || destination.equals(target)) {
+            // Never let a relative path escape the target directory
+            destination = target.resolve(file.getName());
+        }
+        Files.createDirectories(destination.getParent());
+
+        String baseName = FilenameUtils.getBaseName(destination.getFileName().toString());
+        String extension = FilenameUtils.getExtension(destination.getFileName().toString());
         String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date());
-        String newFileName = baseName + "." + timestamp + (extension.isEmpty() ? "" : "." + extension);
-        return new File(targetDirectory, newFileName);
+        for (int attempt = 0; ; attempt++) {
+            String newFileName = baseName + "." + timestamp + (attempt == 0 ? "" : "-" + attempt)
+                    + (extension.isEmpty() ? "" : "." + extension);
+            Path destFile = destination.resolveSibling(newFileName);
+            try {
+                // Without REPLACE_EXISTING, so a file already there is never overwritten
+                Files.move(file.toPath(), destFile);
+                log.info("Moved {} file {} to {}",
+                        isFailedFile ? "failed" : "processed",
+                        file.getAbsolutePath(),
+                        destFile);
+                return destFile.toFile();
+            } catch (FileAlreadyExistsException e) {
+                log.debug("{} already exists, trying another name", destFile);
+            }
+        }
     }
 }
@@ -0,0 +1,119 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Reader that decodes a file through memory-mapped windows instead of copying its bytes onto the heap.
+ * One {@link CharsetDecoder} is reused across all windows; characters split across a window boundary
+ * are carried over by re-mapping from the first undecoded byte.
+ */
+public class MappedFileReader extends Reader {
+    /** Largest region mapped at once, keeping address space use bounded for very large files. */
+    public static final long DEFAULT_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final CharsetDecoder decoder;
+    private final long size;
+    private final long windowSize;
+    private long windowStart;
+    private MappedByteBuffer window;
+    private boolean finished;
+
+    /**
+     * Opens a file for decoding.
+     *
+     * @param path the file to read
+     * @param charset the file's character encoding
+     * @param malformedInputAction what to do with malformed or unmappable input:
+     *                             {@link CodingErrorAction#REPLACE}, {@link CodingErrorAction#IGNORE}
+     *                             or {@link CodingErrorAction#REPORT} to fail with an exception
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public MappedFileReader(Path path, Charset charset, CodingErrorAction malformedInputAction) throws IOException {
+        this(path, charset, malformedInputAction, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedFileReader(Path path, Charset charset, CodingErrorAction malformedInputAction, long windowSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(malformedInputAction)
+                .onUnmappableCharacter(malformedInputAction);
+        this.windowSize = windowSize;
+        try {
+            this.size = channel.size();
+            map(0);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Parses a configured malformed-input policy.
+     *
+     * @param policy {@code REPLACE}, {@code IGNORE} or {@code REPORT}, case-insensitive
+     * @return the matching coding error action
+     */
+    public static CodingErrorAction errorAction(String policy) {
+        switch (policy.trim().toUpperCase(Locale.ROOT)) {
+            case "REPLACE":
+                return CodingErrorAction.REPLACE;
+            case "IGNORE":
+                return CodingErrorAction.IGNORE;
+            case "REPORT":
+                return CodingErrorAction.REPORT;
+            default:
+                throw new IllegalArgumentException("Unknown malformed input policy: " + policy);
+        }
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        while (out.position() == off && !finished) {
+            boolean lastWindow = windowStart + window.limit() >= size;
+            CoderResult result = decoder.decode(window, out, lastWindow);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (result.isOverflow()) {
+                break;
+            }
+            if (lastWindow) {
+                decoder.flush(out);
+                finished = true;
+            } else {
+                map(windowStart + window.position());
+            }
+        }
+
+        int read = out.position() - off;
+        return read == 0 && finished ? -1 : read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+    }
+}
@@ -0,0 +1,191 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import java.util.Arrays;
+
+/**
+ * MinHash signatures over word shingles, used to estimate the Jaccard similarity of two
+ * documents without comparing their text. Words are runs of letters and digits compared
+ * case-insensitively, so differences in whitespace, punctuation and case do not count.
+ * Signatures produced by instances with the same parameters are comparable with each other.
+ */
+public final class MinHash {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long[] seeds;
+    private final int shingleSize;
+
+    /**
+     * @param numHashes number of hash functions, i.e. the signature length
+     * @param shingleSize number of consecutive words per shingle
+     * @param seed seed deriving the hash functions
+     */
+    public MinHash(int numHashes, int shingleSize, long seed) {
+        if (numHashes < 1) {
+            throw new IllegalArgumentException("Number of hashes must be positive");
+        }
+        if (shingleSize < 1) {
+            throw new IllegalArgumentException("Shingle size must be positive");
+        }
+        this.seeds = new long[numHashes];
+        long state = seed;
+        for (int i = 0; i < numHashes; i++) {
+            state += 0x9e3779b97f4a7c15L;
+            seeds[i] = mix(state);
+        }
+        this.shingleSize = shingleSize;
+    }
+
+    public int getNumHashes() {
+        return seeds.length;
+    }
+
+    /**
+     * Computes the signature of a text in a single pass. Texts shorter than one shingle
+     * are treated as a single shingle of all their words.
+     *
+     * @param text the text
+     * @return the signature, or null if the text contains no words
+     */
+    public int[] signature(CharSequence text) {
+        Accumulator accumulator = accumulator();
+        accumulator.add(text);
+        return accumulator.signature();
+    }
+
+    /**
+     * @return a running signature for a text that arrives in pieces
+     */
+    public Accumulator accumulator() {
+        return new Accumulator();
+    }
+
+    /**
+     * Running form of {@link #signature(CharSequence)} for a text read block by block, so a
+     * document's signature can be computed without holding its text. Words and shingles may
+     * span the blocks; the signature is the same as that of the blocks joined.
+     */
+    public final class Accumulator {
+        private final int[] signature = new int[seeds.length];
+        private final long[] window = new long[shingleSize];
+        private int words;
+        private long wordHash = FNV_OFFSET;
+        private boolean inWord;
+
+        private Accumulator() {
+            Arrays.fill(signature, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Adds the next piece of the text.
+         *
+         * @param text the text following the pieces already added
+         */
+        public void add(CharSequence text) {
+            for (int i = 0, length = text.length(); i < length; i++) {
+                accept(text.charAt(i));
+            }
+        }
+
+        /**
+         * Ends the text and computes its signature. Nothing may be added afterwards.
+         *
+         * @return the signature, or null if the text contains no words
+         */
+        public int[] signature() {
+            accept(' ');
+            if (words == 0) {
+                return null;
+            }
+            if (words < shingleSize) {
+                update(signature, shingleHash(window, words));
+            }
+            return signature;
+        }
+
+        private void accept(char c) {
+            if (Character.isLetterOrDigit(c)) {
+                wordHash = (wordHash ^ Character.toLowerCase(c)) * FNV_PRIME;
+                inWord = true;
+            } else if (inWord) {
+                window[words % shingleSize] = wordHash;
+                words++;
+                if (words >= shingleSize) {
+                    update(signature, shingleHash(window, words));
+                }
+                wordHash = FNV_OFFSET;
+                inWord = false;
+            }
+        }
+    }
+
+    /**
+     * Estimates the Jaccard similarity of the shingle sets behind two signatures.
+     *
+     * @return the fraction of positions at which the signatures agree
+     */
+    public static double similarity(int[] a, int[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Signatures have different lengths: " + a.length + " and " + b.length);
+        }
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+
+    /**
+     * Hashes each band of consecutive signature rows for locality-sensitive lookup.
+     * Two signatures share a band hash (almost) only when they agree on every row of that band,
+     * so documents with similarity {@code s} collide on at least one band with probability
+     * {@code 1 - (1 - s^rows)^bands}.
+     *
+     * @param signature the signature
+     * @param bands number of bands; must divide the signature length
+     * @return one hash per band
+     */
+    public static long[] bandHashes(int[] signature, int bands) {
+        if (bands < 1 || signature.length % bands != 0) {
+            throw new IllegalArgumentException("Signature length " + signature.length + " is not divisible into " + bands + " bands");
+        }
+        int rows = signature.length / bands;
+        long[] hashes = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long hash = band;
+            for (int row = band * rows; row < (band + 1) * rows; row++) {
+                hash = mix(hash * 31 + signature[row]);
+            }
+            hashes[band] = hash;
+        }
+        return hashes;
+    }
+
+    private void update(int[] signature, long shingle) {
+        for (int i = 0; i < seeds.length; i++) {
+            int hash = (int) (mix(shingle ^ seeds[i]) >>> 32);
+            if (hash < signature[i]) {
+                signature[i] = hash;
+            }
+        }
+    }
+
+    /** Combines the last {@code min(words, shingleSize)} word hashes in reading order. */
+    private long shingleHash(long[] window, int words) {
+        int count = Math.min(words, shingleSize);
+        long hash = FNV_OFFSET;
+        for (int j = words - count; j < words; j++) {
+            hash = mix(hash * 31 + window[j % shingleSize]);
+        }
+        return hash;
+    }
+
+    /** SplitMix64 finalizer. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,97 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds short highlighted excerpts of matched text for search responses. Snippets are HTML:
+ * the document text is escaped and only the highlight markers are markup.
+ */
+public final class Snippets {
+    public static final String HIGHLIGHT_START = "<em>";
+    public static final String HIGHLIGHT_END = "</em>";
+    private static final String ELLIPSIS = "...";
+    private static final int MIN_TERM_LENGTH = 3;
+
+    private Snippets() {
+    }
+
+    /**
+     * Extracts a window of at most {@code maxLength} characters of the text, centred on the
+     * first occurrence of a query term, with every query term in the window highlighted.
+     * Falls back to the start of the text when no term occurs.
+     *
+     * @param text the matched text
+     * @param query the search query
+     * @param maxLength maximum number of source characters in the snippet
+     * @return the highlighted snippet
+     */
+    public static String highlight(String text, String query, int maxLength) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+
+        Pattern terms = termPattern(query);
+        int anchor = 0;
+        if (terms != null) {
+            Matcher matcher = terms.matcher(text);
+            if (matcher.find()) {
+                anchor = matcher.start();
+            }
+        }
+
+        int start = Math.max(0, Math.min(anchor - maxLength / 4, text.length() - maxLength));
+        int end = Math.min(text.length(), start + maxLength);
+        String window = text.substring(start, end).replaceAll("\\s+", " ");
+
+        StringBuilder snippet = new StringBuilder(window.length() + 32);
+        if (start > 0) {
+            snippet.append(ELLIPSIS);
+        }
+        appendHighlighted(snippet, window, terms);
+        if (end < text.length()) {
+            snippet.append(ELLIPSIS);
+        }
+        return snippet.toString();
+    }
+
+    /**
+     * Appends the window HTML-escaped, with each term match wrapped in the highlight markers. Terms
+     * are matched on the raw text, so a term never matches inside an entity the escaping produced.
+     */
+    private static void appendHighlighted(StringBuilder snippet, String window, Pattern terms) {
+        int last = 0;
+        if (terms != null) {
+            Matcher matcher = terms.matcher(window);
+            while (matcher.find()) {
+                snippet.append(HtmlUtils.htmlEscape(window.substring(last, matcher.start())))
+                        .append(HIGHLIGHT_START)
+                        .append(HtmlUtils.htmlEscape(matcher.group()))
+                        .append(HIGHLIGHT_END);
+                last = matcher.end();
+            }
+        }
+        snippet.append(HtmlUtils.htmlEscape(window.substring(last)));
+    }
+
+    private static Pattern termPattern(String query) {
+        if (query == null) {
+            return null;
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        for (String term : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (term.length() >= MIN_TERM_LENGTH) {
+                terms.add(Pattern.quote(term));
+            }
+        }
+        if (terms.isEmpty()) {
+            return null;
+        }
+        return Pattern.compile("\\b(?:" + String.join("|", terms) + ")", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+}
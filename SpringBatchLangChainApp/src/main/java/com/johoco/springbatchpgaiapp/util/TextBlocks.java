@@ -0,0 +1,123 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import com.johoco.springbatchpgaiapp.model.TextBlock;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Helpers for producing streams of {@link TextBlock}s.
+ */
+public final class TextBlocks {
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private TextBlocks() {
+    }
+
+    /**
+     * Streams the text of a reader as blocks of about {@code blockSize} characters.
+     * Blocks end at the last line break in the buffer when there is one in its second half,
+     * so lines are not cut in the middle. The reader is closed when the stream is closed.
+     *
+     * @param reader the reader to consume
+     * @param blockSize target number of characters per block
+     * @return a lazy stream of blocks; must be closed by the caller
+     */
+    public static Stream<TextBlock> fromReader(Reader reader, int blockSize) {
+        if (blockSize < 2) {
+            throw new IllegalArgumentException("Block size must be at least 2");
+        }
+        return fromIterator(new ReaderBlockIterator(reader, blockSize), () -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Wraps an iterator of blocks in a sequential stream that runs {@code onClose} when closed.
+     *
+     * @param iterator the blocks
+     * @param onClose action releasing the underlying resources
+     * @return a lazy stream of blocks; must be closed by the caller
+     */
+    public static Stream<TextBlock> fromIterator(Iterator<TextBlock> iterator, Runnable onClose) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(onClose);
+    }
+
+    private static final class ReaderBlockIterator implements Iterator<TextBlock> {
+        private final Reader reader;
+        private final char[] buffer;
+        private int buffered;
+        private long offset;
+        private boolean eof;
+        private TextBlock next;
+
+        ReaderBlockIterator(Reader reader, int blockSize) {
+            this.reader = reader;
+            this.buffer = new char[blockSize];
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = readBlock();
+            }
+            return next != null;
+        }
+
+        @Override
+        public TextBlock next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            TextBlock block = next;
+            next = null;
+            return block;
+        }
+
+        private TextBlock readBlock() {
+            try {
+                while (!eof && buffered < buffer.length) {
+                    int read = reader.read(buffer, buffered, buffer.length - buffered);
+                    if (read < 0) {
+                        eof = true;
+                    } else {
+                        buffered += read;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (buffered == 0) {
+                return null;
+            }
+
+            int length = buffered;
+            if (!eof) {
+                for (int i = buffered - 1; i >= buffered / 2; i--) {
+                    if (buffer[i] == '\n') {
+                        length = i + 1;
+                        break;
+                    }
+                }
+            }
+
+            TextBlock block = new TextBlock(new String(buffer, 0, length), offset, 0);
+            offset += length;
+            System.arraycopy(buffer, length, buffer, 0, buffered - length);
+            buffered -= length;
+            return block;
+        }
+    }
+}
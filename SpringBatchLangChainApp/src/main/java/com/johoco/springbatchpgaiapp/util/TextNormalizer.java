@@ -0,0 +1,444 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import com.johoco.springbatchpgaiapp.model.TextBlock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Cleans extracted text before it is embedded and stored:
+ * <ul>
+ *   <li>runs of spaces and tabs collapse to one space, lines are trimmed and runs of blank lines
+ *       collapse to a single blank line;</li>
+ *   <li>a word hyphenated across a line break is joined again;</li>
+ *   <li>lines repeated at the top or bottom of most pages (running headers, footers and page
+ *       numbers) are removed. Pages are separated by form feeds ({@link #PAGE_BREAK});
+ *       digits are ignored when comparing lines, so "Page 3 of 9" matches "Page 4 of 9".</li>
+ * </ul>
+ * Lines are compared by hash. A document can be normalized in two passes over its blocks, so it
+ * is never held whole: {@link #findBoilerplateLines(Stream)} keeps only the edge lines of one page
+ * at a time, and {@link #normalizingReader(Stream, BitSet)} only the block being normalized.
+ */
+@Slf4j
+@Component
+public class TextNormalizer {
+    public static final char PAGE_BREAK = '\f';
+
+    @Value("${document.normalization.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${document.normalization.join-hyphenated-lines:true}")
+    private boolean joinHyphenatedLines = true;
+
+    @Value("${document.normalization.boilerplate.min-pages:3}")
+    private int boilerplateMinPages = 3;
+
+    @Value("${document.normalization.boilerplate.page-fraction:0.5}")
+    private double boilerplatePageFraction = 0.5;
+
+    @Value("${document.normalization.boilerplate.edge-lines:3}")
+    private int boilerplateEdgeLines = 3;
+
+    @Value("${document.normalization.boilerplate.max-line-length:120}")
+    private int boilerplateMaxLineLength = 120;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Normalizes a document's text.
+     *
+     * @param text the extracted text
+     * @return the normalized text, or the text itself when normalization is disabled
+     */
+    public String normalize(CharSequence text) {
+        if (!enabled) {
+            return text.toString();
+        }
+
+        BoilerplateScan scan = new BoilerplateScan();
+        scan.add(text);
+        scan.finish();
+        StringBuilder out = new StringBuilder(text.length());
+        Cleaner cleaner = new Cleaner(scan.boilerplateLines(), out);
+        cleaner.add(text);
+        cleaner.finish();
+
+        if (log.isDebugEnabled() && out.length() < text.length()) {
+            log.debug("Normalized text from {} to {} characters", text.length(), out.length());
+        }
+        return out.toString();
+    }
+
+    /**
+     * First pass of streamed normalization: finds the running headers and footers of a
+     * document read block by block, holding only the edge lines of one page at a time.
+     *
+     * @param blocks the document's blocks, in order; consumed but not closed
+     * @return the numbers of the document's lines to drop, counting from 0
+     */
+    public BitSet findBoilerplateLines(Stream<TextBlock> blocks) {
+        if (!enabled || boilerplateEdgeLines < 1) {
+            return new BitSet();
+        }
+        BoilerplateScan scan = new BoilerplateScan();
+        blocks.forEach(block -> scan.add(block.getText()));
+        scan.finish();
+        return scan.boilerplateLines();
+    }
+
+    /**
+     * Second pass of streamed normalization: reads the normalized text of a document read block
+     * by block. The text is the same as {@link #normalize(CharSequence)} returns for the blocks
+     * joined, without ever holding more than one block of it.
+     *
+     * @param blocks the document's blocks, in order; closed when the reader is closed
+     * @param boilerplateLines the lines found by {@link #findBoilerplateLines(Stream)} over the same blocks
+     * @return a reader of the normalized text; must be closed by the caller
+     */
+    public Reader normalizingReader(Stream<TextBlock> blocks, BitSet boilerplateLines) {
+        return new NormalizingReader(blocks, enabled ? boilerplateLines : null);
+    }
+
+    /**
+     * Splits text that arrives in pieces into lines and pages. Lines are numbered across the
+     * whole document; a line break ends a line, and a page break ends the line before it, if any,
+     * and the page.
+     */
+    private abstract static class Lines {
+        /** Number of the current line within the document. */
+        int line;
+        private int lineLength;
+
+        void add(CharSequence text) {
+            for (int i = 0, length = text.length(); i < length; i++) {
+                char c = text.charAt(i);
+                if (c == '\n') {
+                    endLine();
+                } else if (c == PAGE_BREAK) {
+                    if (lineLength > 0) {
+                        endLine();
+                    }
+                    pageEnded();
+                } else {
+                    lineLength++;
+                    character(c, isSpace(c));
+                }
+            }
+        }
+
+        void finish() {
+            if (lineLength > 0) {
+                endLine();
+            }
+            pageEnded();
+        }
+
+        private void endLine() {
+            lineEnded();
+            line++;
+            lineLength = 0;
+        }
+
+        abstract void character(char c, boolean space);
+
+        abstract void lineEnded();
+
+        abstract void pageEnded();
+    }
+
+    /**
+     * Counts, for the lines near the top or bottom of each page, the pages they appear on. Only
+     * the first and last {@code boilerplateEdgeLines} non-blank lines of the current page are kept.
+     */
+    private final class BoilerplateScan extends Lines {
+        private final int edgeLines = Math.max(boilerplateEdgeLines, 0);
+        // First edge lines of the page, then the last ones in a ring: line number, key and trimmed length
+        private final long[] headKeys = new long[edgeLines];
+        private final int[] headLines = new int[edgeLines];
+        private final int[] headLengths = new int[edgeLines];
+        private final long[] tailKeys = new long[edgeLines];
+        private final int[] tailLines = new int[edgeLines];
+        private final int[] tailLengths = new int[edgeLines];
+        private int nonBlank;
+
+        // Line hash -> {pages it appeared on, last page it was counted for}
+        private final Map<Long, int[]> pageCounts = new HashMap<>();
+        // Line number and key of every edge line of every page
+        private long[] edges = new long[64];
+        private int edgeCount;
+        private int pages;
+
+        private boolean started;
+        private boolean space;
+        private long key;
+        private int sinceStart;
+        private int trimmedLength;
+
+        @Override
+        void character(char c, boolean isSpace) {
+            if (!started) {
+                if (isSpace) {
+                    return;
+                }
+                started = true;
+                key = 0xcbf29ce484222325L;
+                sinceStart = 0;
+            }
+            sinceStart++;
+            if (isSpace) {
+                space = true;
+                return;
+            }
+            key = lineKey(key, space, c);
+            space = false;
+            trimmedLength = sinceStart;
+        }
+
+        @Override
+        void lineEnded() {
+            if (started && edgeLines > 0) {
+                if (nonBlank < edgeLines) {
+                    headKeys[nonBlank] = key;
+                    headLines[nonBlank] = line;
+                    headLengths[nonBlank] = trimmedLength;
+                } else {
+                    int slot = (nonBlank - edgeLines) % edgeLines;
+                    tailKeys[slot] = key;
+                    tailLines[slot] = line;
+                    tailLengths[slot] = trimmedLength;
+                }
+                nonBlank++;
+            }
+            started = false;
+            space = false;
+        }
+
+        @Override
+        void pageEnded() {
+            if (nonBlank == 0) {
+                return;
+            }
+            pages++;
+            int head = Math.min(nonBlank, edgeLines);
+            for (int i = 0; i < head; i++) {
+                addEdge(headLines[i], headKeys[i], headLengths[i]);
+            }
+            int tail = Math.min(nonBlank - head, edgeLines);
+            for (int i = nonBlank - head - tail; i < nonBlank - head; i++) {
+                int slot = i % edgeLines;
+                addEdge(tailLines[slot], tailKeys[slot], tailLengths[slot]);
+            }
+            nonBlank = 0;
+        }
+
+        private void addEdge(int lineNumber, long lineKey, int length) {
+            if (edgeCount + 2 > edges.length) {
+                edges = Arrays.copyOf(edges, edges.length * 2);
+            }
+            edges[edgeCount++] = lineNumber;
+            edges[edgeCount++] = lineKey;
+            if (length > boilerplateMaxLineLength) {
+                return;
+            }
+            int[] count = pageCounts.computeIfAbsent(lineKey, k -> new int[] {0, 0});
+            if (count[1] != pages) {
+                count[0]++;
+                count[1] = pages;
+            }
+        }
+
+        /**
+         * @return the edge lines whose key appears on enough pages to be a header or footer
+         */
+        BitSet boilerplateLines() {
+            BitSet lines = new BitSet();
+            if (pages < boilerplateMinPages) {
+                return lines;
+            }
+            int minPages = Math.max(2, (int) Math.ceil(pages * boilerplatePageFraction));
+            for (int i = 0; i < edgeCount; i += 2) {
+                int[] count = pageCounts.get(edges[i + 1]);
+                if (count != null && count[0] >= minPages) {
+                    lines.set((int) edges[i]);
+                }
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * Writes the normalized text: lines trimmed with their whitespace runs collapsed, runs of
+     * blank lines collapsed to one, hyphenated line breaks joined and boilerplate lines dropped.
+     * Only the last character written may be taken back, when it is a hyphen joined to the next line.
+     */
+    private final class Cleaner extends Lines {
+        private final BitSet boilerplateLines;
+        private final StringBuilder out;
+        private int blankLines;
+        private boolean pendingHyphen;
+        private boolean written;
+
+        private boolean started;
+        private boolean dropping;
+        private boolean space;
+        private char previous;
+        private char last;
+        private char beforeLast;
+
+        Cleaner(BitSet boilerplateLines, StringBuilder out) {
+            this.boilerplateLines = boilerplateLines;
+            this.out = out;
+        }
+
+        @Override
+        void character(char c, boolean isSpace) {
+            if (!started) {
+                if (isSpace) {
+                    previous = c;
+                    return;
+                }
+                started = true;
+                dropping = boilerplateLines.get(line);
+                if (!dropping) {
+                    if (pendingHyphen && blankLines == 0 && Character.isLowerCase(c)) {
+                        // Drop the hyphen and continue the word
+                        out.setLength(out.length() - 1);
+                    } else if (written) {
+                        out.append(blankLines > 0 ? "\n\n" : "\n");
+                    }
+                    out.append(c);
+                    written = true;
+                }
+                beforeLast = 0;
+                last = c;
+            } else if (isSpace) {
+                space = true;
+            } else {
+                if (!dropping) {
+                    if (space) {
+                        out.append(' ');
+                    }
+                    out.append(c);
+                }
+                space = false;
+                beforeLast = previous;
+                last = c;
+            }
+            previous = c;
+        }
+
+        @Override
+        void lineEnded() {
+            if (!started) {
+                blankLines++;
+            } else if (!dropping) {
+                pendingHyphen = joinHyphenatedLines && last == '-' && Character.isLetter(beforeLast);
+                blankLines = 0;
+            }
+            started = false;
+            space = false;
+            previous = 0;
+        }
+
+        @Override
+        void pageEnded() {
+            // Pages only matter for finding boilerplate
+        }
+    }
+
+    /**
+     * Reads the normalized text of a stream of blocks, normalizing one block at a time. The
+     * last character normalized is held back until more text follows it, as it may be a
+     * hyphen that the next line joins.
+     */
+    private final class NormalizingReader extends Reader {
+        private final Stream<TextBlock> blocks;
+        private final Iterator<TextBlock> iterator;
+        private final Cleaner cleaner;
+        private final StringBuilder out = new StringBuilder();
+        private int position;
+        private boolean finished;
+
+        /**
+         * @param boilerplateLines the lines to drop, or null to pass the text through unchanged
+         */
+        NormalizingReader(Stream<TextBlock> blocks, BitSet boilerplateLines) {
+            this.blocks = blocks;
+            this.iterator = blocks.iterator();
+            this.cleaner = boilerplateLines != null ? new Cleaner(boilerplateLines, out) : null;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            try {
+                while (!finished && out.length() - position <= 1) {
+                    if (iterator.hasNext()) {
+                        String text = iterator.next().getText();
+                        if (cleaner != null) {
+                            cleaner.add(text);
+                        } else {
+                            out.append(text);
+                        }
+                    } else {
+                        if (cleaner != null) {
+                            cleaner.finish();
+                        }
+                        finished = true;
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            int available = out.length() - position - (finished ? 0 : 1);
+            if (available <= 0) {
+                return -1;
+            }
+            int read = Math.min(length, available);
+            out.getChars(position, position + read, buffer, offset);
+            position += read;
+            if (position > TextBlocks.DEFAULT_BLOCK_SIZE) {
+                out.delete(0, position);
+                position = 0;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() {
+            blocks.close();
+        }
+    }
+
+    /**
+     * Adds a character of a trimmed line to its hash, ignoring case, digits and the amount of
+     * whitespace between words.
+     */
+    private static long lineKey(long hash, boolean afterSpace, char c) {
+        if (afterSpace) {
+            hash = (hash ^ ' ') * 0x100000001b3L;
+        }
+        char key = Character.isDigit(c) ? '#' : Character.toLowerCase(c);
+        return (hash ^ key) * 0x100000001b3L;
+    }
+
+    /** Whitespace within a line, including carriage returns and no-break spaces. */
+    private static boolean isSpace(char c) {
+        return c != '\n' && c != PAGE_BREAK && (Character.isWhitespace(c) || Character.isSpaceChar(c));
+    }
+}
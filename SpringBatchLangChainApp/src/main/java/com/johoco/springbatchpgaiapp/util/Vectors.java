@@ -0,0 +1,104 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import dev.langchain4j.data.embedding.Embedding;
+
+import java.util.List;
+
+/**
+ * Helpers for working with embedding vectors and pgvector values.
+ */
+public final class Vectors {
+
+    private Vectors() {
+    }
+
+    /**
+     * Computes the centroid of a set of embeddings: the component-wise mean,
+     * L2-normalized so it can be compared with cosine distance like any other embedding.
+     *
+     * @param embeddings the embeddings to average, all with the same dimension
+     * @return the normalized centroid vector
+     */
+    public static float[] centroid(List<Embedding> embeddings) {
+        if (embeddings == null || embeddings.isEmpty()) {
+            throw new IllegalArgumentException("Embeddings cannot be null or empty");
+        }
+
+        CentroidAccumulator accumulator = new CentroidAccumulator();
+        embeddings.forEach(accumulator::add);
+        return accumulator.centroid();
+    }
+
+    /**
+     * Running form of {@link #centroid(List)} for embeddings that arrive in batches,
+     * so a document's centroid can be computed without keeping all its chunk embeddings.
+     */
+    public static final class CentroidAccumulator {
+        private double[] sum;
+        private int count;
+
+        /**
+         * Adds one embedding to the running sum.
+         *
+         * @param embedding the embedding, with the same dimension as those already added
+         */
+        public void add(Embedding embedding) {
+            float[] vector = embedding.vector();
+            if (sum == null) {
+                sum = new double[vector.length];
+            } else if (vector.length != sum.length) {
+                throw new IllegalArgumentException("Embeddings must all have dimension " + sum.length);
+            }
+            for (int i = 0; i < vector.length; i++) {
+                sum[i] += vector[i];
+            }
+            count++;
+        }
+
+        /**
+         * @return the number of embeddings added so far
+         */
+        public int count() {
+            return count;
+        }
+
+        /**
+         * @return the L2-normalized mean of the embeddings added so far
+         */
+        public float[] centroid() {
+            if (count == 0) {
+                throw new IllegalStateException("No embeddings added");
+            }
+
+            double norm = 0;
+            for (double component : sum) {
+                norm += component * component;
+            }
+            norm = Math.sqrt(norm);
+
+            float[] centroid = new float[sum.length];
+            for (int i = 0; i < sum.length; i++) {
+                centroid[i] = norm == 0 ? 0f : (float) (sum[i] / norm);
+            }
+            return centroid;
+        }
+    }
+
+    /**
+     * Formats a vector as a pgvector text literal, e.g. {@code [0.1,0.2,0.3]}.
+     *
+     * @param vector the vector to format
+     * @return the pgvector literal
+     */
+    public static String toPgVectorLiteral(float[] vector) {
+        StringBuilder builder = new StringBuilder(vector.length * 12);
+        builder.append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(vector[i]);
+        }
+        return builder.append(']').toString();
+    }
+}
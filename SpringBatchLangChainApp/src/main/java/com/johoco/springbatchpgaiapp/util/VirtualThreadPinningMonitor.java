@@ -0,0 +1,82 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads that block while pinned to their carrier thread, typically inside a
+ * {@code synchronized} block or a native call. A pinned virtual thread holds one of the few
+ * carriers for as long as it blocks, so enough of them stall every other virtual thread.
+ * <p>
+ * Listens to the JDK's {@value #PINNED_EVENT} flight recorder events above a duration threshold,
+ * counts them as {@value #PINNED_METRIC} and logs the stack of each distinct pinning location once.
+ */
+@Slf4j
+public class VirtualThreadPinningMonitor implements AutoCloseable {
+    public static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    public static final String PINNED_METRIC = "document.threads.pinned";
+    private static final int LOGGED_FRAMES = 8;
+
+    private final Duration threshold;
+    private final Counter pinnedCounter;
+    private final Timer pinnedTimer;
+    private final Set<String> reportedLocations = ConcurrentHashMap.newKeySet();
+    private RecordingStream recording;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry, Duration threshold) {
+        this.threshold = threshold;
+        this.pinnedCounter = Counter.builder(PINNED_METRIC)
+                .description("Virtual threads that blocked while pinned to their carrier")
+                .register(meterRegistry);
+        this.pinnedTimer = Timer.builder(PINNED_METRIC + ".duration")
+                .description("Time virtual threads stayed pinned to their carrier while blocked")
+                .register(meterRegistry);
+    }
+
+    public void start() {
+        recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::onPinned);
+        recording.startAsync();
+        log.info("Monitoring virtual thread pinning longer than {} ms", threshold.toMillis());
+    }
+
+    void onPinned(RecordedEvent event) {
+        pinnedCounter.increment();
+        pinnedTimer.record(event.getDuration());
+        if (event.getStackTrace() == null) {
+            return;
+        }
+        List<String> frames = event.getStackTrace().getFrames().stream()
+                .limit(LOGGED_FRAMES)
+                .map(VirtualThreadPinningMonitor::describe)
+                .collect(Collectors.toList());
+        if (!frames.isEmpty() && reportedLocations.add(String.join("|", frames))) {
+            log.warn("Virtual thread {} was pinned to its carrier for {} ms at:\n\tat {}",
+                     event.getThread() != null ? event.getThread().getJavaName() : "?",
+                     event.getDuration().toMillis(), String.join("\n\tat ", frames));
+        }
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    @Override
+    public void close() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.johoco.springbatchpgaiapp.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johoco.springbatchpgaiapp.model.SearchCursor;
+import com.johoco.springbatchpgaiapp.model.SearchFilter;
+import com.johoco.springbatchpgaiapp.model.SearchPage;
+import com.johoco.springbatchpgaiapp.model.SearchResult;
+import com.johoco.springbatchpgaiapp.repository.EmbeddingChunkRepository;
+import com.johoco.springbatchpgaiapp.service.DocumentSearchService;
+import com.johoco.springbatchpgaiapp.service.SearchMetrics;
+import com.johoco.springbatchpgaiapp.util.Snippets;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * REST endpoint exposing {@link DocumentSearchService} as a streaming NDJSON search.
+ * The number of searches embedding or querying at the same time is bounded; requests
+ * that cannot get a slot within the acquire timeout are rejected with 503.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+public class DocumentSearchController {
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String VIEW_FULL = "full";
+    public static final String VIEW_SNIPPET = "snippet";
+
+    private final DocumentSearchService documentSearchService;
+    private final SearchMetrics searchMetrics;
+    private final ObjectMapper objectMapper;
+
+    @Value("${document.search.max-concurrent-requests:16}")
+    private int maxConcurrentRequests;
+
+    @Value("${document.search.acquire-timeout-ms:500}")
+    private long acquireTimeoutMs;
+
+    @Value("${document.search.snippet-length:200}")
+    private int snippetLength = 200;
+
+    private Semaphore searchPermits;
+
+    @PostConstruct
+    public void init() {
+        searchPermits = new Semaphore(maxConcurrentRequests, true);
+        log.info("DocumentSearchController initialized with max {} concurrent searches", maxConcurrentRequests);
+    }
+
+    /**
+     * Searches for documents similar to the query and streams each match as one JSON line.
+     * When more results may follow, the response carries an opaque cursor in the
+     * {@value #NEXT_CURSOR_HEADER} header; pass it back as {@code cursor} to fetch the next page.
+     *
+     * @param query The search query
+     * @param maxResults Maximum number of results to return
+     * @param minScore Minimum similarity score (0-1)
+     * @param candidateDocuments When positive, search two-stage: only the chunks of this many
+     *                           documents closest by centroid are considered
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param view {@value #VIEW_FULL} returns each chunk's text; {@value #VIEW_SNIPPET} returns only the
+     *             document, chunk offsets and a short highlighted snippet (fetch text via {@link #chunkText})
+     * @param filter Metadata constraints bound from the remaining request parameters
+     *               ({@code processorVersion}, {@code sourceDirectory}, {@code processedFrom}, ...)
+     * @return a streaming NDJSON body of {@link SearchResult} lines
+     */
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> search(@RequestParam("query") String query,
+                                                        @RequestParam(value = "maxResults", defaultValue = "10") int maxResults,
+                                                        @RequestParam(value = "minScore", defaultValue = "0.0") float minScore,
+                                                        @RequestParam(value = "candidateDocuments", defaultValue = "0") int candidateDocuments,
+                                                        @RequestParam(value = "cursor", required = false) String cursor,
+                                                        @RequestParam(value = "view", defaultValue = VIEW_FULL) String view,
+                                                        @ModelAttribute SearchFilter filter) {
+        if (query == null || query.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "query parameter is required");
+        }
+        if (maxResults < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxResults must be positive");
+        }
+        if (!VIEW_FULL.equals(view) && !VIEW_SNIPPET.equals(view)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "view must be 'full' or 'snippet'");
+        }
+
+        SearchCursor after = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                after = SearchCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor", e);
+            }
+        }
+
+        SearchPage page = runBounded(query, maxResults, minScore, candidateDocuments, filter, after);
+        List<EmbeddingMatch<TextSegment>> matches = page.getMatches();
+        log.info("Streaming {} matches for query: {}", matches.size(), query);
+
+        boolean snippetView = VIEW_SNIPPET.equals(view);
+        StreamingResponseBody body = outputStream -> writeMatches(matches, snippetView ? query : null, outputStream);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE));
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor().encode());
+        }
+        return response.body(body);
+    }
+
+    private SearchPage runBounded(String query, int maxResults, float minScore, int candidateDocuments,
+                                  SearchFilter filter, SearchCursor cursor) {
+        boolean acquired;
+        try {
+            acquired = searchPermits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted waiting for a search slot");
+        }
+        if (!acquired) {
+            log.warn("Rejecting search, {} searches already in flight", maxConcurrentRequests);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many concurrent searches");
+        }
+
+        try {
+            Embedding queryEmbedding = documentSearchService.embedQuery(query);
+            if (candidateDocuments > 0) {
+                return documentSearchService.findPageTwoStage(queryEmbedding, candidateDocuments, maxResults, minScore, filter, cursor);
+            }
+            return documentSearchService.findPage(queryEmbedding, maxResults, minScore, filter, cursor);
+        } finally {
+            searchPermits.release();
+        }
+    }
+
+    /**
+     * Returns the full text of one chunk, for clients that searched in snippet view.
+     *
+     * @param embeddingId the chunk's embedding id from a search result
+     * @return the chunk text
+     */
+    @GetMapping(value = "/chunks/{embeddingId}", produces = MediaType.TEXT_PLAIN_VALUE)
+    public String chunkText(@PathVariable("embeddingId") String embeddingId) {
+        return documentSearchService.findChunkText(embeddingId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Chunk not found: " + embeddingId));
+    }
+
+    /**
+     * Returns the full content of a document, for clients that searched in snippet view.
+     *
+     * @param filename the document filename from a search result
+     * @return the document content
+     */
+    @GetMapping(value = "/documents/content", produces = MediaType.TEXT_PLAIN_VALUE)
+    public String documentContent(@RequestParam("filename") String filename) {
+        return documentSearchService.findDocumentContent(filename)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Document not found: " + filename));
+    }
+
+    private void writeMatches(List<EmbeddingMatch<TextSegment>> matches, String snippetQuery, OutputStream outputStream) {
+        searchMetrics.serializeTimer().record(() -> {
+            try {
+                for (EmbeddingMatch<TextSegment> match : matches) {
+                    SearchResult result = snippetQuery == null ? toSearchResult(match) : toSnippetResult(match, snippetQuery);
+                    outputStream.write(objectMapper.writeValueAsBytes(result));
+                    outputStream.write('\n');
+                    outputStream.flush();
+                }
+            } catch (Exception e) {
+                log.error("Error streaming search results: {}", e.getMessage(), e);
+                throw new RuntimeException("Error streaming search results", e);
+            }
+        });
+    }
+
+    private SearchResult toSearchResult(EmbeddingMatch<TextSegment> match) {
+        return SearchResult.builder()
+                .embeddingId(match.embeddingId())
+                .score(match.score())
+                .text(match.embedded() != null ? match.embedded().text() : null)
+                .build();
+    }
+
+    private SearchResult toSnippetResult(EmbeddingMatch<TextSegment> match, String query) {
+        TextSegment segment = match.embedded();
+        SearchResult.SearchResultBuilder result = SearchResult.builder()
+                .embeddingId(match.embeddingId())
+                .score(match.score());
+        if (segment != null) {
+            result.filename(segment.metadata(EmbeddingChunkRepository.FILENAME_KEY))
+                    .chunkIndex(parseInteger(segment.metadata(EmbeddingChunkRepository.INDEX_KEY)))
+                    .startOffset(parseInteger(segment.metadata(EmbeddingChunkRepository.START_OFFSET_KEY)))
+                    .endOffset(parseInteger(segment.metadata(EmbeddingChunkRepository.END_OFFSET_KEY)))
+                    .snippet(Snippets.highlight(segment.text(), query, snippetLength));
+        }
+        return result.build();
+    }
+
+    private static Integer parseInteger(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
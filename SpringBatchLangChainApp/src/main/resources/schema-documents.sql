@@ -1,9 +1,7 @@
 -- Create documents table with proper array support for embeddings
-DROP TABLE IF EXISTS documents;
-
 CREATE TABLE IF NOT EXISTS documents (
     id BIGSERIAL PRIMARY KEY,
-    filename VARCHAR(255) NOT NULL,
+    filename VARCHAR(1024) NOT NULL,
     content TEXT,
     embedding vector(384),
     file_size BIGINT,
@@ -15,4 +13,55 @@ CREATE TABLE IF NOT EXISTS documents (
 
 -- Create an index for faster vector similarity search
 CREATE INDEX IF NOT EXISTS documents_embedding_idx ON documents 
-USING ivfflat (embedding vector_cosine_ops) WITH (lists = 100);
\ No newline at end of file
+USING ivfflat (embedding vector_cosine_ops) WITH (lists = 100);
+
+-- Chunk table used by PgVectorEmbeddingStore (it creates the same table if missing).
+-- Declared here so the document-scoped chunk lookup can be indexed.
+CREATE TABLE IF NOT EXISTS embedding_store (
+    embedding_id UUID PRIMARY KEY,
+    embedding vector(384),
+    text TEXT NULL,
+    metadata JSON NULL
+);
+
+-- Two-stage retrieval restricts chunk search to the documents found by centroid
+CREATE INDEX IF NOT EXISTS embedding_store_filename_idx ON embedding_store ((metadata->>'filename'));
+
+-- Metadata filters on search: containment (@>) on JSONB uses the GIN index,
+-- range filters use the expression and last_modified indexes
+CREATE INDEX IF NOT EXISTS documents_metadata_gin_idx ON documents USING gin (metadata jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS documents_processing_time_idx ON documents (((metadata->>'processingTime')::numeric));
+CREATE INDEX IF NOT EXISTS documents_last_modified_idx ON documents (last_modified);
+
+-- Near-duplicate detection: MinHash signature of each processed document, and its
+-- locality-sensitive hashing bands so candidates are found without scanning every signature
+CREATE TABLE IF NOT EXISTS document_signatures (
+    filename VARCHAR(1024) PRIMARY KEY,
+    minhash INTEGER[] NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS document_lsh_bands (
+    band SMALLINT NOT NULL,
+    bucket BIGINT NOT NULL,
+    filename VARCHAR(1024) NOT NULL,
+    PRIMARY KEY (band, bucket, filename)
+);
+
+CREATE INDEX IF NOT EXISTS document_lsh_bands_filename_idx ON document_lsh_bands (filename);
+
+-- Documents are identified by source and relative path, longer than the bare file names of
+-- earlier versions; widening a VARCHAR does not rewrite the table
+ALTER TABLE documents ALTER COLUMN filename TYPE VARCHAR(1024);
+ALTER TABLE document_signatures ALTER COLUMN filename TYPE VARCHAR(1024);
+ALTER TABLE document_lsh_bands ALTER COLUMN filename TYPE VARCHAR(1024);
+
+-- Leases through which watcher instances sharing an input directory claim files, so each file
+-- is processed by one instance; a crashed instance's leases expire and are taken over
+CREATE TABLE IF NOT EXISTS file_claims (
+    claim_key VARCHAR(1024) PRIMARY KEY,
+    owner VARCHAR(255) NOT NULL,
+    claimed_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS file_claims_expires_at_idx ON file_claims (expires_at);
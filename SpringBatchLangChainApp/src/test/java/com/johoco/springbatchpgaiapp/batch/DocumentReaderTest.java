@@ -3,11 +3,6 @@ package com.johoco.springbatchpgaiapp.batch;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
-import org.mockito.Mock;
-import org.mockito.MockitoAnnotations;
-import org.springframework.batch.core.JobParameters;
-import org.springframework.batch.core.JobParametersBuilder;
-import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemStreamException;
 
@@ -16,7 +11,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.*;
 
 class DocumentReaderTest {
 
@@ -25,35 +19,16 @@ class DocumentReaderTest {
     @TempDir
     Path tempDir;
     
-    @Mock
-    private StepExecution stepExecution;
-    
     @BeforeEach
     void setUp() {
-        MockitoAnnotations.openMocks(this);
-        documentReader = new DocumentReader();
-        
-        // Use reflection to set the inputDirectory field
-        try {
-            java.lang.reflect.Field field = DocumentReader.class.getDeclaredField("inputDirectory");
-            field.setAccessible(true);
-            field.set(documentReader, tempDir.toString());
-        } catch (NoSuchFieldException | IllegalAccessException e) {
-            fail("Failed to set inputDirectory field: " + e.getMessage());
-        }
+        documentReader = reader(null);
     }
     
     @Test
     void testReadNonExistentFile() throws Exception {
         // Given a non-existent file
         String fileName = "nonexistent.txt";
-        JobParameters jobParameters = new JobParametersBuilder()
-                .addString("fileName", fileName)
-                .toJobParameters();
-        when(stepExecution.getJobParameters()).thenReturn(jobParameters);
-        
-        // Set the fileName parameter
-        documentReader.beforeStep(stepExecution);
+        documentReader = reader(fileName);
         
         ExecutionContext executionContext = new ExecutionContext();
         
@@ -71,13 +46,7 @@ class DocumentReaderTest {
         Files.writeString(testFile, "Test content");
         
         // Set up the job parameters
-        JobParameters jobParameters = new JobParametersBuilder()
-                .addString("fileName", fileName)
-                .toJobParameters();
-        when(stepExecution.getJobParameters()).thenReturn(jobParameters);
-        
-        // Set the fileName parameter
-        documentReader.beforeStep(stepExecution);
+        documentReader = reader(fileName);
         
         ExecutionContext executionContext = new ExecutionContext();
         
@@ -95,11 +64,7 @@ class DocumentReaderTest {
     @Test
     void testReadWithNoFileName() throws Exception {
         // Given no fileName parameter
-        JobParameters jobParameters = new JobParametersBuilder().toJobParameters();
-        when(stepExecution.getJobParameters()).thenReturn(jobParameters);
-        
-        // Set the fileName parameter (which will be null)
-        documentReader.beforeStep(stepExecution);
+        documentReader = reader(null);
         
         ExecutionContext executionContext = new ExecutionContext();
         
@@ -117,13 +82,7 @@ class DocumentReaderTest {
         Files.writeString(testFile, "Test content");
         
         // Set up the job parameters
-        JobParameters jobParameters = new JobParametersBuilder()
-                .addString("fileName", fileName)
-                .toJobParameters();
-        when(stepExecution.getJobParameters()).thenReturn(jobParameters);
-        
-        // Set the fileName parameter
-        documentReader.beforeStep(stepExecution);
+        documentReader = reader(fileName);
         
         ExecutionContext executionContext = new ExecutionContext();
         
@@ -162,13 +121,7 @@ class DocumentReaderTest {
         Files.writeString(testFile, "Test content");
         
         // Set up the job parameters
-        JobParameters jobParameters = new JobParametersBuilder()
-                .addString("fileName", fileName)
-                .toJobParameters();
-        when(stepExecution.getJobParameters()).thenReturn(jobParameters);
-        
-        // Set the fileName parameter
-        documentReader.beforeStep(stepExecution);
+        documentReader = reader(fileName);
         
         ExecutionContext executionContext = new ExecutionContext();
         documentReader.open(executionContext);
@@ -181,4 +134,27 @@ class DocumentReaderTest {
         assertNotNull(file, "Should return file reference even if file was deleted");
         assertFalse(file.exists(), "File should no longer exist");
     }
+
+    @Test
+    void testConcurrentJobsReadTheirOwnFiles() throws Exception {
+        // Given two jobs running side by side, one for a file in a source subdirectory
+        Path sourceDir = tempDir.resolve("source");
+        Files.createDirectories(sourceDir.resolve("a"));
+        Files.writeString(tempDir.resolve("first.txt"), "First");
+        Files.writeString(sourceDir.resolve("a/second.txt"), "Second");
+        DocumentReader first = reader("first.txt");
+        DocumentReader second = new DocumentReader("a/second.txt", sourceDir.toString(), tempDir.toString());
+
+        // When
+        first.open(new ExecutionContext());
+        second.open(new ExecutionContext());
+
+        // Then
+        assertEquals(tempDir.resolve("first.txt").toFile(), first.read());
+        assertEquals(sourceDir.resolve("a/second.txt").toFile(), second.read());
+    }
+
+    private DocumentReader reader(String fileName) {
+        return new DocumentReader(fileName, null, tempDir.toString());
+    }
 }
@@ -44,13 +44,7 @@ class DocumentWriterTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        documentWriter = new DocumentWriter(documentRepository, fileOperations);
-        
-        // Set the required fields via reflection since they're normally set by @Value
-        ReflectionTestUtils.setField(documentWriter, "inputDirectory", "input");
-        ReflectionTestUtils.setField(documentWriter, "outputDirectory", "output");
-        ReflectionTestUtils.setField(documentWriter, "failedDirectory", "failed");
-        ReflectionTestUtils.setField(documentWriter, "currentFileName", "test.txt");
+        documentWriter = writer("test.txt");
     }
     
     @Test
@@ -61,13 +55,13 @@ class DocumentWriterTest {
         
         File mockFile = mock(File.class);
         when(mockFile.exists()).thenReturn(true);
-        when(fileOperations.moveFile(any(File.class), eq("output"), eq(false))).thenReturn(mockFile);
+        when(fileOperations.moveFile(any(File.class), eq("output"), anyString(), eq(false))).thenReturn(mockFile);
         when(documentRepository.save(any(Document.class))).thenReturn(document);
         
         // Set up StepExecution with COMPLETED status for afterStep
         StepExecution stepExecution = new StepExecution("testStep", new JobExecution(1L));
         stepExecution.setExitStatus(ExitStatus.COMPLETED);
-        ReflectionTestUtils.setField(documentWriter, "currentFileName", "test.txt");
+        documentWriter = writer("test.txt");
         
         // When
         documentWriter.write(new Chunk<>(Collections.singletonList(document)));
@@ -75,7 +69,7 @@ class DocumentWriterTest {
         
         // Then
         verify(documentRepository).save(document);
-        verify(fileOperations).moveFile(any(File.class), eq("output"), eq(false));
+        verify(fileOperations).moveFile(any(File.class), eq("output"), anyString(), eq(false));
     }
     
     @Test
@@ -109,13 +103,13 @@ class DocumentWriterTest {
         // Set up StepExecution with COMPLETED status for afterStep
         StepExecution stepExecution = new StepExecution("testStep", new JobExecution(1L));
         stepExecution.setExitStatus(ExitStatus.COMPLETED);
-        ReflectionTestUtils.setField(documentWriter, "currentFileName", "missing.txt");
+        documentWriter = writer("missing.txt");
         
         // Mock file.exists() to return false to simulate missing file
         File mockFile = mock(File.class);
         when(mockFile.exists()).thenReturn(false);
         when(mockFile.getAbsolutePath()).thenReturn("input/missing.txt");
-        doReturn(mockFile).when(fileOperations).moveFile(any(File.class), anyString(), anyBoolean());
+        doReturn(mockFile).when(fileOperations).moveFile(any(File.class), anyString(), anyString(), anyBoolean());
         
         // When
         documentWriter.write(new Chunk<>(Collections.singletonList(document)));
@@ -123,7 +117,7 @@ class DocumentWriterTest {
         
         // Then
         verify(documentRepository).save(document);
-        verify(fileOperations, never()).moveFile(any(File.class), anyString(), anyBoolean());
+        verify(fileOperations, never()).moveFile(any(File.class), anyString(), anyString(), anyBoolean());
         assertEquals(ExitStatus.COMPLETED, exitStatus);
     }
     
@@ -136,14 +130,14 @@ class DocumentWriterTest {
         File mockFile = mock(File.class);
         when(mockFile.exists()).thenReturn(true);
         when(mockFile.getAbsolutePath()).thenReturn("input/error.txt");
-        when(fileOperations.moveFile(any(File.class), eq("output"), eq(false)))
+        when(fileOperations.moveFile(any(File.class), eq("output"), anyString(), eq(false)))
             .thenThrow(new IOException("Failed to move file"));
         when(documentRepository.save(any(Document.class))).thenReturn(document);
         
         // Set up StepExecution with COMPLETED status for afterStep
         StepExecution stepExecution = new StepExecution("testStep", new JobExecution(1L));
         stepExecution.setExitStatus(ExitStatus.COMPLETED);
-        ReflectionTestUtils.setField(documentWriter, "currentFileName", "error.txt");
+        documentWriter = writer("error.txt");
         
         // When
         documentWriter.write(new Chunk<>(Collections.singletonList(document)));
@@ -151,7 +145,7 @@ class DocumentWriterTest {
         
         // Then
         verify(documentRepository).save(document);
-        verify(fileOperations).moveFile(any(File.class), eq("output"), eq(false));
+        verify(fileOperations).moveFile(any(File.class), eq("output"), anyString(), eq(false));
         assertTrue(exitStatus.getExitDescription().contains("File processed successfully but could not be moved"));
     }
     
@@ -168,6 +162,14 @@ class DocumentWriterTest {
         verifyNoInteractions(fileOperations);
     }
     
+    private DocumentWriter writer(String fileName) {
+        DocumentWriter writer = new DocumentWriter(documentRepository, fileOperations, fileName, null, null, "input");
+        // Set the output directories via reflection since they're normally set by @Value
+        ReflectionTestUtils.setField(writer, "outputDirectory", "output");
+        ReflectionTestUtils.setField(writer, "failedDirectory", "failed");
+        return writer;
+    }
+
     private Document createTestDocument(String filename, String content) {
         Document document = new Document();
         document.setFilename(filename);
@@ -1,5 +1,6 @@
 package com.johoco.springbatchpgaiapp.config;
 
+import com.johoco.springbatchpgaiapp.batch.DocumentJobListener;
 import com.johoco.springbatchpgaiapp.batch.DocumentReader;
 import com.johoco.springbatchpgaiapp.batch.DocumentWriter;
 import com.johoco.springbatchpgaiapp.service.DocumentProcessor;
@@ -36,6 +37,9 @@ class BatchConfigTest {
     @Mock
     private DocumentWriter documentWriter;
     
+    @Mock
+    private DocumentJobListener documentJobListener;
+    
     @Mock
     private JobRepository jobRepository;
     
@@ -46,7 +50,8 @@ class BatchConfigTest {
     void testTransactionManager() {
         // Given
         BatchConfig batchConfig = new BatchConfig(dataSource, entityManagerFactory, 
-                                                 documentReader, documentProcessor, documentWriter);
+                                                 documentReader, documentProcessor, documentWriter, new ThreadingConfig(),
+                                                documentJobListener);
         
         // When
         PlatformTransactionManager result = batchConfig.transactionManager();
@@ -60,7 +65,8 @@ class BatchConfigTest {
     void testProcessDocumentStep() {
         // Given
         BatchConfig batchConfig = new BatchConfig(dataSource, entityManagerFactory, 
-                                                documentReader, documentProcessor, documentWriter);
+                                                documentReader, documentProcessor, documentWriter, new ThreadingConfig(),
+                                                documentJobListener);
         
         // When
         Step result = batchConfig.processDocumentStep(jobRepository, transactionManager);
@@ -73,7 +79,8 @@ class BatchConfigTest {
     void testProcessDocumentJob() {
         // Given
         BatchConfig batchConfig = new BatchConfig(dataSource, entityManagerFactory, 
-                                                documentReader, documentProcessor, documentWriter);
+                                                documentReader, documentProcessor, documentWriter, new ThreadingConfig(),
+                                                documentJobListener);
         
         // When
         Job result = batchConfig.processDocumentJob(jobRepository, transactionManager);
@@ -0,0 +1,92 @@
+package com.johoco.springbatchpgaiapp.embedding;
+
+import ai.onnxruntime.OrtSession;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.AllMiniLmL6V2EmbeddingModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OnnxEmbeddingEngineTest {
+
+    private static OnnxEmbeddingEngine engine;
+    private static EmbeddingModel reference;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        byte[] model;
+        try (InputStream in = AllMiniLmL6V2EmbeddingModel.class.getResourceAsStream("/all-minilm-l6-v2.onnx")) {
+            model = in.readAllBytes();
+        }
+        engine = new OnnxEmbeddingEngine(model, AllMiniLmL6V2EmbeddingModel.class.getResource("/bert-vocabulary-en.txt"),
+                2, 1, 1, OrtSession.SessionOptions.OptLevel.ALL_OPT, false, 1);
+        reference = new AllMiniLmL6V2EmbeddingModel();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    void testEmbeddingsMatchLangChainModel() {
+        // Given
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            longText.append("Sentence number ").append(i).append(" about vector search. ");
+        }
+        List<TextSegment> segments = List.of(
+                TextSegment.from("Spring Batch reads documents from a directory"),
+                TextSegment.from("PostgreSQL stores the embeddings with pgvector"),
+                TextSegment.from(longText.toString()));
+
+        // When
+        List<Embedding> embeddings = engine.embedAll(segments).content();
+
+        // Then
+        assertEquals(segments.size(), embeddings.size());
+        for (int i = 0; i < segments.size(); i++) {
+            float[] expected = reference.embed(segments.get(i)).content().vector();
+            assertArrayEquals(expected, embeddings.get(i).vector(), 1e-4f, "Embedding " + i + " differs");
+        }
+    }
+
+    @Test
+    void testConcurrentCallersShareSessions() throws Exception {
+        // Given
+        List<TextSegment> segments = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            segments.add(TextSegment.from("document chunk " + i));
+        }
+        List<Embedding> expected = engine.embedAll(segments).content();
+
+        // When
+        List<CompletableFuture<List<Embedding>>> callers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            callers.add(CompletableFuture.supplyAsync(() -> engine.embedAll(segments).content()));
+        }
+
+        // Then
+        for (CompletableFuture<List<Embedding>> caller : callers) {
+            List<Embedding> actual = caller.get();
+            for (int i = 0; i < segments.size(); i++) {
+                assertArrayEquals(expected.get(i).vector(), actual.get(i).vector(), 1e-6f);
+            }
+        }
+        assertEquals(2, engine.getSessionCount());
+    }
+
+    @Test
+    void testEmptyInput() {
+        assertTrue(engine.embedAll(List.of()).content().isEmpty());
+    }
+}
@@ -0,0 +1,64 @@
+package com.johoco.springbatchpgaiapp.embedding;
+
+import ai.onnxruntime.OrtSession;
+import dev.langchain4j.model.embedding.AllMiniLmL6V2EmbeddingModel;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantizationEvaluatorTest {
+
+    private static final List<String> CORPUS = List.of(
+            "Spring Batch reads each file from the input directory.",
+            "PostgreSQL answers nearest-neighbour queries with pgvector.",
+            "The quarterly revenue grew by twelve percent.",
+            "Preheat the oven and line a baking tray with paper.",
+            "The train to the airport departs every fifteen minutes.",
+            "Either party may terminate this agreement with written notice.");
+
+    @Test
+    void testQuantizedModelStaysCloseToFullPrecision() throws Exception {
+        // Given
+        try (OnnxEmbeddingEngine fp32 = engine(EmbeddingModelVariant.FP32);
+             OnnxEmbeddingEngine int8 = engine(EmbeddingModelVariant.INT8)) {
+
+            // When
+            QuantizationReport report = QuantizationEvaluator.evaluate(fp32, int8, CORPUS, 2);
+
+            // Then
+            assertEquals(CORPUS.size(), report.getSamples());
+            assertEquals(2, report.getNeighbours());
+            assertTrue(report.getMeanCosine() > 0.95 && report.getMeanCosine() <= 1.0 + 1e-6, report.toString());
+            assertTrue(report.getMinCosine() <= report.getMeanCosine());
+            assertTrue(report.getNeighbourOverlap() >= 0 && report.getNeighbourOverlap() <= 1);
+        }
+    }
+
+    @Test
+    void testIdenticalModelsHaveNoDrift() throws Exception {
+        try (OnnxEmbeddingEngine fp32 = engine(EmbeddingModelVariant.FP32)) {
+            QuantizationReport report = QuantizationEvaluator.evaluate(fp32, fp32, CORPUS, 3);
+
+            assertEquals(1.0, report.getMeanCosine(), 1e-6);
+            assertEquals(1.0, report.getNeighbourOverlap(), 1e-9);
+        }
+    }
+
+    @Test
+    void testRejectsCorpusTooSmallToRank() {
+        assertThrows(IllegalArgumentException.class,
+                () -> QuantizationEvaluator.evaluate(new AllMiniLmL6V2EmbeddingModel(), new AllMiniLmL6V2EmbeddingModel(), List.of("one"), 5));
+    }
+
+    private static OnnxEmbeddingEngine engine(EmbeddingModelVariant variant) throws Exception {
+        byte[] model;
+        try (InputStream in = AllMiniLmL6V2EmbeddingModel.class.getResourceAsStream(variant.getModelResource())) {
+            model = in.readAllBytes();
+        }
+        return new OnnxEmbeddingEngine(model, AllMiniLmL6V2EmbeddingModel.class.getResource("/bert-vocabulary-en.txt"),
+                1, 1, 1, OrtSession.SessionOptions.OptLevel.ALL_OPT, false, 8);
+    }
+}
@@ -0,0 +1,31 @@
+package com.johoco.springbatchpgaiapp.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchCursorTest {
+
+    @Test
+    void testEncodeDecodeRoundTrip() {
+        // Given a distance that needs full double precision to resume exactly
+        SearchCursor cursor = new SearchCursor(0.12345678901234567, "7b7e2c9e-0d5b-4b8e-9a55-1f0f3c6f1a11");
+
+        // When
+        String token = cursor.encode();
+        SearchCursor decoded = SearchCursor.decode(token);
+
+        // Then
+        assertEquals(cursor, decoded);
+        assertFalse(token.contains("|"), "Token should be opaque");
+    }
+
+    @Test
+    void testDecodeRejectsMalformedTokens() {
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(null));
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode("%%%"));
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode("bm8tc2VwYXJhdG9y"));
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(
+                new SearchCursor(0.1, "id").encode().substring(0, 2)));
+    }
+}
@@ -0,0 +1,114 @@
+package com.johoco.springbatchpgaiapp.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against a real Postgres, such as the {@code db} service of the repository's compose.yaml:
+ * {@code CLAIMS_TEST_DATABASE_URL=jdbc:postgresql://localhost:5432/postgres}, with
+ * {@code CLAIMS_TEST_DATABASE_USER} and {@code CLAIMS_TEST_DATABASE_PASSWORD} defaulting to postgres.
+ */
+@EnabledIfEnvironmentVariable(named = "CLAIMS_TEST_DATABASE_URL", matches = ".+")
+class FileClaimRepositoryTest {
+    private static final String KEY = "test:claims/a.txt";
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private FileClaimRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getenv("CLAIMS_TEST_DATABASE_URL"),
+                Objects.requireNonNullElse(System.getenv("CLAIMS_TEST_DATABASE_USER"), "postgres"),
+                Objects.requireNonNullElse(System.getenv("CLAIMS_TEST_DATABASE_PASSWORD"), "postgres"));
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        jdbcTemplate.getJdbcTemplate().execute("CREATE TABLE IF NOT EXISTS file_claims (" +
+                "claim_key VARCHAR(1024) PRIMARY KEY, owner VARCHAR(255) NOT NULL, " +
+                "claimed_at TIMESTAMP WITH TIME ZONE NOT NULL, expires_at TIMESTAMP WITH TIME ZONE NOT NULL)");
+        deleteTestClaims();
+        repository = new FileClaimRepository(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteTestClaims();
+    }
+
+    @Test
+    void testOnlyOneNodeClaimsAFile() {
+        // When
+        boolean first = repository.insert(KEY, "node-a", 60_000);
+        boolean second = repository.insert(KEY, "node-b", 60_000);
+
+        // Then
+        assertTrue(first);
+        assertFalse(second);
+        assertNull(repository.takeOverExpired(KEY, "node-b", 60_000));
+        assertTrue(repository.remainingLeaseMs(KEY) > 0);
+    }
+
+    @Test
+    void testExpiredLeaseIsTakenOverByExactlyOneOfRacingNodes() throws Exception {
+        // Given a claim of a crashed node
+        repository.insert(KEY, "crashed", -1000);
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<String>> takeOvers = new ArrayList<>();
+        for (int node = 0; node < 8; node++) {
+            String owner = "node-" + node;
+            takeOvers.add(() -> repository.takeOverExpired(KEY, owner, 60_000));
+        }
+        List<String> previousOwners = new ArrayList<>();
+        for (Future<String> result : executor.invokeAll(takeOvers)) {
+            if (result.get() != null) {
+                previousOwners.add(result.get());
+            }
+        }
+        executor.shutdown();
+
+        // Then
+        assertEquals(List.of("crashed"), previousOwners);
+        assertTrue(repository.remainingLeaseMs(KEY) > 0);
+    }
+
+    @Test
+    void testRenewAndReleaseOnlyTouchTheOwnersClaim() {
+        // Given
+        repository.insert(KEY, "node-a", 1000);
+
+        // When
+        int renewedByOther = repository.renew(List.of(KEY), "node-b", 60_000);
+        int renewedByOwner = repository.renew(List.of(KEY), "node-a", 60_000);
+        repository.release(KEY, "node-b", -1000);
+        long afterForeignRelease = repository.remainingLeaseMs(KEY);
+        repository.release(KEY, "node-a", -1000);
+
+        // Then
+        assertEquals(0, renewedByOther);
+        assertEquals(1, renewedByOwner);
+        assertTrue(afterForeignRelease > 1000);
+        assertTrue(repository.deleteExpired() >= 1);
+        assertNull(repository.remainingLeaseMs(KEY));
+    }
+
+    private void deleteTestClaims() {
+        jdbcTemplate.update("DELETE FROM file_claims WHERE claim_key LIKE 'test:%'", new MapSqlParameterSource());
+    }
+}
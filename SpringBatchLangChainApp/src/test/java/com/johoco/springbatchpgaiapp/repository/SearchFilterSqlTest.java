@@ -0,0 +1,60 @@
+package com.johoco.springbatchpgaiapp.repository;
+
+import com.johoco.springbatchpgaiapp.model.SearchFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchFilterSqlTest {
+
+    @Test
+    void testEmptyFilterProducesNoPredicates() {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+
+        assertEquals("", SearchFilterSql.toPredicates(null, "d", params));
+        assertEquals("", SearchFilterSql.toPredicates(new SearchFilter(), "d", params));
+        assertEquals(0, params.getParameterNames().length);
+    }
+
+    @Test
+    void testEqualityConstraintsCombineIntoOneContainment() {
+        // Given
+        SearchFilter filter = SearchFilter.builder()
+                .processorVersion("1.0.0")
+                .sourceDirectory("/data/team-a")
+                .build();
+        MapSqlParameterSource params = new MapSqlParameterSource();
+
+        // When
+        String predicates = SearchFilterSql.toPredicates(filter, "d", params);
+
+        // Then
+        assertEquals("d.metadata @> CAST(:filterMetadata AS jsonb)", predicates);
+        assertEquals("{\"processorVersion\":\"1.0.0\",\"sourceDirectory\":\"/data/team-a\"}",
+                params.getValue("filterMetadata"));
+    }
+
+    @Test
+    void testRangeConstraintsAreBoundAsParameters() {
+        // Given
+        Instant from = Instant.parse("2024-01-01T00:00:00.5Z");
+        SearchFilter filter = SearchFilter.builder()
+                .processedFrom(from)
+                .modifiedTo(Instant.parse("2024-02-01T00:00:00Z"))
+                .build();
+        MapSqlParameterSource params = new MapSqlParameterSource();
+
+        // When
+        String predicates = SearchFilterSql.toPredicates(filter, "d", params);
+
+        // Then
+        assertEquals("((d.metadata->>'processingTime')::numeric) >= :processedFrom AND d.last_modified < :modifiedTo",
+                predicates);
+        assertEquals(0, new BigDecimal("1704067200.5").compareTo((BigDecimal) params.getValue("processedFrom")));
+        assertTrue(params.hasValue("modifiedTo"));
+    }
+}
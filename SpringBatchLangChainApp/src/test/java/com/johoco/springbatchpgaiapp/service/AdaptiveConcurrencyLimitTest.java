@@ -0,0 +1,141 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private Timer embedTimer;
+
+    private Timer storeTimer;
+
+    private AtomicInteger pendingConnections;
+
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        embedTimer = Timer.builder(EmbeddingPipeline.LATENCY_METRIC).tag("stage", EmbeddingPipeline.STAGE_EMBED).register(meterRegistry);
+        storeTimer = Timer.builder(EmbeddingPipeline.LATENCY_METRIC).tag("stage", EmbeddingPipeline.STAGE_STORE).register(meterRegistry);
+        pendingConnections = new AtomicInteger();
+        Gauge.builder(AdaptiveConcurrencyLimit.PENDING_CONNECTIONS_METRIC, pendingConnections, AtomicInteger::get).register(meterRegistry);
+
+        concurrencyLimit = new AdaptiveConcurrencyLimit(meterRegistry);
+        ReflectionTestUtils.setField(concurrencyLimit, "initialLimit", 10);
+        concurrencyLimit.init();
+    }
+
+    @Test
+    void testAcquireStopsAtLimit() {
+        // When
+        for (int i = 0; i < 10; i++) {
+            assertTrue(concurrencyLimit.tryAcquire());
+        }
+
+        // Then
+        assertFalse(concurrencyLimit.tryAcquire());
+        concurrencyLimit.release();
+        assertTrue(concurrencyLimit.tryAcquire());
+        assertEquals(10.0, meterRegistry.get(AdaptiveConcurrencyLimit.IN_FLIGHT_METRIC).gauge().value());
+    }
+
+    @Test
+    void testLimitGrowsByOneWhenSaturatedAndHealthy() {
+        // Given
+        fillToLimit();
+        embedTimer.record(Duration.ofMillis(100));
+
+        // When
+        concurrencyLimit.adjust();
+
+        // Then
+        assertEquals(11, concurrencyLimit.getLimit());
+        assertEquals(11.0, meterRegistry.get(AdaptiveConcurrencyLimit.LIMIT_METRIC).gauge().value());
+    }
+
+    @Test
+    void testLimitStaysWhenNotSaturated() {
+        // Given
+        embedTimer.record(Duration.ofMillis(100));
+
+        // When
+        concurrencyLimit.adjust();
+
+        // Then
+        assertEquals(10, concurrencyLimit.getLimit());
+    }
+
+    @Test
+    void testLimitBacksOffWhenEmbeddingSlowsDown() {
+        // Given a baseline interval, then one three times slower
+        embedTimer.record(Duration.ofMillis(100));
+        concurrencyLimit.adjust();
+        fillToLimit();
+        embedTimer.record(Duration.ofMillis(300));
+
+        // When
+        concurrencyLimit.adjust();
+
+        // Then
+        assertEquals(7, concurrencyLimit.getLimit());
+    }
+
+    @Test
+    void testLimitBacksOffWhenWritesSlowDown() {
+        // Given
+        storeTimer.record(Duration.ofMillis(10));
+        concurrencyLimit.adjust();
+        storeTimer.record(Duration.ofMillis(50));
+
+        // When
+        concurrencyLimit.adjust();
+
+        // Then
+        assertEquals(7, concurrencyLimit.getLimit());
+    }
+
+    @Test
+    void testLimitBacksOffWhenConnectionsArePending() {
+        // Given
+        pendingConnections.set(5);
+
+        // When
+        concurrencyLimit.adjust();
+        concurrencyLimit.adjust();
+        concurrencyLimit.adjust();
+        concurrencyLimit.adjust();
+        concurrencyLimit.adjust();
+
+        // Then limit shrinks multiplicatively but never below the minimum
+        assertEquals(1, concurrencyLimit.getLimit());
+    }
+
+    @Test
+    void testDisabledLimitAdmitsEverything() {
+        // Given
+        ReflectionTestUtils.setField(concurrencyLimit, "enabled", false);
+
+        // When / Then
+        for (int i = 0; i < 100; i++) {
+            assertTrue(concurrencyLimit.tryAcquire());
+        }
+    }
+
+    private void fillToLimit() {
+        while (concurrencyLimit.tryAcquire()) {
+            // Take every slot so the next launch is turned away
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectoryCrawlerTest {
+
+    @TempDir
+    Path inputDir;
+
+    @TempDir
+    Path indexDir;
+
+    private DirectoryCrawler crawler;
+
+    @BeforeEach
+    void setUp() {
+        crawler = crawler();
+    }
+
+    @AfterEach
+    void tearDown() {
+        crawler.shutdown();
+    }
+
+    @Test
+    void testScanFindsFilesInNestedDirectories() throws Exception {
+        // Given
+        Path top = write("top.txt", "top");
+        Path nested = write("a/b/c/nested.txt", "nested");
+        Path sibling = write("a/sibling.txt", "sibling");
+
+        // When
+        List<File> files = crawler.scan(inputDir.toFile());
+
+        // Then
+        assertEquals(List.of(nested.toFile(), sibling.toFile(), top.toFile()), files);
+    }
+
+    @Test
+    void testNonRecursiveScanListsTopLevelOnly() throws Exception {
+        // Given
+        crawler.shutdown();
+        crawler = new DirectoryCrawler(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(crawler, "indexFile", indexDir.resolve("index.tsv").toString());
+        ReflectionTestUtils.setField(crawler, "recursive", false);
+        crawler.init();
+        Path top = write("top.txt", "top");
+        write("a/nested.txt", "nested");
+
+        // When
+        List<File> files = crawler.scan(inputDir.toFile());
+
+        // Then
+        assertEquals(List.of(top.toFile()), files);
+    }
+
+    @Test
+    void testAcknowledgedFileIsSkippedUntilChanged() throws Exception {
+        // Given
+        Path file = write("a/doc.txt", "first version");
+        crawler.acknowledge(file.toFile());
+
+        // When
+        List<File> unchanged = crawler.scan(inputDir.toFile());
+        Files.writeString(file, "second, longer version");
+        List<File> changed = crawler.scan(inputDir.toFile());
+
+        // Then
+        assertTrue(unchanged.isEmpty());
+        assertEquals(List.of(file.toFile()), changed);
+    }
+
+    @Test
+    void testUnacknowledgedFileIsReportedByEveryScan() throws Exception {
+        // Given a file whose launch was deferred
+        Path file = write("deferred.txt", "waiting");
+        crawler.scan(inputDir.toFile());
+
+        // When
+        List<File> files = crawler.scan(inputDir.toFile());
+
+        // Then
+        assertEquals(List.of(file.toFile()), files);
+    }
+
+    @Test
+    void testTouchedFileWithSameContentIsSkipped() throws Exception {
+        // Given
+        Path file = write("doc.txt", "content");
+        crawler.acknowledge(file.toFile());
+
+        // When
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 60_000));
+        List<File> files = crawler.scan(inputDir.toFile());
+
+        // Then
+        assertTrue(files.isEmpty());
+    }
+
+    @Test
+    void testFileRemovedAndPutBackIsReportedAgain() throws Exception {
+        // Given
+        Path file = write("doc.txt", "content");
+        crawler.acknowledge(file.toFile());
+        byte[] content = Files.readAllBytes(file);
+        FileTime modified = Files.getLastModifiedTime(file);
+
+        // When the file leaves the tree and comes back unchanged
+        Files.delete(file);
+        crawler.scan(inputDir.toFile());
+        Files.write(file, content);
+        Files.setLastModifiedTime(file, modified);
+        List<File> files = crawler.scan(inputDir.toFile());
+
+        // Then
+        assertEquals(List.of(file.toFile()), files);
+    }
+
+    @Test
+    void testOutputDirectoriesInsideTheTreeAreSkipped() throws Exception {
+        // Given
+        crawler.shutdown();
+        crawler = new DirectoryCrawler(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(crawler, "indexFile", indexDir.resolve("index.tsv").toString());
+        ReflectionTestUtils.setField(crawler, "outputDirectory", inputDir.resolve("processed").toString());
+        ReflectionTestUtils.setField(crawler, "failedDirectory", inputDir.resolve("failed").toString());
+        crawler.init();
+        Path file = write("doc.txt", "content");
+        write("processed/done.txt", "done");
+        write("failed/broken.txt", "broken");
+
+        // When
+        List<File> files = crawler.scan(inputDir.toFile());
+
+        // Then
+        assertEquals(List.of(file.toFile()), files);
+    }
+
+    @Test
+    void testInterruptedFileIsPickedUpAgainAfterRestart() throws Exception {
+        // Given a file whose job was still running when the application stopped
+        Path interrupted = write("interrupted.txt", "interrupted");
+        crawler.acknowledge(interrupted.toFile());
+        crawler.flush();
+
+        // When
+        crawler.shutdown();
+        crawler = crawler();
+        List<File> files = crawler.scan(inputDir.toFile());
+
+        // Then
+        assertEquals(List.of(interrupted.toFile()), files);
+    }
+
+    @Test
+    void testFinishedFileLeftInTheTreeStaysSkippedAfterRestart() throws Exception {
+        // Given a file whose job finished but which could not be moved out of the tree
+        Path finished = write("finished.txt", "finished");
+        Path waiting = write("waiting.txt", "waiting");
+        crawler.acknowledge(finished.toFile());
+        crawler.finished(finished.toFile());
+        crawler.flush();
+
+        // When
+        crawler.shutdown();
+        crawler = crawler();
+        List<File> files = crawler.scan(inputDir.toFile());
+
+        // Then
+        assertEquals(List.of(waiting.toFile()), files);
+        assertTrue(Files.exists(indexDir.resolve("index.tsv")));
+    }
+
+    @Test
+    void testForgottenFileIsListedAgain() throws Exception {
+        // Given a file whose launch failed
+        Path file = write("a.txt", "a");
+        crawler.acknowledge(file.toFile());
+
+        // When
+        crawler.forget(file.toFile());
+
+        // Then
+        assertEquals(List.of(file.toFile()), crawler.scan(inputDir.toFile()));
+    }
+
+    @Test
+    void testSameSizeEditBetweenSampledEndsIsNotSeen() throws Exception {
+        // Given only size, time and the sampled ends are compared, so an edit outside them goes unseen
+        byte[] content = new byte[512 * 1024];
+        Path file = inputDir.resolve("large.bin");
+        Files.write(file, content);
+        FileTime modified = Files.getLastModifiedTime(file);
+        crawler.acknowledge(file.toFile());
+
+        // When the middle changes and the time is moved on
+        content[256 * 1024] = 1;
+        Files.write(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified.toMillis() + 60_000));
+        List<File> middleEdited = crawler.scan(inputDir.toFile());
+        content[content.length - 1] = 1;
+        Files.write(file, content);
+        List<File> endEdited = crawler.scan(inputDir.toFile());
+
+        // Then
+        assertTrue(middleEdited.isEmpty());
+        assertEquals(List.of(file.toFile()), endEdited);
+    }
+
+    private DirectoryCrawler crawler() {
+        DirectoryCrawler directoryCrawler = new DirectoryCrawler(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(directoryCrawler, "indexFile", indexDir.resolve("index.tsv").toString());
+        directoryCrawler.init();
+        return directoryCrawler;
+    }
+
+    private Path write(String relativePath, String content) throws Exception {
+        Path path = inputDir.resolve(relativePath);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, content);
+        return path;
+    }
+}
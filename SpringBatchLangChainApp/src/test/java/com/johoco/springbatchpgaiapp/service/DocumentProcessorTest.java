@@ -3,12 +3,23 @@ package com.johoco.springbatchpgaiapp.service;
 import com.johoco.springbatchpgaiapp.model.Document;
 import com.johoco.springbatchpgaiapp.model.DocumentMetadata;
 import com.johoco.springbatchpgaiapp.model.DocumentStatus;
+import com.johoco.springbatchpgaiapp.model.NearDuplicate;
+import com.johoco.springbatchpgaiapp.model.TextBlock;
+import com.johoco.springbatchpgaiapp.repository.EmbeddingChunkRepository;
+import com.johoco.springbatchpgaiapp.util.CpuBoundExecutor;
 import com.johoco.springbatchpgaiapp.util.FileOperations;
+import com.johoco.springbatchpgaiapp.util.MinHash;
+import com.johoco.springbatchpgaiapp.util.TextNormalizer;
 import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.AllMiniLmL6V2EmbeddingModel;
 import dev.langchain4j.store.embedding.EmbeddingStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -16,9 +27,16 @@ import org.springframework.test.util.ReflectionTestUtils;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class DocumentProcessorTest {
@@ -28,7 +46,15 @@ class DocumentProcessorTest {
     
     @Mock
     private FileOperations fileOperations;
+
+    @Mock
+    private NearDuplicateDetector nearDuplicateDetector;
+
+    @Mock
+    private EmbeddingChunkRepository embeddingChunkRepository;
     
+    private EmbeddingPipeline embeddingPipeline;
+
     private DocumentProcessor documentProcessor;
     
     @TempDir
@@ -37,13 +63,21 @@ class DocumentProcessorTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        documentProcessor = new DocumentProcessor(embeddingStore, fileOperations);
+        embeddingPipeline = new EmbeddingPipeline(new AllMiniLmL6V2EmbeddingModel(), embeddingStore, new SimpleMeterRegistry());
+        embeddingPipeline.init();
+        documentProcessor = new DocumentProcessor(embeddingPipeline, embeddingChunkRepository, fileOperations,
+                nearDuplicateDetector, new TextNormalizer(), new CpuBoundExecutor(1, false));
         
         // Set application name and version via reflection
         ReflectionTestUtils.setField(documentProcessor, "applicationName", "test-app");
         ReflectionTestUtils.setField(documentProcessor, "applicationVersion", "1.0.0");
     }
     
+    @AfterEach
+    void tearDown() {
+        embeddingPipeline.shutdown();
+    }
+
     @Test
     void testProcessValidFile() throws Exception {
         // Given
@@ -52,6 +86,9 @@ class DocumentProcessorTest {
         Files.writeString(testFile, content);
         File file = testFile.toFile();
         
+        when(fileOperations.streamFileContent(file)).thenAnswer(invocation -> Stream.of(new TextBlock(content, 0, 0)));
+        when(fileOperations.getFileSize(file)).thenReturn((long) content.length());
+        
         // When
         Document result = documentProcessor.process(file);
         
@@ -65,7 +102,7 @@ class DocumentProcessorTest {
         assertNotNull(result.getEmbedding(), "Embedding should not be null");
         
         // Verify embedding store was called
-        verify(embeddingStore, times(1)).add(any(), any(TextSegment.class));
+        verify(embeddingStore, times(1)).addAll(anyList(), anyList());
         
         // Verify metadata was set
         assertNotNull(result.getMetadata(), "Metadata should not be null");
@@ -93,17 +130,185 @@ class DocumentProcessorTest {
         Files.writeString(testFile, "");
         File file = testFile.toFile();
         
-        when(fileOperations.readFileContent(any(File.class))).thenReturn("");
+        when(fileOperations.streamFileContent(any(File.class))).thenAnswer(invocation -> Stream.empty());
         
         // When
         Document result = documentProcessor.process(file);
         
         // Then
         assertNull(result, "Result should be null for empty file");
-        verify(fileOperations).readFileContent(file);
+        verify(fileOperations, atLeastOnce()).streamFileContent(file);
         verifyNoInteractions(embeddingStore);
     }
     
+    @Test
+    void testProcessNearDuplicateStoresReference() throws Exception {
+        // Given
+        String content = "This is a test document for processing";
+        Path testFile = tempDir.resolve("copy.txt");
+        Files.writeString(testFile, content);
+        File file = testFile.toFile();
+        int[] signature = new MinHash(4, 2, 1).signature(content);
+
+        when(fileOperations.streamFileContent(file)).thenAnswer(invocation -> Stream.of(new TextBlock(content, 0, 0)));
+        when(fileOperations.getFileSize(file)).thenReturn((long) content.length());
+        when(nearDuplicateDetector.newSignature()).thenAnswer(invocation -> new MinHash(4, 2, 1).accumulator());
+        when(nearDuplicateDetector.findCanonical(eq("copy.txt"), aryEq(signature)))
+                .thenReturn(Optional.of(new NearDuplicate("original.txt", 0.95)));
+
+        // When
+        Document result = documentProcessor.process(file);
+
+        // Then
+        assertNotNull(result, "Duplicate should still produce a document");
+        assertEquals(DocumentStatus.DUPLICATE, result.getStatus());
+        assertNull(result.getContent(), "Duplicate should not store content");
+        assertNull(result.getEmbedding(), "Duplicate should not store an embedding");
+        assertEquals("original.txt", result.getMetadata().getDuplicateOf());
+        assertEquals(0.95, result.getMetadata().getDuplicateSimilarity(), 1e-9);
+        verifyNoInteractions(embeddingStore);
+        verify(nearDuplicateDetector, never()).index(anyString(), any());
+    }
+
+    @Test
+    void testProcessIndexesSignatureOfNewDocument() throws Exception {
+        // Given
+        String content = "This is a test document for processing";
+        Path testFile = tempDir.resolve("test.txt");
+        Files.writeString(testFile, content);
+        File file = testFile.toFile();
+        int[] signature = new MinHash(4, 2, 1).signature(content);
+
+        when(fileOperations.streamFileContent(file)).thenAnswer(invocation -> Stream.of(new TextBlock(content, 0, 0)));
+        when(nearDuplicateDetector.newSignature()).thenAnswer(invocation -> new MinHash(4, 2, 1).accumulator());
+
+        // When
+        Document result = documentProcessor.process(file);
+
+        // Then
+        assertEquals(DocumentStatus.PROCESSED, result.getStatus());
+        verify(nearDuplicateDetector).index(eq("test.txt"), aryEq(signature));
+    }
+
+    @Test
+    void testReprocessingDeletesPreviousChunksBeforeStoringNewOnes() throws Exception {
+        // Given a changed file whose earlier version left chunks behind
+        File file = writeFile("test.txt", "This is the second version of the document");
+        when(embeddingChunkRepository.deleteByFilename("test.txt")).thenReturn(3);
+
+        // When
+        Document result = documentProcessor.process(file);
+
+        // Then
+        assertEquals(DocumentStatus.PROCESSED, result.getStatus());
+        InOrder order = inOrder(embeddingChunkRepository, embeddingStore);
+        order.verify(embeddingChunkRepository).deleteByFilename("test.txt");
+        order.verify(embeddingStore).addAll(anyList(), anyList());
+    }
+
+    @Test
+    void testNearDuplicateDeletesItsPreviousChunks() throws Exception {
+        // Given a file that used to be indexed on its own and is now a near-duplicate
+        File file = writeFile("copy.txt", "This is a test document for processing");
+        when(nearDuplicateDetector.findCanonical(eq("copy.txt"), any()))
+                .thenReturn(Optional.of(new NearDuplicate("original.txt", 0.95)));
+
+        // When
+        Document result = documentProcessor.process(file);
+
+        // Then
+        assertEquals(DocumentStatus.DUPLICATE, result.getStatus());
+        verify(embeddingChunkRepository).deleteByFilename("copy.txt");
+        verifyNoInteractions(embeddingStore);
+    }
+
+    @Test
+    void testSameNamedFilesInDifferentFoldersAreDifferentDocuments() throws Exception {
+        // Given report.txt in two folders of the same source, processed by two jobs
+        String content = "This is a test document for processing";
+        File first = writeFile("a/report.txt", content);
+        File second = writeFile("b/report.txt", content);
+        DocumentProcessor firstJob = processorForJob("team-a", "a/report.txt");
+        DocumentProcessor secondJob = processorForJob("team-a", "b/report.txt");
+
+        // When
+        Document firstDocument = firstJob.process(first);
+        Document secondDocument = secondJob.process(second);
+
+        // Then
+        assertEquals("team-a:a/report.txt", firstDocument.getFilename());
+        assertEquals("team-a:b/report.txt", secondDocument.getFilename());
+        assertEquals("report.txt", firstDocument.getMetadata().getOriginalFilename());
+        verify(nearDuplicateDetector).findCanonical(eq("team-a:a/report.txt"), any());
+        verify(nearDuplicateDetector).index(eq("team-a:b/report.txt"), any());
+
+        ArgumentCaptor<List<TextSegment>> segments = ArgumentCaptor.forClass(List.class);
+        verify(embeddingStore, times(2)).addAll(anyList(), segments.capture());
+        assertEquals("team-a:a/report.txt",
+                segments.getAllValues().get(0).get(0).metadata().get(EmbeddingChunkRepository.FILENAME_KEY));
+        assertEquals("team-a:b/report.txt",
+                segments.getAllValues().get(1).get(0).metadata().get(EmbeddingChunkRepository.FILENAME_KEY));
+    }
+
+    @Test
+    void testStoreFailureDeletesTheDocumentsChunksAndFailsTheItem() throws Exception {
+        // Given
+        File file = writeFile("test.txt", "This is a test document for processing");
+        doThrow(new IllegalStateException("database down")).when(embeddingStore).addAll(anyList(), anyList());
+
+        // When
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> documentProcessor.process(file));
+
+        // Then
+        assertEquals("database down", e.getMessage());
+        InOrder order = inOrder(embeddingStore, embeddingChunkRepository);
+        order.verify(embeddingStore).addAll(anyList(), anyList());
+        order.verify(embeddingChunkRepository).deleteByFilename("test.txt");
+        verify(nearDuplicateDetector, never()).index(anyString(), any());
+    }
+
+    @Test
+    void testContentLongerThanTheLimitIsEmbeddedButNotStored() throws Exception {
+        // Given a document whose blocks together exceed the stored length
+        ReflectionTestUtils.setField(documentProcessor, "maxStoredContentLength", 50);
+        String first = "The first block of a long document.\n";
+        String second = "The second block of the same long document.";
+        File file = writeFile("long.txt", first + second);
+        when(fileOperations.streamFileContent(file)).thenAnswer(invocation -> Stream.of(
+                new TextBlock(first, 0, 0), new TextBlock(second, first.length(), 0)));
+        int[] signature = new MinHash(4, 2, 1).signature(first + second);
+        when(nearDuplicateDetector.newSignature()).thenAnswer(invocation -> new MinHash(4, 2, 1).accumulator());
+
+        // When
+        Document result = documentProcessor.process(file);
+
+        // Then
+        assertEquals(DocumentStatus.PROCESSED, result.getStatus());
+        assertNull(result.getContent(), "Content over the limit should not be stored");
+        assertNotNull(result.getEmbedding());
+        verify(nearDuplicateDetector).index(eq("long.txt"), aryEq(signature));
+        ArgumentCaptor<List<TextSegment>> segments = ArgumentCaptor.forClass(List.class);
+        verify(embeddingStore).addAll(anyList(), segments.capture());
+        assertEquals(first + second, segments.getValue().get(0).text());
+    }
+
+    private DocumentProcessor processorForJob(String source, String fileName) {
+        DocumentProcessor processor = new DocumentProcessor(embeddingPipeline, embeddingChunkRepository, fileOperations, nearDuplicateDetector,
+                new TextNormalizer(), new CpuBoundExecutor(1, false));
+        ReflectionTestUtils.setField(processor, "jobSource", source);
+        ReflectionTestUtils.setField(processor, "jobFileName", fileName);
+        return processor;
+    }
+
+    private File writeFile(String relativePath, String content) throws Exception {
+        Path path = tempDir.resolve(relativePath);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, content);
+        File file = path.toFile();
+        when(fileOperations.streamFileContent(file)).thenAnswer(invocation -> Stream.of(new TextBlock(content, 0, 0)));
+        return file;
+    }
+
     // Note: The file tracking functionality has been moved out of DocumentProcessor
     // as part of the refactoring to create the FileOperations class
 }
@@ -0,0 +1,195 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import com.johoco.springbatchpgaiapp.util.Vectors;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class EmbeddingPipelineTest {
+
+    @Mock
+    private EmbeddingModel embeddingModel;
+
+    @Mock
+    private EmbeddingStore<TextSegment> embeddingStore;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private EmbeddingPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // Each segment "n" embeds to a distinct vector, so the centroid depends on every batch
+        when(embeddingModel.embedAll(anyList())).thenAnswer(invocation -> {
+            List<TextSegment> segments = invocation.getArgument(0);
+            return Response.from(segments.stream()
+                    .map(segment -> Embedding.from(new float[] {1f, Float.parseFloat(segment.text())}))
+                    .collect(Collectors.toList()));
+        });
+        meterRegistry = new SimpleMeterRegistry();
+        pipeline = new EmbeddingPipeline(embeddingModel, embeddingStore, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    void testPipelinedModeStoresEveryBatchAndMatchesSequentialCentroid() {
+        // Given
+        ReflectionTestUtils.setField(pipeline, "embedQueueCapacity", 1);
+        ReflectionTestUtils.setField(pipeline, "storeQueueCapacity", 1);
+        pipeline.init();
+        Vectors.CentroidAccumulator pipelined = new Vectors.CentroidAccumulator();
+
+        // When
+        pipeline.process("doc.txt", batches(20, 3).iterator(), pipelined);
+
+        // Then
+        verify(embeddingStore, times(20)).addAll(anyList(), anyList());
+        Vectors.CentroidAccumulator sequential = new Vectors.CentroidAccumulator();
+        batches(20, 3).stream().flatMap(List::stream)
+                .forEach(segment -> sequential.add(Embedding.from(new float[] {1f, Float.parseFloat(segment.text())})));
+        assertEquals(60, pipelined.count());
+        assertArrayEquals(sequential.centroid(), pipelined.centroid());
+    }
+
+    @Test
+    void testInFlightBatchesAreBoundedPerDocument() {
+        // Given
+        ReflectionTestUtils.setField(pipeline, "maxInFlightPerDocument", 2);
+        pipeline.init();
+        AtomicInteger submitted = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+        AtomicInteger stored = new AtomicInteger();
+        doAnswer(invocation -> {
+            stored.incrementAndGet();
+            return null;
+        }).when(embeddingStore).addAll(anyList(), anyList());
+        List<List<TextSegment>> batches = batches(10, 2);
+
+        // When
+        pipeline.process("doc.txt", IntStream.range(0, batches.size()).mapToObj(i -> {
+            submitted.incrementAndGet();
+            maxAhead.accumulateAndGet(submitted.get() - stored.get(), Math::max);
+            return batches.get(i);
+        }).iterator(), new Vectors.CentroidAccumulator());
+
+        // Then
+        assertEquals(10, stored.get());
+        assertTrue(maxAhead.get() <= 2, "Splitting should run at most 2 batches ahead of storing, was " + maxAhead.get());
+    }
+
+    @Test
+    void testStoreFailureIsRethrown() {
+        // Given
+        pipeline.init();
+        doThrow(new IllegalStateException("database down")).when(embeddingStore).addAll(anyList(), anyList());
+
+        // When / Then
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> pipeline.process("doc.txt", batches(3, 2).iterator(), new Vectors.CentroidAccumulator()));
+        assertEquals("database down", e.getMessage());
+    }
+
+    @Test
+    void testNoBatchIsStoredAfterAFailureIsRethrown() {
+        // Given a store that fails on the first batch once the other seven are queued behind it
+        ReflectionTestUtils.setField(pipeline, "storeThreads", 1);
+        ReflectionTestUtils.setField(pipeline, "maxInFlightPerDocument", 8);
+        pipeline.init();
+        ThreadPoolExecutor storeStage = (ThreadPoolExecutor) ReflectionTestUtils.getField(pipeline, "storeStage");
+        AtomicInteger stores = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (stores.incrementAndGet() == 1) {
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (storeStage.getQueue().size() < 7 && System.nanoTime() < deadline) {
+                    Thread.sleep(1);
+                }
+                throw new IllegalStateException("database down");
+            }
+            return null;
+        }).when(embeddingStore).addAll(anyList(), anyList());
+
+        // When
+        assertThrows(IllegalStateException.class,
+                () -> pipeline.process("doc.txt", batches(8, 2).iterator(), new Vectors.CentroidAccumulator()));
+        int storesWhenRethrown = stores.get();
+        pipeline.shutdown();
+
+        // Then
+        assertEquals(storesWhenRethrown, stores.get(), "No batch may reach the store after the failure was rethrown");
+        assertEquals(1, storesWhenRethrown, "Batches queued behind the failure should be skipped");
+    }
+
+    @Test
+    void testSequentialModeSkipsEmptyBatches() {
+        // Given
+        ReflectionTestUtils.setField(pipeline, "enabled", false);
+        pipeline.init();
+        List<List<TextSegment>> batches = new ArrayList<>(batches(2, 2));
+        batches.add(1, Collections.emptyList());
+        Vectors.CentroidAccumulator centroid = new Vectors.CentroidAccumulator();
+
+        // When
+        pipeline.process("doc.txt", batches.iterator(), centroid);
+
+        // Then
+        assertEquals(4, centroid.count());
+        verify(embeddingModel, times(2)).embedAll(anyList());
+        verify(embeddingStore, times(2)).addAll(anyList(), anyList());
+        assertNull(meterRegistry.find(EmbeddingPipeline.QUEUE_DEPTH_METRIC).gauge(), "No stages should run in sequential mode");
+    }
+
+    @Test
+    void testStageMetricsAreRegistered() {
+        // Given
+        pipeline.init();
+
+        // When
+        pipeline.process("doc.txt", batches(4, 2).iterator(), new Vectors.CentroidAccumulator());
+
+        // Then
+        for (String stage : List.of(EmbeddingPipeline.STAGE_EMBED, EmbeddingPipeline.STAGE_STORE)) {
+            assertNotNull(meterRegistry.find(EmbeddingPipeline.QUEUE_DEPTH_METRIC).tag("stage", stage).gauge());
+            assertNotNull(meterRegistry.find(EmbeddingPipeline.ACTIVE_METRIC).tag("stage", stage).gauge());
+            assertEquals(4, meterRegistry.find(EmbeddingPipeline.LATENCY_METRIC).tag("stage", stage).timer().count());
+        }
+    }
+
+    private static List<List<TextSegment>> batches(int count, int size) {
+        List<List<TextSegment>> batches = new ArrayList<>();
+        for (int b = 0; b < count; b++) {
+            List<TextSegment> batch = new ArrayList<>();
+            for (int s = 0; s < size; s++) {
+                batch.add(TextSegment.from(String.valueOf(b * size + s)));
+            }
+            batches.add(batch);
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,144 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import com.johoco.springbatchpgaiapp.repository.FileClaimRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class FileClaimsTest {
+    private static final String NODE = "node-a";
+    private static final long LEASE_MS = 600_000;
+
+    @Mock
+    private FileClaimRepository repository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private FileClaims fileClaims;
+
+    private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        fileClaims = new FileClaims(repository, meterRegistry);
+        ReflectionTestUtils.setField(fileClaims, "enabled", true);
+        ReflectionTestUtils.setField(fileClaims, "nodeId", NODE);
+        setClock(now);
+        fileClaims.init();
+    }
+
+    @Test
+    void testDisabledClaimsNeverTouchTheDatabase() {
+        // Given
+        FileClaims disabled = new FileClaims(repository, new SimpleMeterRegistry());
+        disabled.init();
+
+        // When
+        boolean claimed = disabled.tryClaim("default:a.txt");
+        disabled.release("default:a.txt");
+        disabled.renew();
+
+        // Then
+        assertTrue(claimed);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void testUnclaimedFileIsClaimed() {
+        // Given
+        when(repository.insert("default:a.txt", NODE, LEASE_MS)).thenReturn(true);
+
+        // When
+        boolean claimed = fileClaims.tryClaim("default:a.txt");
+
+        // Then
+        assertTrue(claimed);
+        verify(repository, never()).takeOverExpired(any(), any(), anyLong());
+        assertEquals(1.0, meterRegistry.get(FileClaims.CLAIMS_METRIC).tag("outcome", "claimed").counter().count());
+    }
+
+    @Test
+    void testExpiredClaimOfCrashedNodeIsTakenOver() {
+        // Given
+        when(repository.insert(any(), any(), anyLong())).thenReturn(false);
+        when(repository.takeOverExpired("default:a.txt", NODE, LEASE_MS)).thenReturn("node-b");
+
+        // When
+        boolean claimed = fileClaims.tryClaim("default:a.txt");
+
+        // Then
+        assertTrue(claimed);
+        assertEquals(1.0, meterRegistry.get(FileClaims.CLAIMS_METRIC).tag("outcome", "taken-over").counter().count());
+    }
+
+    @Test
+    void testFileHeldElsewhereIsNotAskedAboutUntilItsLeaseIsDue() {
+        // Given
+        when(repository.insert(any(), any(), anyLong())).thenReturn(false);
+        when(repository.remainingLeaseMs("default:a.txt")).thenReturn(30_000L);
+
+        // When
+        boolean first = fileClaims.tryClaim("default:a.txt");
+        setClock(now.plus(Duration.ofSeconds(20)));
+        boolean beforeExpiry = fileClaims.tryClaim("default:a.txt");
+        setClock(now.plus(Duration.ofSeconds(31)));
+        boolean afterExpiry = fileClaims.tryClaim("default:a.txt");
+
+        // Then
+        assertFalse(first);
+        assertFalse(beforeExpiry);
+        assertFalse(afterExpiry);
+        verify(repository, times(2)).insert("default:a.txt", NODE, LEASE_MS);
+    }
+
+    @Test
+    void testDatabaseErrorRefusesTheClaim() {
+        // Given
+        when(repository.insert(any(), any(), anyLong())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        // When
+        boolean claimed = fileClaims.tryClaim("default:a.txt");
+
+        // Then
+        assertFalse(claimed);
+    }
+
+    @Test
+    void testOnlyHeldClaimsAreRenewedAndReleased() {
+        // Given
+        when(repository.insert(any(), any(), anyLong())).thenReturn(true);
+        fileClaims.tryClaim("default:a.txt");
+        fileClaims.tryClaim("default:b.txt");
+        fileClaims.release("default:a.txt");
+
+        // When
+        fileClaims.renew();
+        fileClaims.release("default:unknown.txt");
+
+        // Then
+        verify(repository).release("default:a.txt", NODE, 60_000);
+        verify(repository).renew(List.of("default:b.txt"), NODE, LEASE_MS);
+        verify(repository).deleteExpired();
+        verify(repository, never()).release(eq("default:unknown.txt"), any(), anyLong());
+    }
+
+    private void setClock(Instant instant) {
+        ReflectionTestUtils.setField(fileClaims, "clock", Clock.fixed(instant, ZoneOffset.UTC));
+    }
+}
@@ -1,126 +1,181 @@
 package com.johoco.springbatchpgaiapp.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.ExitStatus;
 import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import com.johoco.springbatchpgaiapp.batch.DocumentJobListener;
+import com.johoco.springbatchpgaiapp.config.InputSourceProperties;
+import com.johoco.springbatchpgaiapp.repository.FileClaimRepository;
 import com.johoco.springbatchpgaiapp.util.FileOperations;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class FileWatcherServiceTest {
+    private static final String SOURCE = "team-a";
 
     @Mock
     private JobLauncher jobLauncher;
-    
+
     @Mock
     private Job processDocumentJob;
-    
+
     @Mock
+    private FileClaimRepository fileClaimRepository;
+
     private FileOperations fileOperations;
-    
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MemoryBudget memoryBudget;
+
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private PendingFileScheduler pendingFileScheduler;
+
+    private InputSourceProperties inputSourceProperties;
+
+    private InputSources inputSources;
+
+    private DirectoryCrawler directoryCrawler;
+
+    private FileClaims fileClaims;
+
     private FileWatcherService fileWatcherService;
-    
-    private String failedDirectory = "failed";
-    
+
     @TempDir
     Path tempDir;
-    
+
+    @TempDir
+    Path indexDir;
+
     @BeforeEach
-    void setUp() throws NoSuchFieldException, IllegalAccessException {
+    void setUp() throws Exception {
         MockitoAnnotations.openMocks(this);
-        // Using reflection to set the fields since we can't use constructor with all fields
-        fileWatcherService = new FileWatcherService(jobLauncher, processDocumentJob, fileOperations);
-        
-        // Use reflection to set the inputDirectory field
-        java.lang.reflect.Field field = FileWatcherService.class.getDeclaredField("inputDirectory");
-        field.setAccessible(true);
-        field.set(fileWatcherService, tempDir.toString());
-        
-        // Use reflection to set the failedDirectory field for testing
-        field = FileWatcherService.class.getDeclaredField("failedDirectory");
-        field.setAccessible(true);
-        field.set(fileWatcherService, failedDirectory);
-    }
-    
+        fileOperations = spy(new FileOperations());
+        meterRegistry = new SimpleMeterRegistry();
+        memoryBudget = new MemoryBudget(meterRegistry);
+        memoryBudget.init();
+        concurrencyLimit = new AdaptiveConcurrencyLimit(meterRegistry);
+        concurrencyLimit.init();
+        pendingFileScheduler = new PendingFileScheduler(fileOperations);
+        inputSourceProperties = new InputSourceProperties();
+        inputSourceProperties.setSources(List.of(source(SOURCE, tempDir.toString(), 0)));
+        inputSources = new InputSources(inputSourceProperties, pendingFileScheduler, meterRegistry);
+        inputSources.init();
+        directoryCrawler = new DirectoryCrawler(meterRegistry);
+        ReflectionTestUtils.setField(directoryCrawler, "indexFile", indexDir.resolve("index.tsv").toString());
+        directoryCrawler.init();
+        fileClaims = new FileClaims(fileClaimRepository, meterRegistry);
+        ReflectionTestUtils.setField(fileClaims, "enabled", true);
+        ReflectionTestUtils.setField(fileClaims, "nodeId", "node-a");
+        fileClaims.init();
+        when(fileClaimRepository.insert(anyString(), anyString(), anyLong())).thenReturn(true);
+        fileWatcherService = new FileWatcherService(jobLauncher, processDocumentJob, fileOperations, memoryBudget, concurrencyLimit,
+                pendingFileScheduler, inputSources, directoryCrawler, fileClaims);
+    }
+
     @Test
     void testWatchDirectoryWithNoFiles() throws Exception {
         // Given an empty directory
-        
+
         // When
         fileWatcherService.watchDirectory();
-        
+
         // Then
         verifyNoInteractions(jobLauncher);
-        verifyNoInteractions(fileOperations);
+        verifyNoInteractions(fileClaimRepository);
     }
-    
+
     @Test
     void testWatchDirectoryWithOneFile() throws Exception {
         // Given
         Path testFile = tempDir.resolve("test.txt");
         Files.writeString(testFile, "Test content");
-        
+
         JobExecution mockExecution = mock(JobExecution.class);
         when(mockExecution.getExitStatus()).thenReturn(ExitStatus.COMPLETED);
         when(jobLauncher.run(eq(processDocumentJob), any(JobParameters.class))).thenReturn(mockExecution);
-        
+
         // When
         fileWatcherService.watchDirectory();
-        
+
         // Then
-        verify(jobLauncher, times(1)).run(eq(processDocumentJob), any(JobParameters.class));
-        verifyNoMoreInteractions(fileOperations); // File should be moved by DocumentWriter
+        JobParameters parameters = launchedParameters().get(0);
+        assertEquals("test.txt", parameters.getString(DocumentJobListener.FILE_NAME_PARAMETER));
+        assertEquals(SOURCE, parameters.getString(DocumentJobListener.SOURCE_PARAMETER));
+        assertEquals(tempDir.toString(), parameters.getString(DocumentJobListener.INPUT_DIRECTORY_PARAMETER));
+        verify(fileClaimRepository).insert("team-a:test.txt", "node-a", 600_000);
+        verifyNoFileMoved(); // File should be moved by DocumentWriter
     }
-    
+
     @Test
     void testWatchDirectoryWithFailedJob() throws Exception {
         // Given
         Path testFile = tempDir.resolve("error.txt");
         Files.writeString(testFile, "Error content");
-        
+
         JobExecution mockExecution = mock(JobExecution.class);
         when(mockExecution.getExitStatus()).thenReturn(ExitStatus.FAILED);
         when(jobLauncher.run(eq(processDocumentJob), any(JobParameters.class))).thenReturn(mockExecution);
-        
+
         // When
         fileWatcherService.watchDirectory();
-        
-        // Then
+        fileWatcherService.watchDirectory();
+
+        // Then the job was launched once, and its writer, not the watcher, moves the file
         verify(jobLauncher, times(1)).run(eq(processDocumentJob), any(JobParameters.class));
-        verify(fileOperations, times(1)).moveToFailed(any(File.class), eq(failedDirectory));
+        verifyNoFileMoved();
     }
-    
+
     @Test
     void testWatchDirectoryWithException() throws Exception {
         // Given
         Path testFile = tempDir.resolve("exception.txt");
         Files.writeString(testFile, "Exception content");
-        
+
         when(jobLauncher.run(eq(processDocumentJob), any(JobParameters.class)))
             .thenThrow(new RuntimeException("Test exception"));
-        
+
         // When
         fileWatcherService.watchDirectory();
-        
-        // Then
+
+        // Then everything taken for the launch is given back, and the file is retried on the next poll
         verify(jobLauncher, times(1)).run(eq(processDocumentJob), any(JobParameters.class));
-        verify(fileOperations, times(1)).moveToFailed(any(File.class), eq(failedDirectory));
+        assertNothingHeld();
+        verify(fileClaimRepository).release(eq("team-a:exception.txt"), eq("node-a"), anyLong());
+
+        fileWatcherService.watchDirectory();
+        verify(jobLauncher, times(2)).run(eq(processDocumentJob), any(JobParameters.class));
+        verifyNoFileMoved();
     }
-    
+
     @Test
     void testWatchDirectoryWithMultipleFiles() throws Exception {
         // Given
@@ -128,47 +183,216 @@ class FileWatcherServiceTest {
         Path testFile2 = tempDir.resolve("test2.txt");
         Files.writeString(testFile1, "Test content 1");
         Files.writeString(testFile2, "Test content 2");
-        
+
         JobExecution mockExecution = mock(JobExecution.class);
         when(mockExecution.getExitStatus()).thenReturn(ExitStatus.COMPLETED);
         when(jobLauncher.run(eq(processDocumentJob), any(JobParameters.class))).thenReturn(mockExecution);
-        
+
         // When
         fileWatcherService.watchDirectory();
-        
+
         // Then
         verify(jobLauncher, times(2)).run(eq(processDocumentJob), any(JobParameters.class));
-        verifyNoMoreInteractions(fileOperations);
+        verifyNoFileMoved();
     }
-    
+
     @Test
     void testWatchNonExistentDirectory() throws Exception {
-        // Given
-        // Create a new service instance with a non-existent directory
-        FileWatcherService service = new FileWatcherService(jobLauncher, processDocumentJob, fileOperations);
-        
-        try {
-            // Use reflection to set the inputDirectory field
-            java.lang.reflect.Field field = FileWatcherService.class.getDeclaredField("inputDirectory");
-            field.setAccessible(true);
-            field.set(service, tempDir.resolve("nonexistent").toString());
-            
-            // Use reflection to set the failedDirectory field for testing
-            field = FileWatcherService.class.getDeclaredField("failedDirectory");
-            field.setAccessible(true);
-            field.set(service, failedDirectory);
-        } catch (NoSuchFieldException | IllegalAccessException e) {
-            throw new RuntimeException("Error setting up test", e);
-        }
-        
+        // Given a source whose directory does not exist yet
+        Path missing = tempDir.resolve("nonexistent");
+        inputSourceProperties.setSources(List.of(source("missing", missing.toString(), 0)));
+        InputSources sources = new InputSources(inputSourceProperties, pendingFileScheduler, new SimpleMeterRegistry());
+        sources.init();
+        FileWatcherService service = new FileWatcherService(jobLauncher, processDocumentJob, fileOperations, memoryBudget, concurrencyLimit,
+                pendingFileScheduler, sources, directoryCrawler, fileClaims);
+
         // When
         service.watchDirectory();
-        
+
         // Then
         verifyNoInteractions(jobLauncher);
-        verifyNoInteractions(fileOperations);
-        
+        verifyNoFileMoved();
+
         // Directory should be created
-        assertTrue(Files.exists(tempDir.resolve("nonexistent")));
+        assertTrue(Files.exists(missing));
+    }
+
+    @Test
+    void testRefusalBySourceQuotaTakesNothingElse() throws Exception {
+        // Given a source whose only slot is taken
+        inputSourceProperties.setSources(List.of(source("quota", tempDir.toString(), 1)));
+        InputSources sources = new InputSources(inputSourceProperties, pendingFileScheduler, new SimpleMeterRegistry());
+        sources.init();
+        assertTrue(sources.tryAcquire("quota"));
+        Files.writeString(tempDir.resolve("a.txt"), "content");
+        FileWatcherService service = new FileWatcherService(jobLauncher, processDocumentJob, fileOperations, memoryBudget, concurrencyLimit,
+                pendingFileScheduler, sources, directoryCrawler, fileClaims);
+
+        // When
+        service.watchDirectory();
+
+        // Then
+        verifyNoInteractions(jobLauncher);
+        assertEquals(0, concurrencyLimit.getInFlight());
+        assertEquals(0, memoryBudget.getReservedBytes());
+        verifyNoInteractions(fileClaimRepository);
+    }
+
+    @Test
+    void testRefusalByConcurrencyLimitReleasesTheSourceSlot() throws Exception {
+        // Given every concurrency slot taken
+        while (concurrencyLimit.tryAcquire()) {
+            // Fill the limit
+        }
+        int running = concurrencyLimit.getInFlight();
+        Files.writeString(tempDir.resolve("a.txt"), "content");
+
+        // When
+        fileWatcherService.watchDirectory();
+
+        // Then
+        verifyNoInteractions(jobLauncher);
+        assertEquals(0.0, sourceInFlight());
+        assertEquals(running, concurrencyLimit.getInFlight());
+        assertEquals(0, memoryBudget.getReservedBytes());
+        verifyNoInteractions(fileClaimRepository);
+    }
+
+    @Test
+    void testRefusalByMemoryBudgetReleasesTheConcurrencyAndSourceSlots() throws Exception {
+        // Given a memory budget held entirely by another document
+        assertTrue(memoryBudget.tryAcquire("other", memoryBudget.getBudgetBytes()));
+        long reserved = memoryBudget.getReservedBytes();
+        Files.writeString(tempDir.resolve("a.txt"), "content");
+
+        // When
+        fileWatcherService.watchDirectory();
+
+        // Then
+        verifyNoInteractions(jobLauncher);
+        assertEquals(0.0, sourceInFlight());
+        assertEquals(0, concurrencyLimit.getInFlight());
+        assertEquals(reserved, memoryBudget.getReservedBytes());
+        verifyNoInteractions(fileClaimRepository);
+    }
+
+    @Test
+    void testRefusalByClaimReleasesTheMemoryConcurrencyAndSourceSlots() throws Exception {
+        // Given a file claimed by another instance
+        when(fileClaimRepository.insert(anyString(), anyString(), anyLong())).thenReturn(false);
+        when(fileClaimRepository.remainingLeaseMs("team-a:a.txt")).thenReturn(60_000L);
+        Files.writeString(tempDir.resolve("a.txt"), "content");
+
+        // When
+        fileWatcherService.watchDirectory();
+
+        // Then
+        verifyNoInteractions(jobLauncher);
+        assertNothingHeld();
+        verify(fileClaimRepository, never()).release(anyString(), anyString(), anyLong());
+    }
+
+    @Test
+    void testEndedJobReleasesEverythingItTook() throws Exception {
+        // Given a launched job
+        Files.writeString(tempDir.resolve("a.txt"), "content");
+        when(jobLauncher.run(eq(processDocumentJob), any(JobParameters.class))).thenReturn(mock(JobExecution.class));
+        fileWatcherService.watchDirectory();
+        assertEquals(1.0, sourceInFlight());
+        assertEquals(1, concurrencyLimit.getInFlight());
+        assertTrue(memoryBudget.getReservedBytes() > 0);
+
+        // When
+        JobExecution jobExecution = new JobExecution(new JobInstance(1L, "processDocumentJob"), launchedParameters().get(0));
+        jobExecution.setStatus(BatchStatus.FAILED);
+        new DocumentJobListener(memoryBudget, concurrencyLimit, inputSources, fileClaims, directoryCrawler).afterJob(jobExecution);
+
+        // Then
+        assertNothingHeld();
+        verify(fileClaimRepository).release(eq("team-a:a.txt"), eq("node-a"), anyLong());
+        assertEquals(1.0, meterRegistry.get(InputSources.COMPLETED_METRIC)
+                .tag("source", SOURCE).tag("status", "FAILED").counter().count());
+    }
+
+    @Test
+    void testLargeFileEventuallyLaunchesUnderAStreamOfSmallFiles() throws Exception {
+        // Given a large file needing 60% of the memory budget, two small files of 20% arriving
+        // every poll, and jobs that run for two polls
+        long budget = memoryBudget.getBudgetBytes();
+        ReflectionTestUtils.setField(memoryBudget, "expansionFactor", 1.0);
+        ReflectionTestUtils.setField(memoryBudget, "minReservationBytes", 1L);
+        ReflectionTestUtils.setField(concurrencyLimit, "enabled", false);
+        ReflectionTestUtils.setField(pendingFileScheduler, "agingPeriodMs", 1000L);
+        doAnswer(invocation -> {
+            File file = invocation.getArgument(0);
+            return file.getName().startsWith("large") ? budget * 6 / 10 : budget / 5;
+        }).when(fileOperations).getFileSize(any(File.class));
+        List<JobParameters> launches = new ArrayList<>();
+        when(jobLauncher.run(eq(processDocumentJob), any(JobParameters.class))).thenAnswer(invocation -> {
+            launches.add(invocation.getArgument(1));
+            return mock(JobExecution.class);
+        });
+        DocumentJobListener listener = new DocumentJobListener(memoryBudget, concurrencyLimit, inputSources, fileClaims, directoryCrawler);
+        Files.writeString(tempDir.resolve("large.txt"), "large");
+        Instant now = Instant.parse("2026-01-01T00:00:00Z");
+        List<List<JobParameters>> running = new ArrayList<>();
+        Integer largeLaunchedAtPoll = null;
+
+        // When
+        for (int poll = 0; poll < 20 && largeLaunchedAtPoll == null; poll++) {
+            ReflectionTestUtils.setField(pendingFileScheduler, "clock", Clock.fixed(now.plusSeconds(poll), ZoneOffset.UTC));
+            Files.writeString(tempDir.resolve("small-" + poll + "-a.txt"), "small");
+            Files.writeString(tempDir.resolve("small-" + poll + "-b.txt"), "small");
+            if (running.size() >= 2) {
+                for (JobParameters parameters : running.remove(0)) {
+                    JobExecution jobExecution = new JobExecution(new JobInstance(1L, "processDocumentJob"), parameters);
+                    jobExecution.setStatus(BatchStatus.COMPLETED);
+                    listener.afterJob(jobExecution);
+                }
+            }
+
+            int launchedBefore = launches.size();
+            fileWatcherService.watchDirectory();
+
+            List<JobParameters> launchedThisPoll = new ArrayList<>(launches.subList(launchedBefore, launches.size()));
+            running.add(launchedThisPoll);
+            if (launchedThisPoll.stream().anyMatch(parameters ->
+                    "large.txt".equals(parameters.getString(DocumentJobListener.FILE_NAME_PARAMETER)))) {
+                largeLaunchedAtPoll = poll;
+            }
+        }
+
+        // Then
+        assertNotNull(largeLaunchedAtPoll, "The large file should launch although small files keep arriving");
+    }
+
+    private void assertNothingHeld() {
+        assertEquals(0.0, sourceInFlight());
+        assertEquals(0, concurrencyLimit.getInFlight());
+        assertEquals(0, memoryBudget.getReservedBytes());
+    }
+
+    private double sourceInFlight() {
+        return meterRegistry.get(InputSources.IN_FLIGHT_METRIC).tag("source", SOURCE).gauge().value();
+    }
+
+    private List<JobParameters> launchedParameters() throws Exception {
+        ArgumentCaptor<JobParameters> parameters = ArgumentCaptor.forClass(JobParameters.class);
+        verify(jobLauncher, atLeastOnce()).run(eq(processDocumentJob), parameters.capture());
+        return parameters.getAllValues();
+    }
+
+    private void verifyNoFileMoved() throws Exception {
+        verify(fileOperations, never()).moveFile(any(File.class), anyString(), anyString(), anyBoolean());
+        verify(fileOperations, never()).moveToFailed(any(File.class), anyString());
+        verify(fileOperations, never()).moveToProcessed(any(File.class), anyString());
+    }
+
+    private static InputSourceProperties.Source source(String name, String directory, int maxConcurrent) {
+        InputSourceProperties.Source source = new InputSourceProperties.Source();
+        source.setName(name);
+        source.setDirectory(directory);
+        source.setMaxConcurrent(maxConcurrent);
+        return source;
     }
 }
@@ -0,0 +1,135 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import com.johoco.springbatchpgaiapp.config.InputSourceProperties;
+import com.johoco.springbatchpgaiapp.model.SchedulingPolicy;
+import com.johoco.springbatchpgaiapp.util.FileOperations;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class InputSourcesTest {
+
+    @Mock
+    private FileOperations fileOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PendingFileScheduler pendingFileScheduler;
+
+    private InputSourceProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        pendingFileScheduler = new PendingFileScheduler(fileOperations);
+        properties = new InputSourceProperties();
+        properties.setDirectory("input");
+    }
+
+    @Test
+    void testDefaultsToSingleInputDirectory() {
+        // Given
+        InputSources inputSources = new InputSources(properties, pendingFileScheduler, meterRegistry);
+
+        // When
+        inputSources.init();
+
+        // Then
+        assertEquals(1, inputSources.getSources().size());
+        assertEquals(InputSources.DEFAULT_SOURCE, inputSources.getSources().get(0).getName());
+        assertEquals("input", inputSources.getSources().get(0).getDirectory());
+    }
+
+    @Test
+    void testQuotaLimitsJobsPerSource() {
+        // Given
+        properties.setSources(List.of(source("team-a", "in/a", 1.0, 2), source("team-b", "in/b", 1.0, 0)));
+        InputSources inputSources = new InputSources(properties, pendingFileScheduler, meterRegistry);
+        inputSources.init();
+
+        // When / Then
+        assertTrue(inputSources.tryAcquire("team-a"));
+        assertTrue(inputSources.tryAcquire("team-a"));
+        assertFalse(inputSources.tryAcquire("team-a"), "team-a allows 2 jobs at once");
+        for (int i = 0; i < 10; i++) {
+            assertTrue(inputSources.tryAcquire("team-b"), "team-b has no quota");
+        }
+        inputSources.completed("team-a", "COMPLETED");
+        assertTrue(inputSources.tryAcquire("team-a"));
+    }
+
+    @Test
+    void testPublishesPerSourceMetrics() {
+        // Given
+        properties.setSources(List.of(source("team-a", "in/a", 1.0, 0)));
+        InputSources inputSources = new InputSources(properties, pendingFileScheduler, meterRegistry);
+        inputSources.init();
+
+        // When
+        inputSources.setBacklog("team-a", 42);
+        inputSources.tryAcquire("team-a");
+        inputSources.launched("team-a");
+        inputSources.tryAcquire("team-a");
+        inputSources.launched("team-a");
+        inputSources.completed("team-a", "COMPLETED");
+
+        // Then
+        assertEquals(42.0, meterRegistry.get(InputSources.BACKLOG_METRIC).tag("source", "team-a").gauge().value());
+        assertEquals(1.0, meterRegistry.get(InputSources.IN_FLIGHT_METRIC).tag("source", "team-a").gauge().value());
+        assertEquals(2.0, meterRegistry.get(InputSources.LAUNCHED_METRIC).tag("source", "team-a").counter().count());
+        assertEquals(1.0, meterRegistry.get(InputSources.COMPLETED_METRIC)
+                .tag("source", "team-a").tag("status", "COMPLETED").counter().count());
+    }
+
+    @Test
+    void testSourceWeightsDriveFairScheduling() {
+        // Given team-a weighted twice team-b, with files in nested folders
+        ReflectionTestUtils.setField(pendingFileScheduler, "policy", SchedulingPolicy.FAIR);
+        when(fileOperations.getFileSize(any(File.class))).thenReturn(1024L * 1024);
+        properties.setSources(List.of(source("team-a", "in/a", 2.0, 0), source("team-b", "in/b", 1.0, 0)));
+        new InputSources(properties, pendingFileScheduler, meterRegistry).init();
+        File a1 = new File("in/a/x/1.pdf");
+        File a2 = new File("in/a/y/2.pdf");
+        File a3 = new File("in/a/3.pdf");
+        File b1 = new File("in/b/1.pdf");
+        File b2 = new File("in/b/2.pdf");
+
+        // When
+        List<File> order = pendingFileScheduler.order(List.of(b1, b2, a1, a2, a3));
+
+        // Then team-a's subfolders share its queue and it gets two launches for each of team-b's
+        assertEquals(2, order.subList(0, 3).stream().filter(file -> file.getPath().startsWith(new File("in/a").getPath())).count());
+        assertEquals(a1, order.get(0));
+        assertEquals(b2, order.get(4));
+    }
+
+    @Test
+    void testRejectsDuplicateSourceNames() {
+        // Given
+        properties.setSources(List.of(source("team-a", "in/a", 1.0, 0), source("team-a", "in/b", 1.0, 0)));
+        InputSources inputSources = new InputSources(properties, pendingFileScheduler, meterRegistry);
+
+        // When / Then
+        assertThrows(IllegalStateException.class, inputSources::init);
+    }
+
+    private static InputSourceProperties.Source source(String name, String directory, double weight, int maxConcurrent) {
+        InputSourceProperties.Source source = new InputSourceProperties.Source();
+        source.setName(name);
+        source.setDirectory(directory);
+        source.setWeight(weight);
+        source.setMaxConcurrent(maxConcurrent);
+        return source;
+    }
+}
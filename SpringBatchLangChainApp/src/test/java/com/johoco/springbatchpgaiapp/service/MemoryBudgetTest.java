@@ -0,0 +1,84 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryBudgetTest {
+    private static final long MB = 1024 * 1024;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MemoryBudget memoryBudget;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        memoryBudget = new MemoryBudget(meterRegistry);
+        // A budget of about 100 MB whatever the test JVM's heap
+        ReflectionTestUtils.setField(memoryBudget, "heapFraction", 100.0 * MB / Runtime.getRuntime().maxMemory());
+        ReflectionTestUtils.setField(memoryBudget, "expansionFactor", 2.0);
+        memoryBudget.init();
+    }
+
+    @Test
+    void testAdmitsDocumentsUntilBudgetIsFull() {
+        // When / Then
+        assertTrue(memoryBudget.tryAcquire("a.pdf", 20 * MB));
+        assertTrue(memoryBudget.tryAcquire("b.pdf", 20 * MB));
+        assertFalse(memoryBudget.tryAcquire("c.pdf", 20 * MB), "80 MB are reserved, 40 MB more should not fit");
+        assertTrue(memoryBudget.tryAcquire("small.txt", 1024), "A small document should still fit");
+        assertEquals(1.0, meterRegistry.get(MemoryBudget.DENIED_METRIC).counter().count());
+    }
+
+    @Test
+    void testReleaseMakesRoomAndRecordsWait() {
+        // Given
+        assertTrue(memoryBudget.tryAcquire("a.pdf", 40 * MB));
+        assertFalse(memoryBudget.tryAcquire("b.pdf", 40 * MB));
+
+        // When
+        memoryBudget.release("a.pdf");
+
+        // Then
+        assertTrue(memoryBudget.tryAcquire("b.pdf", 40 * MB));
+        assertEquals(2, meterRegistry.get(MemoryBudget.WAIT_METRIC).timer().count());
+        assertEquals(80 * MB, memoryBudget.getReservedBytes());
+    }
+
+    @Test
+    void testDocumentInFlightIsNotAdmittedTwice() {
+        // Given
+        assertTrue(memoryBudget.tryAcquire("a.pdf", MB));
+
+        // When / Then
+        assertFalse(memoryBudget.tryAcquire("a.pdf", MB));
+        memoryBudget.release("a.pdf");
+        memoryBudget.release("a.pdf");
+        assertEquals(0, memoryBudget.getReservedBytes(), "Releasing twice should not return more than was reserved");
+    }
+
+    @Test
+    void testDocumentLargerThanBudgetRunsAlone() {
+        // When / Then
+        assertTrue(memoryBudget.tryAcquire("huge.pdf", 500 * MB));
+        assertEquals(memoryBudget.getBudgetBytes(), memoryBudget.getReservedBytes());
+        assertFalse(memoryBudget.tryAcquire("small.txt", 1024));
+        memoryBudget.release("huge.pdf");
+        assertTrue(memoryBudget.tryAcquire("small.txt", 1024));
+    }
+
+    @Test
+    void testDisabledBudgetAdmitsEverything() {
+        // Given
+        ReflectionTestUtils.setField(memoryBudget, "enabled", false);
+
+        // When / Then
+        assertTrue(memoryBudget.tryAcquire("huge.pdf", 500 * MB));
+        assertTrue(memoryBudget.tryAcquire("huge.pdf", 500 * MB));
+        assertEquals(0, memoryBudget.getReservedBytes());
+    }
+}
@@ -0,0 +1,154 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import com.johoco.springbatchpgaiapp.model.SchedulingPolicy;
+import com.johoco.springbatchpgaiapp.util.FileOperations;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PendingFileSchedulerTest {
+    private static final long MB = 1024 * 1024;
+
+    @Mock
+    private FileOperations fileOperations;
+
+    private PendingFileScheduler scheduler;
+
+    private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        scheduler = new PendingFileScheduler(fileOperations);
+        setClock(now);
+    }
+
+    @Test
+    void testSmallestFirst() {
+        // Given
+        File huge = file("in/huge.pdf", 500 * MB, 1);
+        File small = file("in/small.txt", 10 * 1024, 2);
+        File medium = file("in/medium.docx", 5 * MB, 3);
+
+        // When
+        List<File> order = scheduler.order(List.of(huge, small, medium));
+
+        // Then
+        assertEquals(List.of(small, medium, huge), order);
+    }
+
+    @Test
+    void testWaitingLargeFileAgesAheadOfNewSmallFiles() {
+        // Given a 1 MB file waiting 10 aging periods: 2^20 bytes aged to the rank of 2^10
+        ReflectionTestUtils.setField(scheduler, "agingPeriodMs", 1000L);
+        File large = file("in/large.pdf", MB, 1);
+        scheduler.order(List.of(large));
+        setClock(now.plus(Duration.ofSeconds(10)));
+        File newSmall = file("in/small.txt", 4096, 2);
+
+        // When
+        List<File> order = scheduler.order(List.of(newSmall, large));
+
+        // Then
+        assertEquals(List.of(large, newSmall), order);
+    }
+
+    @Test
+    void testOldestFirst() {
+        // Given
+        ReflectionTestUtils.setField(scheduler, "policy", SchedulingPolicy.OLDEST_FIRST);
+        File newest = file("in/a.txt", 1, 300);
+        File oldest = file("in/b.txt", 1, 100);
+        File middle = file("in/c.txt", 1, 200);
+
+        // When / Then
+        assertEquals(List.of(oldest, middle, newest), scheduler.order(List.of(newest, oldest, middle)));
+    }
+
+    @Test
+    void testFifoKeepsListingOrder() {
+        // Given
+        ReflectionTestUtils.setField(scheduler, "policy", SchedulingPolicy.FIFO);
+        File first = file("in/b.txt", MB, 1);
+        File second = file("in/a.txt", 1, 1);
+
+        // When / Then
+        assertEquals(List.of(first, second), scheduler.order(List.of(first, second)));
+    }
+
+    @Test
+    void testFairInterleavesFoldersByBytes() {
+        // Given a bulk folder and a folder with one small file arriving later
+        ReflectionTestUtils.setField(scheduler, "policy", SchedulingPolicy.FAIR);
+        File bulk1 = file("bulk/1.pdf", MB, 1);
+        File bulk2 = file("bulk/2.pdf", MB, 1);
+        File bulk3 = file("bulk/3.pdf", MB, 1);
+        File other = file("other/1.txt", 10 * 1024, 1);
+
+        // When
+        List<File> order = scheduler.order(List.of(bulk1, bulk2, bulk3, other));
+
+        // Then
+        assertEquals(List.of(other, bulk1, bulk2, bulk3), order);
+    }
+
+    @Test
+    void testFairChargesLaunchedBytesAcrossPolls() {
+        // Given
+        ReflectionTestUtils.setField(scheduler, "policy", SchedulingPolicy.FAIR);
+        File a1 = file("a/1.pdf", MB, 1);
+        File a2 = file("a/2.pdf", MB, 1);
+        File b1 = file("b/1.pdf", MB, 1);
+        File b2 = file("b/2.pdf", MB, 1);
+        scheduler.order(List.of(a1, a2, b1, b2));
+        scheduler.launched(a1);
+
+        // When folder a already had a file launched
+        List<File> order = scheduler.order(List.of(a2, b1, b2));
+
+        // Then b goes first
+        assertEquals(b1, order.get(0));
+    }
+
+    @Test
+    void testFairRespectsWeights() {
+        // Given folder a weighted three times b
+        ReflectionTestUtils.setField(scheduler, "policy", SchedulingPolicy.FAIR);
+        scheduler.setFolderWeight(new File("a").getAbsolutePath(), 3.0);
+        List<File> files = List.of(
+                file("a/1", MB, 1), file("a/2", MB, 1), file("a/3", MB, 1), file("a/4", MB, 1),
+                file("b/1", MB, 1), file("b/2", MB, 1));
+
+        // When
+        List<String> folders = scheduler.order(files).stream()
+                .map(file -> file.getParentFile().getName())
+                .collect(Collectors.toList());
+
+        // Then a gets three launches for each of b's
+        assertEquals(List.of("a", "a", "a", "b", "a", "b"), folders);
+    }
+
+    private File file(String path, long size, long lastModified) {
+        File file = new File(path);
+        when(fileOperations.getFileSize(file)).thenReturn(size);
+        when(fileOperations.getLastModified(file)).thenReturn(lastModified);
+        return file;
+    }
+
+    private void setClock(Instant instant) {
+        ReflectionTestUtils.setField(scheduler, "clock", Clock.fixed(instant, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,51 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CpuBoundExecutorTest {
+
+    @Test
+    void testRunsOnCallerWhenNotOffloading() throws Exception {
+        // Given
+        try (CpuBoundExecutor executor = new CpuBoundExecutor(2, false)) {
+            // When
+            Thread thread = executor.call(Thread::currentThread);
+
+            // Then
+            assertSame(Thread.currentThread(), thread);
+        }
+    }
+
+    @Test
+    void testRunsOnPoolWhenOffloading() throws Exception {
+        // Given
+        try (CpuBoundExecutor executor = new CpuBoundExecutor(2, true)) {
+            // When
+            String threadName = executor.call(() -> Thread.currentThread().getName());
+
+            // Then
+            assertTrue(threadName.startsWith("cpu-bound-"), "Work should run on the CPU pool, ran on " + threadName);
+        }
+    }
+
+    @Test
+    void testRethrowsTaskException() {
+        // Given
+        try (CpuBoundExecutor executor = new CpuBoundExecutor(1, true)) {
+            // When / Then
+            IOException e = assertThrows(IOException.class, () -> executor.call(() -> {
+                throw new IOException("unreadable");
+            }));
+            assertEquals("unreadable", e.getMessage());
+        }
+    }
+
+    @Test
+    void testRejectsEmptyPool() {
+        assertThrows(IllegalArgumentException.class, () -> new CpuBoundExecutor(0, true));
+    }
+}
@@ -0,0 +1,92 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileOperationsTest {
+
+    @TempDir
+    Path inputDir;
+
+    @TempDir
+    Path outputDir;
+
+    private final FileOperations fileOperations = new FileOperations();
+
+    @Test
+    void testSameNamedFilesFromDifferentSourcesKeepTheirRelativePaths() throws Exception {
+        // Given
+        Path fromA = write("team-a/reports/q1.txt", "from a");
+        Path fromB = write("team-b/reports/q1.txt", "from b");
+
+        // When
+        File movedA = fileOperations.moveFile(fromA.toFile(), outputDir.toString(), "team-a/reports/q1.txt", false);
+        File movedB = fileOperations.moveFile(fromB.toFile(), outputDir.toString(), "team-b/reports/q1.txt", false);
+
+        // Then
+        assertEquals(outputDir.resolve("team-a/reports"), movedA.toPath().getParent());
+        assertEquals(outputDir.resolve("team-b/reports"), movedB.toPath().getParent());
+        assertEquals("from a", Files.readString(movedA.toPath()));
+        assertEquals("from b", Files.readString(movedB.toPath()));
+        assertFalse(Files.exists(fromA));
+        assertFalse(Files.exists(fromB));
+    }
+
+    @Test
+    void testMoveNeverReplacesAnExistingFile() throws Exception {
+        // Given three files moved to the same relative path within the same second
+        List<File> moved = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            Path file = write("q1-" + i + ".txt", "content " + i);
+            moved.add(fileOperations.moveFile(file.toFile(), outputDir.toString(), "reports/q1.txt", true));
+        }
+
+        // Then
+        assertEquals(3, moved.stream().distinct().count());
+        List<String> contents;
+        try (Stream<Path> files = Files.list(outputDir.resolve("reports"))) {
+            contents = files.map(path -> {
+                try {
+                    return Files.readString(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).sorted().collect(Collectors.toList());
+        }
+        assertEquals(List.of("content 0", "content 1", "content 2"), contents);
+    }
+
+    @Test
+    void testRelativePathCannotEscapeTheTargetDirectory() throws Exception {
+        // Given
+        Path file = write("a.txt", "a");
+
+        // When
+        File moved = fileOperations.moveFile(file.toFile(), outputDir.toString(), "../../a.txt", false);
+
+        // Then
+        assertEquals(outputDir, moved.toPath().getParent());
+        assertTrue(moved.getName().startsWith("a."));
+        assertTrue(moved.getName().endsWith(".txt"));
+    }
+
+    private Path write(String relativePath, String content) throws Exception {
+        Path path = inputDir.resolve(relativePath);
+        Files.createDirectories(path.getParent());
+        return Files.writeString(path, content);
+    }
+}
@@ -0,0 +1,77 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFileReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testDecodesMultiByteCharactersAcrossWindowBoundaries() throws IOException {
+        // Given
+        String text = "naïve café – déjà vu €€€ ✓";
+        Path file = tempDir.resolve("utf8.txt");
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+
+        // When
+        String decoded;
+        try (Reader reader = new MappedFileReader(file, StandardCharsets.UTF_8, CodingErrorAction.REPORT, 5)) {
+            decoded = readAll(reader);
+        }
+
+        // Then
+        assertEquals(text, decoded);
+    }
+
+    @Test
+    void testMalformedInputIsReplacedOrReported() throws IOException {
+        // Given
+        Path file = tempDir.resolve("broken.txt");
+        Files.write(file, new byte[] {'a', (byte) 0xC3, 'b'});
+
+        // When / Then
+        try (Reader reader = new MappedFileReader(file, StandardCharsets.UTF_8, MappedFileReader.errorAction("replace"))) {
+            assertEquals("a\uFFFDb", readAll(reader));
+        }
+        try (Reader reader = new MappedFileReader(file, StandardCharsets.UTF_8, MappedFileReader.errorAction("REPORT"))) {
+            assertThrows(CharacterCodingException.class, () -> readAll(reader));
+        }
+    }
+
+    @Test
+    void testEmptyFileReachesEndImmediately() throws IOException {
+        Path file = tempDir.resolve("empty.txt");
+        Files.write(file, new byte[0]);
+
+        try (Reader reader = new MappedFileReader(file, StandardCharsets.UTF_8, CodingErrorAction.REPLACE)) {
+            assertEquals(-1, reader.read(new char[8]));
+        }
+    }
+
+    @Test
+    void testUnknownPolicyIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> MappedFileReader.errorAction("skip"));
+    }
+
+    private static String readAll(Reader reader) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        char[] buffer = new char[3];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            builder.append(buffer, 0, read);
+        }
+        return builder.toString();
+    }
+}
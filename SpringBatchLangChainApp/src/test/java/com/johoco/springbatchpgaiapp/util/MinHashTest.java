@@ -0,0 +1,105 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinHashTest {
+
+    private static final String TEXT = "Spring Batch reads each document from the input directory, splits it into chunks, "
+            + "embeds every chunk with the MiniLM model and stores the vectors in PostgreSQL so that "
+            + "semantic search can find the passages closest to a natural language query. Documents that "
+            + "fail to process are moved to the failed directory and can be retried later by the operator.";
+
+    private final MinHash minHash = new MinHash(128, 5, 42L);
+
+    @Test
+    void testIdenticalTextsHaveIdenticalSignatures() {
+        assertEquals(1.0, MinHash.similarity(minHash.signature(TEXT), minHash.signature(TEXT)));
+    }
+
+    @Test
+    void testCaseWhitespaceAndPunctuationAreIgnored() {
+        // Given
+        String reformatted = TEXT.toUpperCase().replace(" ", "\n  ").replace(",", "").replace(".", " .");
+
+        // When
+        double similarity = MinHash.similarity(minHash.signature(TEXT), minHash.signature(reformatted));
+
+        // Then
+        assertEquals(1.0, similarity);
+    }
+
+    @Test
+    void testSmallEditKeepsSignaturesSimilar() {
+        // Given
+        String edited = TEXT.replace("retried later", "retried afterwards");
+
+        // When
+        double similarity = MinHash.similarity(minHash.signature(TEXT), minHash.signature(edited));
+
+        // Then
+        assertTrue(similarity > 0.7 && similarity < 1.0, "Similarity was " + similarity);
+    }
+
+    @Test
+    void testUnrelatedTextsHaveLowSimilarity() {
+        // Given
+        String other = "The quick brown fox jumps over the lazy dog while the farmer watches from the porch "
+                + "and the sun slowly sets behind the hills at the end of a long summer day in the valley.";
+
+        // When
+        double similarity = MinHash.similarity(minHash.signature(TEXT), minHash.signature(other));
+
+        // Then
+        assertTrue(similarity < 0.1, "Similarity was " + similarity);
+    }
+
+    @Test
+    void testTextWithoutWordsHasNoSignature() {
+        assertNull(minHash.signature(" \n\t ... "));
+    }
+
+    @Test
+    void testShortTextIsSingleShingle() {
+        assertArrayEquals(minHash.signature("two words"), minHash.signature("Two, words!"));
+    }
+
+    @Test
+    void testSignatureOfBlocksMatchesSignatureOfJoinedText() {
+        // Given blocks that cut through words and shingles
+        MinHash.Accumulator accumulator = minHash.accumulator();
+
+        // When
+        for (int start = 0; start < TEXT.length(); start += 7) {
+            accumulator.add(TEXT.substring(start, Math.min(start + 7, TEXT.length())));
+        }
+
+        // Then
+        assertArrayEquals(minHash.signature(TEXT), accumulator.signature());
+    }
+
+    @Test
+    void testBandHashesCollideOnlyForEqualBands() {
+        // Given
+        int[] signature = minHash.signature(TEXT);
+        int[] changed = signature.clone();
+        changed[0]++;
+
+        // When
+        long[] bands = MinHash.bandHashes(signature, 16);
+        long[] changedBands = MinHash.bandHashes(changed, 16);
+
+        // Then
+        assertEquals(16, bands.length);
+        assertNotEquals(bands[0], changedBands[0]);
+        for (int band = 1; band < bands.length; band++) {
+            assertEquals(bands[band], changedBands[band]);
+        }
+    }
+
+    @Test
+    void testBandsMustDivideSignature() {
+        assertThrows(IllegalArgumentException.class, () -> MinHash.bandHashes(new int[10], 3));
+    }
+}
@@ -0,0 +1,52 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnippetsTest {
+
+    @Test
+    void testHighlightsQueryTermsInWindow() {
+        String text = "Intro text. The vector index speeds up search over Vectors stored in Postgres.";
+
+        String snippet = Snippets.highlight(text, "vector search", 200);
+
+        assertEquals("Intro text. The <em>vector</em> index speeds up <em>search</em> over <em>Vector</em>s stored in Postgres.",
+                snippet);
+    }
+
+    @Test
+    void testWindowIsBoundedAndCentredOnFirstMatch() {
+        // Given a long text with the term far from the start
+        String text = "a ".repeat(500) + "needle " + "b ".repeat(500);
+
+        // When
+        String snippet = Snippets.highlight(text, "needle", 40);
+
+        // Then
+        assertTrue(snippet.startsWith("..."), "Snippet should show it was cut at the start");
+        assertTrue(snippet.endsWith("..."), "Snippet should show it was cut at the end");
+        assertTrue(snippet.contains("<em>needle</em>"));
+        assertTrue(snippet.replace("<em>", "").replace("</em>", "").length() <= 40 + 6);
+    }
+
+    @Test
+    void testNoMatchFallsBackToStart() {
+        assertEquals("abcde...", Snippets.highlight("abcdefghij", "zz zzz", 5));
+        assertEquals("", Snippets.highlight(null, "query", 5));
+    }
+
+    @Test
+    void testDocumentMarkupIsEscapedAndOnlyHighlightsAreHtml() {
+        // Given text containing markup and entities, and a query term that is also an entity name
+        String text = "Use <script>alert('x')</script> & \"amp\" settings";
+
+        // When
+        String snippet = Snippets.highlight(text, "script amp", 200);
+
+        // Then
+        assertEquals("Use &lt;<em>script</em>&gt;alert(&#39;x&#39;)&lt;/<em>script</em>&gt; &amp; &quot;<em>amp</em>&quot; settings",
+                snippet);
+    }
+}
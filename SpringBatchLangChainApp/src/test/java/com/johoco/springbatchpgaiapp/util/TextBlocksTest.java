@@ -0,0 +1,52 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import com.johoco.springbatchpgaiapp.model.TextBlock;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextBlocksTest {
+
+    @Test
+    void testBlocksBreakAtLineEndsAndTrackOffsets() {
+        // Given
+        String text = "line one\nline two\nline three\n";
+
+        // When
+        List<TextBlock> blocks;
+        try (Stream<TextBlock> stream = TextBlocks.fromReader(new StringReader(text), 12)) {
+            blocks = stream.collect(Collectors.toList());
+        }
+
+        // Then
+        assertEquals(text, blocks.stream().map(TextBlock::getText).collect(Collectors.joining()));
+        long expectedOffset = 0;
+        for (TextBlock block : blocks) {
+            assertEquals(expectedOffset, block.getStartOffset());
+            assertTrue(block.getText().length() <= 12);
+            expectedOffset += block.getText().length();
+        }
+        assertEquals("line one\n", blocks.get(0).getText());
+    }
+
+    @Test
+    void testBlocksWithoutLineBreaksAreCutAtBlockSize() {
+        try (Stream<TextBlock> stream = TextBlocks.fromReader(new StringReader("abcdefghij"), 4)) {
+            List<String> texts = stream.map(TextBlock::getText).collect(Collectors.toList());
+
+            assertEquals(List.of("abcd", "efgh", "ij"), texts);
+        }
+    }
+
+    @Test
+    void testEmptyReaderYieldsNoBlocks() {
+        try (Stream<TextBlock> stream = TextBlocks.fromReader(new StringReader(""), 16)) {
+            assertEquals(0, stream.count());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import com.johoco.springbatchpgaiapp.model.TextBlock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextNormalizerTest {
+
+    private TextNormalizer normalizer;
+
+    @BeforeEach
+    void setUp() {
+        normalizer = new TextNormalizer();
+    }
+
+    @Test
+    void testCollapsesWhitespaceAndBlankLines() {
+        // Given
+        String text = "  First \t line   with   gaps \r\n\n\n\n  Second paragraph  \n";
+
+        // When
+        String normalized = normalizer.normalize(text);
+
+        // Then
+        assertEquals("First line with gaps\n\nSecond paragraph", normalized);
+    }
+
+    @Test
+    void testJoinsHyphenatedLineBreaks() {
+        // Given
+        String text = "The embedding pipe-\nline is config-\n  urable.\nSee Section-\nFive.";
+
+        // When
+        String normalized = normalizer.normalize(text);
+
+        // Then
+        assertEquals("The embedding pipeline is configurable.\nSee Section-\nFive.", normalized);
+    }
+
+    @Test
+    void testHyphenJoiningCanBeDisabled() {
+        ReflectionTestUtils.setField(normalizer, "joinHyphenatedLines", false);
+
+        assertEquals("pipe-\nline", normalizer.normalize("pipe-\nline"));
+    }
+
+    @Test
+    void testRemovesRunningHeadersAndPageNumbers() {
+        // Given
+        String[] bodies = {"Revenue grew.", "Costs fell.", "Margins held.", "Outlook is stable."};
+        StringBuilder text = new StringBuilder();
+        for (int page = 1; page <= 4; page++) {
+            text.append("ACME Corp - Annual Report\n")
+                    .append(bodies[page - 1]).append('\n')
+                    .append("Page ").append(page).append(" of 4\n")
+                    .append(TextNormalizer.PAGE_BREAK);
+        }
+
+        // When
+        String normalized = normalizer.normalize(text);
+
+        // Then
+        assertFalse(normalized.contains("ACME"), normalized);
+        assertFalse(normalized.contains("Page "), normalized);
+        assertEquals(String.join("\n", bodies), normalized);
+    }
+
+    @Test
+    void testKeepsRepeatedLinesBelowPageThreshold() {
+        // Given
+        String text = "Header\nFirst page\n" + TextNormalizer.PAGE_BREAK + "Header\nSecond page\n";
+
+        // When
+        String normalized = normalizer.normalize(text);
+
+        // Then
+        assertEquals("Header\nFirst page\nHeader\nSecond page", normalized);
+    }
+
+    @Test
+    void testDisabledReturnsTextUnchanged() {
+        ReflectionTestUtils.setField(normalizer, "enabled", false);
+        String text = "  a   b \n\n\n c-\nd ";
+
+        assertEquals(text, normalizer.normalize(text));
+    }
+
+    @Test
+    void testStreamedNormalizationMatchesNormalizingTheWholeText() throws Exception {
+        // Given a paged text with headers, footers and hyphenated lines, read in blocks of 7
+        // characters so lines, hyphens and page breaks are split across blocks
+        String[] subjects = {"Revenue", "Costs", "Margins", "Outlook"};
+        StringBuilder text = new StringBuilder();
+        for (int page = 1; page <= 4; page++) {
+            String subject = subjects[page - 1];
+            text.append("ACME Corp - Annual Report\n  ").append(subject).append(" are config-\nurable   for ").append(subject)
+                    .append("\n\n\n").append(subject).append(" hyphen-\n\n").append(subject).append(" kept\n")
+                    .append("Page ").append(page).append(" of 4\n").append(TextNormalizer.PAGE_BREAK);
+        }
+        List<TextBlock> blocks = new ArrayList<>();
+        for (int start = 0; start < text.length(); start += 7) {
+            blocks.add(new TextBlock(text.substring(start, Math.min(start + 7, text.length())), start, 0));
+        }
+
+        // When
+        BitSet boilerplateLines = normalizer.findBoilerplateLines(blocks.stream());
+        StringBuilder streamed = new StringBuilder();
+        try (Reader reader = normalizer.normalizingReader(blocks.stream(), boilerplateLines)) {
+            char[] buffer = new char[3];
+            for (int read; (read = reader.read(buffer)) != -1; ) {
+                streamed.append(buffer, 0, read);
+            }
+        }
+
+        // Then
+        String normalized = normalizer.normalize(text);
+        assertFalse(normalized.contains("ACME"), normalized);
+        assertTrue(normalized.contains("Costs are configurable for Costs"), normalized);
+        assertTrue(normalized.contains("Costs hyphen-\n\nCosts kept"), normalized);
+        assertEquals(normalized, streamed.toString());
+    }
+}
@@ -0,0 +1,65 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import dev.langchain4j.data.embedding.Embedding;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorsTest {
+
+    @Test
+    void testCentroidIsNormalizedMean() {
+        // Given
+        Embedding first = Embedding.from(new float[] {1f, 0f});
+        Embedding second = Embedding.from(new float[] {0f, 1f});
+
+        // When
+        float[] centroid = Vectors.centroid(Arrays.asList(first, second));
+
+        // Then
+        float expected = (float) (1 / Math.sqrt(2));
+        assertEquals(expected, centroid[0], 1e-6);
+        assertEquals(expected, centroid[1], 1e-6);
+    }
+
+    @Test
+    void testCentroidOfSingleEmbeddingKeepsDirection() {
+        float[] centroid = Vectors.centroid(Collections.singletonList(Embedding.from(new float[] {3f, 4f})));
+
+        assertEquals(0.6f, centroid[0], 1e-6);
+        assertEquals(0.8f, centroid[1], 1e-6);
+    }
+
+    @Test
+    void testCentroidRejectsMixedDimensions() {
+        assertThrows(IllegalArgumentException.class, () -> Vectors.centroid(Arrays.asList(
+                Embedding.from(new float[] {1f, 0f}),
+                Embedding.from(new float[] {1f, 0f, 0f}))));
+        assertThrows(IllegalArgumentException.class, () -> Vectors.centroid(Collections.emptyList()));
+    }
+
+    @Test
+    void testCentroidAccumulatorMatchesBatchCentroid() {
+        // Given
+        Embedding first = Embedding.from(new float[] {1f, 2f});
+        Embedding second = Embedding.from(new float[] {3f, -1f});
+        Vectors.CentroidAccumulator accumulator = new Vectors.CentroidAccumulator();
+
+        // When
+        accumulator.add(first);
+        accumulator.add(second);
+
+        // Then
+        assertEquals(2, accumulator.count());
+        assertArrayEquals(Vectors.centroid(Arrays.asList(first, second)), accumulator.centroid(), 1e-6f);
+        assertThrows(IllegalStateException.class, () -> new Vectors.CentroidAccumulator().centroid());
+    }
+
+    @Test
+    void testToPgVectorLiteral() {
+        assertEquals("[0.5,-1.0,2.0]", Vectors.toPgVectorLiteral(new float[] {0.5f, -1f, 2f}));
+    }
+}
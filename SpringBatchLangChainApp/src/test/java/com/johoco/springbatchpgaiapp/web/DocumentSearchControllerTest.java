@@ -0,0 +1,198 @@
+package com.johoco.springbatchpgaiapp.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johoco.springbatchpgaiapp.model.SearchCursor;
+import com.johoco.springbatchpgaiapp.model.SearchFilter;
+import com.johoco.springbatchpgaiapp.model.SearchPage;
+import com.johoco.springbatchpgaiapp.repository.EmbeddingChunkRepository;
+import com.johoco.springbatchpgaiapp.service.DocumentSearchService;
+import com.johoco.springbatchpgaiapp.service.SearchMetrics;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class DocumentSearchControllerTest {
+
+    @Mock
+    private DocumentSearchService documentSearchService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private DocumentSearchController controller;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        controller = new DocumentSearchController(documentSearchService, new SearchMetrics(meterRegistry), new ObjectMapper());
+
+        // Set the required fields via reflection since they're normally set by @Value
+        ReflectionTestUtils.setField(controller, "maxConcurrentRequests", 1);
+        ReflectionTestUtils.setField(controller, "acquireTimeoutMs", 10L);
+        controller.init();
+    }
+
+    @Test
+    void testSearchStreamsOneJsonLinePerMatch() throws Exception {
+        // Given
+        Embedding queryEmbedding = Embedding.from(new float[] {0.1f, 0.2f});
+        when(documentSearchService.embedQuery("vectors")).thenReturn(queryEmbedding);
+        when(documentSearchService.findPage(queryEmbedding, 5, 0.5f, null, null)).thenReturn(new SearchPage(Arrays.asList(
+                new EmbeddingMatch<>(0.9, "id-1", queryEmbedding, TextSegment.from("first")),
+                new EmbeddingMatch<>(0.7, "id-2", queryEmbedding, TextSegment.from("second"))), null));
+
+        // When
+        ResponseEntity<StreamingResponseBody> response = controller.search("vectors", 5, 0.5f, 0, null, "full", null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        // Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length, "Each match should be written on its own line");
+        assertTrue(lines[0].contains("\"embeddingId\":\"id-1\""));
+        assertTrue(lines[1].contains("\"text\":\"second\""));
+        assertEquals(1, meterRegistry.get(SearchMetrics.METRIC_NAME).tag("stage", SearchMetrics.STAGE_SERIALIZE).timer().count());
+        assertNull(response.getHeaders().getFirst(DocumentSearchController.NEXT_CURSOR_HEADER), "Last page has no cursor");
+    }
+
+    @Test
+    void testSearchResumesFromCursorAndReturnsNextCursor() {
+        // Given
+        Embedding queryEmbedding = Embedding.from(new float[] {0.1f, 0.2f});
+        SearchCursor after = new SearchCursor(0.25, "7b7e2c9e-0d5b-4b8e-9a55-1f0f3c6f1a11");
+        SearchCursor next = new SearchCursor(0.4, "0a3c1f52-5a2e-4f0e-8f4b-55d1c2b3a4e5");
+        when(documentSearchService.embedQuery("vectors")).thenReturn(queryEmbedding);
+        when(documentSearchService.findPage(queryEmbedding, 1, 0.0f, null, after)).thenReturn(new SearchPage(
+                Collections.singletonList(new EmbeddingMatch<>(0.8, next.getLastEmbeddingId(), queryEmbedding, TextSegment.from("next"))),
+                next));
+
+        // When
+        ResponseEntity<StreamingResponseBody> response = controller.search("vectors", 1, 0.0f, 0, after.encode(), "full", null);
+
+        // Then
+        verify(documentSearchService).findPage(queryEmbedding, 1, 0.0f, null, after);
+        assertEquals(next, SearchCursor.decode(response.getHeaders().getFirst(DocumentSearchController.NEXT_CURSOR_HEADER)));
+    }
+
+    @Test
+    void testSnippetViewOmitsTextAndReturnsOffsets() throws Exception {
+        // Given
+        Embedding queryEmbedding = Embedding.from(new float[] {0.1f, 0.2f});
+        Metadata metadata = Metadata.from(EmbeddingChunkRepository.FILENAME_KEY, "report.txt")
+                .add(EmbeddingChunkRepository.INDEX_KEY, "3")
+                .add(EmbeddingChunkRepository.START_OFFSET_KEY, "1200")
+                .add(EmbeddingChunkRepository.END_OFFSET_KEY, "1260");
+        String text = "Quarterly numbers. Vector search latency dropped after the index rebuild.";
+        when(documentSearchService.embedQuery("latency")).thenReturn(queryEmbedding);
+        when(documentSearchService.findPage(queryEmbedding, 5, 0.0f, null, null)).thenReturn(new SearchPage(
+                Collections.singletonList(new EmbeddingMatch<>(0.9, "id-1", queryEmbedding, TextSegment.from(text, metadata))),
+                null));
+
+        // When
+        ResponseEntity<StreamingResponseBody> response = controller.search("latency", 5, 0.0f, 0, null, "snippet", null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        // Then
+        String line = out.toString(StandardCharsets.UTF_8).trim();
+        assertFalse(line.contains("\"text\""), "Snippet view should not return the chunk text");
+        assertTrue(line.contains("\"filename\":\"report.txt\""));
+        assertTrue(line.contains("\"chunkIndex\":3"));
+        assertTrue(line.contains("\"startOffset\":1200"));
+        assertTrue(line.contains("\"endOffset\":1260"));
+        assertTrue(line.contains("<em>latency</em>"));
+    }
+
+    @Test
+    void testChunkTextNotFound() {
+        when(documentSearchService.findChunkText("missing")).thenReturn(Optional.empty());
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> controller.chunkText("missing"));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    void testSearchWithInvalidCursor() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> controller.search("vectors", 5, 0.0f, 0, "not-a-cursor", "full", null));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(documentSearchService);
+    }
+
+    @Test
+    void testTwoStageSearchWhenCandidateDocumentsRequested() {
+        // Given
+        SearchFilter filter = SearchFilter.builder().processorVersion("1.0.0").build();
+        Embedding queryEmbedding = Embedding.from(new float[] {0.1f, 0.2f});
+        when(documentSearchService.embedQuery("vectors")).thenReturn(queryEmbedding);
+        when(documentSearchService.findPageTwoStage(queryEmbedding, 20, 5, 0.0f, filter, null))
+                .thenReturn(new SearchPage(Collections.emptyList(), null));
+
+        // When
+        controller.search("vectors", 5, 0.0f, 20, null, "full", filter);
+
+        // Then
+        verify(documentSearchService).findPageTwoStage(queryEmbedding, 20, 5, 0.0f, filter, null);
+        verify(documentSearchService, never()).findPage(any(), anyInt(), anyFloat(), any(), any());
+    }
+
+    @Test
+    void testSearchRejectedWhenNoPermitAvailable() throws Exception {
+        // Given all search slots are taken
+        Semaphore permits = (Semaphore) ReflectionTestUtils.getField(controller, "searchPermits");
+        permits.acquire();
+
+        // When/Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> controller.search("vectors", 5, 0.0f, 0, null, "full", null));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+        verify(documentSearchService, never()).embedQuery(any());
+    }
+
+    @Test
+    void testPermitReleasedAfterFailedSearch() {
+        // Given
+        when(documentSearchService.embedQuery(any())).thenThrow(new RuntimeException("model failure"));
+
+        // When
+        assertThrows(RuntimeException.class, () -> controller.search("vectors", 5, 0.0f, 0, null, "full", null));
+
+        // Then
+        Semaphore permits = (Semaphore) ReflectionTestUtils.getField(controller, "searchPermits");
+        assertEquals(1, permits.availablePermits(), "Permit should be returned after a failed search");
+        verify(documentSearchService, never()).findPage(any(), anyInt(), anyFloat(), any(), any());
+    }
+
+    @Test
+    void testSearchWithBlankQuery() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> controller.search(" ", 5, 0.0f, 0, null, "full", null));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(documentSearchService);
+    }
+}
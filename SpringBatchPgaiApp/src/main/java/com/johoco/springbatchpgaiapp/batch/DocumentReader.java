@@ -1,38 +1,49 @@
 package com.johoco.springbatchpgaiapp.batch;
 
+import com.johoco.springbatchpgaiapp.model.FileExtension;
+import com.johoco.springbatchpgaiapp.model.SourceDocument;
+import com.johoco.springbatchpgaiapp.processor.FileProcessor;
+import com.johoco.springbatchpgaiapp.processor.FileProcessorFactory;
+import com.johoco.springbatchpgaiapp.util.ArchiveStream;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.batch.core.JobParameters;
-import org.springframework.batch.core.StepExecution;
-import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.ItemStreamException;
 import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.batch.item.ExecutionContext;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+/**
+ * Reads the file named by the {@code fileName} job parameter. A plain file is read as one document;
+ * a ZIP or TAR.GZ archive is streamed and each supported member is read as its own document named
+ * {@code archive!/member}, with its text extracted straight from the compressed stream.
+ * Step scoped, so concurrent jobs each get their own reader bound to their own job parameters.
+ */
 @Slf4j
 @Component
-public class DocumentReader implements ItemStreamReader<File> {
-    @Value("${document.input.directory}")
-    private String inputDirectory;
-    
+@StepScope
+public class DocumentReader implements ItemStreamReader<SourceDocument> {
+    private final FileProcessorFactory fileProcessorFactory;
+    private final String inputDirectory;
+    private final String fileName;
     private File fileToProcess;
     private boolean fileProcessed;
-    private String fileName;
+    private ArchiveStream archive;
 
-    public DocumentReader() {
-        log.info("DocumentReader constructed");
-    }
-    
-    @BeforeStep
-    public void beforeStep(StepExecution stepExecution) {
-        JobParameters jobParameters = stepExecution.getJobParameters();
-        this.fileName = jobParameters.getString("fileName");
+    public DocumentReader(FileProcessorFactory fileProcessorFactory,
+                          @Value("#{jobParameters['fileName']}") String fileName,
+                          @Value("${document.input.directory}") String inputDirectory) {
+        this.fileProcessorFactory = fileProcessorFactory;
+        this.fileName = fileName;
+        this.inputDirectory = inputDirectory;
         log.info("DocumentReader initialized with fileName parameter: {}", fileName);
     }
 
@@ -59,6 +70,15 @@ public class DocumentReader implements ItemStreamReader<File> {
             
             fileToProcess = filePath.toFile();
             fileProcessed = false;
+
+            FileExtension extension = FileExtension.fromFile(fileToProcess);
+            if (!extension.isArchive()) {
+                extension = fileProcessorFactory.resolveExtension(fileToProcess);
+            }
+            if (extension.isArchive()) {
+                log.info("Streaming members of {} archive: {}", extension.getValue(), fileToProcess.getName());
+                archive = ArchiveStream.open(filePath, extension);
+            }
             
             log.info("DocumentReader opened successfully for file: {}", fileToProcess.getName());
         } catch (Exception e) {
@@ -68,7 +88,7 @@ public class DocumentReader implements ItemStreamReader<File> {
     }
 
     @Override
-    public File read() throws Exception {
+    public SourceDocument read() throws Exception {
         if (fileToProcess == null) {
             log.error("DocumentReader not initialized! Call open() first.");
             throw new IllegalStateException("Reader must be opened before it can be read");
@@ -79,9 +99,45 @@ public class DocumentReader implements ItemStreamReader<File> {
             return null;
         }
         
+        if (archive != null) {
+            return readArchiveMember();
+        }
+        
         log.debug("Reading file: {}", fileToProcess.getName());
         fileProcessed = true;
-        return fileToProcess;
+        return SourceDocument.ofFile(fileToProcess);
+    }
+
+    /**
+     * Extracts the next supported member of the archive. Members must be consumed in archive order,
+     * and a chunk is read in full before it is processed, so extraction happens here rather than in
+     * the item processor. Unsupported members, including nested archives, are skipped.
+     */
+    private SourceDocument readArchiveMember() throws IOException {
+        ArchiveStream.Member member;
+        while ((member = archive.next()) != null) {
+            String name = fileToProcess.getName() + SourceDocument.ARCHIVE_MEMBER_SEPARATOR + member.getName();
+            InputStream content = new BufferedInputStream(member.getContent());
+            FileExtension extension = fileProcessorFactory.resolveExtension(member.getName(), content);
+            FileProcessor processor = fileProcessorFactory.getProcessor(extension);
+            if (processor == null) {
+                log.info("Skipping unsupported archive member: {}", name);
+                continue;
+            }
+
+            log.debug("Reading archive member: {}", name);
+            String text = fileProcessorFactory.extractContent(processor, extension, content, name);
+            return SourceDocument.builder()
+                    .name(name)
+                    .file(fileToProcess)
+                    .archiveMember(member.getName())
+                    .content(text)
+                    .size(member.getSize() >= 0 ? member.getSize() : text.length())
+                    .lastModified(member.getLastModified())
+                    .build();
+        }
+        fileProcessed = true;
+        return null;
     }
 
     @Override
@@ -92,6 +148,14 @@ public class DocumentReader implements ItemStreamReader<File> {
     @Override
     public void close() throws ItemStreamException {
         log.info("Closing DocumentReader");
+        if (archive != null) {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                log.warn("Error closing archive {}: {}", fileName, e.getMessage());
+            }
+            archive = null;
+        }
         fileToProcess = null;
         fileProcessed = false;
     }
@@ -5,14 +5,11 @@ import com.johoco.springbatchpgaiapp.model.DocumentMetadata;
 import com.johoco.springbatchpgaiapp.model.DocumentStatus;
 import com.johoco.springbatchpgaiapp.repository.DocumentRepository;
 import com.johoco.springbatchpgaiapp.util.FileOperations;
-import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.ExitStatus;
-import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.annotation.AfterStep;
-import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.Chunk;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.beans.factory.annotation.Value;
@@ -25,15 +22,18 @@ import java.io.File;
 import java.time.Instant;
 import java.util.Optional;
 
+/**
+ * Saves a job's documents and moves its file to the output or failed directory. Step scoped, so
+ * concurrent jobs each get their own writer bound to their own job parameters.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
+@StepScope
 public class DocumentWriter implements ItemWriter<Document> {
     private final DocumentRepository documentRepository;
     private final FileOperations fileOperations;
-    
-    @Value("${document.input.directory}")
-    private String inputDirectory;
+    private final String inputDirectory;
+    private final String currentFileName;
     
     @Value("${document.output.directory}")
     private String outputDirectory;
@@ -41,17 +41,13 @@ public class DocumentWriter implements ItemWriter<Document> {
     @Value("${document.output.failed-directory}")
     private String failedDirectory;
     
-    private String currentFileName;
-    
-    @PostConstruct
-    public void init() {
-        log.info("DocumentWriter initialized with documentRepository: {}", documentRepository != null ? "injected" : "null");
-    }
-    
-    @BeforeStep
-    public void beforeStep(StepExecution stepExecution) {
-        JobParameters jobParameters = stepExecution.getJobParameters();
-        this.currentFileName = jobParameters.getString("fileName");
+    public DocumentWriter(DocumentRepository documentRepository, FileOperations fileOperations,
+                          @Value("#{jobParameters['fileName']}") String currentFileName,
+                          @Value("${document.input.directory}") String inputDirectory) {
+        this.documentRepository = documentRepository;
+        this.fileOperations = fileOperations;
+        this.currentFileName = currentFileName;
+        this.inputDirectory = inputDirectory;
         log.info("DocumentWriter initialized with fileName parameter: {}", currentFileName);
     }
 
@@ -3,6 +3,7 @@ package com.johoco.springbatchpgaiapp.config;
 import com.johoco.springbatchpgaiapp.batch.DocumentReader;
 import com.johoco.springbatchpgaiapp.batch.DocumentWriter;
 import com.johoco.springbatchpgaiapp.model.Document;
+import com.johoco.springbatchpgaiapp.model.SourceDocument;
 import com.johoco.springbatchpgaiapp.service.DocumentProcessor;
 import jakarta.persistence.EntityManagerFactory;
 import lombok.RequiredArgsConstructor;
@@ -23,7 +24,6 @@ import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.sql.DataSource;
-import java.io.File;
 
 @Slf4j
 @Configuration
@@ -74,7 +74,7 @@ public class BatchConfig {
     public Step processDocumentStep(JobRepository jobRepository, PlatformTransactionManager transactionManager) {
         log.info("Creating processDocumentStep with chunk size 10");
         return new StepBuilder("processDocumentStep", jobRepository)
-                .<File, Document>chunk(10, transactionManager)
+                .<SourceDocument, Document>chunk(10, transactionManager)
                 .reader(documentReader)
                 .processor(documentProcessor)
                 .writer(documentWriter)
@@ -25,4 +25,8 @@ public class DocumentMetadata {
     // Additional metadata fields can be added here
     private String processorVersion;
     private String processorName;
+
+    // Set for documents read from an archive member: the archive file name and the member path
+    private String sourceArchive;
+    private String archiveMember;
 }
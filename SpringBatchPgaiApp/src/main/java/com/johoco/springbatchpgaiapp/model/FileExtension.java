@@ -3,6 +3,13 @@ package com.johoco.springbatchpgaiapp.model;
 import org.apache.commons.io.FilenameUtils;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Enum representing supported file extensions in the application.
@@ -10,12 +17,35 @@ import java.io.File;
 public enum FileExtension {
     PDF("pdf"),
     TXT("txt"),
+    MARKDOWN("md", "markdown"),
+    HTML("html", "htm"),
+    CSV("csv"),
+    JSONL("jsonl", "ndjson"),
+    ZIP("zip"),
+    TAR_GZ("tgz", "tar.gz"),
     UNKNOWN("unknown");
 
+    private static final String TAR_GZ_SUFFIX = ".tar.gz";
+
+    private static final Map<String, FileExtension> BY_EXTENSION = new HashMap<>();
+
+    static {
+        for (FileExtension fileExtension : values()) {
+            if (fileExtension != UNKNOWN) {
+                fileExtension.extensions.forEach(ext -> BY_EXTENSION.put(ext, fileExtension));
+            }
+        }
+    }
+
     private final String extension;
+    private final List<String> extensions;
 
-    FileExtension(String extension) {
+    FileExtension(String extension, String... aliases) {
         this.extension = extension;
+        List<String> all = new ArrayList<>();
+        all.add(extension);
+        all.addAll(Arrays.asList(aliases));
+        this.extensions = Collections.unmodifiableList(all);
     }
 
     /**
@@ -27,6 +57,15 @@ public enum FileExtension {
         return extension;
     }
 
+    /**
+     * Gets every extension string recognized for this type, the primary one first.
+     *
+     * @return the extension strings (lowercase, without dot)
+     */
+    public List<String> getValues() {
+        return extensions;
+    }
+
     /**
      * Determines the FileExtension enum value for a given file.
      *
@@ -38,15 +77,34 @@ public enum FileExtension {
             return UNKNOWN;
         }
         
-        String extension = FilenameUtils.getExtension(file.getName()).toLowerCase();
-        
-        for (FileExtension fileExtension : values()) {
-            if (fileExtension.extension.equals(extension)) {
-                return fileExtension;
-            }
+        return fromName(file.getName());
+    }
+
+    /**
+     * Determines the FileExtension enum value for a file name or archive member path.
+     *
+     * @param name the file name, may include directories
+     * @return the corresponding FileExtension, or UNKNOWN if not recognized
+     */
+    public static FileExtension fromName(String name) {
+        if (name == null) {
+            return UNKNOWN;
         }
-        
-        return UNKNOWN;
+
+        // The only recognized extension spanning two dots
+        if (name.toLowerCase(Locale.ROOT).endsWith(TAR_GZ_SUFFIX)) {
+            return TAR_GZ;
+        }
+        return BY_EXTENSION.getOrDefault(FilenameUtils.getExtension(name).toLowerCase(Locale.ROOT), UNKNOWN);
+    }
+
+    /**
+     * Checks if this type is an archive whose members are ingested as separate documents.
+     *
+     * @return true for archive types
+     */
+    public boolean isArchive() {
+        return this == ZIP || this == TAR_GZ;
     }
     
     /**
@@ -60,18 +118,7 @@ public enum FileExtension {
             return UNKNOWN;
         }
         
-        // Remove leading dot if present
-        String cleanExtension = extension.startsWith(".") 
-            ? extension.substring(1).toLowerCase() 
-            : extension.toLowerCase();
-        
-        for (FileExtension fileExtension : values()) {
-            if (fileExtension.extension.equals(cleanExtension)) {
-                return fileExtension;
-            }
-        }
-        
-        return UNKNOWN;
+        return BY_EXTENSION.getOrDefault(clean(extension), UNKNOWN);
     }
     
     /**
@@ -85,10 +132,11 @@ public enum FileExtension {
             return false;
         }
         
-        String cleanExtension = extension.startsWith(".") 
-            ? extension.substring(1).toLowerCase() 
-            : extension.toLowerCase();
-            
-        return this.extension.equals(cleanExtension);
+        return extensions.contains(clean(extension));
+    }
+
+    private static String clean(String extension) {
+        // Remove leading dot if present
+        return (extension.startsWith(".") ? extension.substring(1) : extension).toLowerCase(Locale.ROOT);
     }
 }
@@ -0,0 +1,60 @@
+package com.johoco.springbatchpgaiapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.File;
+import java.time.Instant;
+
+/**
+ * One document to ingest, as produced by the batch reader: either a file in the input directory,
+ * or a member of an archive in the input directory, whose text was already extracted while
+ * streaming the archive.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SourceDocument {
+    /** Separator between the archive name and the member path in an archive member's identity. */
+    public static final String ARCHIVE_MEMBER_SEPARATOR = "!/";
+
+    /** Document identity: the file name, or {@code archive!/member} for archive members. */
+    private String name;
+
+    /** The file in the input directory: the document itself, or the archive containing it. */
+    private File file;
+
+    /** Path of the member inside the archive, or null for plain files. */
+    private String archiveMember;
+
+    /** Extracted text of an archive member, or null for plain files which are extracted by the processor. */
+    private String content;
+
+    private long size;
+    private Instant lastModified;
+
+    /**
+     * Creates the source for a plain file.
+     *
+     * @param file the file
+     * @return the source document
+     */
+    public static SourceDocument ofFile(File file) {
+        return SourceDocument.builder()
+                .name(file.getName())
+                .file(file)
+                .size(file.length())
+                .lastModified(Instant.ofEpochMilli(file.lastModified()))
+                .build();
+    }
+
+    /**
+     * @return true if this document is a member of an archive
+     */
+    public boolean isArchiveMember() {
+        return archiveMember != null;
+    }
+}
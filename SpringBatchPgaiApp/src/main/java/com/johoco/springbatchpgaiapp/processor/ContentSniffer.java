@@ -0,0 +1,116 @@
+package com.johoco.springbatchpgaiapp.processor;
+
+import com.johoco.springbatchpgaiapp.model.FileExtension;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Detects the type of a file from its leading bytes, for files whose extension is missing or unknown.
+ */
+final class ContentSniffer {
+    static final int SNIFF_LENGTH = 1024;
+
+    private static final byte[] PDF_MAGIC = {'%', 'P', 'D', 'F', '-'};
+    private static final byte[] ZIP_MAGIC = {'P', 'K', 3, 4};
+    private static final byte[] GZIP_MAGIC = {(byte) 0x1F, (byte) 0x8B};
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private ContentSniffer() {
+    }
+
+    /**
+     * Sniffs the type of a file.
+     *
+     * @param file the file to inspect
+     * @return the detected type, or {@link FileExtension#UNKNOWN} for binary or unrecognized content
+     * @throws IOException if the file cannot be read
+     */
+    static FileExtension sniff(File file) throws IOException {
+        byte[] head;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            head = in.readNBytes(SNIFF_LENGTH);
+        }
+        return sniff(head);
+    }
+
+    static FileExtension sniff(byte[] head) {
+        if (startsWith(head, PDF_MAGIC)) {
+            return FileExtension.PDF;
+        }
+        if (startsWith(head, ZIP_MAGIC)) {
+            return FileExtension.ZIP;
+        }
+        if (startsWith(head, GZIP_MAGIC)) {
+            // Gzip is only accepted as the container of a tar archive
+            return FileExtension.TAR_GZ;
+        }
+
+        int start = startsWith(head, UTF8_BOM) ? UTF8_BOM.length : 0;
+        String text = decodePrefix(Arrays.copyOfRange(head, start, head.length), head.length == SNIFF_LENGTH);
+        if (text == null) {
+            return FileExtension.UNKNOWN;
+        }
+
+        String trimmed = text.stripLeading();
+        String lower = trimmed.toLowerCase(Locale.ROOT);
+        if (lower.startsWith("<!doctype html") || lower.startsWith("<html")
+                || (lower.startsWith("<") && (lower.contains("<body") || lower.contains("<head")))) {
+            return FileExtension.HTML;
+        }
+        if (trimmed.startsWith("{")) {
+            int lineEnd = trimmed.indexOf('\n');
+            String firstLine = (lineEnd < 0 ? trimmed : trimmed.substring(0, lineEnd)).strip();
+            if (firstLine.endsWith("}")) {
+                return FileExtension.JSONL;
+            }
+        }
+        return FileExtension.TXT;
+    }
+
+    /**
+     * Decodes the sniffed bytes as UTF-8, allowing a truncated character at the end of a full buffer.
+     *
+     * @return the text, or null if the bytes are not text
+     */
+    private static String decodePrefix(byte[] bytes, boolean truncated) {
+        for (byte b : bytes) {
+            if (b == 0) {
+                return null;
+            }
+        }
+        // A multi-byte character may be cut at the end of the sniff buffer
+        for (int trim = 0; trim <= (truncated ? 3 : 0) && trim <= bytes.length; trim++) {
+            try {
+                return StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPORT)
+                        .onUnmappableCharacter(CodingErrorAction.REPORT)
+                        .decode(ByteBuffer.wrap(bytes, 0, bytes.length - trim))
+                        .toString();
+            } catch (CharacterCodingException e) {
+                // Try again without the last byte
+            }
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        if (bytes.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,176 @@
+package com.johoco.springbatchpgaiapp.processor;
+
+import com.johoco.springbatchpgaiapp.model.FileExtension;
+import com.johoco.springbatchpgaiapp.model.TextBlock;
+import com.johoco.springbatchpgaiapp.util.FileOperations;
+import com.johoco.springbatchpgaiapp.util.TextBlocks;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Processor for CSV files. Parses records one at a time (RFC 4180 quoting, including
+ * line breaks inside quoted fields) and renders each as {@code column: value} pairs
+ * using the header row, so every line of text keeps its column context.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CsvFileProcessor implements FileProcessor {
+    private static final char DELIMITER = ',';
+    private static final char QUOTE = '"';
+
+    private final FileOperations fileOperations;
+
+    @Override
+    public Set<FileExtension> getSupportedExtensions() {
+        return EnumSet.of(FileExtension.CSV);
+    }
+
+    @Override
+    public String extractContent(File file) throws IOException {
+        String content = TextBlocks.join(streamContent(file));
+        log.debug("Successfully read {} characters from CSV file: {}", content.length(), file.getName());
+        return content;
+    }
+
+    @Override
+    public Stream<TextBlock> streamContent(File file) throws IOException {
+        if (file == null) {
+            log.error("Cannot read content from null file");
+            throw new IllegalArgumentException("File cannot be null");
+        }
+
+        log.debug("Streaming content from CSV file: {}", file.getName());
+        return stream(new BufferedReader(fileOperations.openReader(file)), file.getName());
+    }
+
+    @Override
+    public Stream<TextBlock> streamContent(InputStream input, String name) throws IOException {
+        log.debug("Streaming content from CSV member: {}", name);
+        return stream(new BufferedReader(fileOperations.openReader(input)), name);
+    }
+
+    private Stream<TextBlock> stream(BufferedReader reader, String name) throws IOException {
+        RecordReader records = new RecordReader(reader);
+        List<String> header;
+        try {
+            header = records.next();
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+        return TextBlocks.fromSource(out -> {
+            List<String> record = records.next();
+            if (record == null) {
+                return false;
+            }
+            appendRecord(header, record, out);
+            return true;
+        }, reader, TextBlocks.DEFAULT_BLOCK_SIZE);
+    }
+
+    static void appendRecord(List<String> header, List<String> record, StringBuilder out) {
+        boolean first = true;
+        for (int i = 0; i < record.size(); i++) {
+            String value = record.get(i).strip();
+            if (value.isEmpty()) {
+                continue;
+            }
+            if (!first) {
+                out.append(", ");
+            }
+            String column = header != null && i < header.size() ? header.get(i).strip() : "";
+            if (!column.isEmpty()) {
+                out.append(column).append(": ");
+            }
+            out.append(value);
+            first = false;
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Reads CSV records character by character, so only the current record is held in memory.
+     */
+    static final class RecordReader {
+        private final Reader reader;
+        private int pending = -2;
+
+        RecordReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return the fields of the next record, or null at end of input
+         */
+        List<String> next() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        fields.add(field.toString());
+                        return fields;
+                    }
+                    if (c == QUOTE) {
+                        int following = read();
+                        if (following == QUOTE) {
+                            field.append(QUOTE);
+                        } else {
+                            quoted = false;
+                            c = following;
+                            continue;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == -1 || c == '\n') {
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c == '\r') {
+                    int following = read();
+                    if (following != '\n') {
+                        pending = following;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c == DELIMITER) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == QUOTE && field.length() == 0) {
+                    quoted = true;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        private int read() throws IOException {
+            if (pending != -2) {
+                int c = pending;
+                pending = -2;
+                return c;
+            }
+            return reader.read();
+        }
+    }
+}
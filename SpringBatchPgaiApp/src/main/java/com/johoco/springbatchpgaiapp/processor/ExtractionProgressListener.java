@@ -0,0 +1,20 @@
+package com.johoco.springbatchpgaiapp.processor;
+
+import java.io.File;
+
+/**
+ * Receives progress updates while a paged document is being extracted.
+ * Updates may arrive from several extraction threads at once.
+ */
+@FunctionalInterface
+public interface ExtractionProgressListener {
+
+    /**
+     * Called after each page has been extracted.
+     *
+     * @param file the file being extracted
+     * @param pagesDone number of pages extracted so far
+     * @param totalPages total number of pages in the document
+     */
+    void onProgress(File file, int pagesDone, int totalPages);
+}
@@ -0,0 +1,13 @@
+package com.johoco.springbatchpgaiapp.processor;
+
+import java.io.IOException;
+
+/**
+ * Thrown when content extraction for a file does not finish within its configured timeout.
+ */
+public class ExtractionTimeoutException extends IOException {
+
+    public ExtractionTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -1,20 +1,35 @@
 package com.johoco.springbatchpgaiapp.processor;
 
+import com.johoco.springbatchpgaiapp.model.FileExtension;
+import com.johoco.springbatchpgaiapp.model.TextBlock;
+
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Interface for file processors that handle different file types.
  */
 public interface FileProcessor {
     
+    /**
+     * Gets the file types this processor handles, used to register it with {@link FileProcessorFactory}.
+     * 
+     * @return the supported file types
+     */
+    Set<FileExtension> getSupportedExtensions();
+    
     /**
      * Checks if this processor can handle the given file based on its extension.
      * 
      * @param file the file to check
      * @return true if this processor can handle the file, false otherwise
      */
-    boolean canProcess(File file);
+    default boolean canProcess(File file) {
+        return file != null && getSupportedExtensions().contains(FileExtension.fromFile(file));
+    }
     
     /**
      * Processes the file and extracts its content.
@@ -24,4 +39,31 @@ public interface FileProcessor {
      * @throws IOException if an I/O error occurs
      */
     String extractContent(File file) throws IOException;
+    
+    /**
+     * Extracts the content of the file as a lazy sequence of text blocks, so that callers can
+     * chunk or index very large files without holding the whole text in memory.
+     * The returned stream holds the file open and must be closed, e.g. with try-with-resources.
+     * The default implementation wraps {@link #extractContent(File)} in a single block.
+     * 
+     * @param file the file to process
+     * @return the blocks of the file content, in document order
+     * @throws IOException if the file cannot be opened
+     */
+    default Stream<TextBlock> streamContent(File file) throws IOException {
+        return Stream.of(new TextBlock(extractContent(file), 0, 0));
+    }
+    
+    /**
+     * Extracts the content of a document read from a stream rather than a file, such as an archive member.
+     * The returned stream must be closed; closing it also closes {@code input}.
+     * 
+     * @param input the document bytes
+     * @param name the document name, used for logging
+     * @return the blocks of the document content, in document order
+     * @throws IOException if the input cannot be read
+     */
+    default Stream<TextBlock> streamContent(InputStream input, String name) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot extract from a stream: " + name);
+    }
 }
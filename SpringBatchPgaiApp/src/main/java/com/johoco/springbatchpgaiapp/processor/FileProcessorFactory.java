@@ -1,29 +1,93 @@
 package com.johoco.springbatchpgaiapp.processor;
 
 import com.johoco.springbatchpgaiapp.model.FileExtension;
+import com.johoco.springbatchpgaiapp.model.TextBlock;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 /**
  * Factory for selecting the appropriate file processor based on file type.
+ * It also runs extraction in isolation: each file is extracted on a dedicated thread pool,
+ * with a concurrency limit and a timeout per {@link FileExtension}. A batch thread waits at most
+ * the timeout for a slot and at most the timeout for the extraction, so a document that hangs
+ * the extractor holds a slot of its own type, not the batch thread that submitted it.
+ * <p>
+ * An extractor that ignores interruption keeps running after its timeout. Such abandoned
+ * workers are counted and logged; each keeps its slot until it stops.
  */
 @Slf4j
 @Service
 public class FileProcessorFactory {
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+    private static final int ABANDONED = 3;
 
-    private final List<FileProcessor> processors;
+    private final Map<FileExtension, FileProcessor> registry = new EnumMap<>(FileExtension.class);
+    private final Environment environment;
+    private final Map<FileExtension, Semaphore> extractionSlots = new EnumMap<>(FileExtension.class);
+    private final Map<FileExtension, Long> extractionTimeoutsMs = new EnumMap<>(FileExtension.class);
+    private final ExecutorService extractionExecutor;
+    private final AtomicInteger abandonedWorkers = new AtomicInteger();
 
-    public FileProcessorFactory(List<FileProcessor> processors) {
-        this.processors = processors;
+    @Value("${document.extraction.default-concurrency:4}")
+    private int defaultConcurrency = 4;
+
+    @Value("${document.extraction.default-timeout-seconds:300}")
+    private long defaultTimeoutSeconds = 300;
+
+    public FileProcessorFactory(List<FileProcessor> processors, Environment environment) {
+        this.environment = environment;
+        for (FileProcessor processor : processors) {
+            for (FileExtension extension : processor.getSupportedExtensions()) {
+                FileProcessor existing = registry.putIfAbsent(extension, processor);
+                if (existing != null) {
+                    log.warn("Ignoring {} for {} files, already handled by {}", processor.getClass().getSimpleName(),
+                            extension.getValue(), existing.getClass().getSimpleName());
+                }
+            }
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        this.extractionExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "extraction-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
         log.info("FileProcessorFactory initialized with {} processors", processors.size());
-        processors.forEach(p -> log.debug("Registered processor: {}", p.getClass().getSimpleName()));
+        registry.forEach((extension, p) -> log.debug("Registered processor {} for {} files", p.getClass().getSimpleName(), extension.getValue()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        extractionExecutor.shutdownNow();
     }
 
     /**
      * Gets the appropriate processor for the given file.
+     * Processors are looked up by extension; files with a missing or unregistered extension
+     * are identified by sniffing their leading bytes.
      *
      * @param file the file to process
      * @return the appropriate processor, or null if no suitable processor is found
@@ -34,21 +98,227 @@ public class FileProcessorFactory {
             return null;
         }
 
-        for (FileProcessor processor : processors) {
-            if (processor.canProcess(file)) {
-                FileExtension extension = FileExtension.fromFile(file);
+        FileExtension extension = resolveExtension(file);
+        FileProcessor processor = registry.get(extension);
+        if (processor == null) {
+            log.warn("No suitable processor found for file: {} with extension: {}", 
+                    file.getName(), 
+                    extension.getValue());
+            return null;
+        }
+
         log.debug("Using processor {} for file {} with extension {}", 
                 processor.getClass().getSimpleName(), 
                 file.getName(),
                 extension.getValue());
-                return processor;
+        return processor;
+    }
+
+    /**
+     * Determines the type of a file: its extension when a processor is registered for it,
+     * otherwise the type detected from its content.
+     *
+     * @param file the file
+     * @return the file type, or {@link FileExtension#UNKNOWN}
+     */
+    public FileExtension resolveExtension(File file) {
+        FileExtension extension = FileExtension.fromFile(file);
+        if (registry.containsKey(extension)) {
+            return extension;
+        }
+
+        try {
+            FileExtension sniffed = ContentSniffer.sniff(file);
+            log.debug("Sniffed content of {} as {}", file.getName(), sniffed.getValue());
+            return sniffed;
+        } catch (IOException e) {
+            log.warn("Could not sniff content of {}: {}", file.getName(), e.getMessage());
+            return extension;
+        }
+    }
+
+    /**
+     * Extracts the content of a file on the extraction pool. The caller waits at most the
+     * extension's timeout ({@code document.extraction.<ext>.timeout-seconds}) for one of its slots
+     * ({@code document.extraction.<ext>.concurrency}), then at most the timeout again for the
+     * extraction. On timeout the
+     * extraction is cancelled; the slot is only freed once the extraction thread actually stops,
+     * so a hung extractor cannot push its extension over its concurrency limit.
+     *
+     * @param processor the processor for the file
+     * @param file the file to extract
+     * @return the content of the file
+     * @throws ExtractionTimeoutException if extraction does not finish in time
+     * @throws IOException if extraction fails
+     */
+    public String extractContent(FileProcessor processor, File file) throws IOException {
+        return extract(resolveExtension(file), file.getName(), () -> processor.streamContent(file));
+    }
+
+    /**
+     * Extracts the content of a document read from a stream, such as an archive member, with the same
+     * per-type concurrency limit and timeout as files. The stream is consumed and closed.
+     *
+     * @param processor the processor for the document
+     * @param extension the document type, selecting its concurrency limit and timeout
+     * @param input the document bytes
+     * @param name the document name
+     * @return the content of the document
+     * @throws ExtractionTimeoutException if extraction does not finish in time
+     * @throws IOException if extraction fails
+     */
+    public String extractContent(FileProcessor processor, FileExtension extension, InputStream input, String name) throws IOException {
+        return extract(extension, name, () -> processor.streamContent(input, name));
+    }
+
+    /**
+     * Gets the number of extractions that timed out but whose threads are still running.
+     *
+     * @return the number of abandoned extraction workers
+     */
+    public int getAbandonedWorkers() {
+        return abandonedWorkers.get();
+    }
+
+    /**
+     * Gets the processor registered for a document type.
+     *
+     * @param extension the document type
+     * @return the processor, or null if none handles the type
+     */
+    public FileProcessor getProcessor(FileExtension extension) {
+        return registry.get(extension);
+    }
+
+    /**
+     * Determines the type of a document read from a stream: from its name when a processor is
+     * registered for it, otherwise by sniffing its leading bytes.
+     *
+     * @param name the document name
+     * @param input the document bytes; must support mark/reset, and is left at its start
+     * @return the document type, or {@link FileExtension#UNKNOWN}
+     * @throws IOException if the input cannot be read
+     */
+    public FileExtension resolveExtension(String name, InputStream input) throws IOException {
+        FileExtension extension = FileExtension.fromName(name);
+        if (registry.containsKey(extension)) {
+            return extension;
+        }
+        input.mark(ContentSniffer.SNIFF_LENGTH);
+        byte[] head = input.readNBytes(ContentSniffer.SNIFF_LENGTH);
+        input.reset();
+        return ContentSniffer.sniff(head);
+    }
+
+    private String extract(FileExtension extension, String name, ContentOpener opener) throws IOException {
+        Semaphore slots = slotsFor(extension);
+        long timeoutMs = timeoutMsFor(extension);
+
+        try {
+            if (!slots.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                log.error("No extraction slot for {} files freed within {} ms, giving up on {}", extension.getValue(), timeoutMs, name);
+                throw new ExtractionTimeoutException("No extraction slot freed within " + timeoutMs + " ms: " + name);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for an extraction slot for: " + name);
         }
 
-        FileExtension extension = FileExtension.fromFile(file);
-        log.warn("No suitable processor found for file: {} with extension: {}", 
-                file.getName(), 
-                extension.getValue());
-        return null;
+        // Whoever moves the worker out of PENDING or RUNNING decides who frees the slot
+        AtomicInteger state = new AtomicInteger(PENDING);
+        Future<String> extraction;
+        try {
+            extraction = extractionExecutor.submit(() -> {
+                if (!state.compareAndSet(PENDING, RUNNING)) {
+                    return null;
+                }
+                try {
+                    return readContent(opener, name);
+                } finally {
+                    slots.release();
+                    if (!state.compareAndSet(RUNNING, DONE)) {
+                        log.warn("Abandoned extraction of {} stopped, {} still running", name, abandonedWorkers.decrementAndGet());
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+
+        try {
+            return extraction.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            extraction.cancel(true);
+            abandon(state, slots, name);
+            log.error("Extraction of {} timed out after {} ms, cancelling", name, timeoutMs);
+            throw new ExtractionTimeoutException("Extraction timed out after " + timeoutMs + " ms: " + name);
+        } catch (InterruptedException e) {
+            extraction.cancel(true);
+            abandon(state, slots, name);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted extracting: " + name);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Error extracting: " + name, cause);
+        }
+    }
+
+    /**
+     * Gives up on an extraction whose caller stopped waiting. A worker that never started frees
+     * its slot here; one still running is counted until it stops and frees the slot itself.
+     */
+    private void abandon(AtomicInteger state, Semaphore slots, String name) {
+        if (state.compareAndSet(PENDING, ABANDONED)) {
+            slots.release();
+        } else if (state.compareAndSet(RUNNING, ABANDONED)) {
+            log.warn("Extraction worker for {} is still running after cancellation, {} abandoned workers",
+                    name, abandonedWorkers.incrementAndGet());
+        }
+    }
+
+    /**
+     * Collects the streamed content of a document, stopping between blocks if the extraction is cancelled.
+     */
+    private String readContent(ContentOpener opener, String name) throws IOException {
+        StringBuilder content = new StringBuilder();
+        try (Stream<TextBlock> blocks = opener.open()) {
+            Iterator<TextBlock> iterator = blocks.iterator();
+            while (iterator.hasNext()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Extraction cancelled: " + name);
+                }
+                content.append(iterator.next().getText());
+            }
+        }
+        return content.toString();
+    }
+
+    @FunctionalInterface
+    private interface ContentOpener {
+        Stream<TextBlock> open() throws IOException;
+    }
+
+    private synchronized Semaphore slotsFor(FileExtension extension) {
+        return extractionSlots.computeIfAbsent(extension, ext -> {
+            int concurrency = environment.getProperty(
+                    "document.extraction." + ext.getValue() + ".concurrency", Integer.class, defaultConcurrency);
+            log.info("Extraction of {} files limited to {} at a time", ext.getValue(), concurrency);
+            return new Semaphore(concurrency, true);
+        });
+    }
+
+    private synchronized long timeoutMsFor(FileExtension extension) {
+        return extractionTimeoutsMs.computeIfAbsent(extension, ext -> TimeUnit.SECONDS.toMillis(environment.getProperty(
+                "document.extraction." + ext.getValue() + ".timeout-seconds", Long.class, defaultTimeoutSeconds)));
     }
 }
@@ -0,0 +1,280 @@
+package com.johoco.springbatchpgaiapp.processor;
+
+import com.johoco.springbatchpgaiapp.model.FileExtension;
+import com.johoco.springbatchpgaiapp.model.TextBlock;
+import com.johoco.springbatchpgaiapp.util.FileOperations;
+import com.johoco.springbatchpgaiapp.util.TextBlocks;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Processor for HTML files. Tokenizes the markup in a single forward pass, SAX-style, without
+ * building a DOM: text runs are emitted as they are read, block-level tags become line breaks,
+ * and comments, scripts and styles are skipped.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HtmlFileProcessor implements FileProcessor {
+
+    private final FileOperations fileOperations;
+
+    @Override
+    public Set<FileExtension> getSupportedExtensions() {
+        return EnumSet.of(FileExtension.HTML);
+    }
+
+    @Override
+    public String extractContent(File file) throws IOException {
+        String content = TextBlocks.join(streamContent(file));
+        log.debug("Successfully read {} characters from HTML file: {}", content.length(), file.getName());
+        return content;
+    }
+
+    @Override
+    public Stream<TextBlock> streamContent(File file) throws IOException {
+        if (file == null) {
+            log.error("Cannot read content from null file");
+            throw new IllegalArgumentException("File cannot be null");
+        }
+
+        log.debug("Streaming content from HTML file: {}", file.getName());
+        return stream(new BufferedReader(fileOperations.openReader(file)), file.getName());
+    }
+
+    @Override
+    public Stream<TextBlock> streamContent(InputStream input, String name) throws IOException {
+        log.debug("Streaming content from HTML member: {}", name);
+        return stream(new BufferedReader(fileOperations.openReader(input)), name);
+    }
+
+    private Stream<TextBlock> stream(BufferedReader reader, String name) throws IOException {
+        return TextBlocks.fromSource(new HtmlTextSource(reader), reader, TextBlocks.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Pulls text out of HTML one block-level element at a time.
+     */
+    static final class HtmlTextSource implements TextBlocks.TextSource {
+        private static final Set<String> BLOCK_TAGS = Set.of(
+                "address", "article", "aside", "blockquote", "br", "dd", "div", "dl", "dt", "figcaption",
+                "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header", "hr", "li", "main", "nav",
+                "ol", "p", "pre", "section", "table", "td", "th", "title", "tr", "ul");
+        private static final Set<String> SKIPPED_TAGS = Set.of("script", "style", "noscript", "template");
+        private static final Map<String, String> ENTITIES = Map.of(
+                "amp", "&", "lt", "<", "gt", ">", "quot", "\"", "apos", "'", "nbsp", " ",
+                "mdash", "—", "ndash", "–", "hellip", "…", "copy", "©");
+        private static final int MAX_ENTITY_LENGTH = 10;
+        private static final int MAX_RUN_LENGTH = 4096;
+
+        private final Reader reader;
+        private int pending = -2;
+        private boolean pendingSpace;
+        private boolean atLineStart = true;
+
+        HtmlTextSource(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean appendNext(StringBuilder out) throws IOException {
+            int start = out.length();
+            int c;
+            while ((c = read()) != -1) {
+                if (c == '<') {
+                    if (handleTag(out)) {
+                        return true;
+                    }
+                } else if (c == '&') {
+                    appendText(out, decodeEntity());
+                } else if (Character.isWhitespace(c)) {
+                    pendingSpace = true;
+                } else {
+                    appendText(out, String.valueOf((char) c));
+                }
+                if (out.length() - start >= MAX_RUN_LENGTH) {
+                    return true;
+                }
+            }
+            if (!atLineStart) {
+                out.append('\n');
+                atLineStart = true;
+            }
+            return out.length() > start;
+        }
+
+        private void appendText(StringBuilder out, String text) {
+            if (pendingSpace && !atLineStart) {
+                out.append(' ');
+            }
+            pendingSpace = false;
+            out.append(text);
+            atLineStart = false;
+        }
+
+        /**
+         * Consumes a tag after its {@code <}.
+         *
+         * @return true if the tag ends a block and a line break was appended
+         */
+        private boolean handleTag(StringBuilder out) throws IOException {
+            int c = read();
+            if (c == '!') {
+                skipDeclaration();
+                return false;
+            }
+            if (c == '?') {
+                skipUntil(">");
+                return false;
+            }
+
+            boolean closing = c == '/';
+            if (closing) {
+                c = read();
+            }
+            if (!isAsciiLetter(c)) {
+                // A stray '<' in text, as in "1 < 2" or "3<4": tag names start with a letter
+                appendText(out, closing ? "</" : "<");
+                pending = c;
+                return false;
+            }
+            StringBuilder name = new StringBuilder();
+            while (c != -1 && (Character.isLetterOrDigit(c) || c == '-')) {
+                name.append((char) Character.toLowerCase(c));
+                c = read();
+            }
+            skipTagRest(c);
+
+            String tag = name.toString();
+            if (!closing && SKIPPED_TAGS.contains(tag)) {
+                skipUntil("</" + tag);
+                skipUntil(">");
+                return false;
+            }
+            if (BLOCK_TAGS.contains(tag)) {
+                pendingSpace = false;
+                if (!atLineStart) {
+                    out.append('\n');
+                    atLineStart = true;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean isAsciiLetter(int c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+        }
+
+        private void skipTagRest(int c) throws IOException {
+            int quote = 0;
+            while (c != -1) {
+                if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == '>') {
+                    return;
+                }
+                c = read();
+            }
+        }
+
+        private void skipDeclaration() throws IOException {
+            int first = read();
+            int second = first == '-' ? read() : -1;
+            if (first == '-' && second == '-') {
+                skipUntil("-->");
+            } else {
+                skipTagRest(first == '>' ? '>' : read());
+            }
+        }
+
+        /**
+         * Skips past the next occurrence of a lower-case terminator, ignoring case. On a mismatch
+         * the match falls back to the longest prefix of the terminator that ends the text read so
+         * far, so a comment closed by {@code --->} is not missed.
+         */
+        private void skipUntil(String terminator) throws IOException {
+            int[] fallback = prefixFunction(terminator);
+            int matched = 0;
+            int c;
+            while (matched < terminator.length() && (c = read()) != -1) {
+                char lower = (char) Character.toLowerCase(c);
+                while (matched > 0 && lower != terminator.charAt(matched)) {
+                    matched = fallback[matched - 1];
+                }
+                if (lower == terminator.charAt(matched)) {
+                    matched++;
+                }
+            }
+        }
+
+        /**
+         * For each prefix of {@code pattern}, the length of its longest proper prefix that is also its suffix.
+         */
+        private static int[] prefixFunction(String pattern) {
+            int[] fallback = new int[pattern.length()];
+            for (int i = 1, length = 0; i < pattern.length(); i++) {
+                while (length > 0 && pattern.charAt(i) != pattern.charAt(length)) {
+                    length = fallback[length - 1];
+                }
+                if (pattern.charAt(i) == pattern.charAt(length)) {
+                    length++;
+                }
+                fallback[i] = length;
+            }
+            return fallback;
+        }
+
+        private String decodeEntity() throws IOException {
+            StringBuilder entity = new StringBuilder();
+            int c = read();
+            while (c != -1 && c != ';' && entity.length() < MAX_ENTITY_LENGTH
+                    && (Character.isLetterOrDigit(c) || c == '#')) {
+                entity.append((char) c);
+                c = read();
+            }
+            if (c != ';') {
+                pending = c;
+                return "&" + entity;
+            }
+
+            String name = entity.toString();
+            try {
+                if (name.startsWith("#x") || name.startsWith("#X")) {
+                    return new String(Character.toChars(Integer.parseInt(name.substring(2), 16)));
+                }
+                if (name.startsWith("#")) {
+                    return new String(Character.toChars(Integer.parseInt(name.substring(1))));
+                }
+            } catch (IllegalArgumentException e) {
+                return "&" + name + ";";
+            }
+            return ENTITIES.getOrDefault(name.toLowerCase(Locale.ROOT), "&" + name + ";");
+        }
+
+        private int read() throws IOException {
+            if (pending != -2) {
+                int c = pending;
+                pending = -2;
+                return c;
+            }
+            return reader.read();
+        }
+    }
+}
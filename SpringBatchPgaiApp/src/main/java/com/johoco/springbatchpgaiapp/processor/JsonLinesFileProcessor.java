@@ -0,0 +1,111 @@
+package com.johoco.springbatchpgaiapp.processor;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.johoco.springbatchpgaiapp.model.FileExtension;
+import com.johoco.springbatchpgaiapp.model.TextBlock;
+import com.johoco.springbatchpgaiapp.util.FileOperations;
+import com.johoco.springbatchpgaiapp.util.TextBlocks;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Processor for JSON Lines files. Parses one record per line and renders its scalar
+ * values as {@code field.path: value} pairs; lines that are not valid JSON are skipped.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JsonLinesFileProcessor implements FileProcessor {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final FileOperations fileOperations;
+
+    @Override
+    public Set<FileExtension> getSupportedExtensions() {
+        return EnumSet.of(FileExtension.JSONL);
+    }
+
+    @Override
+    public String extractContent(File file) throws IOException {
+        String content = TextBlocks.join(streamContent(file));
+        log.debug("Successfully read {} characters from JSON Lines file: {}", content.length(), file.getName());
+        return content;
+    }
+
+    @Override
+    public Stream<TextBlock> streamContent(File file) throws IOException {
+        if (file == null) {
+            log.error("Cannot read content from null file");
+            throw new IllegalArgumentException("File cannot be null");
+        }
+
+        log.debug("Streaming content from JSON Lines file: {}", file.getName());
+        return stream(new BufferedReader(fileOperations.openReader(file)), file.getName());
+    }
+
+    @Override
+    public Stream<TextBlock> streamContent(InputStream input, String name) throws IOException {
+        log.debug("Streaming content from JSON Lines member: {}", name);
+        return stream(new BufferedReader(fileOperations.openReader(input)), name);
+    }
+
+    private Stream<TextBlock> stream(BufferedReader reader, String name) throws IOException {
+        int[] lineNumber = {0};
+        return TextBlocks.fromSource(out -> {
+            String line = reader.readLine();
+            if (line == null) {
+                return false;
+            }
+            lineNumber[0]++;
+            if (line.isBlank()) {
+                return true;
+            }
+            try {
+                int start = out.length();
+                appendNode("", MAPPER.readTree(line), out);
+                if (out.length() > start) {
+                    out.setLength(out.length() - 2);
+                    out.append('\n');
+                }
+            } catch (JsonProcessingException e) {
+                log.warn("Skipping invalid JSON at line {} of {}: {}", lineNumber[0], name, e.getOriginalMessage());
+            }
+            return true;
+        }, reader, TextBlocks.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Appends every scalar value under a node as {@code path: value, }.
+     */
+    static void appendNode(String path, JsonNode node, StringBuilder out) {
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                appendNode(path.isEmpty() ? field.getKey() : path + "." + field.getKey(), field.getValue(), out);
+            }
+        } else if (node.isArray()) {
+            for (JsonNode element : node) {
+                appendNode(path, element, out);
+            }
+        } else if (!node.isNull()) {
+            if (!path.isEmpty()) {
+                out.append(path).append(": ");
+            }
+            out.append(node.asText()).append(", ");
+        }
+    }
+}
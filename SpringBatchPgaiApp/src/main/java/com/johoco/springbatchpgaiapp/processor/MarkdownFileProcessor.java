@@ -0,0 +1,107 @@
+package com.johoco.springbatchpgaiapp.processor;
+
+import com.johoco.springbatchpgaiapp.model.FileExtension;
+import com.johoco.springbatchpgaiapp.model.TextBlock;
+import com.johoco.springbatchpgaiapp.util.FileOperations;
+import com.johoco.springbatchpgaiapp.util.TextBlocks;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Processor for Markdown files. Reads line by line and strips Markdown syntax,
+ * keeping the text of headings, lists, links, images and code blocks.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MarkdownFileProcessor implements FileProcessor {
+    private static final Pattern FENCE = Pattern.compile("^\\s*(```|~~~).*");
+    private static final Pattern RULE = Pattern.compile("^\\s*([-*_]\\s*){3,}$");
+    private static final Pattern TABLE_SEPARATOR = Pattern.compile("^\\s*\\|?\\s*:?-{3,}:?\\s*(\\|\\s*:?-{3,}:?\\s*)*\\|?\\s*$");
+    private static final Pattern REFERENCE_DEFINITION = Pattern.compile("^\\s*\\[[^\\]]+]:\\s+\\S+.*$");
+    private static final Pattern LINE_PREFIX = Pattern.compile("^\\s*(#{1,6}\\s+|(>\\s?)+|[-*+]\\s+|\\d+[.)]\\s+)");
+    private static final Pattern IMAGE_OR_LINK = Pattern.compile("!?\\[([^\\]]*)]\\([^)]*\\)");
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]+>");
+    private static final Pattern EMPHASIS = Pattern.compile("(\\*\\*|__|~~|`)|(?<![\\w*])[*_](?=\\S)|(?<=\\S)[*_](?![\\w*])");
+
+    private final FileOperations fileOperations;
+
+    @Override
+    public Set<FileExtension> getSupportedExtensions() {
+        return EnumSet.of(FileExtension.MARKDOWN);
+    }
+
+    @Override
+    public String extractContent(File file) throws IOException {
+        String content = TextBlocks.join(streamContent(file));
+        log.debug("Successfully read {} characters from Markdown file: {}", content.length(), file.getName());
+        return content;
+    }
+
+    @Override
+    public Stream<TextBlock> streamContent(File file) throws IOException {
+        if (file == null) {
+            log.error("Cannot read content from null file");
+            throw new IllegalArgumentException("File cannot be null");
+        }
+
+        log.debug("Streaming content from Markdown file: {}", file.getName());
+        return stream(new BufferedReader(fileOperations.openReader(file)), file.getName());
+    }
+
+    @Override
+    public Stream<TextBlock> streamContent(InputStream input, String name) throws IOException {
+        log.debug("Streaming content from Markdown member: {}", name);
+        return stream(new BufferedReader(fileOperations.openReader(input)), name);
+    }
+
+    private Stream<TextBlock> stream(BufferedReader reader, String name) throws IOException {
+        boolean[] inCodeBlock = {false};
+        return TextBlocks.fromSource(out -> {
+            String line = reader.readLine();
+            if (line == null) {
+                return false;
+            }
+            if (FENCE.matcher(line).matches()) {
+                inCodeBlock[0] = !inCodeBlock[0];
+                return true;
+            }
+            String text = inCodeBlock[0] ? line : toPlainText(line);
+            if (text != null) {
+                out.append(text).append('\n');
+            }
+            return true;
+        }, reader, TextBlocks.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Strips the Markdown syntax from one line outside a code block.
+     *
+     * @param line the Markdown line
+     * @return the plain text, or null for lines that carry no text such as rules and table separators
+     */
+    static String toPlainText(String line) {
+        if (RULE.matcher(line).matches() || TABLE_SEPARATOR.matcher(line).matches()
+                || REFERENCE_DEFINITION.matcher(line).matches()) {
+            return null;
+        }
+        String text = LINE_PREFIX.matcher(line).replaceFirst("");
+        text = IMAGE_OR_LINK.matcher(text).replaceAll("$1");
+        text = HTML_TAG.matcher(text).replaceAll("");
+        text = EMPHASIS.matcher(text).replaceAll("");
+        if (text.startsWith("|") || text.endsWith("|")) {
+            text = text.replaceAll("^\\s*\\|\\s*|\\s*\\|\\s*$", "").replaceAll("\\s*\\|\\s*", " | ");
+        }
+        return text.stripTrailing();
+    }
+}
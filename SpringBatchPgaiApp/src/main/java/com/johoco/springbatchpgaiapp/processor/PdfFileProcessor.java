@@ -1,45 +1,421 @@
 package com.johoco.springbatchpgaiapp.processor;
 
 import com.johoco.springbatchpgaiapp.model.FileExtension;
+import com.johoco.springbatchpgaiapp.model.TextBlock;
+import com.johoco.springbatchpgaiapp.util.TextBlocks;
+import com.johoco.springbatchpgaiapp.util.TextNormalizer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Processor for PDF files.
+ * Large documents are split into page ranges that are extracted in parallel on a shared
+ * fork-join pool and emitted in page order. Every loaded document keeps at most a fixed
+ * budget of main memory and spills the rest to a scratch file; documents over the size or
+ * page limits go through a separate low-concurrency lane and are extracted sequentially.
  */
 @Slf4j
 @Service
 public class PdfFileProcessor implements FileProcessor {
+    private static final int PROGRESS_LOG_INTERVAL = 100;
+
+    @Value("${document.pdf.max-parallelism:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int maxParallelism;
+
+    @Value("${document.pdf.parallelism:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int parallelism;
+
+    @Value("${document.pdf.pages-per-range:50}")
+    private int pagesPerRange;
+
+    @Value("${document.pdf.memory.max-main-memory-bytes:67108864}")
+    private long maxMainMemoryBytes;
+
+    @Value("${document.pdf.memory.scratch-directory:#{systemProperties['java.io.tmpdir']}}")
+    private String scratchDirectory;
+
+    @Value("${document.pdf.oversized.max-file-size-bytes:104857600}")
+    private long oversizedFileSizeBytes;
+
+    @Value("${document.pdf.oversized.max-pages:2000}")
+    private int oversizedPageCount;
+
+    @Value("${document.pdf.oversized.concurrency:1}")
+    private int oversizedConcurrency;
+
+    private ForkJoinPool extractionPool;
+    private Semaphore oversizedLane;
+
+    @PostConstruct
+    public void init() {
+        extractionPool = new ForkJoinPool(maxParallelism);
+        oversizedLane = new Semaphore(oversizedConcurrency, true);
+        log.info("PdfFileProcessor initialized with {} extraction threads and {} pages per range", maxParallelism, pagesPerRange);
+        log.info("PDF memory budget {} bytes per document, scratch files in {}, oversized lane of {} above {} bytes or {} pages",
+                maxMainMemoryBytes, scratchDirectory, oversizedConcurrency, oversizedFileSizeBytes, oversizedPageCount);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        extractionPool.shutdownNow();
+    }
 
     @Override
-    public boolean canProcess(File file) {
-        if (file == null) {
-            return false;
-        }
-        return FileExtension.PDF == FileExtension.fromFile(file);
+    public Set<FileExtension> getSupportedExtensions() {
+        return EnumSet.of(FileExtension.PDF);
     }
 
     @Override
     public String extractContent(File file) throws IOException {
+        return extractContent(file, parallelism, this::logProgress);
+    }
+
+    /**
+     * Extracts the text of a PDF, extracting up to {@code parallelism} page ranges at once.
+     *
+     * @param file the PDF file
+     * @param parallelism maximum number of page ranges extracted at once for this file,
+     *                    capped by {@code document.pdf.max-parallelism}
+     * @param listener notified after every extracted page
+     * @return the text of the whole document
+     * @throws IOException if the document cannot be read
+     */
+    public String extractContent(File file, int parallelism, ExtractionProgressListener listener) throws IOException {
+        try (Stream<TextBlock> blocks = streamContent(file, parallelism, listener)) {
+            String content = blocks.map(TextBlock::getText).collect(Collectors.joining());
+            log.debug("Successfully read {} characters from PDF file: {}", content.length(), file.getName());
+            return content;
+        } catch (UncheckedIOException e) {
+            log.error("Error reading PDF file {}: {}", file.getName(), e.getMessage(), e);
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public Stream<TextBlock> streamContent(File file) throws IOException {
+        return streamContent(file, parallelism, this::logProgress);
+    }
+
+    /**
+     * Streams the text of a PDF in page order. Documents of up to one range are read page by page
+     * on the calling thread. Larger documents are split into ranges of {@code document.pdf.pages-per-range}
+     * pages; up to {@code parallelism} ranges are extracted ahead of the consumer, each on its own
+     * copy of the document because PDFBox documents cannot be shared between threads.
+     *
+     * @param file the PDF file
+     * @param parallelism maximum number of page ranges extracted at once for this file,
+     *                    capped by {@code document.pdf.max-parallelism}
+     * @param listener notified after every extracted page
+     * @return the blocks of the document text, one per page or page range; must be closed by the caller
+     * @throws IOException if the document cannot be opened
+     */
+    public Stream<TextBlock> streamContent(File file, int parallelism, ExtractionProgressListener listener) throws IOException {
         if (file == null) {
             log.error("Cannot read content from null file");
             throw new IllegalArgumentException("File cannot be null");
         }
-        
-        try (PDDocument document = PDDocument.load(file)) {
-            log.debug("Reading content from PDF file: {}", file.getName());
-            PDFTextStripper stripper = new PDFTextStripper();
-            String content = stripper.getText(document);
-            log.debug("Successfully read {} characters from PDF file: {}", content.length(), file.getName());
-            return content;
+
+        boolean oversized = file.length() > oversizedFileSizeBytes;
+        if (oversized) {
+            enterOversizedLane(file);
+        }
+
+        PDDocument document;
+        try {
+            document = load(file);
+            if (!oversized && document.getNumberOfPages() > oversizedPageCount) {
+                // The page count is only known once loaded; wait for the lane without holding the document
+                document.close();
+                oversized = true;
+                enterOversizedLane(file);
+                document = load(file);
+            }
         } catch (IOException e) {
-            log.error("Error reading PDF file {}: {}", file.getName(), e.getMessage(), e);
+            if (oversized) {
+                oversizedLane.release();
+            }
             throw e;
         }
+
+        Runnable release = oversized ? releaseOnce() : () -> { };
+        int pageCount = document.getNumberOfPages();
+        int inFlight = oversized ? 1 : Math.min(parallelism, maxParallelism);
+        if (inFlight <= 1 || pageCount <= pagesPerRange) {
+            log.debug("Streaming content from PDF file: {} ({} pages{})", file.getName(), pageCount, oversized ? ", oversized" : "");
+            PageIterator pages;
+            try {
+                pages = new PageIterator(file, document, listener);
+            } catch (IOException e) {
+                document.close();
+                release.run();
+                throw e;
+            }
+            PDDocument opened = document;
+            return TextBlocks.fromIterator(pages, () -> {
+                try {
+                    close(opened);
+                } finally {
+                    release.run();
+                }
+            });
+        }
+
+        document.close();
+        log.debug("Streaming content from PDF file: {} ({} pages, {} ranges in parallel)", file.getName(), pageCount, inFlight);
+        RangeIterator ranges = new RangeIterator(file, pageCount, inFlight, listener);
+        return TextBlocks.fromIterator(ranges, ranges::cancel);
+    }
+
+    /**
+     * Streams the text of a PDF read from a stream, one page at a time. PDFBox needs random access,
+     * so the bytes are buffered within the main-memory budget and spill to a scratch file beyond it.
+     */
+    @Override
+    public Stream<TextBlock> streamContent(InputStream input, String name) throws IOException {
+        log.debug("Streaming content from PDF member: {}", name);
+        PDDocument document = PDDocument.load(input, memoryUsage());
+        PageIterator pages;
+        try {
+            pages = new PageIterator(new File(name), document, this::logProgress);
+        } catch (IOException e) {
+            document.close();
+            throw e;
+        }
+        return TextBlocks.fromIterator(pages, () -> {
+            try {
+                close(document);
+            } finally {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    log.debug("Error closing PDF member stream {}: {}", name, e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads a document within the configured main-memory budget, spilling to a scratch file beyond it.
+     */
+    private PDDocument load(File file) throws IOException {
+        return PDDocument.load(file, memoryUsage());
+    }
+
+    private MemoryUsageSetting memoryUsage() {
+        return MemoryUsageSetting.setupMixed(maxMainMemoryBytes).setTempDir(new File(scratchDirectory));
+    }
+
+    private void enterOversizedLane(File file) throws IOException {
+        log.info("PDF file {} is oversized, waiting for the oversized extraction lane", file.getName());
+        try {
+            oversizedLane.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the oversized extraction lane: " + file.getName());
+        }
+    }
+
+    private Runnable releaseOnce() {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                oversizedLane.release();
+            }
+        };
+    }
+
+    /**
+     * Extracts a range of pages, checking before each page whether the extraction was cancelled.
+     * Cancelling a fork-join task does not interrupt it, so the flag is what stops a running range.
+     */
+    private static String extractPages(PDDocument document, PDFTextStripper stripper, int startPage, int endPage, File file,
+                                       AtomicInteger pagesDone, int totalPages, ExtractionProgressListener listener,
+                                       AtomicBoolean cancelled) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int page = startPage; page <= endPage; page++) {
+            if (cancelled.get() || Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Extraction cancelled at page " + page + " of PDF file: " + file.getName());
+            }
+            stripper.setStartPage(page);
+            stripper.setEndPage(page);
+            content.append(stripper.getText(document));
+            listener.onProgress(file, pagesDone.incrementAndGet(), totalPages);
+        }
+        return content.toString();
+    }
+
+    /**
+     * Creates a text stripper that ends every page with a form feed, so normalization can
+     * recognize running headers and footers.
+     */
+    private static PDFTextStripper newStripper() throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setPageEnd(stripper.getPageEnd() + TextNormalizer.PAGE_BREAK);
+        return stripper;
+    }
+
+    private void logProgress(File file, int pagesDone, int totalPages) {
+        if (pagesDone == totalPages || pagesDone % PROGRESS_LOG_INTERVAL == 0) {
+            log.debug("Extracted {}/{} pages of PDF file: {}", pagesDone, totalPages, file.getName());
+        }
+    }
+
+    private static void close(PDDocument document) {
+        try {
+            document.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Extracts one page per step from an already open document.
+     */
+    private static final class PageIterator implements Iterator<TextBlock> {
+        private final File file;
+        private final PDDocument document;
+        private final PDFTextStripper stripper;
+        private final ExtractionProgressListener listener;
+        // Pages are extracted one at a time on the consumer's thread, so there is nothing to cancel
+        private static final AtomicBoolean NOT_CANCELLED = new AtomicBoolean();
+
+        private final AtomicInteger pagesDone = new AtomicInteger();
+        private final int pageCount;
+        private int nextPage = 1;
+        private long offset;
+
+        PageIterator(File file, PDDocument document, ExtractionProgressListener listener) throws IOException {
+            this.file = file;
+            this.document = document;
+            this.stripper = newStripper();
+            this.listener = listener;
+            this.pageCount = document.getNumberOfPages();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextPage <= pageCount;
+        }
+
+        @Override
+        public TextBlock next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int page = nextPage++;
+            try {
+                String text = extractPages(document, stripper, page, page, file, pagesDone, pageCount, listener, NOT_CANCELLED);
+                TextBlock block = new TextBlock(text, offset, page);
+                offset += text.length();
+                return block;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Keeps a bounded window of page ranges extracting on the pool and hands them out in order.
+     */
+    private final class RangeIterator implements Iterator<TextBlock> {
+        private final File file;
+        private final int pageCount;
+        private final int inFlight;
+        private final ExtractionProgressListener listener;
+        private final AtomicInteger pagesDone = new AtomicInteger();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final Deque<ForkJoinTask<String>> pending = new ArrayDeque<>();
+        private int nextStartPage = 1;
+        private int nextBlockPage = 1;
+        private long offset;
+
+        RangeIterator(File file, int pageCount, int inFlight, ExtractionProgressListener listener) {
+            this.file = file;
+            this.pageCount = pageCount;
+            this.inFlight = inFlight;
+            this.listener = listener;
+            fill();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public TextBlock next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ForkJoinTask<String> task = pending.removeFirst();
+            String text;
+            try {
+                text = task.get();
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("Interrupted extracting PDF file: " + file.getName()));
+            } catch (ExecutionException e) {
+                cancel();
+                IOException cause = e.getCause() instanceof IOException
+                        ? (IOException) e.getCause()
+                        : new IOException("Error extracting PDF file: " + file.getName(), e.getCause());
+                throw new UncheckedIOException(cause);
+            }
+
+            TextBlock block = new TextBlock(text, offset, nextBlockPage);
+            offset += text.length();
+            nextBlockPage += pagesPerRange;
+            fill();
+            return block;
+        }
+
+        /**
+         * Stops the ranges still extracting at their next page, and drops those not started.
+         */
+        void cancel() {
+            cancelled.set(true);
+            pending.forEach(task -> task.cancel(false));
+            pending.clear();
+        }
+
+        private void fill() {
+            while (pending.size() < inFlight && nextStartPage <= pageCount) {
+                int startPage = nextStartPage;
+                int endPage = Math.min(startPage + pagesPerRange - 1, pageCount);
+                nextStartPage = endPage + 1;
+                pending.addLast(extractionPool.submit(() -> {
+                    try (PDDocument document = load(file)) {
+                        return extractPages(document, newStripper(), startPage, endPage, file, pagesDone, pageCount, listener, cancelled);
+                    }
+                }));
+            }
+        }
     }
 }
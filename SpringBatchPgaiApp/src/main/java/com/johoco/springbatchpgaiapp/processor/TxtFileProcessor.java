@@ -1,26 +1,33 @@
 package com.johoco.springbatchpgaiapp.processor;
 
 import com.johoco.springbatchpgaiapp.model.FileExtension;
+import com.johoco.springbatchpgaiapp.model.TextBlock;
+import com.johoco.springbatchpgaiapp.util.FileOperations;
+import com.johoco.springbatchpgaiapp.util.TextBlocks;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Processor for TXT files.
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class TxtFileProcessor implements FileProcessor {
 
+    private final FileOperations fileOperations;
+
     @Override
-    public boolean canProcess(File file) {
-        if (file == null) {
-            return false;
-        }
-        return FileExtension.TXT == FileExtension.fromFile(file);
+    public Set<FileExtension> getSupportedExtensions() {
+        return EnumSet.of(FileExtension.TXT);
     }
 
     @Override
@@ -32,7 +39,7 @@ public class TxtFileProcessor implements FileProcessor {
         
         try {
             log.debug("Reading content from TXT file: {}", file.getName());
-            String content = Files.readString(file.toPath());
+            String content = fileOperations.readFileContent(file);
             log.debug("Successfully read {} characters from TXT file: {}", content.length(), file.getName());
             return content;
         } catch (IOException e) {
@@ -40,4 +47,21 @@ public class TxtFileProcessor implements FileProcessor {
             throw e;
         }
     }
+
+    @Override
+    public Stream<TextBlock> streamContent(File file) throws IOException {
+        if (file == null) {
+            log.error("Cannot read content from null file");
+            throw new IllegalArgumentException("File cannot be null");
+        }
+
+        log.debug("Streaming content from TXT file: {}", file.getName());
+        return fileOperations.streamFileContent(file);
+    }
+
+    @Override
+    public Stream<TextBlock> streamContent(InputStream input, String name) throws IOException {
+        log.debug("Streaming content from TXT member: {}", name);
+        return TextBlocks.fromReader(fileOperations.openReader(input), TextBlocks.DEFAULT_BLOCK_SIZE);
+    }
 }
@@ -4,9 +4,11 @@ import com.johoco.springbatchpgaiapp.model.Document;
 import com.johoco.springbatchpgaiapp.model.DocumentMetadata;
 import com.johoco.springbatchpgaiapp.model.DocumentStatus;
 import com.johoco.springbatchpgaiapp.model.FileExtension;
+import com.johoco.springbatchpgaiapp.model.SourceDocument;
 import com.johoco.springbatchpgaiapp.processor.FileProcessor;
 import com.johoco.springbatchpgaiapp.processor.FileProcessorFactory;
 import com.johoco.springbatchpgaiapp.util.FileOperations;
+import com.johoco.springbatchpgaiapp.util.TextNormalizer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,14 +16,18 @@ import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Instant;
+import java.util.Optional;
 
 @Slf4j
 @Service
-public class DocumentProcessor implements ItemProcessor<File, Document> {
+public class DocumentProcessor implements ItemProcessor<SourceDocument, Document> {
     
     private final FileOperations fileOperations;
     private final FileProcessorFactory fileProcessorFactory;
+    private final ExtractedTextCache extractedTextCache;
+    private final TextNormalizer textNormalizer;
     
     @Value("${spring.application.name:SpringBatchPgaiApp}")
     private String applicationName;
@@ -29,18 +35,25 @@ public class DocumentProcessor implements ItemProcessor<File, Document> {
     @Value("${spring.application.version:1.0.0}")
     private String applicationVersion;
 
-    public DocumentProcessor(FileOperations fileOperations, FileProcessorFactory fileProcessorFactory) {   
+    public DocumentProcessor(FileOperations fileOperations, FileProcessorFactory fileProcessorFactory,
+                             ExtractedTextCache extractedTextCache, TextNormalizer textNormalizer) {   
         this.fileOperations = fileOperations;
         this.fileProcessorFactory = fileProcessorFactory;
+        this.extractedTextCache = extractedTextCache;
+        this.textNormalizer = textNormalizer;
     }
 
     @Override
-    public Document process(File file) throws Exception {
-        if (file == null) {
+    public Document process(SourceDocument source) throws Exception {
+        if (source == null) {
             log.error("Received null file to process");
             return null;
         }
+        if (source.isArchiveMember()) {
+            return processArchiveMember(source);
+        }
 
+        File file = source.getFile();
         log.debug("Processing file: {}", file.getName());
         FileExtension extension = FileExtension.fromFile(file);
         log.debug("File extension: {}", extension.getValue());
@@ -53,9 +66,10 @@ public class DocumentProcessor implements ItemProcessor<File, Document> {
                 throw new UnsupportedOperationException("Unsupported file type: " + extension.getValue());
             }
             
-            // Extract content using the appropriate processor
-            String content = processor.extractContent(file);
-            if (content == null || content.trim().isEmpty()) {
+            // Extract content using the appropriate processor, unless the same file was extracted before.
+            // The cache keeps the raw text, so normalization settings can change without invalidating it
+            String content = textNormalizer.normalize(extractWithCache(processor, file));
+            if (content.isBlank()) {
                 log.warn("File {} is empty", file.getName());
                 return null;
             }
@@ -78,7 +92,7 @@ public class DocumentProcessor implements ItemProcessor<File, Document> {
             
             log.info("Successfully processed document: {} with status: {}", document.getFilename(), document.getStatus());
             return document;
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             log.error("Error processing file {}: {}", file.getName(), e.getMessage(), e);
             throw new RuntimeException("Error processing file: " + file.getName(), e);
         } catch (UnsupportedOperationException e) {
@@ -86,4 +100,53 @@ public class DocumentProcessor implements ItemProcessor<File, Document> {
             throw e;
         }
     }
+
+    /**
+     * Builds the document for an archive member, whose text the reader extracted from the archive stream.
+     */
+    private Document processArchiveMember(SourceDocument source) {
+        log.debug("Processing archive member: {}", source.getName());
+        String content = source.getContent() == null ? "" : textNormalizer.normalize(source.getContent());
+        if (content.isBlank()) {
+            log.warn("Archive member {} is empty", source.getName());
+            return null;
+        }
+
+        Document document = new Document();
+        document.setFilename(source.getName());
+        document.setContent(content);
+        document.setFileSize(source.getSize());
+        document.setLastModified(source.getLastModified() != null
+                ? source.getLastModified()
+                : Instant.ofEpochMilli(fileOperations.getLastModified(source.getFile())));
+        document.setStatus(DocumentStatus.PROCESSED);
+        document.setMetadata(DocumentMetadata.builder()
+                .originalFilename(source.getName())
+                .processingTime(Instant.now())
+                .processorName(applicationName)
+                .processorVersion(applicationVersion)
+                .sourceArchive(source.getFile().getName())
+                .archiveMember(source.getArchiveMember())
+                .build());
+
+        log.info("Successfully processed archive member: {} with status: {}", document.getFilename(), document.getStatus());
+        return document;
+    }
+
+    private String extractWithCache(FileProcessor processor, File file) throws IOException {
+        if (!extractedTextCache.isEnabled()) {
+            return fileProcessorFactory.extractContent(processor, file);
+        }
+
+        Optional<String> key = extractedTextCache.keyFor(processor, file);
+        Optional<String> cached = key.flatMap(extractedTextCache::get);
+        if (cached.isPresent()) {
+            log.info("Using cached extracted text for file: {}", file.getName());
+            return cached.get();
+        }
+
+        String content = fileProcessorFactory.extractContent(processor, file);
+        key.ifPresent(k -> extractedTextCache.put(k, content));
+        return content;
+    }
 }
@@ -0,0 +1,262 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import com.johoco.springbatchpgaiapp.processor.FileProcessor;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local disk cache of extracted document text, addressed by a hash of the file content, the
+ * processor that extracted it and the cache format version. Entries are stored gzip-compressed and evicted least recently used
+ * first once the cache grows past its size limit, so retried or re-dropped files skip extraction.
+ * Cache failures are logged and treated as misses; they never fail document processing.
+ */
+@Slf4j
+@Component
+public class ExtractedTextCache {
+    private static final String ENTRY_SUFFIX = ".txt.gz";
+
+    /**
+     * Salted into every key. Bump it whenever the text a processor extracts changes, so entries
+     * extracted the old way are missed and eventually evicted. Version 2: PDF pages end with a
+     * form feed.
+     */
+    static final int FORMAT_VERSION = 2;
+
+    @Value("${document.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${document.cache.directory:#{systemProperties['java.io.tmpdir']}/extracted-text-cache}")
+    private String directory;
+
+    @Value("${document.cache.max-size-bytes:536870912}")
+    private long maxSizeBytes;
+
+    private Path cacheDirectory;
+
+    /** Entry sizes in access order, eldest first. Guarded by {@code this}. */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSize;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            log.info("Extracted text cache disabled");
+            return;
+        }
+
+        cacheDirectory = Paths.get(directory);
+        Files.createDirectories(cacheDirectory);
+
+        // Rebuild the access order from file times, which are refreshed on every hit
+        List<Path> existing = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDirectory, "*" + ENTRY_SUFFIX)) {
+            stream.forEach(existing::add);
+        }
+        existing.sort(Comparator.comparing(ExtractedTextCache::lastModified));
+        synchronized (this) {
+            for (Path path : existing) {
+                long size = Files.size(path);
+                entries.put(keyOf(path), size);
+                totalSize += size;
+            }
+        }
+        log.info("Extracted text cache at {} holding {} entries ({} of {} bytes)",
+                cacheDirectory, existing.size(), totalSize, maxSizeBytes);
+        evict();
+    }
+
+    /**
+     * @return true when the cache is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Computes the cache key of a file: a SHA-256 over the cache format version, the processor
+     * name and the file bytes, so a change of any of them produces a new entry.
+     *
+     * @param processor the processor that extracts the file
+     * @param file the file
+     * @return the hex-encoded key, or empty if the file cannot be read, which is a miss
+     */
+    public Optional<String> keyFor(FileProcessor processor, File file) {
+        MessageDigest digest = sha256();
+        digest.update(("v" + FORMAT_VERSION + ":" + processor.getClass().getName()).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            log.warn("Could not compute the extracted text cache key of {}: {}", file.getName(), e.getMessage());
+            return Optional.empty();
+        }
+        return Optional.of(HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Looks up cached text.
+     *
+     * @param key the key from {@link #keyFor}
+     * @return the cached text, or empty on a miss
+     */
+    public Optional<String> get(String key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                return Optional.empty();
+            }
+        }
+
+        Path path = pathOf(key);
+        try (Reader reader = new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8)) {
+            StringBuilder content = new StringBuilder();
+            char[] buffer = new char[64 * 1024];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                content.append(buffer, 0, read);
+            }
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(content.toString());
+        } catch (IOException e) {
+            log.warn("Could not read extracted text cache entry {}: {}", key, e.getMessage());
+            remove(key);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores extracted text, then evicts least recently used entries while over the size limit.
+     *
+     * @param key the key from {@link #keyFor}
+     * @param content the extracted text
+     */
+    public void put(String key, String content) {
+        if (!enabled) {
+            return;
+        }
+
+        Path path = pathOf(key);
+        Path temp = cacheDirectory.resolve(key + ".tmp-" + Thread.currentThread().getId());
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp));
+                 Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                writer.write(content);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long size = Files.size(path);
+            synchronized (this) {
+                Long previous = entries.put(key, size);
+                totalSize += size - (previous == null ? 0 : previous);
+            }
+            log.debug("Cached {} characters of extracted text as {} ({} bytes)", content.length(), key, size);
+        } catch (IOException e) {
+            log.warn("Could not write extracted text cache entry {}: {}", key, e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Best effort cleanup
+            }
+            return;
+        }
+        evict();
+    }
+
+    private void evict() {
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+            while (totalSize > maxSizeBytes && iterator.hasNext()) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                totalSize -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                iterator.remove();
+            }
+        }
+        for (String key : evicted) {
+            try {
+                Files.deleteIfExists(pathOf(key));
+            } catch (IOException e) {
+                log.warn("Could not delete evicted cache entry {}: {}", key, e.getMessage());
+            }
+        }
+        if (!evicted.isEmpty()) {
+            log.debug("Evicted {} extracted text cache entries", evicted.size());
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (this) {
+            Long size = entries.remove(key);
+            if (size != null) {
+                totalSize -= size;
+            }
+        }
+        try {
+            Files.deleteIfExists(pathOf(key));
+        } catch (IOException ignored) {
+            // Best effort cleanup
+        }
+    }
+
+    private Path pathOf(String key) {
+        return cacheDirectory.resolve(key + ENTRY_SUFFIX);
+    }
+
+    private static String keyOf(Path path) {
+        String name = path.getFileName().toString();
+        return name.substring(0, name.length() - ENTRY_SUFFIX.length());
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import com.johoco.springbatchpgaiapp.model.FileExtension;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Sequential reader over the members of a ZIP or gzip-compressed tar archive.
+ * Members are decompressed on the fly from a single pass over the archive; nothing is unpacked to disk.
+ * Each member's content must be consumed before moving to the next one.
+ */
+public class ArchiveStream implements Closeable {
+    private static final int TAR_BLOCK_SIZE = 512;
+    private static final int MAX_HEADER_ENTRY_SIZE = 1024 * 1024;
+
+    private final InputStream input;
+    private final ZipInputStream zip;
+    private long tarRemaining;
+    private long tarPadding;
+
+    private ArchiveStream(InputStream input, ZipInputStream zip) {
+        this.input = input;
+        this.zip = zip;
+    }
+
+    /**
+     * Opens an archive.
+     *
+     * @param path the archive file
+     * @param type {@link FileExtension#ZIP} or {@link FileExtension#TAR_GZ}
+     * @return the opened archive; must be closed by the caller
+     * @throws IOException if the archive cannot be opened
+     */
+    public static ArchiveStream open(Path path, FileExtension type) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(path), 64 * 1024);
+        try {
+            if (type == FileExtension.ZIP) {
+                ZipInputStream zip = new ZipInputStream(in, StandardCharsets.UTF_8);
+                return new ArchiveStream(zip, zip);
+            }
+            if (type == FileExtension.TAR_GZ) {
+                return new ArchiveStream(new BufferedInputStream(new GZIPInputStream(in, 64 * 1024)), null);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        in.close();
+        throw new IllegalArgumentException("Not an archive type: " + type);
+    }
+
+    /**
+     * Advances to the next regular file member, skipping directories and links.
+     *
+     * @return the member, or null at the end of the archive
+     * @throws IOException if the archive is corrupt or cannot be read
+     */
+    public Member next() throws IOException {
+        return zip != null ? nextZipMember() : nextTarMember();
+    }
+
+    private Member nextZipMember() throws IOException {
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (!entry.isDirectory()) {
+                Instant modified = entry.getLastModifiedTime() != null ? entry.getLastModifiedTime().toInstant() : null;
+                return new Member(normalize(entry.getName()), entry.getSize(), modified, new MemberInputStream(zip));
+            }
+        }
+        return null;
+    }
+
+    private Member nextTarMember() throws IOException {
+        // Skip whatever the caller left unread of the previous member, plus its padding
+        skipFully(tarRemaining + tarPadding);
+        tarRemaining = 0;
+        tarPadding = 0;
+
+        byte[] header = new byte[TAR_BLOCK_SIZE];
+        String longName = null;
+        String paxPath = null;
+        while (true) {
+            if (!readBlock(header) || isZeroBlock(header)) {
+                return null;
+            }
+
+            long size = parseOctal(header, 124, 12);
+            long padding = (TAR_BLOCK_SIZE - size % TAR_BLOCK_SIZE) % TAR_BLOCK_SIZE;
+            char type = (char) header[156];
+
+            if (type == 'L') {
+                // GNU long name: the member's name is the content of this entry
+                byte[] nameBytes = readHeaderEntry(size, padding);
+                longName = cString(nameBytes, 0, nameBytes.length);
+                continue;
+            }
+            if (type == 'x') {
+                // Pax extended header for the next entry; its path overrides any other name
+                String path = paxPath(readHeaderEntry(size, padding));
+                if (path != null) {
+                    paxPath = path;
+                }
+                continue;
+            }
+
+            String name = paxPath != null ? paxPath : longName != null ? longName : tarName(header);
+            longName = null;
+            paxPath = null;
+            if (type == '0' || type == '\0' || type == '7') {
+                tarRemaining = size;
+                tarPadding = padding;
+                Instant modified = Instant.ofEpochSecond(parseOctal(header, 136, 12));
+                return new Member(normalize(name), size, modified, new TarMemberInputStream());
+            }
+            // Directories, links, global pax headers ('g') and other non-file entries
+            skipFully(size + padding);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private boolean readBlock(byte[] block) throws IOException {
+        int read = input.readNBytes(block, 0, block.length);
+        if (read == 0) {
+            return false;
+        }
+        if (read < block.length) {
+            throw new EOFException("Truncated tar header");
+        }
+        return true;
+    }
+
+    /**
+     * Reads the content of a header entry, such as a long name, and skips its padding.
+     */
+    private byte[] readHeaderEntry(long size, long padding) throws IOException {
+        if (size > MAX_HEADER_ENTRY_SIZE) {
+            throw new IOException("Tar header entry of " + size + " bytes exceeds " + MAX_HEADER_ENTRY_SIZE);
+        }
+        byte[] content = input.readNBytes((int) size);
+        if (content.length < size) {
+            throw new EOFException("Truncated tar header entry");
+        }
+        skipFully(padding);
+        return content;
+    }
+
+    private void skipFully(long count) throws IOException {
+        while (count > 0) {
+            long skipped = input.skip(count);
+            if (skipped <= 0) {
+                if (input.read() == -1) {
+                    throw new EOFException("Truncated tar archive");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    /**
+     * Strips the leading {@code ./} or {@code /} some archivers add, so member paths are stable identities.
+     */
+    private static String normalize(String name) {
+        String normalized = name;
+        while (normalized.startsWith("./") || normalized.startsWith("/")) {
+            normalized = normalized.substring(normalized.startsWith("./") ? 2 : 1);
+        }
+        return normalized;
+    }
+
+    /**
+     * Finds the {@code path} record of a pax extended header. Each record is
+     * {@code "<length> <key>=<value>\n"}, where the decimal length counts the whole record.
+     *
+     * @return the path, or null if the header has none
+     * @throws IOException if a record is malformed
+     */
+    static String paxPath(byte[] records) throws IOException {
+        String path = null;
+        int offset = 0;
+        while (offset < records.length) {
+            int space = offset;
+            int length = 0;
+            while (space < records.length && records[space] >= '0' && records[space] <= '9') {
+                length = length * 10 + (records[space] - '0');
+                space++;
+            }
+            if (space == offset || space >= records.length || records[space] != ' '
+                    || length <= space - offset + 1 || offset + length > records.length) {
+                throw new IOException("Invalid pax extended header record");
+            }
+            String record = new String(records, space + 1, offset + length - space - 2, StandardCharsets.UTF_8);
+            if (record.startsWith("path=")) {
+                // A later record for the same key wins
+                path = record.substring("path=".length());
+            }
+            offset += length;
+        }
+        return path;
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String tarName(byte[] header) {
+        String name = cString(header, 0, 100);
+        boolean ustar = cString(header, 257, 6).startsWith("ustar");
+        String prefix = ustar ? cString(header, 345, 155) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    private static String cString(byte[] bytes, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && bytes[end] != 0) {
+            end++;
+        }
+        return new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static long parseOctal(byte[] header, int offset, int length) throws IOException {
+        long value = 0;
+        boolean digits = false;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = header[i];
+            if (b == 0 || (b == ' ' && digits)) {
+                break;
+            }
+            if (b == ' ') {
+                continue;
+            }
+            if (b < '0' || b > '7') {
+                throw new IOException("Invalid tar header field");
+            }
+            value = value * 8 + (b - '0');
+            digits = true;
+        }
+        return value;
+    }
+
+    /**
+     * One archive member. Its content stream reads only this member; closing it does not close the archive.
+     */
+    public static final class Member {
+        private final String name;
+        private final long size;
+        private final Instant lastModified;
+        private final InputStream content;
+
+        Member(String name, long size, Instant lastModified, InputStream content) {
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.content = content;
+        }
+
+        /** @return the member path inside the archive */
+        public String getName() {
+            return name;
+        }
+
+        /** @return the uncompressed size, or -1 if the archive does not record it up front */
+        public long getSize() {
+            return size;
+        }
+
+        /** @return the modification time recorded in the archive, or null */
+        public Instant getLastModified() {
+            return lastModified;
+        }
+
+        /** @return the member content */
+        public InputStream getContent() {
+            return content;
+        }
+    }
+
+    private static final class MemberInputStream extends FilterInputStream {
+        MemberInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+            // The archive stream stays open for the following members
+        }
+    }
+
+    private final class TarMemberInputStream extends InputStream {
+        @Override
+        public int read() throws IOException {
+            if (tarRemaining <= 0) {
+                return -1;
+            }
+            int b = input.read();
+            if (b == -1) {
+                throw new EOFException("Truncated tar member");
+            }
+            tarRemaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (tarRemaining <= 0) {
+                return -1;
+            }
+            int read = input.read(buffer, offset, (int) Math.min(length, tarRemaining));
+            if (read == -1) {
+                throw new EOFException("Truncated tar member");
+            }
+            tarRemaining -= read;
+            return read;
+        }
+
+        @Override
+        public void close() {
+            // The archive stream stays open for the following members
+        }
+    }
+}
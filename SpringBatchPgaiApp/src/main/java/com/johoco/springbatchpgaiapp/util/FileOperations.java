@@ -1,14 +1,22 @@
 package com.johoco.springbatchpgaiapp.util;
 
+import com.johoco.springbatchpgaiapp.model.TextBlock;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.stream.Stream;
 
 import org.apache.commons.io.FilenameUtils;
 
@@ -19,6 +27,12 @@ import org.apache.commons.io.FilenameUtils;
 @Service
 public class FileOperations {
 
+    @Value("${document.text.charset:UTF-8}")
+    private String charset = "UTF-8";
+
+    @Value("${document.text.malformed-input:REPLACE}")
+    private String malformedInput = "REPLACE";
+
     /**
      * Reads content from a file.
      * 
@@ -37,7 +51,7 @@ public class FileOperations {
         
         try {
             log.debug("Reading content from file using default method: {}", file.getName());
-            String content = Files.readString(file.toPath());
+            String content = readFully(file);
             log.debug("Successfully read {} characters from file: {}", content.length(), file.getName());
             return content;
         } catch (IOException e) {
@@ -46,6 +60,61 @@ public class FileOperations {
         }
     }
     
+    /**
+     * Streams the content of a file as blocks of text with their character offsets,
+     * so large files can be processed without reading them into a single string.
+     * The returned stream holds the file open and must be closed by the caller.
+     *
+     * @param file the file to read
+     * @return the blocks of the file content, in order
+     * @throws IOException if the file cannot be opened
+     */
+    public Stream<TextBlock> streamFileContent(File file) throws IOException {
+        if (file == null) {
+            log.error("Cannot read content from null file");
+            throw new IllegalArgumentException("File cannot be null");
+        }
+
+        log.debug("Streaming content from file: {}", file.getName());
+        return TextBlocks.fromReader(openReader(file), TextBlocks.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Opens a memory-mapped reader over a text file using the configured charset and malformed-input policy.
+     *
+     * @param file the file to read
+     * @return a reader that must be closed by the caller
+     * @throws IOException if the file cannot be opened
+     */
+    public Reader openReader(File file) throws IOException {
+        return new MappedFileReader(file.toPath(), Charset.forName(charset), MappedFileReader.errorAction(malformedInput));
+    }
+
+    /**
+     * Opens a reader over a byte stream using the configured charset and malformed-input policy.
+     *
+     * @param input the bytes to decode
+     * @return a reader that closes {@code input} when closed
+     */
+    public Reader openReader(InputStream input) {
+        CodingErrorAction action = MappedFileReader.errorAction(malformedInput);
+        return new InputStreamReader(input, Charset.forName(charset).newDecoder()
+                .onMalformedInput(action)
+                .onUnmappableCharacter(action));
+    }
+
+    private String readFully(File file) throws IOException {
+        StringBuilder content = new StringBuilder((int) Math.min(file.length(), Integer.MAX_VALUE - 8));
+        char[] buffer = new char[TextBlocks.DEFAULT_BLOCK_SIZE];
+        try (Reader reader = openReader(file)) {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                content.append(buffer, 0, read);
+            }
+        }
+        return content.toString();
+    }
+    
     /**
      * Gets the file size in bytes.
      *
@@ -0,0 +1,212 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import com.johoco.springbatchpgaiapp.model.TextBlock;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Helpers for producing streams of {@link TextBlock}s.
+ */
+public final class TextBlocks {
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private TextBlocks() {
+    }
+
+    /**
+     * Streams the text of a reader as blocks of about {@code blockSize} characters.
+     * Blocks end at the last line break in the buffer when there is one in its second half,
+     * so lines are not cut in the middle. The reader is closed when the stream is closed.
+     *
+     * @param reader the reader to consume
+     * @param blockSize target number of characters per block
+     * @return a lazy stream of blocks; must be closed by the caller
+     */
+    public static Stream<TextBlock> fromReader(Reader reader, int blockSize) {
+        if (blockSize < 2) {
+            throw new IllegalArgumentException("Block size must be at least 2");
+        }
+        return fromIterator(new ReaderBlockIterator(reader, blockSize), () -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Wraps an iterator of blocks in a sequential stream that runs {@code onClose} when closed.
+     *
+     * @param iterator the blocks
+     * @param onClose action releasing the underlying resources
+     * @return a lazy stream of blocks; must be closed by the caller
+     */
+    public static Stream<TextBlock> fromIterator(Iterator<TextBlock> iterator, Runnable onClose) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(onClose);
+    }
+
+    /**
+     * Produces extracted text one piece at a time, e.g. one line, record or run of markup text.
+     */
+    @FunctionalInterface
+    public interface TextSource {
+
+        /**
+         * Appends the next piece of text.
+         *
+         * @param out the buffer to append to
+         * @return false once the source is exhausted and nothing was appended
+         * @throws IOException if the underlying input cannot be read
+         */
+        boolean appendNext(StringBuilder out) throws IOException;
+    }
+
+    /**
+     * Streams the text of a source as blocks of at least {@code blockSize} characters, made of whole
+     * pieces so a block never ends inside a line or record. The resource is closed with the stream.
+     *
+     * @param source the text source
+     * @param resource the input the source reads from
+     * @param blockSize minimum number of characters per block, except the last
+     * @return a lazy stream of blocks; must be closed by the caller
+     */
+    public static Stream<TextBlock> fromSource(TextSource source, Closeable resource, int blockSize) {
+        return fromIterator(new SourceBlockIterator(source, blockSize), () -> {
+            try {
+                resource.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Concatenates a stream of blocks into the whole text and closes the stream.
+     *
+     * @param blocks the blocks to join
+     * @return the text of all blocks in order
+     * @throws IOException if reading a block failed
+     */
+    public static String join(Stream<TextBlock> blocks) throws IOException {
+        try (blocks) {
+            StringBuilder content = new StringBuilder();
+            blocks.forEachOrdered(block -> content.append(block.getText()));
+            return content.toString();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class SourceBlockIterator implements Iterator<TextBlock> {
+        private final TextSource source;
+        private final int blockSize;
+        private final StringBuilder buffer = new StringBuilder();
+        private long offset;
+        private boolean exhausted;
+
+        SourceBlockIterator(TextSource source, int blockSize) {
+            this.source = source;
+            this.blockSize = blockSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (!exhausted && buffer.length() < blockSize) {
+                    exhausted = !source.appendNext(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return buffer.length() > 0;
+        }
+
+        @Override
+        public TextBlock next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            TextBlock block = new TextBlock(buffer.toString(), offset, 0);
+            offset += buffer.length();
+            buffer.setLength(0);
+            return block;
+        }
+    }
+
+    private static final class ReaderBlockIterator implements Iterator<TextBlock> {
+        private final Reader reader;
+        private final char[] buffer;
+        private int buffered;
+        private long offset;
+        private boolean eof;
+        private TextBlock next;
+
+        ReaderBlockIterator(Reader reader, int blockSize) {
+            this.reader = reader;
+            this.buffer = new char[blockSize];
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = readBlock();
+            }
+            return next != null;
+        }
+
+        @Override
+        public TextBlock next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            TextBlock block = next;
+            next = null;
+            return block;
+        }
+
+        private TextBlock readBlock() {
+            try {
+                while (!eof && buffered < buffer.length) {
+                    int read = reader.read(buffer, buffered, buffer.length - buffered);
+                    if (read < 0) {
+                        eof = true;
+                    } else {
+                        buffered += read;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (buffered == 0) {
+                return null;
+            }
+
+            int length = buffered;
+            if (!eof) {
+                for (int i = buffered - 1; i >= buffered / 2; i--) {
+                    if (buffer[i] == '\n') {
+                        length = i + 1;
+                        break;
+                    }
+                }
+            }
+
+            TextBlock block = new TextBlock(new String(buffer, 0, length), offset, 0);
+            offset += length;
+            System.arraycopy(buffer, length, buffer, 0, buffered - length);
+            buffered -= length;
+            return block;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cleans extracted text before it is embedded and stored:
+ * <ul>
+ *   <li>runs of spaces and tabs collapse to one space, lines are trimmed and runs of blank lines
+ *       collapse to a single blank line;</li>
+ *   <li>a word hyphenated across a line break is joined again;</li>
+ *   <li>lines repeated at the top or bottom of most pages (running headers, footers and page
+ *       numbers) are removed. Pages are separated by form feeds ({@link #PAGE_BREAK});
+ *       digits are ignored when comparing lines, so "Page 3 of 9" matches "Page 4 of 9".</li>
+ * </ul>
+ * The input is only read through its {@link CharSequence} view, lines are compared by hash,
+ * and the result is written to a single output buffer.
+ */
+@Slf4j
+@Component
+public class TextNormalizer {
+    public static final char PAGE_BREAK = '\f';
+
+    @Value("${document.normalization.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${document.normalization.join-hyphenated-lines:true}")
+    private boolean joinHyphenatedLines = true;
+
+    @Value("${document.normalization.boilerplate.min-pages:3}")
+    private int boilerplateMinPages = 3;
+
+    @Value("${document.normalization.boilerplate.page-fraction:0.5}")
+    private double boilerplatePageFraction = 0.5;
+
+    @Value("${document.normalization.boilerplate.edge-lines:3}")
+    private int boilerplateEdgeLines = 3;
+
+    @Value("${document.normalization.boilerplate.max-line-length:120}")
+    private int boilerplateMaxLineLength = 120;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Normalizes a document's text.
+     *
+     * @param text the extracted text
+     * @return the normalized text, or the text itself when normalization is disabled
+     */
+    public String normalize(CharSequence text) {
+        if (!enabled) {
+            return text.toString();
+        }
+
+        Set<Long> boilerplate = findBoilerplate(text);
+        StringBuilder out = new StringBuilder(text.length());
+        int blankLines = 0;
+        boolean pendingHyphen = false;
+
+        int pageStart = 0;
+        while (pageStart <= text.length()) {
+            int pageEnd = indexOf(text, PAGE_BREAK, pageStart);
+            int[] edges = boilerplate.isEmpty() ? null : edgeLines(text, pageStart, pageEnd);
+
+            int lineStart = pageStart;
+            while (lineStart < pageEnd) {
+                int lineEnd = Math.min(indexOf(text, '\n', lineStart), pageEnd);
+                int start = skipSpace(text, lineStart, lineEnd);
+                int end = trimEnd(text, start, lineEnd);
+
+                if (start == end) {
+                    blankLines++;
+                } else if (edges == null || !isEdgeLine(edges, lineStart) || !boilerplate.contains(lineKey(text, start, end))) {
+                    if (pendingHyphen && blankLines == 0 && Character.isLowerCase(text.charAt(start))) {
+                        // Drop the hyphen and continue the word
+                        out.setLength(out.length() - 1);
+                    } else if (out.length() > 0) {
+                        out.append(blankLines > 0 ? "\n\n" : "\n");
+                    }
+                    appendCollapsed(text, start, end, out);
+                    pendingHyphen = joinHyphenatedLines && end - start >= 2
+                            && text.charAt(end - 1) == '-' && Character.isLetter(text.charAt(end - 2));
+                    blankLines = 0;
+                }
+                lineStart = lineEnd + 1;
+            }
+            pageStart = pageEnd + 1;
+        }
+
+        if (log.isDebugEnabled() && out.length() < text.length()) {
+            log.debug("Normalized text from {} to {} characters", text.length(), out.length());
+        }
+        return out.toString();
+    }
+
+    /**
+     * Finds the hashes of lines that appear near the top or bottom of enough pages to be
+     * running headers or footers.
+     */
+    private Set<Long> findBoilerplate(CharSequence text) {
+        Set<Long> boilerplate = new HashSet<>();
+        if (boilerplateEdgeLines < 1) {
+            return boilerplate;
+        }
+
+        // Line hash -> {pages it appeared on, last page it was counted for}
+        Map<Long, int[]> pageCounts = new HashMap<>();
+        int pages = 0;
+        int pageStart = 0;
+        while (pageStart <= text.length()) {
+            int pageEnd = indexOf(text, PAGE_BREAK, pageStart);
+            int[] edges = edgeLines(text, pageStart, pageEnd);
+            if (edges.length > 0) {
+                pages++;
+                for (int lineStart : edges) {
+                    int lineEnd = Math.min(indexOf(text, '\n', lineStart), pageEnd);
+                    int start = skipSpace(text, lineStart, lineEnd);
+                    int end = trimEnd(text, start, lineEnd);
+                    if (end - start > boilerplateMaxLineLength) {
+                        continue;
+                    }
+                    int[] count = pageCounts.computeIfAbsent(lineKey(text, start, end), key -> new int[] {0, 0});
+                    if (count[1] != pages) {
+                        count[0]++;
+                        count[1] = pages;
+                    }
+                }
+            }
+            pageStart = pageEnd + 1;
+        }
+
+        if (pages < boilerplateMinPages) {
+            return boilerplate;
+        }
+        int minPages = Math.max(2, (int) Math.ceil(pages * boilerplatePageFraction));
+        pageCounts.forEach((key, count) -> {
+            if (count[0] >= minPages) {
+                boilerplate.add(key);
+            }
+        });
+        return boilerplate;
+    }
+
+    /**
+     * Returns the start offsets of the first and last {@code boilerplateEdgeLines} non-blank lines of a page.
+     */
+    private int[] edgeLines(CharSequence text, int pageStart, int pageEnd) {
+        int nonBlank = 0;
+        for (int lineStart = pageStart; lineStart < pageEnd; ) {
+            int lineEnd = Math.min(indexOf(text, '\n', lineStart), pageEnd);
+            if (skipSpace(text, lineStart, lineEnd) < lineEnd) {
+                nonBlank++;
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        int[] edges = new int[Math.min(nonBlank, 2 * boilerplateEdgeLines)];
+        int index = 0;
+        int line = 0;
+        for (int lineStart = pageStart; lineStart < pageEnd; ) {
+            int lineEnd = Math.min(indexOf(text, '\n', lineStart), pageEnd);
+            if (skipSpace(text, lineStart, lineEnd) < lineEnd) {
+                if (line < boilerplateEdgeLines || line >= nonBlank - boilerplateEdgeLines) {
+                    edges[index++] = lineStart;
+                }
+                line++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return edges;
+    }
+
+    private static boolean isEdgeLine(int[] edges, int lineStart) {
+        for (int edge : edges) {
+            if (edge == lineStart) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hashes a trimmed line ignoring case, digits and the amount of whitespace between words.
+     */
+    private static long lineKey(CharSequence text, int start, int end) {
+        long hash = 0xcbf29ce484222325L;
+        boolean space = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (isSpace(c)) {
+                space = true;
+                continue;
+            }
+            if (space) {
+                hash = (hash ^ ' ') * 0x100000001b3L;
+                space = false;
+            }
+            char key = Character.isDigit(c) ? '#' : Character.toLowerCase(c);
+            hash = (hash ^ key) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static void appendCollapsed(CharSequence text, int start, int end, StringBuilder out) {
+        boolean space = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (isSpace(c)) {
+                space = true;
+            } else {
+                if (space) {
+                    out.append(' ');
+                    space = false;
+                }
+                out.append(c);
+            }
+        }
+    }
+
+    private static int skipSpace(CharSequence text, int from, int to) {
+        while (from < to && isSpace(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(CharSequence text, int from, int to) {
+        while (to > from && isSpace(text.charAt(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    /** Whitespace within a line, including carriage returns and no-break spaces. */
+    private static boolean isSpace(char c) {
+        return c != '\n' && c != PAGE_BREAK && (Character.isWhitespace(c) || Character.isSpaceChar(c));
+    }
+
+    private static int indexOf(CharSequence text, char c, int from) {
+        for (int i = from; i < text.length(); i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return text.length();
+    }
+}
@@ -3,7 +3,7 @@ DROP TABLE IF EXISTS documents;
 
 CREATE TABLE IF NOT EXISTS documents (
     id BIGSERIAL PRIMARY KEY,
-    filename VARCHAR(255) NOT NULL,
+    filename VARCHAR(1024) NOT NULL,
     content TEXT,
     file_size BIGINT,
     last_modified TIMESTAMP WITH TIME ZONE,
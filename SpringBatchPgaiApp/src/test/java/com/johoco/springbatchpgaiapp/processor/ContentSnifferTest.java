@@ -0,0 +1,73 @@
+package com.johoco.springbatchpgaiapp.processor;
+
+import com.johoco.springbatchpgaiapp.model.FileExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentSnifferTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testBinaryFormatsAreRecognizedByMagicBytes() {
+        assertEquals(FileExtension.PDF, ContentSniffer.sniff(bytes("%PDF-1.7\n%âã")));
+        assertEquals(FileExtension.ZIP, ContentSniffer.sniff(new byte[] {'P', 'K', 3, 4, 20, 0, 0, 0}));
+        assertEquals(FileExtension.TAR_GZ, ContentSniffer.sniff(new byte[] {(byte) 0x1F, (byte) 0x8B, 8, 0}));
+    }
+
+    @Test
+    void testTextFormatsAreRecognizedByTheirContent() {
+        assertEquals(FileExtension.HTML, ContentSniffer.sniff(bytes("  <!DOCTYPE html><html></html>")));
+        assertEquals(FileExtension.HTML, ContentSniffer.sniff(bytes("<div><head></head><body>x</body></div>")));
+        assertEquals(FileExtension.JSONL, ContentSniffer.sniff(bytes("{\"id\": 1}\n{\"id\": 2}\n")));
+        assertEquals(FileExtension.TXT, ContentSniffer.sniff(bytes("{ not json\nplain text")));
+        assertEquals(FileExtension.TXT, ContentSniffer.sniff(bytes("Just some notes.")));
+    }
+
+    @Test
+    void testByteOrderMarkIsIgnored() {
+        byte[] html = bytes("<html><body>x</body></html>");
+        byte[] withBom = new byte[html.length + 3];
+        withBom[0] = (byte) 0xEF;
+        withBom[1] = (byte) 0xBB;
+        withBom[2] = (byte) 0xBF;
+        System.arraycopy(html, 0, withBom, 3, html.length);
+
+        assertEquals(FileExtension.HTML, ContentSniffer.sniff(withBom));
+    }
+
+    @Test
+    void testBinaryContentIsUnknown() {
+        assertEquals(FileExtension.UNKNOWN, ContentSniffer.sniff(new byte[] {1, 2, 0, 4}));
+        assertEquals(FileExtension.UNKNOWN, ContentSniffer.sniff(new byte[] {(byte) 0xC3, (byte) 0x28, 'a'}));
+    }
+
+    @Test
+    void testMultiByteCharacterCutAtTheEndOfTheSniffBufferIsStillText() throws Exception {
+        // Given a file whose sniffed prefix ends in the middle of a 3-byte character
+        byte[] content = new byte[ContentSniffer.SNIFF_LENGTH + 2];
+        Arrays.fill(content, (byte) 'a');
+        byte[] euro = "€".getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(euro, 0, content, ContentSniffer.SNIFF_LENGTH - 1, euro.length);
+        Path file = tempDir.resolve("notes");
+        Files.write(file, content);
+
+        // When
+        FileExtension sniffed = ContentSniffer.sniff(file.toFile());
+
+        // Then
+        assertEquals(FileExtension.TXT, sniffed);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
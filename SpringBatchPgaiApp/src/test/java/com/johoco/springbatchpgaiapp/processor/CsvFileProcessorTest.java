@@ -0,0 +1,57 @@
+package com.johoco.springbatchpgaiapp.processor;
+
+import com.johoco.springbatchpgaiapp.util.FileOperations;
+import com.johoco.springbatchpgaiapp.util.TextBlocks;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvFileProcessorTest {
+
+    private final CsvFileProcessor processor = new CsvFileProcessor(new FileOperations());
+
+    @Test
+    void testQuotedFieldKeepsEmbeddedNewlinesDelimitersAndQuotes() throws Exception {
+        // Given
+        CsvFileProcessor.RecordReader records = new CsvFileProcessor.RecordReader(new StringReader(
+                "id,comment\n1,\"first line\nsecond line, with \"\"quotes\"\"\"\n2,plain\n"));
+
+        // When / Then
+        assertEquals(List.of("id", "comment"), records.next());
+        assertEquals(List.of("1", "first line\nsecond line, with \"quotes\""), records.next());
+        assertEquals(List.of("2", "plain"), records.next());
+        assertNull(records.next());
+    }
+
+    @Test
+    void testCrlfEndsRecordsButStaysInsideQuotedFields() throws Exception {
+        // Given
+        CsvFileProcessor.RecordReader records = new CsvFileProcessor.RecordReader(new StringReader(
+                "name,note\r\nalpha,\"two\r\nlines\"\r\nbeta,last"));
+
+        // When / Then
+        assertEquals(List.of("name", "note"), records.next());
+        assertEquals(List.of("alpha", "two\r\nlines"), records.next());
+        assertEquals(List.of("beta", "last"), records.next());
+        assertNull(records.next());
+    }
+
+    @Test
+    void testRecordsAreRenderedWithTheirColumnNames() throws Exception {
+        // Given
+        String csv = "city,country,population\r\nParis,France,\r\n\"Washington, D.C.\",USA,689545\r\n";
+
+        // When
+        String content = TextBlocks.join(processor.streamContent(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "cities.csv"));
+
+        // Then
+        assertEquals("city: Paris, country: France\n"
+                + "city: Washington, D.C., country: USA, population: 689545\n", content);
+    }
+}
@@ -0,0 +1,122 @@
+package com.johoco.springbatchpgaiapp.processor;
+
+import com.johoco.springbatchpgaiapp.model.FileExtension;
+import com.johoco.springbatchpgaiapp.model.TextBlock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileProcessorFactoryTest {
+
+    private final CountDownLatch unblock = new CountDownLatch(1);
+
+    private FileProcessorFactory factory;
+
+    @BeforeEach
+    void setUp() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("document.extraction.txt.concurrency", "1")
+                .withProperty("document.extraction.txt.timeout-seconds", "1");
+        factory = new FileProcessorFactory(List.of(new HangingProcessor()), environment);
+    }
+
+    @AfterEach
+    void tearDown() {
+        unblock.countDown();
+        factory.shutdown();
+    }
+
+    @Test
+    void testHungExtractionTimesOutAndIsCountedAsAbandoned() {
+        // When
+        ExtractionTimeoutException e = assertThrows(ExtractionTimeoutException.class, () -> extract("hang.txt"));
+
+        // Then
+        assertTrue(e.getMessage().contains("timed out"));
+        assertEquals(1, factory.getAbandonedWorkers());
+    }
+
+    @Test
+    void testWaitForASlotHeldByAHungExtractionIsBounded() throws Exception {
+        // Given the only slot held by an extraction that ignores cancellation
+        assertThrows(ExtractionTimeoutException.class, () -> extract("hang.txt"));
+
+        // When
+        long start = System.nanoTime();
+        ExtractionTimeoutException e = assertThrows(ExtractionTimeoutException.class, () -> extract("next.txt"));
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then
+        assertTrue(e.getMessage().contains("No extraction slot"));
+        assertTrue(waitedMs < 5_000, "Waiting for a slot should give up after the timeout, waited " + waitedMs + " ms");
+    }
+
+    @Test
+    void testAbandonedWorkerFreesItsSlotWhenItStops() throws Exception {
+        // Given
+        assertThrows(ExtractionTimeoutException.class, () -> extract("hang.txt"));
+
+        // When the hung extractor finally returns
+        unblock.countDown();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (factory.getAbandonedWorkers() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Then
+        assertEquals(0, factory.getAbandonedWorkers());
+        assertEquals("fast", extract("fast.txt"));
+    }
+
+    private String extract(String name) throws Exception {
+        InputStream input = new ByteArrayInputStream(name.getBytes(StandardCharsets.UTF_8));
+        return factory.extractContent(factory.getProcessor(FileExtension.TXT), FileExtension.TXT, input, name);
+    }
+
+    /**
+     * Hangs on "hang.txt", ignoring interruption, until the test unblocks it.
+     */
+    private class HangingProcessor implements FileProcessor {
+
+        @Override
+        public Set<FileExtension> getSupportedExtensions() {
+            return Set.of(FileExtension.TXT);
+        }
+
+        @Override
+        public String extractContent(File file) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Stream<TextBlock> streamContent(InputStream input, String name) {
+            if (name.equals("hang.txt")) {
+                boolean interrupted = false;
+                while (unblock.getCount() > 0) {
+                    try {
+                        unblock.await();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Stream.of(new TextBlock(name.replace(".txt", ""), 0, 0));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.johoco.springbatchpgaiapp.processor;
+
+import com.johoco.springbatchpgaiapp.util.FileOperations;
+import com.johoco.springbatchpgaiapp.util.TextBlocks;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HtmlFileProcessorTest {
+
+    private final HtmlFileProcessor processor = new HtmlFileProcessor(new FileOperations());
+
+    @Test
+    void testScriptsStylesAndCommentsAreSkipped() throws Exception {
+        // Given
+        String html = "<html><head><title>Report</title><style>p { color: red; }</style>"
+                + "<script type=\"text/javascript\">if (a < b) { document.write('<p>hidden</p>'); }</script></head>"
+                + "<body><!-- a comment <p>not text</p> --><p>Visible</p><SCRIPT>var x = 1;</SCRIPT></body></html>";
+
+        // When
+        String content = extract(html);
+
+        // Then
+        assertEquals("Report\nVisible\n", content);
+    }
+
+    @Test
+    void testEntitiesAreDecoded() throws Exception {
+        // Given
+        String html = "<p>Fish &amp; chips &lt;tag&gt; &quot;quoted&quot; caf&#233; &#x263A; &copy;&nbsp;2024 &bogus; AT&T</p>";
+
+        // When
+        String content = extract(html);
+
+        // Then
+        assertEquals("Fish & chips <tag> \"quoted\" café ☺ © 2024 &bogus; AT&T\n", content);
+    }
+
+    @Test
+    void testCommentEndingWithExtraDashesIsClosed() throws Exception {
+        // When
+        String content = extract("<p><!-- x --->visible</p><p><!-- a -- b ---->also</p>");
+
+        // Then
+        assertEquals("visible\nalso\n", content);
+    }
+
+    @Test
+    void testLessThanNotFollowedByATagNameIsText() throws Exception {
+        // When
+        String content = extract("<p>1 < 2 and 3<4</p><p>a </ b</p>");
+
+        // Then
+        assertEquals("1 < 2 and 3<4\na </ b\n", content);
+    }
+
+    @Test
+    void testBlockTagsBreakLinesAndInlineTagsDoNot() throws Exception {
+        // When
+        String content = extract("<div>One <b>bold</b> <a href=\"x>y\">link</a></div><ul><li>Two</li><li>Three</li></ul>");
+
+        // Then
+        assertEquals("One bold link\nTwo\nThree\n", content);
+    }
+
+    private String extract(String html) throws IOException {
+        return TextBlocks.join(processor.streamContent(
+                new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)), "page.html"));
+    }
+}
@@ -0,0 +1,145 @@
+package com.johoco.springbatchpgaiapp.processor;
+
+import com.johoco.springbatchpgaiapp.model.TextBlock;
+import com.johoco.springbatchpgaiapp.util.TextNormalizer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfFileProcessorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PdfFileProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        processor = new PdfFileProcessor();
+        ReflectionTestUtils.setField(processor, "maxParallelism", 3);
+        ReflectionTestUtils.setField(processor, "parallelism", 3);
+        ReflectionTestUtils.setField(processor, "pagesPerRange", 5);
+        ReflectionTestUtils.setField(processor, "maxMainMemoryBytes", 1L << 20);
+        ReflectionTestUtils.setField(processor, "scratchDirectory", tempDir.toString());
+        ReflectionTestUtils.setField(processor, "oversizedFileSizeBytes", Long.MAX_VALUE);
+        ReflectionTestUtils.setField(processor, "oversizedPageCount", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(processor, "oversizedConcurrency", 1);
+        processor.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        processor.shutdown();
+    }
+
+    @Test
+    void testRangesExtractedInParallelAreEmittedInPageOrder() throws Exception {
+        // Given 12 pages, so ranges of 5 pages are extracted 3 at a time
+        File pdf = pdf("ranges.pdf", 12);
+
+        // When
+        List<TextBlock> blocks;
+        try (Stream<TextBlock> stream = processor.streamContent(pdf)) {
+            blocks = stream.collect(Collectors.toList());
+        }
+
+        // Then
+        assertEquals(List.of(1, 6, 11), blocks.stream().map(TextBlock::getPage).collect(Collectors.toList()));
+        long expectedOffset = 0;
+        for (TextBlock block : blocks) {
+            assertEquals(expectedOffset, block.getStartOffset());
+            expectedOffset += block.getText().length();
+        }
+        String content = blocks.stream().map(TextBlock::getText).collect(Collectors.joining());
+        for (int page = 1; page < 12; page++) {
+            assertTrue(content.indexOf("Page " + page + "\n") < content.indexOf("Page " + (page + 1) + "\n"),
+                    "Page " + page + " should come before page " + (page + 1));
+        }
+    }
+
+    @Test
+    void testEveryPageEndsWithAFormFeed() throws Exception {
+        // Given a document read page by page and one read in parallel ranges
+        File small = pdf("small.pdf", 3);
+        File large = pdf("large.pdf", 12);
+
+        // When
+        String smallContent = processor.extractContent(small);
+        String largeContent = processor.extractContent(large);
+
+        // Then
+        assertEquals(3, count(smallContent, TextNormalizer.PAGE_BREAK));
+        assertEquals(12, count(largeContent, TextNormalizer.PAGE_BREAK));
+        assertEquals(TextNormalizer.PAGE_BREAK, smallContent.charAt(smallContent.length() - 1));
+        assertTrue(largeContent.contains("Page 5\n" + TextNormalizer.PAGE_BREAK));
+    }
+
+    @Test
+    void testClosingTheStreamStopsRangesAlreadyExtracting() throws Exception {
+        // Given ranges that block after their first page until the stream has been closed
+        File pdf = pdf("cancelled.pdf", 30);
+        CountDownLatch extracting = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        AtomicInteger pagesExtracted = new AtomicInteger();
+        Stream<TextBlock> stream = processor.streamContent(pdf, 3, (file, pagesDone, totalPages) -> {
+            pagesExtracted.incrementAndGet();
+            extracting.countDown();
+            try {
+                closed.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(extracting.await(10, TimeUnit.SECONDS));
+
+        // When
+        stream.close();
+        closed.countDown();
+        ForkJoinPool pool = (ForkJoinPool) ReflectionTestUtils.getField(processor, "extractionPool");
+        assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS));
+
+        // Then each of the 3 running ranges stops after the page it was on
+        assertTrue(pagesExtracted.get() <= 3, "Ranges kept extracting after cancellation: " + pagesExtracted.get() + " pages");
+    }
+
+    private File pdf(String name, int pages) throws Exception {
+        File file = tempDir.resolve(name).toFile();
+        try (PDDocument document = new PDDocument()) {
+            for (int page = 1; page <= pages; page++) {
+                PDPage pdPage = new PDPage();
+                document.addPage(pdPage);
+                try (PDPageContentStream content = new PDPageContentStream(document, pdPage)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 12);
+                    content.newLineAtOffset(72, 700);
+                    content.showText("Page " + page);
+                    content.endText();
+                }
+            }
+            document.save(file);
+        }
+        return file;
+    }
+
+    private static long count(String text, char c) {
+        return text.chars().filter(ch -> ch == c).count();
+    }
+}
@@ -0,0 +1,109 @@
+package com.johoco.springbatchpgaiapp.service;
+
+import com.johoco.springbatchpgaiapp.processor.CsvFileProcessor;
+import com.johoco.springbatchpgaiapp.processor.FileProcessor;
+import com.johoco.springbatchpgaiapp.util.FileOperations;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtractedTextCacheTest {
+
+    @TempDir
+    Path cacheDir;
+
+    @TempDir
+    Path inputDir;
+
+    private final FileProcessor processor = new CsvFileProcessor(new FileOperations());
+
+    private ExtractedTextCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cache = new ExtractedTextCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "directory", cacheDir.toString());
+        ReflectionTestUtils.setField(cache, "maxSizeBytes", 1L << 20);
+        cache.init();
+    }
+
+    @Test
+    void testStoredTextIsReturnedForTheSameFileContent() throws Exception {
+        // Given
+        String key = cache.keyFor(processor, write("a.csv", "id\n1\n")).orElseThrow();
+        cache.put(key, "id: 1\n");
+
+        // When
+        String sameContentKey = cache.keyFor(processor, write("copy.csv", "id\n1\n")).orElseThrow();
+
+        // Then
+        assertEquals(key, sameContentKey);
+        assertEquals(Optional.of("id: 1\n"), cache.get(sameContentKey));
+    }
+
+    @Test
+    void testChangedContentIsAMiss() throws Exception {
+        // Given
+        File file = write("a.csv", "id\n1\n");
+        cache.put(cache.keyFor(processor, file).orElseThrow(), "id: 1\n");
+
+        // When
+        Files.writeString(file.toPath(), "id\n2\n");
+        String key = cache.keyFor(processor, file).orElseThrow();
+
+        // Then
+        assertEquals(Optional.empty(), cache.get(key));
+    }
+
+    @Test
+    void testUnreadableFileHasNoKey() {
+        // When / Then
+        assertEquals(Optional.empty(), cache.keyFor(processor, inputDir.resolve("missing.csv").toFile()));
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvictedFirst() throws Exception {
+        // Given a cache that fits exactly two entries, the older of which was just read
+        cache.put("a", "content a");
+        cache.put("b", "content b");
+        long size = Files.size(cacheDir.resolve("a.txt.gz")) + Files.size(cacheDir.resolve("b.txt.gz"));
+        ReflectionTestUtils.setField(cache, "maxSizeBytes", size);
+        assertTrue(cache.get("a").isPresent());
+
+        // When
+        cache.put("c", "content c");
+
+        // Then
+        assertEquals(Optional.empty(), cache.get("b"));
+        assertFalse(Files.exists(cacheDir.resolve("b.txt.gz")));
+        assertEquals(Optional.of("content a"), cache.get("a"));
+        assertEquals(Optional.of("content c"), cache.get("c"));
+    }
+
+    @Test
+    void testCorruptEntryIsAMissAndIsRemoved() throws Exception {
+        // Given
+        cache.put("a", "content a");
+        Files.write(cacheDir.resolve("a.txt.gz"), new byte[] {1, 2, 3, 4});
+
+        // When
+        Optional<String> text = cache.get("a");
+
+        // Then
+        assertEquals(Optional.empty(), text);
+        assertFalse(Files.exists(cacheDir.resolve("a.txt.gz")));
+    }
+
+    private File write(String name, String content) throws Exception {
+        return Files.writeString(inputDir.resolve(name), content).toFile();
+    }
+}
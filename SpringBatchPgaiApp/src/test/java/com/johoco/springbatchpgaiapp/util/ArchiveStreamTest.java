@@ -0,0 +1,213 @@
+package com.johoco.springbatchpgaiapp.util;
+
+import com.johoco.springbatchpgaiapp.model.FileExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveStreamTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testZipMembersAreReadInOrderWithoutDirectories() throws Exception {
+        // Given
+        Path archive = tempDir.resolve("docs.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            zip.putNextEntry(new ZipEntry("docs/"));
+            zip.closeEntry();
+            zipEntry(zip, "docs/a.txt", "Alpha");
+            zipEntry(zip, "./docs/b.csv", "id,name\n1,Beta\n");
+        }
+
+        // When
+        List<String> members = readMembers(archive, FileExtension.ZIP);
+
+        // Then
+        assertEquals(List.of("docs/a.txt=Alpha", "docs/b.csv=id,name\n1,Beta\n"), members);
+    }
+
+    @Test
+    void testUnreadMemberContentIsSkipped() throws Exception {
+        // Given
+        Path archive = tarGz("skip.tar.gz", out -> {
+            writeTarEntry(out, header("first.txt", 1000, '0'), new byte[1000]);
+            writeTarEntry(out, header("second.txt", 6, '0'), bytes("Second"));
+        });
+
+        // When
+        List<String> names = new ArrayList<>();
+        try (ArchiveStream stream = ArchiveStream.open(archive, FileExtension.TAR_GZ)) {
+            ArchiveStream.Member member;
+            while ((member = stream.next()) != null) {
+                names.add(member.getName());
+            }
+        }
+
+        // Then
+        assertEquals(List.of("first.txt", "second.txt"), names);
+    }
+
+    @Test
+    void testGnuLongNameAppliesToTheNextMember() throws Exception {
+        // Given a member whose path does not fit the 100-byte name field
+        String longName = "reports/" + "quarterly-".repeat(12) + "summary.txt";
+        Path archive = tarGz("gnu.tar.gz", out -> {
+            byte[] name = bytes(longName + "\0");
+            writeTarEntry(out, header("././@LongLink", name.length, 'L'), name);
+            writeTarEntry(out, header(longName.substring(0, 99), 4, '0'), bytes("Long"));
+            writeTarEntry(out, header("short.txt", 5, '0'), bytes("Short"));
+        });
+
+        // When
+        List<String> members = readMembers(archive, FileExtension.TAR_GZ);
+
+        // Then
+        assertEquals(List.of(longName + "=Long", "short.txt=Short"), members);
+    }
+
+    @Test
+    void testPaxPathAppliesToTheNextMemberOnly() throws Exception {
+        // Given a pax header naming a member with a long, non-ASCII path, and a global header
+        String longName = "archives/" + "année-".repeat(20) + "rapport.txt";
+        Path archive = tarGz("pax.tar.gz", out -> {
+            byte[] global = paxRecords("comment=made by a test");
+            writeTarEntry(out, header("pax_global_header", global.length, 'g'), global);
+            byte[] extended = paxRecords("mtime=1700000000.5", "path=" + longName);
+            writeTarEntry(out, header("PaxHeaders/truncated", extended.length, 'x'), extended);
+            writeTarEntry(out, header("truncated", 6, '0'), bytes("Report"));
+            writeTarEntry(out, header("plain.txt", 5, '0'), bytes("Plain"));
+        });
+
+        // When
+        List<String> members = readMembers(archive, FileExtension.TAR_GZ);
+
+        // Then
+        assertEquals(List.of(longName + "=Report", "plain.txt=Plain"), members);
+    }
+
+    @Test
+    void testPaxRecordLengthsCountBytesAndTheLastPathWins() throws Exception {
+        // Given
+        byte[] records = paxRecords("path=first", "path=dossier/é.txt", "size=12");
+
+        // When
+        String path = ArchiveStream.paxPath(records);
+
+        // Then
+        assertEquals("dossier/é.txt", path);
+        assertNull(ArchiveStream.paxPath(paxRecords("mtime=1")));
+        assertThrows(IOException.class, () -> ArchiveStream.paxPath(bytes("99 path=x\n")));
+    }
+
+    @Test
+    void testUstarPrefixIsJoinedToTheName() throws Exception {
+        // Given
+        Path archive = tarGz("ustar.tar.gz", out -> {
+            byte[] header = header("notes.txt", 5, '0');
+            putString(header, 345, "deeply/nested/folder");
+            writeTarEntry(out, header, bytes("Notes"));
+            writeTarEntry(out, header("folder/", 0, '5'), new byte[0]);
+        });
+
+        // When
+        List<String> members = readMembers(archive, FileExtension.TAR_GZ);
+
+        // Then
+        assertEquals(List.of("deeply/nested/folder/notes.txt=Notes"), members);
+    }
+
+    private static List<String> readMembers(Path archive, FileExtension type) throws IOException {
+        List<String> members = new ArrayList<>();
+        try (ArchiveStream stream = ArchiveStream.open(archive, type)) {
+            ArchiveStream.Member member;
+            while ((member = stream.next()) != null) {
+                members.add(member.getName() + "=" + new String(member.getContent().readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return members;
+    }
+
+    private static void zipEntry(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(bytes(content));
+        zip.closeEntry();
+    }
+
+    private Path tarGz(String fileName, TarWriter writer) throws IOException {
+        Path archive = tempDir.resolve(fileName);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive))) {
+            ByteArrayOutputStream tar = new ByteArrayOutputStream();
+            writer.write(tar);
+            // End of archive: two zero blocks
+            tar.write(new byte[1024]);
+            out.write(tar.toByteArray());
+        }
+        return archive;
+    }
+
+    /**
+     * Builds a ustar header; the reader does not verify checksums, so none is computed.
+     */
+    static byte[] header(String name, long size, char type) {
+        byte[] header = new byte[512];
+        putString(header, 0, name);
+        putString(header, 100, "0000644");
+        putString(header, 124, String.format("%011o", size));
+        putString(header, 136, String.format("%011o", 1_700_000_000L));
+        header[156] = (byte) type;
+        putString(header, 257, "ustar");
+        putString(header, 263, "00");
+        return header;
+    }
+
+    /**
+     * Encodes pax records; each record's length counts its own digits, so it is found by iteration.
+     */
+    static byte[] paxRecords(String... keyValues) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String keyValue : keyValues) {
+            int rest = bytes(keyValue).length + 2;
+            int length = rest + 1;
+            while (String.valueOf(length).length() + rest != length) {
+                length++;
+            }
+            out.writeBytes(bytes(length + " " + keyValue + "\n"));
+        }
+        return out.toByteArray();
+    }
+
+    static void writeTarEntry(ByteArrayOutputStream out, byte[] header, byte[] content) throws IOException {
+        out.write(header);
+        out.write(content);
+        out.write(new byte[(512 - content.length % 512) % 512]);
+    }
+
+    private static void putString(byte[] header, int offset, String value) {
+        byte[] bytes = bytes(value);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface TarWriter {
+        void write(ByteArrayOutputStream out) throws IOException;
+    }
+}